@@ -1,23 +1,41 @@
 package cn.study.compilerclass.assembly;
 
+import cn.study.compilerclass.ir.Literals;
 import cn.study.compilerclass.model.ConstTableEntry;
 import cn.study.compilerclass.model.FunctionTableEntry;
 import cn.study.compilerclass.model.MiddleTableEntry;
 import cn.study.compilerclass.model.VariableTableEntry;
 import cn.study.compilerclass.utils.OutInfo;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class AssemblyGenerator {
 
+  // 输出缓冲区写出的粒度（字符数）
+  private static final int CHUNK = 8192;
+
   private final String src = "汇编代码";
   private final ArrayList<ConstTableEntry> constTable;
   private final ArrayList<VariableTableEntry> variableTable;
   private final ArrayList<FunctionTableEntry> functionTable;
   private final ArrayList<MiddleTableEntry> middleCode;
+  // 输出缓冲区，满 CHUNK 个字符即写出到 out
   private final StringBuilder asmCode;
+  // 四元式翻译得到的指令
+  private final ArrayList<Instr> code = new ArrayList<>();
+  private final ArrayList<String> pendingLabels = new ArrayList<>();
+  // 四元式操作数 -> 汇编操作数，变量与常量在翻译前一次填入，其余操作数第一次出现时解析
+  private final HashMap<String, Operand> operands = new HashMap<>();
   private final OutInfo outInfos;
+  private RegisterAllocator registers;
+  private Writer out;
 
   /**
    * 构造函数
@@ -39,41 +57,89 @@ public AssemblyGenerator(ArrayList<ConstTableEntry> constTable, ArrayList<Variab
   /**
    * 生成 8086 汇编代码<p/>
    * <p>
-   * 处理顺序: <br/> 1. {@link AssemblyGenerator#fixed1() 固定模板 1}<br/> 2. {@link AssemblyGenerator#vars() 变量}<br/> 3.
-   * {@link AssemblyGenerator#fixed2() 固定模板 2}<br/> 4. {@link AssemblyGenerator#middles() 四元式}<br/> 5.
-   * {@link AssemblyGenerator#fixed3() 固定模板 3}<br/>
+   * 处理顺序: <br/> 1. {@link AssemblyGenerator#fixed1(int) 固定模板 1}<br/> 2. {@link AssemblyGenerator#vars() 变量}<br/> 3.
+   * {@link AssemblyGenerator#fixed2() 固定模板 2}<br/> 4. {@link AssemblyGenerator#allocateRegisters() 寄存器分配}<br/> 5.
+   * {@link AssemblyGenerator#resolveSymbols() 符号解析}<br/> 6. {@link AssemblyGenerator#middles() 四元式}<br/> 7.
+   * {@link AssemblyGenerator#optimizeCode() 窥孔优化与分支松弛}<br/> 8. {@link AssemblyGenerator#fixed3() 固定模板 3}<br/>
    *
-   * @return 生成的汇编代码字符串
+   * @return 生成的汇编代码字符串，出错时返回 null
    */
   public String generateAssembly() {
+    StringWriter writer = new StringWriter();
+    try {
+      return generateAssembly(writer) ? writer.toString() : null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // StringWriter 不会抛出
+    }
+  }
 
+  /**
+   * 生成 8086 汇编代码并边生成边写入 out<br/>处理顺序见 {@link AssemblyGenerator#generateAssembly()}。文本按{@link #CHUNK 块}写出，
+   * 内存中只保留四元式翻译得到的指令序列（窥孔优化与分支松弛需要完整的指令序列），不保留整个程序的文本。出错时 out 中可能已写入部分内容。
+   *
+   * @param out 输出位置，不会被关闭
+   * @return 是否生成成功
+   * @throws IOException 写入 out 时出错
+   */
+  public boolean generateAssembly(Writer out) throws IOException {
+    this.out = out;
     try {
       // 固定模板 1
-      fixed1();
+      fixed1(extendedSize());
+      drain();
       // 变量
       vars();
       // 固定模板 2
       fixed2();
+      drain();
+      // 寄存器分配
+      allocateRegisters();
+      // 符号解析
+      resolveSymbols();
       // 四元式
       middles();
+      // 窥孔优化与分支松弛
+      optimizeCode();
       // 固定模板 3
       fixed3();
-
-      return asmCode.toString();
+      drain();
+      out.flush();
+      return true;
     } catch (myException e) {
-      return null;
+      return false;
+    } finally {
+      asmCode.setLength(0);
+      code.clear();
+      pendingLabels.clear();
+      operands.clear();
+      this.out = null;
+    }
+  }
+
+  // 把缓冲区中的文本写出
+  private void drain() throws IOException {
+    out.append(asmCode);
+    asmCode.setLength(0);
+  }
+
+  // 缓冲区满一块时写出
+  private void drainIfFull() throws IOException {
+    if (asmCode.length() >= CHUNK) {
+      drain();
     }
   }
 
   /**
    * 固定模板 1<br/>包含数据段、代码段和栈段的初始化
+   *
+   * @param extendedSize 存放临时变量的附加段字节数
    */
-  private void fixed1() {
+  private void fixed1(int extendedSize) {
     asmCode.append("""
         assume cs:code,ds:data,ss:stack,es:extended
         
         extended segment
-        db 1024 dup (0)
+        db %d dup (0)
         extended ends
         
         stack segment
@@ -86,15 +152,38 @@ private void fixed1() {
         int 21h
         endm
         
-        """);
+        """.formatted(extendedSize));
+  }
+
+  /**
+   * 附加段大小<br/>临时变量 {@code $_tN} 存放在 {@code es:[N*2]}，默认 1024 字节，临时变量更多时按最大序号扩大，超过一个段（64KB）时报错
+   *
+   * @return 附加段字节数
+   * @throws myException 临时变量超出一个段时抛出
+   */
+  private int extendedSize() throws myException {
+    int max = -1;
+    for (MiddleTableEntry entry : middleCode) {
+      for (String operand : new String[]{entry.getArg1(), entry.getArg2(), entry.getResult()}) {
+        if (operand != null && operand.startsWith("$_t")) {
+          max = Math.max(max, Integer.parseInt(operand.substring(3)));
+        }
+      }
+    }
+    int size = Math.max(1024, (max + 1) * 2);
+    if (size > 65536) {
+      error("临时变量过多，附加段无法容纳: " + (max + 1) + " 个");
+    }
+    return size;
   }
 
   /**
    * 生成变量的汇编代码<br/>包括数据段的定义和变量的初始化
    *
    * @throws myException 如果遇到未支持的类型，抛出自定义异常
+   * @throws IOException   写出时出错
    */
-  private void vars() throws myException {
+  private void vars() throws myException, IOException {
     asmCode.append("""
         data segment
         _buff_p db 256 dup (24h)
@@ -115,6 +204,7 @@ private void vars() throws myException {
       asmCode.append(assemblyType).append(" ");
       // 默认值
       asmCode.append(getValue(entry)).append("\n");
+      drainIfFull();
     }
     asmCode.append("data ends\n\n");
   }
@@ -138,7 +228,24 @@ private void fixed2() {
   }
 
   /**
-   * 生成四元式对应的汇编代码<br/>根据中间代码生成对应的汇编代码
+   * 为临时变量分配寄存器<br/>见 {@link RegisterAllocator}
+   *
+   * @throws myException 如果四元式中有无法识别的操作符，抛出自定义异常
+   */
+  private void allocateRegisters() throws myException {
+    ArrayList<String> variables = new ArrayList<>();
+    for (VariableTableEntry entry : variableTable) {
+      variables.add(entry.getName());
+    }
+    try {
+      registers = new RegisterAllocator(middleCode, variables);
+    } catch (IllegalArgumentException e) {
+      error(e.getMessage());
+    }
+  }
+
+  /**
+   * 生成四元式对应的汇编代码<br/>根据中间代码生成对应的{@link Instr 指令}，指令的文本在{@link AssemblyGenerator#optimizeCode() 优化}之后才输出
    *
    * @throws myException 如果遇到未支持的操作符或类型，抛出自定义异常
    */
@@ -146,159 +253,149 @@ private void middles() throws myException {
     for (MiddleTableEntry entry : middleCode) {
       int id = entry.getId();
       String op = entry.getOp();
-      String arg1 = format(entry.getArg1());
-      String arg2 = format(entry.getArg2());
-      String result = format(entry.getResult());
+      Operand arg1 = format(entry.getArg1());
+      Operand arg2 = format(entry.getArg2());
+      Operand result = format(entry.getResult());
       if (!op.equals("main")) {
-        asmCode.append(String.format("_%d: ", id));
+        label("_" + id);
         switch (op) {
           case "=" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("mov %s, ax\n", result));
+            if (arg1.isRegister() || result.isRegister()) {
+              emit(Mnemonic.MOV, result, arg1);
+            } else {
+              emit(Mnemonic.MOV, Operand.AX, arg1);
+              emit(Mnemonic.MOV, result, Operand.AX);
+            }
           }
           case "call" -> {
-            switch (arg1) {
+            switch (entry.getArg1()) {
               case "input", "put", "putc", "putb" -> {
-                asmCode.append(String.format("call %s\n", arg1));
-                asmCode.append(String.format("mov %s, ax\n", result));
+                emit(Mnemonic.CALL, Operand.label(entry.getArg1()));
+                emit(Mnemonic.MOV, result, Operand.AX);
               }
               default -> // 跳过不支持的函数调用
-                  error("暂未支持自定义函数调用: " + arg1);
+                  error("暂未支持自定义函数调用: " + entry.getArg1());
             }
           }
-          case "+" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("add ax, %s\n", arg2));
-            asmCode.append(String.format("mov %s, ax\n", result));
-          }
-          case "-" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("sub ax, %s\n", arg2));
-            asmCode.append(String.format("mov %s, ax\n", result));
-          }
+          case "+" -> arithmetic(Mnemonic.ADD, arg1, arg2, result);
+          case "-" -> arithmetic(Mnemonic.SUB, arg1, arg2, result);
           case "*" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("mov bx, %s\n", arg2));
-            asmCode.append("imul bx\n");
-            asmCode.append(String.format("mov %s, ax\n", result));
+            emit(Mnemonic.MOV, Operand.AX, arg1);
+            emit(Mnemonic.IMUL, inRegister(arg2, Operand.DX)); // 乘积的高位写入 DX，DX 不参与分配
+            emit(Mnemonic.MOV, result, Operand.AX);
           }
           case "/" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append("cwd\n");  // 扩展AX到DX:AX用于有符号除法
-            asmCode.append(String.format("mov bx, %s\n", arg2));
-            asmCode.append("idiv bx\n");
-            asmCode.append(String.format("mov %s, ax\n", result));
+            int power = powerOfTwo(entry.getArg2());
+            if (power > 0) {
+              // 负数先加上 2^k-1 使算术右移向零舍入，与 idiv 一致
+              emit(Mnemonic.MOV, Operand.AX, arg1);
+              emit(Mnemonic.CWD);
+              emit(Mnemonic.AND, Operand.DX, Operand.immediate((1 << power) - 1));
+              emit(Mnemonic.ADD, Operand.AX, Operand.DX);
+              shift(Mnemonic.SAR, power);
+              emit(Mnemonic.MOV, result, Operand.AX);
+            } else {
+              emit(Mnemonic.MOV, Operand.AX, arg1);
+              emit(Mnemonic.CWD); // 扩展AX到DX:AX用于有符号除法
+              emit(Mnemonic.IDIV, inRegister(arg2, Operand.BX));
+              emit(Mnemonic.MOV, result, Operand.AX);
+            }
           }
           case "%" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append("cwd\n");
-            asmCode.append(String.format("mov bx, %s\n", arg2));
-            asmCode.append("idiv bx\n");
-            asmCode.append(String.format("mov %s, dx\n", result));  // 余数在DX中
+            int power = powerOfTwo(entry.getArg2());
+            if (power > 0) {
+              // 余数 = ((x + bias) & (2^k-1)) - bias，负数的 bias 为 2^k-1，余数与被除数同号
+              Operand mask = Operand.immediate((1 << power) - 1);
+              emit(Mnemonic.MOV, Operand.AX, arg1);
+              emit(Mnemonic.CWD);
+              emit(Mnemonic.AND, Operand.DX, mask);
+              emit(Mnemonic.ADD, Operand.AX, Operand.DX);
+              emit(Mnemonic.AND, Operand.AX, mask);
+              emit(Mnemonic.SUB, Operand.AX, Operand.DX);
+              emit(Mnemonic.MOV, result, Operand.AX);
+            } else {
+              emit(Mnemonic.MOV, Operand.AX, arg1);
+              emit(Mnemonic.CWD);
+              emit(Mnemonic.IDIV, inRegister(arg2, Operand.BX));
+              emit(Mnemonic.MOV, result, Operand.DX); // 余数在DX中
+            }
+          }
+          case "<<" -> {
+            emit(Mnemonic.MOV, Operand.AX, arg1);
+            shift(Mnemonic.SHL, Integer.parseInt(entry.getArg2()));
+            emit(Mnemonic.MOV, result, Operand.AX);
           }
           case "para" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append("push ax\n");
+            if (arg1.isRegister()) {
+              emit(Mnemonic.PUSH, arg1);
+            } else {
+              emit(Mnemonic.MOV, Operand.AX, arg1);
+              emit(Mnemonic.PUSH, Operand.AX);
+            }
           }
-          case "j" -> asmCode.append(String.format("jmp far ptr _%s\n", result));
+          // 跳转的长度由分支松弛决定
+          case "j" -> emit(Mnemonic.JMP, Operand.label("_" + entry.getResult()));
           case "jz" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1)); // 将 arg1 的值移动到 AX 寄存器
-            asmCode.append("cmp ax, 0\n"); // 比较 AX 寄存器的值是否为 0
-            asmCode.append(String.format("jne _ne_%d\n", id)); // 如果 AX 寄存器的值不为 0，跳转到 ne_id
-            asmCode.append(String.format("jmp far ptr _%s\n", result)); // 否则跳转到 result
-            asmCode.append(String.format("_ne_%d: nop\n", id)); // ne_id 处的空操作
+            emit(Mnemonic.CMP, comparand(arg1), Operand.ZERO); // 比较 arg1 的值是否为 0
+            emit(Mnemonic.JE, Operand.label("_" + entry.getResult())); // 为 0 时跳转到 result
           }
           case "jnz" -> {
-            asmCode.append(String.format("mov ax, %s\n", arg1)); // 将 arg1 的值移动到 AX 寄存器
-            asmCode.append("cmp ax, 0\n"); // 比较 AX 寄存器的值是否为 0
-            asmCode.append(String.format("je _ez_%d\n", id)); // 如果 AX 寄存器的值为 0，跳转到 ez_id
-            asmCode.append(String.format("jmp far ptr _%s\n", result)); // 否则跳转到 result
-            asmCode.append(String.format("_ez_%d: nop\n", id)); // ez_id 处的空操作
-          }
-          case ">" -> {
-            asmCode.append("mov dx, 1\n"); // 默认结果为真
-            asmCode.append(String.format("mov ax, %s\n", arg1)); // AX中存储的是arg1的值
-            asmCode.append(String.format("cmp ax, %s\n", arg2)); // 比较arg1和arg2
-            asmCode.append(String.format("jg _g_%d\n", id)); // 如果arg1大于arg2，跳转到_g_id
-            asmCode.append("mov dx, 0\n"); // 如果不满足条件，将dx设为0
-            asmCode.append(String.format("_g_%d: mov %s, dx\n", id, result)); // 将结果存储到result中
-          }
-          case "<" -> {
-            asmCode.append("mov dx, 1\n");
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("cmp ax, %s\n", arg2));
-            asmCode.append(String.format("jl _l_%d\n", id));
-            asmCode.append("mov dx, 0\n");
-            asmCode.append(String.format("_l_%d: mov %s, dx\n", id, result));
+            emit(Mnemonic.CMP, comparand(arg1), Operand.ZERO); // 比较 arg1 的值是否为 0
+            emit(Mnemonic.JNE, Operand.label("_" + entry.getResult())); // 不为 0 时跳转到 result
           }
-          case ">=" -> {
-            asmCode.append("mov dx, 1\n");
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("cmp ax, %s\n", arg2));
-            asmCode.append(String.format("jge _ge_%d\n", id));
-            asmCode.append("mov dx, 0\n");
-            asmCode.append(String.format("_ge_%d: mov %s, dx\n", id, result));
-          }
-          case "<=" -> {
-            asmCode.append("mov dx, 1\n");
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("cmp ax, %s\n", arg2));
-            asmCode.append(String.format("jle _le_%d\n", id));
-            asmCode.append("mov dx, 0\n");
-            asmCode.append(String.format("_le_%d: mov %s, dx\n", id, result));
-          }
-          case "==" -> {
-            asmCode.append("mov dx, 1\n");
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("cmp ax, %s\n", arg2));
-            asmCode.append(String.format("je _ez_%d\n", id)); // 如果相等，跳转到 ez_id
-            asmCode.append("mov dx, 0\n");
-            asmCode.append(String.format("_ez_%d: mov %s, dx\n", id, result));
-          }
-          case "!=" -> {
-            asmCode.append("mov dx, 1\n");
-            asmCode.append(String.format("mov ax, %s\n", arg1));
-            asmCode.append(String.format("cmp ax, %s\n", arg2));
-            asmCode.append(String.format("jne _ne_%d\n", id)); // 如果不相等，跳转到 ne_id
-            asmCode.append("mov dx, 0\n");
-            asmCode.append(String.format("_ne_%d: mov %s, dx\n", id, result));
+          case "j<", "j>", "j<=", "j>=", "j==", "j!=" -> {
+            // 比较后条件跳转：一次 cmp 与一条有符号条件跳转
+            emit(Mnemonic.CMP, comparand(arg1), arg2);
+            emit(jcc(op), Operand.label("_" + entry.getResult()));
           }
+          case ">" -> relation(Mnemonic.JG, "_g_" + id, arg1, arg2, result);
+          case "<" -> relation(Mnemonic.JL, "_l_" + id, arg1, arg2, result);
+          case ">=" -> relation(Mnemonic.JGE, "_ge_" + id, arg1, arg2, result);
+          case "<=" -> relation(Mnemonic.JLE, "_le_" + id, arg1, arg2, result);
+          case "==" -> relation(Mnemonic.JE, "_ez_" + id, arg1, arg2, result);
+          case "!=" -> relation(Mnemonic.JNE, "_ne_" + id, arg1, arg2, result);
           case "&&" -> {
             // && arg1 arg2 result
-            asmCode.append("mov dx, 0\n"); // 默认结果为假
-            asmCode.append(String.format("mov ax, %s\n", arg1)); // 将 arg1 的值移动到 AX 寄存器
-            asmCode.append("cmp ax, 0\n"); // 比较 AX 寄存器的值是否为 0
-            asmCode.append(String.format("je _and_false_%d\n", id)); // 如果 arg1 为假，跳转到 and_false_id
-            asmCode.append(String.format("mov ax, %s\n", arg2)); // 将 arg2 的值移动到 AX 寄存器
-            asmCode.append("cmp ax, 0\n"); // 比较 AX 寄存器的值是否为 0
-            asmCode.append(String.format("je _and_false_%d\n", id)); // 如果 arg2 为假，跳转到 and_false_id
-            asmCode.append("mov dx, 1\n"); // 如果 arg1 和 arg2 都为真，将 dx 设为 1
-            asmCode.append(String.format("_and_false_%d: mov %s, dx\n", id, result)); // 将结果存储到 result 中
+            Operand falseLabel = Operand.label("_and_false_" + id);
+            emit(Mnemonic.MOV, Operand.DX, Operand.ZERO); // 默认结果为假
+            emit(Mnemonic.MOV, Operand.AX, arg1); // 将 arg1 的值移动到 AX 寄存器
+            emit(Mnemonic.CMP, Operand.AX, Operand.ZERO); // 比较 AX 寄存器的值是否为 0
+            emit(Mnemonic.JE, falseLabel); // 如果 arg1 为假，跳转到 and_false_id
+            emit(Mnemonic.MOV, Operand.AX, arg2); // 将 arg2 的值移动到 AX 寄存器
+            emit(Mnemonic.CMP, Operand.AX, Operand.ZERO); // 比较 AX 寄存器的值是否为 0
+            emit(Mnemonic.JE, falseLabel); // 如果 arg2 为假，跳转到 and_false_id
+            emit(Mnemonic.MOV, Operand.DX, Operand.ONE); // 如果 arg1 和 arg2 都为真，将 dx 设为 1
+            label(falseLabel.text());
+            emit(Mnemonic.MOV, result, Operand.DX); // 将结果存储到 result 中
           }
           case "||" -> {
             // || arg1 arg2 result
-            asmCode.append("mov dx, 1\n"); // 默认结果为真
-            asmCode.append(String.format("mov ax, %s\n", arg1)); // 将 arg1 的值移动到 AX 寄存器
-            asmCode.append("cmp ax, 0\n"); // 比较 AX 寄存器的值是否为 0
-            asmCode.append(String.format("jne _or_true_%d\n", id)); // 如果 arg1 为真，跳转到 or_true_id
-            asmCode.append(String.format("mov ax, %s\n", arg2)); // 将 arg2 的值移动到 AX 寄存器
-            asmCode.append("cmp ax, 0\n"); // 比较 AX 寄存器的值是否为 0
-            asmCode.append(String.format("jne _or_true_%d\n", id)); // 如果 arg2 为真，跳转到 or_true_id
-            asmCode.append("mov dx, 0\n"); // 如果 arg1 和 arg2 都为假，将 dx 设为 0
-            asmCode.append(String.format("_or_true_%d: mov %s, dx\n", id, result)); // 将结果存储到 result 中
+            Operand trueLabel = Operand.label("_or_true_" + id);
+            emit(Mnemonic.MOV, Operand.DX, Operand.ONE); // 默认结果为真
+            emit(Mnemonic.MOV, Operand.AX, arg1); // 将 arg1 的值移动到 AX 寄存器
+            emit(Mnemonic.CMP, Operand.AX, Operand.ZERO); // 比较 AX 寄存器的值是否为 0
+            emit(Mnemonic.JNE, trueLabel); // 如果 arg1 为真，跳转到 or_true_id
+            emit(Mnemonic.MOV, Operand.AX, arg2); // 将 arg2 的值移动到 AX 寄存器
+            emit(Mnemonic.CMP, Operand.AX, Operand.ZERO); // 比较 AX 寄存器的值是否为 0
+            emit(Mnemonic.JNE, trueLabel); // 如果 arg2 为真，跳转到 or_true_id
+            emit(Mnemonic.MOV, Operand.DX, Operand.ZERO); // 如果 arg1 和 arg2 都为假，将 dx 设为 0
+            label(trueLabel.text());
+            emit(Mnemonic.MOV, result, Operand.DX); // 将结果存储到 result 中
           }
           case "!" -> {
-            asmCode.append("mov dx, 1\n");
-            asmCode.append(String.format("mov ax, %s\n", arg1)); // 将 arg1 的值移动到 AX 寄存器
-            asmCode.append("cmp ax, 0\n"); // 比较 AX 寄存器的值是否为 0
-            asmCode.append(String.format("je _not_true_%d\n", id)); // 如果 arg1 为假，跳转到 not_true_id
-            asmCode.append("mov dx, 0\n"); // 如果 arg1 为真，将 dx 设为 0
-            asmCode.append(String.format("_not_true_%d: mov %s, dx\n", id, result)); // 将结果存储到 result 中
+            emit(Mnemonic.MOV, Operand.DX, Operand.ONE);
+            emit(Mnemonic.MOV, Operand.AX, arg1); // 将 arg1 的值移动到 AX 寄存器
+            emit(Mnemonic.CMP, Operand.AX, Operand.ZERO); // 比较 AX 寄存器的值是否为 0
+            emit(Mnemonic.JE, Operand.label("_not_true_" + id)); // 如果 arg1 为假，跳转到 not_true_id
+            emit(Mnemonic.MOV, Operand.DX, Operand.ZERO); // 如果 arg1 为真，将 dx 设为 0
+            label("_not_true_" + id);
+            emit(Mnemonic.MOV, result, Operand.DX); // 将结果存储到 result 中
           }
           case "quit" -> {
-            asmCode.append("nop\n"); // 占位符
-            asmCode.append("quit: mov ah, 4ch\n");
-            asmCode.append("int 21h\n");
+            emit(Mnemonic.NOP); // 占位符
+            label("quit");
+            emit(Mnemonic.MOV, Operand.AH, Operand.immediate("4ch"));
+            emit(Mnemonic.INT, Operand.immediate("21h"));
           }
           default -> error(String.format("无效的操作符 '%s'", op));
         }
@@ -306,6 +403,79 @@ private void middles() throws myException {
     }
   }
 
+  /**
+   * 加减法：结果在寄存器中时直接在结果寄存器上运算，否则经 AX 运算
+   *
+   * @param op ADD 或 SUB
+   */
+  private void arithmetic(Mnemonic op, Operand arg1, Operand arg2, Operand result) {
+    if (result.isRegister() && !result.equals(arg2)) {
+      if (!result.equals(arg1)) {
+        emit(Mnemonic.MOV, result, arg1);
+      }
+      emit(op, result, arg2);
+    } else {
+      emit(Mnemonic.MOV, Operand.AX, arg1);
+      emit(op, Operand.AX, arg2);
+      emit(Mnemonic.MOV, result, Operand.AX);
+    }
+  }
+
+  /**
+   * 关系运算：结果默认为真，条件不成立时改为假
+   *
+   * @param jcc   条件成立时的跳转
+   * @param label 越过置假指令的标号
+   */
+  private void relation(Mnemonic jcc, String label, Operand arg1, Operand arg2, Operand result) {
+    emit(Mnemonic.MOV, Operand.DX, Operand.ONE); // 默认结果为真
+    emit(Mnemonic.MOV, Operand.AX, arg1); // AX中存储的是arg1的值
+    emit(Mnemonic.CMP, Operand.AX, arg2); // 比较arg1和arg2
+    emit(jcc, Operand.label(label)); // 条件成立时跳过置假
+    emit(Mnemonic.MOV, Operand.DX, Operand.ZERO); // 如果不满足条件，将dx设为0
+    label(label);
+    emit(Mnemonic.MOV, result, Operand.DX); // 将结果存储到result中
+  }
+
+  // 生成一条指令，之前给出的标号放在这条指令前
+  private void emit(Mnemonic op, Operand... operands) {
+    Instr instr = new Instr(op, operands);
+    if (!pendingLabels.isEmpty()) {
+      instr.labels.addAll(pendingLabels);
+      pendingLabels.clear();
+    }
+    code.add(instr);
+  }
+
+  // 给下一条生成的指令加上标号
+  private void label(String name) {
+    pendingLabels.add(name);
+  }
+
+  /**
+   * 对四元式生成的指令做窥孔优化与分支松弛，再逐条输出为汇编源码<br/>见 {@link Peephole} 与 {@link BranchRelaxation}，完成后输出优化前后的指令条数、估计的时钟周期数与跳转长度的统计
+   */
+  private void optimizeCode() throws IOException {
+    int before = code.size();
+    int cyclesBefore = 0;
+    for (Instr instr : code) {
+      cyclesBefore += CycleModel.cycles(instr);
+    }
+    List<Instr> optimized = new Peephole(code).run();
+    int after = optimized.size();
+    int cyclesAfter = 0;
+    for (Instr instr : optimized) {
+      cyclesAfter += CycleModel.cycles(instr);
+    }
+    BranchRelaxation relaxation = new BranchRelaxation(optimized);
+    for (Instr instr : relaxation.run()) {
+      instr.appendTo(asmCode);
+      drainIfFull();
+    }
+    outInfos.info(src, String.format("窥孔优化：%d 条指令 -> %d 条，估计 %d -> %d 个时钟周期", before, after, cyclesBefore, cyclesAfter));
+    outInfos.info(src, "分支松弛：" + relaxation.summary());
+  }
+
   /**
    * 固定模板 3<br/>包含输入输出函数 read 和 write
    */
@@ -315,11 +485,13 @@ private void fixed3() {
         input proc near
         push bp
         mov bp, sp
-        mov bx, offset _msg_s
-        call _print
         push bx
         push cx
         push dx
+        push si
+        push di
+        mov bx, offset _msg_s
+        call _print
         proc_pre_start:
         xor ax, ax
         xor bx, bx
@@ -367,6 +539,8 @@ private void fixed3() {
         jmp proc_pre_start
         
         proc_input_done:
+        pop di
+        pop si
         pop dx
         pop cx
         pop bx
@@ -486,33 +660,50 @@ private void fixed3() {
   }
 
   /**
-   * 格式化变量名、常量名和临时变量名为汇编语言中的表示形式
+   * 把变量表与常量表中的名字解析为操作数<br/>变量为数据段中的存储器操作数，常量为立即数
    *
-   * @param str 需要格式化的字符串
-   * @return 格式化后的字符串
    * @throws myException 如果遇到未支持的类型，抛出自定义异常
    */
-  private String format(String str) throws myException {
-    // 如果是变量名，查找变量表
+  private void resolveSymbols() throws myException {
+    for (ConstTableEntry entry : constTable) {
+      operands.put(entry.getName(), literal(getValue(entry)));
+    }
+    // 变量与常量同名时以变量为准
     for (VariableTableEntry entry : variableTable) {
-      if (entry.getName().equals(str)) {
-        return String.format("ds:[_%s]", str);
-      }
+      operands.put(entry.getName(), Operand.memory("ds", "_" + entry.getName()));
     }
-    // 如果是常量名，查找常量表
-    for (ConstTableEntry entry : constTable) {
-      if (entry.getName().equals(str)) {
-        return String.format("%s", getValue(entry));
-      }
+  }
+
+  /**
+   * 格式化变量名、常量名和临时变量名为汇编语言中的表示形式<br/>同一文本只解析一次
+   *
+   * @param str 需要格式化的字符串
+   * @return 格式化后的操作数
+   */
+  private Operand format(String str) {
+    Operand operand = operands.get(str);
+    if (operand == null) {
+      operand = resolve(str);
+      operands.put(str, operand);
+    }
+    return operand;
+  }
+
+  // 解析不在变量表与常量表中的操作数
+  private Operand resolve(String str) {
+    // 如果是分配到寄存器的临时变量，直接使用寄存器
+    String register = registers.registerOf(str);
+    if (register != null) {
+      return Operand.register(register);
     }
     // 如果是临时变量名，直接返回
     if (str.startsWith("$_t")) {
-      return String.format("es:[%s]", Integer.parseInt(str.substring(3)) * 2);
+      return Operand.memory("es", Integer.toString(Integer.parseInt(str.substring(3)) * 2));
     }
 
     if (str.equals("True") || str.equals("False")) {
       // 布尔值直接转换为 1 或 0
-      return str.equals("True") ? "1" : "0";
+      return str.equals("True") ? Operand.ONE : Operand.ZERO;
     }
 
     // 字符
@@ -521,30 +712,119 @@ private String format(String str) throws myException {
       String charValue = str.substring(1, str.length() - 1);
       switch (charValue) {
         case "\\n" -> {
-          return "0Ah"; // 换行符
+          return Operand.immediate("0Ah"); // 换行符
         }
         case "\\t" -> {
-          return "09h"; // 制表符
+          return Operand.immediate("09h"); // 制表符
         }
         case "\\r" -> {
-          return "0Dh"; // 回车符
+          return Operand.immediate("0Dh"); // 回车符
         }
         case "\\0" -> {
-          return "00h"; // 空字符
+          return Operand.immediate("00h"); // 空字符
         }
         case "\\'" -> {
-          return "27h"; // 单引号
+          return Operand.immediate("27h"); // 单引号
         }
         case "\\\\" -> {
-          return "5Ch"; // 反斜杠
+          return Operand.immediate("5Ch"); // 反斜杠
         }
         default -> {
           // 其他字符直接返回其 ASCII 值
-          return String.format("0%02Xh", (int) charValue.charAt(0));
+          return Operand.immediate(String.format("0%02Xh", (int) charValue.charAt(0)));
         }
       }
     }
-    return str;
+    return literal(str);
+  }
+
+  /**
+   * 整数字面量统一写成十进制（汇编中 0x 前缀不合法，前导 0 也不表示八进制），其他文本原样作为立即数
+   *
+   * @param text 字面量文本，如 "0x1F"、"'a'"
+   * @return 立即数
+   */
+  private static Operand literal(String text) {
+    Integer value = Literals.parse(text);
+    return value != null ? Operand.immediate(value) : Operand.immediate(text);
+  }
+
+  /**
+   * 除数是否为 2 的幂
+   *
+   * @param divisor 四元式中的除数
+   * @return 除数为字面量 2^k（1 ≤ k ≤ 14）时返回 k，否则返回 -1
+   */
+  static int powerOfTwo(String divisor) {
+    Integer value = Literals.parse(divisor);
+    return value == null ? -1 : Literals.log2(value);
+  }
+
+  /**
+   * 把 AX 移位 count 位：位数较少时逐位移动（每条 2 个时钟周期），否则经 CL 移位
+   *
+   * @param op 移位指令，如 SHL、SAR
+   */
+  private void shift(Mnemonic op, int count) {
+    if (!shiftUsesCl(count)) {
+      for (int k = 0; k < count; k++) {
+        emit(op, Operand.AX, Operand.ONE);
+      }
+    } else {
+      emit(Mnemonic.MOV, Operand.CL, Operand.immediate(count));
+      emit(op, Operand.AX, Operand.CL);
+    }
+  }
+
+  // 移位 count 位是否要经 CL 给出位数（会破坏 CX）
+  static boolean shiftUsesCl(int count) {
+    return count > 4;
+  }
+
+  /**
+   * cmp 的左操作数：寄存器直接比较，否则先装入 AX（两个操作数不能都在内存中，立即数也不能作为左操作数）
+   *
+   * @param operand 格式化后的操作数
+   * @return 寄存器
+   */
+  private Operand comparand(Operand operand) {
+    if (operand.isRegister()) {
+      return operand;
+    }
+    emit(Mnemonic.MOV, Operand.AX, operand);
+    return Operand.AX;
+  }
+
+  /**
+   * imul/idiv 的源操作数：寄存器直接使用，否则先装入 scratch（立即数不能作为 imul/idiv 的操作数）
+   *
+   * @param operand 格式化后的操作数
+   * @param scratch 可以破坏的寄存器
+   * @return 寄存器
+   */
+  private Operand inRegister(Operand operand, Operand scratch) {
+    if (operand.isRegister()) {
+      return operand;
+    }
+    emit(Mnemonic.MOV, scratch, operand);
+    return scratch;
+  }
+
+  /**
+   * 比较后条件跳转对应的有符号跳转指令
+   *
+   * @param op 比较跳转操作符，如 "j<"
+   * @return 条件跳转指令，如 JL
+   */
+  private Mnemonic jcc(String op) {
+    return switch (op) {
+      case "j<" -> Mnemonic.JL;
+      case "j>" -> Mnemonic.JG;
+      case "j<=" -> Mnemonic.JLE;
+      case "j>=" -> Mnemonic.JGE;
+      case "j==" -> Mnemonic.JE;
+      default -> Mnemonic.JNE;
+    };
   }
 
   /**
@@ -0,0 +1,154 @@
+package cn.study.compilerclass.assembly;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 跳转指令的长度选择（分支松弛）
+ * <p>
+ * 四元式翻译只给出不带长度的跳转 {@code jmp L} 与 {@code jcc L}。本遍先假定全部为 2 字节的短跳转，按{@link #size 指令长度}计算地址，
+ * 位移超出 -128~127 的跳转加长：{@code jmp} 改为 3 字节的段内近跳转，{@code jcc}（8086 只有短条件跳转）改为越过近跳转的取反短跳转，共 5 字节。
+ * 加长只会使其他跳转的位移变大，反复计算直到没有跳转需要加长。目标不在指令序列中的跳转使用远跳转。<br/>
+ * 指令长度取上界（段前缀一律计入），算出的位移不小于实际位移，因此选出的短跳转一定能到达。
+ */
+class BranchRelaxation {
+
+  private static final int SHORT = 0;
+  private static final int NEAR = 1;
+  private static final int FAR = 2;
+
+  private final List<Instr> code;
+  private int shortCount;
+  private int nearCount;
+  private int farCount;
+  private int bytes;
+
+  BranchRelaxation(List<Instr> code) {
+    this.code = code;
+  }
+
+  List<Instr> run() {
+    int n = code.size();
+    HashMap<String, Integer> labelIndex = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      for (String label : code.get(i).labels) {
+        labelIndex.put(label, i);
+      }
+    }
+    int[] target = new int[n];
+    int[] form = new int[n];
+    for (int i = 0; i < n; i++) {
+      Instr instr = code.get(i);
+      String label = instr.target();
+      target[i] = label == null ? -1 : labelIndex.getOrDefault(label, -1);
+      form[i] = label != null && target[i] < 0 ? FAR : SHORT;
+    }
+    int[] address = new int[n + 1];
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int i = 0; i < n; i++) {
+        address[i + 1] = address[i] + size(code.get(i), form[i]);
+      }
+      for (int i = 0; i < n; i++) {
+        if (target[i] >= 0 && form[i] == SHORT) {
+          int displacement = address[target[i]] - (address[i] + 2);
+          if (displacement < -128 || displacement > 127) {
+            form[i] = NEAR;
+            changed = true;
+          }
+        }
+      }
+    }
+    bytes = address[n];
+
+    ArrayList<Instr> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      Instr instr = code.get(i);
+      String label = instr.target();
+      if (label == null) {
+        result.add(instr);
+        continue;
+      }
+      switch (form[i]) {
+        case SHORT -> shortCount++;
+        case NEAR -> nearCount++;
+        default -> farCount++;
+      }
+      Operand operand = switch (form[i]) {
+        case SHORT -> instr.isJump() ? Operand.label("short ", label) : instr.operand(0);
+        case NEAR -> Operand.label("near ptr ", label);
+        default -> Operand.label("far ptr ", label);
+      };
+      if (instr.isJump() || form[i] == SHORT) {
+        instr.operands = new Operand[]{operand};
+        result.add(instr);
+      } else {
+        // 条件跳转加长：条件不成立时越过近（远）跳转
+        String skip = "_rx_" + i;
+        Instr over = new Instr(instr.op.inverse(), Operand.label(skip));
+        over.labels.addAll(instr.labels);
+        result.add(over);
+        result.add(new Instr(Mnemonic.JMP, operand));
+        if (i + 1 < n) {
+          code.get(i + 1).labels.add(skip);
+        } else {
+          Instr nop = new Instr(Mnemonic.NOP);
+          nop.labels.add(skip);
+          result.add(nop);
+        }
+      }
+    }
+    return result;
+  }
+
+  String summary() {
+    return String.format("短跳转 %d 个，近跳转 %d 个，远跳转 %d 个，代码 %d 字节", shortCount, nearCount, farCount, bytes);
+  }
+
+  /**
+   * 指令长度的上界
+   *
+   * @param instr 指令
+   * @param form  跳转指令的长度类别，其他指令忽略
+   * @return 字节数
+   */
+  static int size(Instr instr, int form) {
+    if (instr.isJump()) {
+      return form == SHORT ? 2 : form == NEAR ? 3 : 5;
+    }
+    if (instr.isConditionalJump()) {
+      return form == SHORT ? 2 : form == NEAR ? 5 : 7;
+    }
+    Operand a = instr.operand(0);
+    Operand b = instr.operand(1);
+    return switch (instr.op) {
+      case MOV -> isWord(a) && isWord(b) ? 2 : isWord(a) && !CycleModel.isMemory(b) ? 3 : modrm(a, b);
+      case ADD, SUB, AND, OR, XOR, ADC, SBB, CMP, TEST -> isWord(a) && isWord(b) ? 2 : modrm(a, b);
+      case INC, DEC, PUSH, POP -> isWord(a) ? 1 : modrm(a, null);
+      case NEG, NOT, IMUL, IDIV, MUL, DIV -> modrm(a, null);
+      case SHL, SAL, SHR, SAR -> modrm(a, null);
+      case CWD, NOP, RET -> 1;
+      case INT -> 2;
+      case CALL -> 3;
+      default -> 6;
+    };
+  }
+
+  // 操作码 + ModRM，存储器操作数加段前缀与 2 字节位移，立即数按 2 字节计
+  private static int modrm(Operand a, Operand b) {
+    int size = 2;
+    if (a != null && !a.isRegister()) {
+      size += a.isMemory() ? 3 : 2;
+    }
+    if (b != null && !b.isRegister()) {
+      size += b.isMemory() ? 3 : 2;
+    }
+    return size;
+  }
+
+  private static boolean isWord(Operand operand) {
+    return operand != null && operand.isWordRegister();
+  }
+}
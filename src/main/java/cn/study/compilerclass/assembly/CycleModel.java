@@ -0,0 +1,49 @@
+package cn.study.compilerclass.assembly;
+
+/**
+ * 8086 指令的时钟周期估计
+ * <p>
+ * 取自 8086 用户手册的指令时序表：存储器操作数另加有效地址计算时间 EA（本程序只用直接寻址，6 个周期）与段超越前缀 2 个周期；
+ * 乘除法取手册给出范围的中值，条件跳转按发生跳转计。只用于比较优化前后的代码，不是精确的执行时间。
+ */
+final class CycleModel {
+
+  // 直接寻址 6 个周期，生成的存储器操作数都带段超越前缀
+  private static final int EA = 6 + 2;
+
+  private CycleModel() {
+  }
+
+  static int cycles(Instr instr) {
+    Operand a = instr.operand(0);
+    Operand b = instr.operand(1);
+    return switch (instr.op) {
+      case MOV -> isMemory(a) ? (isRegister(b) ? 9 : 10) + EA : isMemory(b) ? 8 + EA : isRegister(b) ? 2 : 4;
+      case ADD, SUB, AND, OR, XOR, ADC, SBB -> isMemory(a) ? (isRegister(b) ? 16 : 17) + EA : isMemory(b) ? 9 + EA : isRegister(b) ? 3 : 4;
+      case CMP -> isMemory(a) ? (isRegister(b) ? 9 : 10) + EA : isMemory(b) ? 9 + EA : isRegister(b) ? 3 : 4;
+      case TEST -> isMemory(a) ? 11 + EA : isRegister(b) ? 3 : 5;
+      case INC, DEC -> isMemory(a) ? 15 + EA : 2;
+      case NEG, NOT -> isMemory(a) ? 16 + EA : 3;
+      case SHL, SAL, SHR, SAR -> Operand.CL.equals(b) ? 8 + 4 * 4 : 2; // 经 CL 移位按 4 位计
+      case IMUL, MUL -> 141 + (isMemory(a) ? EA : 0);
+      case IDIV, DIV -> 175 + (isMemory(a) ? EA : 0);
+      case CWD -> 5;
+      case PUSH -> isMemory(a) ? 16 + EA : 11;
+      case POP -> isMemory(a) ? 17 + EA : 8;
+      case JMP -> 15;
+      case CALL -> 19;
+      case RET -> 8;
+      case INT -> 51;
+      case NOP -> 3;
+      default -> instr.isConditionalJump() ? 16 : 4;
+    };
+  }
+
+  static boolean isMemory(Operand operand) {
+    return operand != null && operand.isMemory();
+  }
+
+  static boolean isRegister(Operand operand) {
+    return operand != null && operand.isRegister();
+  }
+}
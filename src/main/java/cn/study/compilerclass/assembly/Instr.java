@@ -0,0 +1,77 @@
+package cn.study.compilerclass.assembly;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一条 8086 汇编指令
+ * <p>
+ * 由{@link Mnemonic 助记符}、{@link Operand 操作数}与指令前的标号组成。四元式翻译直接生成指令，窥孔优化与分支松弛在指令上改写，
+ * 最后由 {@link #appendTo} 逐条输出为汇编源码。
+ */
+class Instr {
+
+  private static final Operand[] NO_OPERANDS = new Operand[0];
+
+  final List<String> labels = new ArrayList<>(1);
+  Mnemonic op;
+  Operand[] operands;
+
+  Instr(Mnemonic op, Operand... operands) {
+    this.op = op;
+    this.operands = operands.length == 0 ? NO_OPERANDS : operands;
+  }
+
+  boolean is(Mnemonic mnemonic) {
+    return op == mnemonic;
+  }
+
+  Operand operand(int k) {
+    return k < operands.length ? operands[k] : null;
+  }
+
+  // 无条件跳转
+  boolean isJump() {
+    return op == Mnemonic.JMP;
+  }
+
+  // 条件跳转
+  boolean isConditionalJump() {
+    return op.isConditionalJump();
+  }
+
+  /**
+   * 跳转目标标号
+   *
+   * @return 去掉 {@code far ptr} 等修饰后的标号，不是跳转时返回 null
+   */
+  String target() {
+    if (!isJump() && !isConditionalJump()) {
+      return null;
+    }
+    return operands[0].labelName();
+  }
+
+  /**
+   * 输出为一行汇编源码，多个标号时前面的标号各占一行
+   *
+   * @param out 输出位置
+   */
+  void appendTo(StringBuilder out) {
+    for (int k = 0; k < labels.size(); k++) {
+      out.append(labels.get(k)).append(k + 1 < labels.size() ? ":\n" : ": ");
+    }
+    out.append(op.text());
+    for (int k = 0; k < operands.length; k++) {
+      out.append(k == 0 ? " " : ", ").append(operands[k].text());
+    }
+    out.append('\n');
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    appendTo(sb);
+    return sb.toString();
+  }
+}
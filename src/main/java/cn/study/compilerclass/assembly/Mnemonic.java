@@ -0,0 +1,46 @@
+package cn.study.compilerclass.assembly;
+
+/**
+ * 8086 指令助记符
+ * <p>
+ * 只包含四元式翻译与窥孔优化会产生的指令，输入输出子程序等固定模板不经过指令模型。
+ */
+enum Mnemonic {
+  MOV, ADD, SUB, AND, OR, XOR, ADC, SBB, CMP, TEST,
+  INC, DEC, NEG, NOT,
+  SHL, SAL, SHR, SAR,
+  IMUL, IDIV, MUL, DIV, CWD,
+  PUSH, POP,
+  JMP,
+  // 条件跳转
+  JE, JNE, JL, JGE, JLE, JG, JB, JAE, JA, JBE,
+  CALL, RET, INT, NOP;
+
+  // 汇编源码中的写法
+  private final String text = name().toLowerCase();
+
+  String text() {
+    return text;
+  }
+
+  boolean isConditionalJump() {
+    return compareTo(JE) >= 0 && compareTo(JBE) <= 0;
+  }
+
+  // 条件取反的条件跳转，不是条件跳转时返回 null
+  Mnemonic inverse() {
+    return switch (this) {
+      case JE -> JNE;
+      case JNE -> JE;
+      case JL -> JGE;
+      case JGE -> JL;
+      case JLE -> JG;
+      case JG -> JLE;
+      case JB -> JAE;
+      case JAE -> JB;
+      case JA -> JBE;
+      case JBE -> JA;
+      default -> null;
+    };
+  }
+}
@@ -0,0 +1,144 @@
+package cn.study.compilerclass.assembly;
+
+import cn.study.compilerclass.ir.Literals;
+
+/**
+ * 8086 指令的操作数
+ * <p>
+ * 操作数不可变，构造时即生成汇编源码中的写法，输出时直接追加文本。两个操作数写法相同即视为同一操作数。
+ */
+final class Operand {
+
+  enum Kind {
+    // 通用寄存器
+    REGISTER,
+    // 直接寻址的存储器操作数，如 ds:[_a]、es:[4]
+    MEMORY,
+    // 立即数
+    IMMEDIATE,
+    // 标号，如跳转目标与子程序名
+    LABEL
+  }
+
+  static final Operand AX = register("ax");
+  static final Operand AL = register("al");
+  static final Operand AH = register("ah");
+  static final Operand BX = register("bx");
+  static final Operand CX = register("cx");
+  static final Operand CL = register("cl");
+  static final Operand DX = register("dx");
+  static final Operand SI = register("si");
+  static final Operand DI = register("di");
+  static final Operand ZERO = immediate("0");
+  static final Operand ONE = immediate("1");
+
+  private final Kind kind;
+  private final String text;
+  // 标号操作数去掉 short、near ptr 等修饰后的名字
+  private final String name;
+  private final int mask;
+
+  private Operand(Kind kind, String text, String name) {
+    this.kind = kind;
+    this.text = text;
+    this.name = name;
+    this.mask = kind == Kind.REGISTER ? Peephole.registerMask(text) : 0;
+  }
+
+  static Operand register(String name) {
+    return new Operand(Kind.REGISTER, name, name);
+  }
+
+  /**
+   * @param segment 段寄存器，如 "ds"、"es"
+   * @param address 段内地址，如 "_a"、"4"
+   */
+  static Operand memory(String segment, String address) {
+    return new Operand(Kind.MEMORY, segment + ":[" + address + "]", segment);
+  }
+
+  static Operand immediate(String text) {
+    return new Operand(Kind.IMMEDIATE, text, text);
+  }
+
+  static Operand immediate(int value) {
+    return immediate(Integer.toString(value));
+  }
+
+  static Operand label(String name) {
+    return new Operand(Kind.LABEL, name, name);
+  }
+
+  /**
+   * 带长度修饰的跳转目标
+   *
+   * @param prefix 如 "short "、"near ptr "
+   */
+  static Operand label(String prefix, String name) {
+    return new Operand(Kind.LABEL, prefix + name, name);
+  }
+
+  Kind kind() {
+    return kind;
+  }
+
+  boolean isRegister() {
+    return kind == Kind.REGISTER;
+  }
+
+  // 16 位通用寄存器
+  boolean isWordRegister() {
+    return kind == Kind.REGISTER && text.charAt(1) != 'l' && text.charAt(1) != 'h';
+  }
+
+  boolean isMemory() {
+    return kind == Kind.MEMORY;
+  }
+
+  // 数据段中有类型（dw）的变量，可以直接与立即数运算
+  boolean isTypedMemory() {
+    return kind == Kind.MEMORY && "ds".equals(name);
+  }
+
+  boolean isImmediate() {
+    return kind == Kind.IMMEDIATE;
+  }
+
+  /**
+   * @return 寄存器位掩码（见 {@link Peephole#registerMask}），不是寄存器时返回 0
+   */
+  int mask() {
+    return mask;
+  }
+
+  /**
+   * @return 立即数的值，不是整数字面量时返回 null
+   */
+  Integer value() {
+    return kind == Kind.IMMEDIATE ? Literals.parse(text) : null;
+  }
+
+  // 标号名，不是标号时返回 null
+  String labelName() {
+    return kind == Kind.LABEL ? name : null;
+  }
+
+  String text() {
+    return text;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Operand other && text.equals(other.text);
+  }
+
+  @Override
+  public int hashCode() {
+    return text.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+}
@@ -0,0 +1,355 @@
+package cn.study.compilerclass.assembly;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * 8086 汇编的窥孔优化
+ * <p>
+ * 在指令序列上反复应用以下变换直到不再变化：<br/>1. 删除空操作，其上的标号移到下一条指令<br/>2. 删除跳到下一条指令的无条件跳转<br/>
+ * 3. 越过无条件跳转的条件跳转 {@code jcc L1; jmp L2; L1:} 改为一条取反的条件跳转（跳转距离由{@link BranchRelaxation 分支松弛}处理）<br/>
+ * 4. 删除紧随 {@code mov x, y} 的 {@code mov y, x} 与 {@code mov x, x}<br/>5. 只为比较而装入 AX 的 {@code mov ax, s; cmp ax, y} 改为 {@code cmp s, y}<br/>
+ * 6. 删除结果（含标志位）都不再被使用的寄存器运算<br/>7. 标志位不再被使用时 {@code mov r, 0} 改为 {@code xor r, r}<br/>
+ * 8. 乘以 2 的幂改为左移，除以 2 的幂与对 2 的幂取模改为带舍入修正的算术右移与掩码<br/>
+ * 第 5~8 条依据指令级的寄存器活跃分析，标志位作为一个寄存器参与分析。跳转目标不在序列中时认为全部寄存器都活跃。
+ */
+class Peephole {
+
+  static final int AX = 1;
+  static final int BX = 1 << 1;
+  static final int CX = 1 << 2;
+  static final int DX = 1 << 3;
+  static final int SI = 1 << 4;
+  static final int DI = 1 << 5;
+  static final int FLAGS = 1 << 6;
+  static final int ALL = (1 << 7) - 1;
+
+  private static final int MAX_ROUNDS = 16;
+
+  private final ArrayList<Instr> code;
+  private HashMap<String, Integer> labelIndex;
+  private HashSet<String> referenced;
+  private int[] liveOut;
+
+  Peephole(List<Instr> code) {
+    this.code = new ArrayList<>(code);
+  }
+
+  List<Instr> run() {
+    for (int round = 0; round < MAX_ROUNDS; round++) {
+      boolean changed = removeNops();
+      changed |= jumps();
+      changed |= redundantMoves();
+      analyze();
+      changed |= forwardCompares();
+      analyze();
+      changed |= deadCode();
+      analyze();
+      changed |= strengthReduction();
+      if (!changed) {
+        break;
+      }
+    }
+    return code;
+  }
+
+  // 1. 删除空操作
+  private boolean removeNops() {
+    boolean changed = false;
+    for (int i = 0; i + 1 < code.size(); i++) {
+      if (code.get(i).is(Mnemonic.NOP)) {
+        remove(i--);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  // 2、3. 跳转
+  private boolean jumps() {
+    boolean changed = false;
+    indexLabels();
+    for (int i = 0; i < code.size(); i++) {
+      Instr instr = code.get(i);
+      if (instr.isJump() && i + 1 < code.size() && code.get(i + 1).labels.contains(instr.target())) {
+        remove(i--);
+        indexLabels();
+        changed = true;
+      } else if (instr.isConditionalJump() && i + 2 < code.size() && code.get(i + 1).isJump() && !isTarget(code.get(i + 1))
+          && code.get(i + 2).labels.contains(instr.target()) && instr.op.inverse() != null) {
+        instr.op = instr.op.inverse();
+        instr.operands = new Operand[]{Operand.label(code.get(i + 1).target())};
+        remove(i + 1);
+        indexLabels();
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  // 4. 多余的传送
+  private boolean redundantMoves() {
+    boolean changed = false;
+    for (int i = 0; i < code.size(); i++) {
+      Instr instr = code.get(i);
+      if (!instr.is(Mnemonic.MOV)) {
+        continue;
+      }
+      if (instr.operand(0).equals(instr.operand(1))) {
+        remove(i--);
+        changed = true;
+      } else if (i + 1 < code.size()) {
+        Instr next = code.get(i + 1);
+        if (next.is(Mnemonic.MOV) && !isTarget(next) && next.operand(0).equals(instr.operand(1)) && next.operand(1).equals(instr.operand(0))) {
+          remove(i + 1);
+          changed = true;
+        }
+      }
+    }
+    return changed;
+  }
+
+  // 5. 比较前的装入
+  private boolean forwardCompares() {
+    boolean changed = false;
+    for (int i = 0; i + 1 < code.size(); i++) {
+      Instr load = code.get(i);
+      Instr cmp = code.get(i + 1);
+      if (!load.is(Mnemonic.MOV) || !Operand.AX.equals(load.operand(0)) || !cmp.is(Mnemonic.CMP) || !Operand.AX.equals(cmp.operand(0))
+          || isTarget(cmp) || (liveOut[i + 1] & AX) != 0) {
+        continue;
+      }
+      Operand source = load.operand(1);
+      Operand other = cmp.operand(1);
+      // 两个操作数不能都在存储器中；附加段的存储器操作数没有类型，不能与立即数比较
+      boolean register = source.isWordRegister();
+      boolean typedMemory = source.isTypedMemory() && !other.isMemory() && other.mask() != AX;
+      if (register && other.mask() != AX || typedMemory) {
+        cmp.operands = new Operand[]{source, other};
+        remove(i);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  // 6、7. 依据活跃信息删除无用运算、清零改用 xor
+  private boolean deadCode() {
+    boolean changed = false;
+    for (int i = code.size() - 1; i >= 0; i--) {
+      Instr instr = code.get(i);
+      int def = def(instr);
+      if (isPure(instr) && def != 0 && (def & liveOut[i]) == 0) {
+        remove(i);
+        changed = true;
+      } else if (instr.is(Mnemonic.MOV) && instr.operand(0).isWordRegister() && Integer.valueOf(0).equals(instr.operand(1).value())
+          && (liveOut[i] & FLAGS) == 0) {
+        instr.op = Mnemonic.XOR;
+        instr.operands = new Operand[]{instr.operand(0), instr.operand(0)};
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  // 8. 乘除 2 的幂
+  private boolean strengthReduction() {
+    boolean changed = false;
+    for (int i = 0; i + 1 < code.size(); i++) {
+      Instr load = code.get(i);
+      Instr op = code.get(i + 1);
+      if (!load.is(Mnemonic.MOV) || isTarget(op) || !load.operand(0).equals(op.operand(0)) || (liveOut[i + 1] & FLAGS) != 0) {
+        continue;
+      }
+      int power = load.operand(1).isImmediate() ? AssemblyGenerator.powerOfTwo(load.operand(1).text()) : -1;
+      if (power <= 0) {
+        continue;
+      }
+      int scratch = load.operand(0).mask();
+      int after = liveOut[i + 1];
+      if (!AssemblyGenerator.shiftUsesCl(power) || (after & CX) == 0) {
+        ArrayList<Instr> replacement = new ArrayList<>();
+        if (op.is(Mnemonic.IMUL) && (after & (DX | scratch)) == 0) {
+          shift(replacement, Mnemonic.SHL, power);
+        } else if (op.is(Mnemonic.IDIV) && i > 0 && code.get(i - 1).is(Mnemonic.CWD) && (after & scratch) == 0) {
+          // DX 已由 cwd 扩展为符号位
+          Operand mask = Operand.immediate((1 << power) - 1);
+          if ((after & DX) == 0) {
+            replacement.add(new Instr(Mnemonic.AND, Operand.DX, mask));
+            replacement.add(new Instr(Mnemonic.ADD, Operand.AX, Operand.DX));
+            shift(replacement, Mnemonic.SAR, power);
+          } else if ((after & AX) == 0) {
+            replacement.add(new Instr(Mnemonic.AND, Operand.DX, mask));
+            replacement.add(new Instr(Mnemonic.ADD, Operand.AX, Operand.DX));
+            replacement.add(new Instr(Mnemonic.AND, Operand.AX, mask));
+            replacement.add(new Instr(Mnemonic.SUB, Operand.AX, Operand.DX));
+            replacement.add(new Instr(Mnemonic.MOV, Operand.DX, Operand.AX));
+          }
+        }
+        if (!replacement.isEmpty()) {
+          replacement.getFirst().labels.addAll(load.labels);
+          code.remove(i + 1);
+          code.remove(i);
+          code.addAll(i, replacement);
+          analyze();
+          changed = true;
+        }
+      }
+    }
+    return changed;
+  }
+
+  private static void shift(List<Instr> out, Mnemonic op, int count) {
+    if (AssemblyGenerator.shiftUsesCl(count)) {
+      out.add(new Instr(Mnemonic.MOV, Operand.CL, Operand.immediate(count)));
+      out.add(new Instr(op, Operand.AX, Operand.CL));
+    } else {
+      for (int k = 0; k < count; k++) {
+        out.add(new Instr(op, Operand.AX, Operand.ONE));
+      }
+    }
+  }
+
+  // 删除第 i 条指令，标号移到下一条
+  private void remove(int i) {
+    Instr removed = code.remove(i);
+    if (!removed.labels.isEmpty()) {
+      if (i < code.size()) {
+        code.get(i).labels.addAll(0, removed.labels);
+      } else {
+        Instr nop = new Instr(Mnemonic.NOP);
+        nop.labels.addAll(removed.labels);
+        code.add(nop);
+      }
+    }
+  }
+
+  private void indexLabels() {
+    labelIndex = new HashMap<>();
+    referenced = new HashSet<>();
+    for (int i = 0; i < code.size(); i++) {
+      for (String label : code.get(i).labels) {
+        labelIndex.put(label, i);
+      }
+      String target = code.get(i).target();
+      if (target != null) {
+        referenced.add(target);
+      }
+    }
+  }
+
+  // 指令是否是某条跳转的目标
+  private boolean isTarget(Instr instr) {
+    if (referenced == null) {
+      indexLabels();
+    }
+    for (String label : instr.labels) {
+      if (referenced.contains(label)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // 指令级的寄存器活跃分析
+  private void analyze() {
+    indexLabels();
+    int n = code.size();
+    int[] use = new int[n];
+    int[] def = new int[n];
+    for (int i = 0; i < n; i++) {
+      use[i] = use(code.get(i));
+      def[i] = def(code.get(i));
+    }
+    liveOut = new int[n];
+    int[] liveIn = new int[n];
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int i = n - 1; i >= 0; i--) {
+        Instr instr = code.get(i);
+        int out = 0;
+        if (!instr.isJump() && !instr.is(Mnemonic.RET) && i + 1 < n) {
+          out |= liveIn[i + 1];
+        }
+        String target = instr.target();
+        if (target != null) {
+          Integer t = labelIndex.get(target);
+          out |= t == null ? ALL : liveIn[t];
+        }
+        int in = use[i] | (out & ~def[i]);
+        if (out != liveOut[i] || in != liveIn[i]) {
+          liveOut[i] = out;
+          liveIn[i] = in;
+          changed = true;
+        }
+      }
+    }
+  }
+
+  // 没有存储器写入与控制转移、只改写寄存器与标志位的指令
+  private static boolean isPure(Instr instr) {
+    return switch (instr.op) {
+      case MOV, ADD, SUB, AND, OR, XOR, SHL, SAL, SHR, SAR, NEG, NOT, INC, DEC, CWD -> instr.operands.length == 0
+          || !instr.operand(0).isMemory();
+      default -> false;
+    };
+  }
+
+  static int use(Instr instr) {
+    Operand a = instr.operand(0);
+    Operand b = instr.operand(1);
+    return switch (instr.op) {
+      case MOV -> b.mask() | (a.isWordRegister() ? 0 : a.mask());
+      case XOR, SUB -> a.equals(b) ? 0 : a.mask() | b.mask();
+      case ADD, AND, OR, CMP, TEST -> a.mask() | b.mask();
+      case ADC, SBB -> a.mask() | b.mask() | FLAGS;
+      case INC, DEC, NEG, NOT -> a.mask();
+      case SHL, SAL, SHR, SAR -> a.mask() | (Operand.CL.equals(b) ? CX : 0);
+      case IMUL, MUL -> AX | a.mask();
+      case IDIV, DIV -> AX | DX | a.mask();
+      case CWD -> AX;
+      case PUSH -> a.mask();
+      case POP, JMP, NOP -> 0;
+      case CALL -> switch (a.text()) {
+        case "input", "put", "putc", "putb" -> 0; // 参数在栈上，子程序保存它用到的寄存器
+        default -> ALL;
+      };
+      default -> instr.isConditionalJump() ? FLAGS : ALL;
+    };
+  }
+
+  static int def(Instr instr) {
+    Operand a = instr.operand(0);
+    return switch (instr.op) {
+      case MOV, POP -> a.mask();
+      case ADD, SUB, AND, OR, XOR, ADC, SBB, INC, DEC, NEG, SHL, SAL, SHR, SAR -> a.mask() | FLAGS;
+      case NOT -> a.mask();
+      case CMP, TEST -> FLAGS;
+      case IMUL, MUL, IDIV, DIV -> AX | DX | FLAGS;
+      case CWD -> DX;
+      case CALL -> "input".equals(a.text()) ? AX | FLAGS : FLAGS;
+      case INT -> FLAGS;
+      default -> 0;
+    };
+  }
+
+  /**
+   * 寄存器名对应的通用寄存器
+   *
+   * @return 寄存器位掩码，8 位寄存器记为所在的 16 位寄存器，不是寄存器时返回 0
+   */
+  static int registerMask(String register) {
+    return switch (register) {
+      case "ax", "al", "ah" -> AX;
+      case "bx", "bl", "bh" -> BX;
+      case "cx", "cl", "ch" -> CX;
+      case "dx", "dl", "dh" -> DX;
+      case "si" -> SI;
+      case "di" -> DI;
+      default -> 0;
+    };
+  }
+}
@@ -0,0 +1,139 @@
+package cn.study.compilerclass.assembly;
+
+import cn.study.compilerclass.ir.Bits;
+import cn.study.compilerclass.ir.ControlFlowGraph;
+import cn.study.compilerclass.ir.LiveIntervals;
+import cn.study.compilerclass.ir.Liveness;
+import cn.study.compilerclass.ir.OpCode;
+import cn.study.compilerclass.ir.OperandIndex;
+import cn.study.compilerclass.ir.QuadTable;
+import cn.study.compilerclass.model.MiddleTableEntry;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 临时变量的寄存器分配（线性扫描）
+ * <p>
+ * 可分配的寄存器为 BX、CX、SI、DI；AX 是各条四元式的累加器，DX 被乘除法、比较结果与 cwd 占用，不参与分配。在四元式表上做活跃变量分析，
+ * 按{@link LiveIntervals 活跃区间}的起点依次分配：区间结束的寄存器回收，没有空闲寄存器时溢出区间终点最远的临时变量，溢出的临时变量整个区间都留在附加段中。
+ * 寄存器在整个区间内固定不变，基本块边界处不需要搬移。<br/>
+ * 输入输出子程序保存并恢复它用到的寄存器，但部分四元式的翻译会破坏寄存器：除数不是 2 的幂的除法与取模经 BX 装入除数，超过 4 位的移位经 CL 给出位数。
+ * 跨过这些四元式仍然活跃的临时变量不能分配到被破坏的寄存器。程序入口处就活跃（先读后写）的临时变量依赖附加段的初值 0，不分配寄存器。
+ */
+class RegisterAllocator {
+
+  static final String[] REGISTERS = {"bx", "cx", "si", "di"};
+  private static final int BX = 1;
+  private static final int CX = 1 << 1;
+  private static final int ALL = (1 << REGISTERS.length) - 1;
+
+  private final HashMap<String, String> registerOf = new HashMap<>();
+
+  /**
+   * @param middleCode 四元式列表，序号与列表下标一致
+   * @param variables  用户变量名，变量始终留在数据段中
+   */
+  RegisterAllocator(List<MiddleTableEntry> middleCode, Collection<String> variables) {
+    QuadTable quads = QuadTable.fromEntries(middleCode);
+    ControlFlowGraph cfg = new ControlFlowGraph(quads);
+    Liveness liveness = new Liveness(cfg, new OperandIndex(quads, variables));
+    OperandIndex index = liveness.getIndex();
+    LiveIntervals intervals = new LiveIntervals(cfg, liveness);
+    int first = index.variableCount();
+    int temps = index.size() - first;
+    if (temps == 0 || cfg.getBlockCount() == 0) {
+      return;
+    }
+
+    // 每条四元式破坏的寄存器
+    int[] clobbers = new int[quads.size()];
+    for (int i = 0; i < quads.size(); i++) {
+      clobbers[i] = clobbers(quads, i);
+    }
+
+    Integer[] order = new Integer[temps];
+    for (int t = 0; t < temps; t++) {
+      order[t] = first + t;
+    }
+    Arrays.sort(order, (a, b) -> Integer.compare(intervals.start(a), intervals.start(b)));
+    int[] holder = new int[REGISTERS.length]; // 寄存器 -> 当前占用它的存储单元
+    Arrays.fill(holder, -1);
+    int[] assigned = new int[index.size()];
+    Arrays.fill(assigned, -1);
+    long[] entryLive = liveness.liveIn(0);
+    for (int slot : order) {
+      if (intervals.isEmpty(slot) || Bits.get(entryLive, slot)) {
+        continue;
+      }
+      int allowed = ALL & ~clobbered(intervals, slot, clobbers);
+      int chosen = -1;
+      int victim = -1;
+      for (int r = 0; r < REGISTERS.length; r++) {
+        if ((allowed & (1 << r)) == 0) {
+          continue;
+        }
+        int h = holder[r];
+        if (h < 0 || intervals.end(h) < intervals.start(slot)) {
+          chosen = r;
+          break;
+        }
+        if (victim < 0 || intervals.end(h) > intervals.end(holder[victim])) {
+          victim = r;
+        }
+      }
+      if (chosen < 0 && victim >= 0 && intervals.end(holder[victim]) > intervals.end(slot)) {
+        // 溢出终点更远的区间，把寄存器让给当前临时变量
+        assigned[holder[victim]] = -1;
+        chosen = victim;
+      }
+      if (chosen >= 0) {
+        holder[chosen] = slot;
+        assigned[slot] = chosen;
+      }
+    }
+    for (int slot = first; slot < index.size(); slot++) {
+      if (assigned[slot] >= 0) {
+        registerOf.put(index.nameOf(slot), REGISTERS[assigned[slot]]);
+      }
+    }
+  }
+
+  /**
+   * 临时变量分配到的寄存器
+   *
+   * @param operand 四元式中的操作数
+   * @return 寄存器名，留在内存中或不是临时变量时返回 null
+   */
+  String registerOf(String operand) {
+    return registerOf.get(operand);
+  }
+
+  // 区间内跨过的四元式破坏的寄存器的并集
+  private static int clobbered(LiveIntervals intervals, int slot, int[] clobbers) {
+    int mask = 0;
+    int from = Math.max(intervals.start(slot) / 2, 0);
+    int to = Math.min(intervals.end(slot) / 2, clobbers.length - 1);
+    for (int i = from; i <= to && mask != ALL; i++) {
+      if (clobbers[i] != 0 && intervals.crosses(slot, i)) {
+        mask |= clobbers[i];
+      }
+    }
+    return mask;
+  }
+
+  // 第 i 条四元式的翻译破坏的可分配寄存器，与 AssemblyGenerator.middles 的翻译一致
+  private static int clobbers(QuadTable quads, int i) {
+    OpCode op = quads.getOp(i);
+    return switch (op) {
+      case DIV -> {
+        int power = AssemblyGenerator.powerOfTwo(quads.operandName(quads.getArg2(i)));
+        yield power > 0 ? (AssemblyGenerator.shiftUsesCl(power) ? CX : 0) : BX;
+      }
+      case MOD -> AssemblyGenerator.powerOfTwo(quads.operandName(quads.getArg2(i))) > 0 ? 0 : BX;
+      case SHL -> AssemblyGenerator.shiftUsesCl(Integer.parseInt(quads.operandName(quads.getArg2(i)))) ? CX : 0;
+      default -> 0;
+    };
+  }
+}
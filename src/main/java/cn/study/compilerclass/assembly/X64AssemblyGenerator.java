@@ -0,0 +1,564 @@
+package cn.study.compilerclass.assembly;
+
+import cn.study.compilerclass.ir.Literals;
+import cn.study.compilerclass.ir.OpCode;
+import cn.study.compilerclass.ir.OperandIndex;
+import cn.study.compilerclass.ir.Optimizer;
+import cn.study.compilerclass.ir.QuadTable;
+import cn.study.compilerclass.model.ConstTableEntry;
+import cn.study.compilerclass.model.MiddleTableEntry;
+import cn.study.compilerclass.model.VariableTableEntry;
+import cn.study.compilerclass.utils.OutInfo;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+/**
+ * x86-64 Linux 汇编代码生成
+ * <p>
+ * 与 {@link AssemblyGenerator} 共用同一张四元式表，输出 GNU as 的 Intel 语法（{@code .intel_syntax noprefix}），不依赖 C 库：入口为
+ * {@code _start}，input/put/putc/putb 通过 read/write 系统调用实现，输出经缓冲区成块写出。值仍按 16 位有符号字处理，变量与临时变量各占一个字，
+ * 除数为零或 -32768 / -1 时与 8086 一样报告 Divide overflow 后退出（退出码 1），因此运行结果与 8086 后端、解释器一致。
+ * <p>
+ * 在 Linux 上汇编并运行：{@code as -o prog.o prog.s && ld -o prog prog.o && ./prog}
+ */
+public class X64AssemblyGenerator {
+
+  // 输出缓冲区写出的粒度（字符数）
+  private static final int CHUNK = 8192;
+
+  private final String src = "x86-64 汇编代码";
+  private final ArrayList<ConstTableEntry> constTable;
+  private final ArrayList<VariableTableEntry> variableTable;
+  private final ArrayList<MiddleTableEntry> middleCode;
+  private final OutInfo outInfos;
+  private final StringBuilder asmCode = new StringBuilder();
+  private QuadTable quads;
+  private Optimizer symbols;
+  private Writer out;
+
+  /**
+   * 构造函数
+   *
+   * @param constTable    常量表
+   * @param variableTable 变量表
+   * @param middleCode    中间代码
+   */
+  public X64AssemblyGenerator(ArrayList<ConstTableEntry> constTable, ArrayList<VariableTableEntry> variableTable, ArrayList<MiddleTableEntry> middleCode, OutInfo outInfos) {
+    this.constTable = constTable;
+    this.variableTable = variableTable;
+    this.middleCode = middleCode;
+    this.outInfos = outInfos;
+  }
+
+  /**
+   * 生成 x86-64 汇编代码
+   *
+   * @return 生成的汇编代码字符串，出错时返回 null
+   */
+  public String generateAssembly() {
+    StringWriter writer = new StringWriter();
+    try {
+      return generateAssembly(writer) ? writer.toString() : null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // StringWriter 不会抛出
+    }
+  }
+
+  /**
+   * 生成 x86-64 汇编代码并边生成边写入 out<br/>依次为数据段（变量）、未初始化数据段（临时变量与输入输出缓冲区）、四元式翻译得到的代码与运行时子程序
+   *
+   * @param out 输出位置，不会被关闭
+   * @return 是否生成成功
+   * @throws IOException 写入 out 时出错
+   */
+  public boolean generateAssembly(Writer out) throws IOException {
+    this.out = out;
+    try {
+      quads = QuadTable.fromEntries(middleCode);
+      symbols = new Optimizer(variableTable, constTable);
+      asmCode.append("        .intel_syntax noprefix\n");
+      data();
+      drain();
+      text();
+      runtime();
+      drain();
+      out.flush();
+      return true;
+    } catch (GenerationException e) {
+      return false;
+    } catch (IllegalArgumentException e) {
+      outInfos.error(src, e.getMessage());
+      return false;
+    } finally {
+      asmCode.setLength(0);
+      quads = null;
+      symbols = null;
+      this.out = null;
+    }
+  }
+
+  // 把缓冲区中的文本写出
+  private void drain() throws IOException {
+    out.append(asmCode);
+    asmCode.setLength(0);
+  }
+
+  // 缓冲区满一块时写出
+  private void drainIfFull() throws IOException {
+    if (asmCode.length() >= CHUNK) {
+      drain();
+    }
+  }
+
+  /**
+   * 变量放在 .data 中并带初值（同名变量只定义一次），临时变量与输入输出缓冲区放在 .bss 中
+   */
+  private void data() throws IOException {
+    asmCode.append("\n        .data\n");
+    LinkedHashSet<String> names = new LinkedHashSet<>();
+    for (VariableTableEntry entry : variableTable) {
+      names.add(entry.getName());
+    }
+    for (String name : names) {
+      Integer value = Literals.parse(symbols.initialOf(name));
+      asmCode.append("v_").append(name).append(": .word ").append(value == null ? 0 : value).append('\n');
+      drainIfFull();
+    }
+    asmCode.append("""
+        _true_msg: .ascii "True"
+        _false_msg: .ascii "False"
+        _overflow_msg: .ascii "Divide overflow\\n"
+
+                .bss
+        """);
+    HashSet<String> temps = new HashSet<>();
+    for (int id = 1; id < quads.operandCount(); id++) {
+      String name = quads.operandName(id);
+      if (OperandIndex.isTemp(name) && temps.add(name)) {
+        asmCode.append(tempLabel(name)).append(": .zero 2\n");
+        drainIfFull();
+      }
+    }
+    asmCode.append("""
+        _out_len: .zero 8
+        _out_buf: .zero 4096
+        _in_pos: .zero 8
+        _in_len: .zero 8
+        _in_buf: .zero 4096
+        """);
+  }
+
+  /**
+   * 四元式<br/>每条四元式从存储器取操作数、结果写回存储器，AX 等寄存器只在一条四元式内部使用
+   */
+  private void text() throws GenerationException, IOException {
+    asmCode.append("""
+
+                .text
+                .globl _start
+        _start:
+        """);
+    boolean[] targets = new boolean[quads.size() + 1];
+    for (int i = 0; i < quads.size(); i++) {
+      if (quads.getOp(i).isJump()) {
+        targets[quads.getTarget(i)] = true;
+      }
+    }
+    for (int i = 0; i < quads.size(); i++) {
+      if (targets[i]) {
+        asmCode.append(".L").append(i).append(":\n");
+      }
+      quad(i);
+      drainIfFull();
+    }
+    asmCode.append(".L").append(quads.size()).append(":\n");
+    ins("jmp _exit");
+  }
+
+  private void quad(int index) throws GenerationException {
+    OpCode op = quads.getOp(index);
+    int a = quads.getArg1(index);
+    int b = quads.getArg2(index);
+    switch (op) {
+      case MAIN -> {
+      }
+      case QUIT -> ins("jmp _exit");
+      case ASSIGN -> {
+        if (isMemory(a)) {
+          ins("mov ax, " + operand(a));
+          ins("mov " + operand(quads.getResult(index)) + ", ax");
+        } else {
+          ins("mov " + operand(quads.getResult(index)) + ", " + operand(a));
+        }
+      }
+      case ADD -> arithmetic("add", a, b, index);
+      case SUB -> arithmetic("sub", a, b, index);
+      case MUL -> {
+        ins("mov ax, " + operand(a));
+        if (isMemory(b)) {
+          ins("imul ax, " + operand(b));
+        } else {
+          ins("imul ax, ax, " + operand(b));
+        }
+        ins("mov " + operand(quads.getResult(index)) + ", ax");
+      }
+      case DIV, MOD -> division(op == OpCode.DIV, a, b, index);
+      case SHL -> {
+        ins("mov ax, " + operand(a));
+        if (isMemory(b)) {
+          ins("mov cx, " + operand(b));
+          ins("and cl, 15");
+          ins("shl ax, cl");
+        } else {
+          ins("shl ax, " + (value(b) & 15));
+        }
+        ins("mov " + operand(quads.getResult(index)) + ", ax");
+      }
+      case LT, GT, LE, GE, EQ, NE -> {
+        ins("mov ax, " + operand(a));
+        ins("cmp ax, " + operand(b));
+        ins("set" + condition(op.toCompareJump()) + " al");
+        bool(index);
+      }
+      case AND, OR -> {
+        ins("mov ax, " + operand(a));
+        ins("test ax, ax");
+        ins("setne dl");
+        ins("mov ax, " + operand(b));
+        ins("test ax, ax");
+        ins("setne al");
+        ins((op == OpCode.AND ? "and" : "or") + " al, dl");
+        bool(index);
+      }
+      case NOT -> {
+        ins("mov ax, " + operand(a));
+        ins("test ax, ax");
+        ins("sete al");
+        bool(index);
+      }
+      // 实参按 8 字节压栈，被调用的子程序用 ret 8 弹出
+      case PARA -> {
+        if (isMemory(a)) {
+          ins("movsx eax, " + operand(a));
+          ins("push rax");
+        } else {
+          ins("push " + operand(a));
+        }
+      }
+      case CALL -> {
+        String function = quads.operandName(a);
+        switch (function) {
+          case "input", "put", "putc", "putb" -> {
+            ins("call _" + function);
+            ins("mov " + operand(quads.getResult(index)) + ", ax");
+          }
+          default -> error("暂未支持自定义函数调用: " + function);
+        }
+      }
+      case J -> ins("jmp .L" + quads.getTarget(index));
+      case JZ, JNZ -> {
+        ins("mov ax, " + operand(a));
+        ins("test ax, ax");
+        ins((op == OpCode.JZ ? "jz" : "jnz") + " .L" + quads.getTarget(index));
+      }
+      case JLT, JGT, JLE, JGE, JEQ, JNE -> {
+        ins("mov ax, " + operand(a));
+        ins("cmp ax, " + operand(b));
+        ins("j" + condition(op) + " .L" + quads.getTarget(index));
+      }
+    }
+  }
+
+  // 比较后条件跳转对应的有符号条件码
+  private static String condition(OpCode op) {
+    return switch (op) {
+      case JLT -> "l";
+      case JGT -> "g";
+      case JLE -> "le";
+      case JGE -> "ge";
+      case JEQ -> "e";
+      case JNE -> "ne";
+      default -> throw new IllegalArgumentException("不是比较后条件跳转: " + op);
+    };
+  }
+
+  private void arithmetic(String mnemonic, int a, int b, int index) {
+    ins("mov ax, " + operand(a));
+    ins(mnemonic + " ax, " + operand(b));
+    ins("mov " + operand(quads.getResult(index)) + ", ax");
+  }
+
+  // 32 位带符号除法，结果的低 16 位与 8086 的 idiv 相同；除数为零或 -32768 / -1 时转到 _divide_overflow
+  private void division(boolean quotient, int a, int b, int index) {
+    ins((isMemory(a) ? "movsx eax, " : "mov eax, ") + operand(a));
+    if (isMemory(b)) {
+      ins("movsx ecx, " + operand(b));
+      ins("test ecx, ecx");
+      ins("jz _divide_overflow");
+      ins("cmp ecx, -1");
+      ins("jne .Ldiv" + index);
+      ins("cmp eax, -32768");
+      ins("je _divide_overflow");
+      asmCode.append(".Ldiv").append(index).append(":\n");
+    } else if (value(b) == 0) {
+      ins("jmp _divide_overflow");
+      return;
+    } else {
+      if (value(b) == -1) {
+        ins("cmp eax, -32768");
+        ins("je _divide_overflow");
+      }
+      ins("mov ecx, " + value(b));
+    }
+    ins("cdq");
+    ins("idiv ecx");
+    ins("mov " + operand(quads.getResult(index)) + ", " + (quotient ? "ax" : "dx"));
+  }
+
+  // al 中为 0 或 1，扩展为字后写入结果
+  private void bool(int index) {
+    ins("movzx ax, al");
+    ins("mov " + operand(quads.getResult(index)) + ", ax");
+  }
+
+  // 变量与临时变量为存储器操作数，字面量与常量为立即数
+  private boolean isMemory(int id) {
+    String name = quads.operandName(id);
+    return symbols.isVariable(name) || OperandIndex.isTemp(name);
+  }
+
+  private int value(int id) {
+    Integer value = Literals.parse(symbols.literalOf(quads.operandName(id)));
+    return value == null ? 0 : value;
+  }
+
+  private String operand(int id) {
+    String name = quads.operandName(id);
+    if (symbols.isVariable(name)) {
+      return "word ptr [rip + v_" + name + "]";
+    }
+    if (OperandIndex.isTemp(name)) {
+      return "word ptr [rip + " + tempLabel(name) + "]";
+    }
+    return Integer.toString(value(id));
+  }
+
+  private static String tempLabel(String name) {
+    return "t_" + name.substring(OperandIndex.TEMP_PREFIX.length());
+  }
+
+  private void ins(String text) {
+    asmCode.append("        ").append(text).append('\n');
+  }
+
+  /**
+   * 运行时子程序<br/>系统调用会改写 rcx 与 r11，子程序可以随意使用 rax、rcx、rdx、rsi、rdi 与 r8~r11，四元式的代码不在寄存器中保留值
+   */
+  private void runtime() {
+    asmCode.append("""
+
+        # 输入函数：从标准输入读取以空白分隔的整数，跳过不是整数的内容，读到末尾时返回 0
+        _input:
+                call _flush
+        _input_token:
+                call _getchar
+                cmp eax, -1
+                je _input_eof
+                cmp eax, ' '
+                jbe _input_token
+                xor r8d, r8d
+                xor r9d, r9d
+                xor r10d, r10d
+                xor ebx, ebx
+                cmp eax, '-'
+                jne _input_char
+                mov r9d, 1
+        _input_next:
+                call _getchar
+        _input_char:
+                cmp eax, -1
+                je _input_end
+                cmp eax, ' '
+                jbe _input_end
+                sub eax, '0'
+                cmp eax, 9
+                ja _input_invalid
+                imul r8d, r8d, 10
+                add r8d, eax
+                inc r10d
+                jmp _input_next
+        _input_invalid:
+                mov ebx, 1
+                jmp _input_next
+        _input_end:
+                test ebx, ebx
+                jnz _input_token
+                test r10d, r10d
+                jz _input_token
+                mov eax, r8d
+                test r9d, r9d
+                jz _input_done
+                neg eax
+        _input_done:
+                ret
+        _input_eof:
+                xor eax, eax
+                ret
+
+        # 输出函数 put(int)
+        _put:
+                movsx eax, word ptr [rsp + 8]
+                test eax, eax
+                jns _put_digits
+                push rax
+                mov edi, '-'
+                call _emit
+                pop rax
+                neg eax
+        _put_digits:
+                xor r8d, r8d
+                mov r9d, 10
+        _put_divide:
+                xor edx, edx
+                div r9d
+                add edx, '0'
+                push rdx
+                inc r8d
+                test eax, eax
+                jnz _put_divide
+        _put_output:
+                pop rdi
+                call _emit
+                dec r8d
+                jnz _put_output
+                ret 8
+
+        # 输出函数 putb(bool)
+        _putb:
+                lea r9, [rip + _true_msg]
+                mov r8d, 4
+                cmp word ptr [rsp + 8], 0
+                jne _putb_output
+                lea r9, [rip + _false_msg]
+                mov r8d, 5
+        _putb_output:
+                movzx edi, byte ptr [r9]
+                call _emit
+                inc r9
+                dec r8d
+                jnz _putb_output
+                ret 8
+
+        # 输出函数 putc(char)
+        _putc:
+                movzx edi, byte ptr [rsp + 8]
+                call _emit
+                ret 8
+
+        # 把 dil 中的字节放入输出缓冲区，缓冲区满时先写出
+        _emit:
+                mov rax, qword ptr [rip + _out_len]
+                cmp rax, 4096
+                jb _emit_store
+                push rdi
+                call _flush
+                pop rdi
+                xor eax, eax
+        _emit_store:
+                lea rcx, [rip + _out_buf]
+                mov byte ptr [rcx + rax], dil
+                inc rax
+                mov qword ptr [rip + _out_len], rax
+                ret
+
+        # 把输出缓冲区写到标准输出
+        _flush:
+                lea rsi, [rip + _out_buf]
+                mov rdx, qword ptr [rip + _out_len]
+        _flush_write:
+                test rdx, rdx
+                jle _flush_done
+                mov eax, 1
+                mov edi, 1
+                syscall
+                test rax, rax
+                jle _flush_done
+                add rsi, rax
+                sub rdx, rax
+                jmp _flush_write
+        _flush_done:
+                mov qword ptr [rip + _out_len], 0
+                ret
+
+        # 从标准输入读取一个字节到 eax，读到末尾时为 -1
+        _getchar:
+                mov rax, qword ptr [rip + _in_pos]
+                cmp rax, qword ptr [rip + _in_len]
+                jb _getchar_load
+                xor eax, eax
+                xor edi, edi
+                lea rsi, [rip + _in_buf]
+                mov edx, 4096
+                syscall
+                test rax, rax
+                jle _getchar_eof
+                mov qword ptr [rip + _in_len], rax
+                xor eax, eax
+        _getchar_load:
+                lea rcx, [rip + _in_buf]
+                movzx edx, byte ptr [rcx + rax]
+                inc rax
+                mov qword ptr [rip + _in_pos], rax
+                mov eax, edx
+                ret
+        _getchar_eof:
+                mov eax, -1
+                ret
+
+        # 与 8086 的除法溢出中断一样报告错误后退出
+        _divide_overflow:
+                call _flush
+                mov eax, 1
+                mov edi, 2
+                lea rsi, [rip + _overflow_msg]
+                mov edx, 16
+                syscall
+                mov eax, 60
+                mov edi, 1
+                syscall
+
+        _exit:
+                call _flush
+                mov eax, 60
+                xor edi, edi
+                syscall
+        """);
+  }
+
+  /**
+   * 记录错误信息并抛出异常
+   *
+   * @param message 错误信息
+   * @throws GenerationException 自定义异常
+   */
+  private void error(String message) throws GenerationException {
+    outInfos.error(src, message);
+    throw new GenerationException(message);
+  }
+
+  private static class GenerationException extends Exception {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public GenerationException(String message) {
+      super(message);
+    }
+  }
+}
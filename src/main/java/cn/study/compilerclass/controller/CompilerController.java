@@ -1,6 +1,16 @@
 package cn.study.compilerclass.controller;
 
 import cn.study.compilerclass.assembly.AssemblyGenerator;
+import cn.study.compilerclass.assembly.X64AssemblyGenerator;
+import cn.study.compilerclass.emulator.Assembler;
+import cn.study.compilerclass.emulator.Emulator;
+import cn.study.compilerclass.emulator.EmulatorException;
+import cn.study.compilerclass.emulator.Profile;
+import cn.study.compilerclass.emulator.Program;
+import cn.study.compilerclass.ir.Interpreter;
+import cn.study.compilerclass.ir.QuadTable;
+import cn.study.compilerclass.jit.CompiledProgram;
+import cn.study.compilerclass.jit.JitCompiler;
 import cn.study.compilerclass.lexer.Lexer;
 import cn.study.compilerclass.lexer.Token;
 import cn.study.compilerclass.lexer.TokenView;
@@ -13,10 +23,13 @@
 import cn.study.compilerclass.syntax.SemanticAnalyzer;
 import cn.study.compilerclass.utils.Debouncer;
 import cn.study.compilerclass.utils.OutInfo;
+import cn.study.compilerclass.utils.PreviewWriter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.awt.Desktop;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
@@ -42,6 +55,8 @@
 import javafx.stage.FileChooser;
 import java.io.File;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import lombok.extern.slf4j.Slf4j;
 
 import static cn.study.compilerclass.CompilerApp.stage;
@@ -49,6 +64,9 @@
 @Slf4j
 public class CompilerController {
 
+  // 汇编代码在界面上显示的最大字符数
+  private static final int ASSEMBLY_PREVIEW_LIMIT = 256 * 1024;
+
   private SemanticAnalyzer semanticAnalyzer;
   private Parser parser;
   private File currentFile;
@@ -112,6 +130,8 @@ public class CompilerController {
   @FXML
   private MenuItem generateAssemblyMenuItem;
   @FXML
+  private CheckMenuItem optimizeMenuItem;
+  @FXML
   private Label cursorPositionLabel;
   @FXML
   private TitledPane outPane;
@@ -240,6 +260,7 @@ private void handleSemanticAnalysis(ActionEvent event) {
     }
 
     semanticAnalyzer = new SemanticAnalyzer(outInfos);
+    semanticAnalyzer.setOptimize(optimizeMenuItem.isSelected());
 
     // 切换到语义分析选项卡
     mainTabPane.getSelectionModel().select(2);
@@ -274,46 +295,202 @@ private void handleSemanticAnalysis(ActionEvent event) {
 
   // 生成汇编代码
   public void handleGenerateAssembly(ActionEvent event) {
+    generateAssemblyFile(event);
+  }
+
+  // 生成 x86-64 Linux 汇编代码
+  @FXML
+  private void handleGenerateX64Assembly(ActionEvent event) {
+    generateAssemblyFile(event, ".s", out -> new X64AssemblyGenerator(semanticAnalyzer.constTable, semanticAnalyzer.variableTable, semanticAnalyzer.middleTableList, outInfos).generateAssembly(out));
+  }
+
+  /**
+   * 生成 8086 汇编代码并保存到同级目录 {文件名}.asm 文件
+   *
+   * @return 汇编文件路径，生成失败时返回 null
+   */
+  private Path generateAssemblyFile(ActionEvent event) {
+    return generateAssemblyFile(event, ".asm", out -> new AssemblyGenerator(semanticAnalyzer.constTable, semanticAnalyzer.variableTable, semanticAnalyzer.functionTable, semanticAnalyzer.middleTableList, outInfos).generateAssembly(out));
+  }
+
+  /**
+   * 某个后端的汇编代码生成，边生成边写入 out
+   */
+  private interface AssemblySource {
+
+    boolean generate(Writer out) throws IOException;
+  }
+
+  /**
+   * 生成汇编代码并保存到同级目录 {文件名}{扩展名} 文件
+   *
+   * @param extension 汇编文件的扩展名，如 ".asm"
+   * @param source    汇编代码生成，在语义分析完成后调用
+   * @return 汇编文件路径，生成失败时返回 null
+   */
+  private Path generateAssemblyFile(ActionEvent event, String extension, AssemblySource source) {
     if (currentFile == null || isModified.getValue()) {
       showAlert(AlertType.WARNING, "请先保存当前内容，再执行语义分析");
-      return;
+      return null;
     }
     handleSemanticAnalysis(event); // 确保先进行语义分析
     if (semanticAnalyzer == null || semanticAnalyzer.middleTableList.isEmpty() || semanticAnalyzer.hasError()) {
       showAlert(AlertType.WARNING, "请先确保语义分析无误");
-      return;
+      return null;
     }
 
-    AssemblyGenerator assemblyGenerator = new AssemblyGenerator(semanticAnalyzer.constTable, semanticAnalyzer.variableTable, semanticAnalyzer.functionTable, semanticAnalyzer.middleTableList, outInfos);
-    String assemblyCode = assemblyGenerator.generateAssembly();
-
-    if (outInfos.hasError()) {
-      return;
+    // 边生成边写入同级目录 {文件名}{扩展名} 文件，生成成功后才替换原文件；界面上只显示开头一段
+    String fileName = getFileNameWithoutExtension(currentFile.getName());
+    Path asmPath = new File(currentFile.getParent(), fileName + extension).toPath();
+    Path tempPath = asmPath.resolveSibling(fileName + extension + ".tmp");
+    PreviewWriter preview;
+    boolean success;
+    try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+      preview = new PreviewWriter(writer, ASSEMBLY_PREVIEW_LIMIT);
+      success = source.generate(preview);
+    } catch (IOException e) {
+      showAlert(AlertType.ERROR, "保存汇编代码到文件时发生错误: " + e.getMessage());
+      deleteQuietly(tempPath);
+      return null;
     }
 
-    mainTabPane.getSelectionModel().select(4);
-    resArea.setText("");
-    resArea.setText(assemblyCode);
-
-    // 自动导出汇编代码到同级目录 {文件名}.asm 文件
+    if (!success || outInfos.hasError()) {
+      deleteQuietly(tempPath);
+      return null;
+    }
     try {
-      String fileName = getFileNameWithoutExtension(currentFile.getName());
-      String filePath = currentFile.getParent() + File.separator + fileName + ".asm";
-      Files.writeString(new File(filePath).toPath(), assemblyCode, StandardCharsets.UTF_8);
-      // 可以选择显示成功信息或者静默保存
-      // showAlert(AlertType.INFORMATION, "汇编代码已自动保存到同级目录 " + fileName + ".asm 文件。");
+      Files.move(tempPath, asmPath, StandardCopyOption.REPLACE_EXISTING);
     } catch (IOException e) {
       showAlert(AlertType.ERROR, "保存汇编代码到文件时发生错误: " + e.getMessage());
+      deleteQuietly(tempPath);
+      return null;
+    }
+
+    mainTabPane.getSelectionModel().select(4);
+    resArea.setText("");
+    if (preview.isTruncated()) {
+      resArea.setText(preview.preview() + String.format("%n; ……（共 %d 行，只显示开头部分，完整代码见 %s%s）%n", preview.getLines(), fileName, extension));
+    } else {
+      resArea.setText(preview.preview());
     }
 
-    // 粘贴到粘贴板
+    // 粘贴到粘贴板，代码过长时复制文件
     Platform.runLater(() -> {
       Clipboard clipboard = Clipboard.getSystemClipboard();
       ClipboardContent content = new ClipboardContent();
-      content.putString(assemblyCode);
-      clipboard.setContent(content);
-      outInfos.info("汇编代码", "汇编代码已复制到粘贴板。");
+      if (preview.isTruncated()) {
+        content.putFiles(List.of(asmPath.toFile()));
+        clipboard.setContent(content);
+        outInfos.info("汇编代码", "汇编代码较长，已将 " + fileName + extension + " 文件复制到粘贴板。");
+      } else {
+        content.putString(preview.preview());
+        clipboard.setContent(content);
+        outInfos.info("汇编代码", "汇编代码已复制到粘贴板。");
+      }
     });
+    return asmPath;
+  }
+
+  // 在内置的 8086 模拟器中运行生成的汇编代码，输出程序的屏幕输出与执行统计
+  @FXML
+  private void handleRunAssembly(ActionEvent event) {
+    Path asmPath = generateAssemblyFile(event);
+    if (asmPath == null) {
+      return;
+    }
+    TextInputDialog dialog = new TextInputDialog();
+    dialog.setTitle("模拟运行");
+    dialog.setHeaderText("输入程序依次读取的数据，用空格分隔");
+    Optional<String> result = dialog.showAndWait();
+    if (result.isEmpty()) {
+      return;
+    }
+    String input = String.join("\n", result.get().trim().split("\\s+")) + "\n";
+    try {
+      Program program = Assembler.assemble(Files.readString(asmPath, StandardCharsets.UTF_8));
+      StringBuilder output = new StringBuilder();
+      Profile profile = new Emulator(program).run(input, output);
+      outInfos.info("模拟运行", "程序输出:" + System.lineSeparator() + output);
+      outInfos.info("模拟运行", profile.report(10));
+    } catch (IOException e) {
+      outInfos.error("模拟运行", "读取汇编文件时发生错误: " + e.getMessage(), e);
+    } catch (EmulatorException e) {
+      outInfos.error("模拟运行", e.getMessage());
+    }
+  }
+
+  // 不经过汇编直接解释执行四元式，输出程序的输出与执行统计
+  @FXML
+  private void handleInterpret(ActionEvent event) {
+    Optional<String> input = prepareQuadRun(event, "解释运行");
+    if (input.isEmpty()) {
+      return;
+    }
+    try {
+      Interpreter interpreter = new Interpreter(QuadTable.fromEntries(semanticAnalyzer.middleTableList), semanticAnalyzer.variableTable, semanticAnalyzer.constTable);
+      StringBuilder output = new StringBuilder();
+      Interpreter.Result run = interpreter.run(Interpreter.integers(new StringReader(input.get())), output);
+      outInfos.info("解释运行", "程序输出:" + System.lineSeparator() + output);
+      outInfos.info("解释运行", run.summary());
+    } catch (IllegalArgumentException e) {
+      outInfos.error("解释运行", e.getMessage());
+    } catch (IOException e) {
+      outInfos.error("解释运行", "输出程序结果时发生错误: " + e.getMessage(), e); // StringBuilder 不会抛出
+    }
+  }
+
+  // 把四元式编译为 JVM 字节码后运行，由 HotSpot 即时编译为本机代码
+  @FXML
+  private void handleCompileRun(ActionEvent event) {
+    Optional<String> input = prepareQuadRun(event, "编译运行");
+    if (input.isEmpty()) {
+      return;
+    }
+    try {
+      long start = System.nanoTime();
+      CompiledProgram program = JitCompiler.compile(QuadTable.fromEntries(semanticAnalyzer.middleTableList), semanticAnalyzer.variableTable, semanticAnalyzer.constTable);
+      long compileNanos = System.nanoTime() - start;
+      StringBuilder output = new StringBuilder();
+      CompiledProgram.Result run = program.run(Interpreter.integers(new StringReader(input.get())), output);
+      outInfos.info("编译运行", "程序输出:" + System.lineSeparator() + output);
+      outInfos.info("编译运行", String.format("生成 %d 字节的类文件，编译用时 %.3f ms；%s", program.getClassSize(), compileNanos / 1e6, run.summary()));
+    } catch (IllegalArgumentException e) {
+      outInfos.error("编译运行", e.getMessage());
+    } catch (IllegalStateException e) {
+      outInfos.error("编译运行", e.getMessage(), e);
+    } catch (IOException e) {
+      outInfos.error("编译运行", "输出程序结果时发生错误: " + e.getMessage(), e); // StringBuilder 不会抛出
+    }
+  }
+
+  /**
+   * 运行四元式前的准备：完成语义分析并询问程序的输入
+   *
+   * @param title 输入对话框的标题
+   * @return 用户输入的数据，语义分析有误或取消输入时为空
+   */
+  private Optional<String> prepareQuadRun(ActionEvent event, String title) {
+    if (currentFile == null || isModified.getValue()) {
+      showAlert(AlertType.WARNING, "请先保存当前内容，再执行语义分析");
+      return Optional.empty();
+    }
+    handleSemanticAnalysis(event); // 确保先进行语义分析
+    if (semanticAnalyzer == null || semanticAnalyzer.middleTableList.isEmpty() || semanticAnalyzer.hasError()) {
+      showAlert(AlertType.WARNING, "请先确保语义分析无误");
+      return Optional.empty();
+    }
+    TextInputDialog dialog = new TextInputDialog();
+    dialog.setTitle(title);
+    dialog.setHeaderText("输入程序依次读取的数据，用空格分隔");
+    return dialog.showAndWait();
+  }
+
+  private void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.warn("删除临时文件失败: {}", path, e);
+    }
   }
 
   @FXML
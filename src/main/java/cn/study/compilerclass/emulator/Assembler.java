@@ -0,0 +1,459 @@
+package cn.study.compilerclass.emulator;
+
+import cn.study.compilerclass.emulator.Instruction.Op;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 汇编 {@link cn.study.compilerclass.assembly.AssemblyGenerator} 生成的 MASM 源码子集
+ * <p>
+ * 支持 segment/ends、assume、proc/endp、end 入口、不带局部标号的宏，数据定义 db、dw（数值、字符串与 dup），
+ * 以及寄存器、立即数、{@code offset 变量}、段名和 [基址 + 变址 + 位移] 形式的存储器操作数。与 MASM 一样不区分大小写。
+ * <br/>先逐行收集段、数据、宏与标号，再解析代码行的操作数，因此指令可以引用后面定义的标号。
+ */
+public final class Assembler {
+
+  private static final Pattern LABEL = Pattern.compile("^([a-z_$@?][\\w$@?]*)\\s*:(?!\\[)\\s*(.*)$");
+  private static final Pattern IDENTIFIER = Pattern.compile("[a-z_$@?][\\w$@?]*");
+
+  // 数据段中的变量
+  private record Symbol(int segment, int offset, int width) {
+  }
+
+  // 待解析的代码行
+  private record Line(int number, String text) {
+  }
+
+  private record Macro(List<String> parameters, List<String> body) {
+  }
+
+  private final byte[] memory = new byte[Program.MEMORY_SIZE];
+  private final HashMap<String, Integer> segments = new HashMap<>();
+  private final HashMap<String, Symbol> symbols = new HashMap<>();
+  private final HashMap<String, Macro> macros = new HashMap<>();
+  private final HashMap<String, Integer> labels = new HashMap<>();
+  private final ArrayList<Line> codeLines = new ArrayList<>();
+  // 代码行序号 -> 之前最近的标号
+  private final ArrayList<String> regions = new ArrayList<>();
+  private String region = "";
+  private int nextSegment = Program.LOAD_SEGMENT;
+  private String segmentName;
+  private int segmentBase;
+  private int offset;
+  private String entryLabel;
+
+  private Assembler() {
+  }
+
+  /**
+   * 汇编源码
+   *
+   * @param source 汇编源码
+   * @return 程序
+   * @throws EmulatorException 源码中有不支持的写法时抛出
+   */
+  public static Program assemble(String source) throws EmulatorException {
+    return new Assembler().run(source);
+  }
+
+  private Program run(String source) throws EmulatorException {
+    String[] lines = source.split("\n", -1);
+    Deque<Line> pending = new ArrayDeque<>();
+    for (int k = 0; k < lines.length; k++) {
+      pending.addLast(new Line(k + 1, lines[k]));
+    }
+    String macroName = null;
+    Macro macro = null;
+    while (!pending.isEmpty()) {
+      Line line = pending.removeFirst();
+      String text = normalize(line.text());
+      if (text.isEmpty()) {
+        continue;
+      }
+      String[] words = text.split("\\s+", 3);
+      // 宏定义
+      if (macro != null) {
+        if (words[0].equals("endm")) {
+          macros.put(macroName, macro);
+          macro = null;
+        } else {
+          macro.body().add(text);
+        }
+        continue;
+      }
+      if (words.length > 1 && words[1].equals("macro")) {
+        macroName = words[0];
+        macro = new Macro(words.length > 2 ? splitOperands(words[2]) : List.of(), new ArrayList<>());
+        continue;
+      }
+      // 宏调用：形参整词替换为实参后插入到待处理行的最前面
+      Macro called = macros.get(words[0]);
+      if (called != null) {
+        List<String> arguments = words.length > 1 ? splitOperands(text.substring(words[0].length()).trim()) : List.of();
+        for (int k = called.body().size() - 1; k >= 0; k--) {
+          String expanded = called.body().get(k);
+          for (int p = 0; p < called.parameters().size() && p < arguments.size(); p++) {
+            expanded = expanded.replaceAll("\\b" + Pattern.quote(called.parameters().get(p)) + "\\b", Matcher.quoteReplacement(arguments.get(p)));
+          }
+          pending.addFirst(new Line(line.number(), expanded));
+        }
+        continue;
+      }
+      directiveOrCode(line.number(), text, words);
+    }
+    if (macro != null) {
+      throw new EmulatorException("宏 " + macroName + " 缺少 endm");
+    }
+    if (segmentName != null) {
+      throw new EmulatorException("段 " + segmentName + " 缺少 ends");
+    }
+
+    // 解析代码行
+    ArrayList<Instruction> code = new ArrayList<>(codeLines.size());
+    for (int k = 0; k < codeLines.size(); k++) {
+      Instruction instruction = instruction(codeLines.get(k));
+      instruction.region = regions.get(k);
+      code.add(instruction);
+    }
+    for (Instruction instruction : code) {
+      if (instruction.op.isBranch()) {
+        Integer target = labels.get(instruction.a.label);
+        if (target == null) {
+          throw EmulatorException.at(instruction.line, "未定义的标号 " + instruction.a.label);
+        }
+        instruction.target = target;
+      }
+    }
+    Integer entry = entryLabel == null ? Integer.valueOf(0) : labels.get(entryLabel);
+    if (entry == null) {
+      throw new EmulatorException("未定义的入口标号 " + entryLabel);
+    }
+    Integer codeSegment = segments.get("code");
+    return new Program(memory, code, entry, codeSegment == null ? Program.LOAD_SEGMENT : codeSegment);
+  }
+
+  // 段、数据定义、过程与标号；其余为指令行
+  private void directiveOrCode(int number, String text, String[] words) throws EmulatorException {
+    switch (words[0]) {
+      case "assume" -> {
+        return;
+      }
+      case "end" -> {
+        entryLabel = words.length > 1 ? words[1] : null;
+        return;
+      }
+      case "db", "dw" -> {
+        data(number, words[0], text.substring(2).trim());
+        return;
+      }
+      default -> {
+      }
+    }
+    if (words.length > 1) {
+      switch (words[1]) {
+        case "segment" -> {
+          segmentName = words[0];
+          segmentBase = nextSegment;
+          offset = 0;
+          segments.put(segmentName, segmentBase);
+          return;
+        }
+        case "ends" -> {
+          nextSegment = segmentBase + (offset + 15) / 16;
+          segmentName = null;
+          return;
+        }
+        case "db", "dw" -> {
+          symbols.put(words[0], new Symbol(segmentBase, offset, words[1].equals("db") ? 1 : 2));
+          data(number, words[1], words.length > 2 ? words[2] : "");
+          return;
+        }
+        case "proc" -> {
+          defineLabel(number, words[0]);
+          return;
+        }
+        case "endp" -> {
+          return;
+        }
+        default -> {
+        }
+      }
+    }
+    Matcher m = LABEL.matcher(text);
+    if (m.matches()) {
+      defineLabel(number, m.group(1));
+      String rest = m.group(2).trim();
+      if (!rest.isEmpty()) {
+        directiveOrCode(number, rest, rest.split("\\s+", 3));
+      }
+      return;
+    }
+    if (segmentName == null) {
+      throw EmulatorException.at(number, "指令不在段中: " + text);
+    }
+    codeLines.add(new Line(number, text));
+    regions.add(region);
+  }
+
+  private void defineLabel(int number, String name) throws EmulatorException {
+    if (labels.put(name, codeLines.size()) != null) {
+      throw EmulatorException.at(number, "重复定义的标号 " + name);
+    }
+    region = name;
+  }
+
+  // 数据定义：逐项写入内存映像
+  private void data(int number, String directive, String items) throws EmulatorException {
+    if (segmentName == null) {
+      throw EmulatorException.at(number, "数据定义不在段中");
+    }
+    int width = directive.equals("db") ? 1 : 2;
+    for (String item : splitOperands(items)) {
+      Matcher dup = Pattern.compile("^(\\S+)\\s+dup\\s*\\((.*)\\)$").matcher(item);
+      if (dup.matches()) {
+        Integer count = number(dup.group(1));
+        if (count == null) {
+          throw EmulatorException.at(number, "无法识别的重复次数 " + dup.group(1));
+        }
+        for (int k = 0; k < count; k++) {
+          data(number, directive, dup.group(2));
+        }
+      } else if (width == 1 && item.length() >= 2 && item.charAt(0) == '\'' && item.endsWith("'")) {
+        for (int k = 1; k < item.length() - 1; k++) {
+          store(item.charAt(k), 1);
+        }
+      } else {
+        Integer value = item.equals("?") ? Integer.valueOf(0) : number(item);
+        if (value == null) {
+          throw EmulatorException.at(number, "无法识别的数据 " + item);
+        }
+        store(value, width);
+      }
+    }
+  }
+
+  private void store(int value, int width) {
+    int address = (segmentBase << 4) + offset;
+    memory[address] = (byte) value;
+    if (width == 2) {
+      memory[address + 1] = (byte) (value >> 8);
+    }
+    offset += width;
+  }
+
+  // 解析一条指令
+  private Instruction instruction(Line line) throws EmulatorException {
+    String text = line.text();
+    int space = text.indexOf(' ');
+    String mnemonic = space < 0 ? text : text.substring(0, space);
+    Op op = Instruction.opOf(mnemonic);
+    if (op == null) {
+      throw EmulatorException.at(line.number(), "不支持的指令 " + mnemonic);
+    }
+    List<String> texts = space < 0 ? List.of() : splitOperands(text.substring(space + 1));
+    if (texts.size() > 2) {
+      throw EmulatorException.at(line.number(), "操作数过多: " + text);
+    }
+    Operand a = texts.isEmpty() ? null : operand(line.number(), texts.get(0));
+    Operand b = texts.size() < 2 ? null : operand(line.number(), texts.get(1));
+    if (op.isBranch() && (a == null || a.kind != Operand.Kind.LABEL)) {
+      throw EmulatorException.at(line.number(), "跳转目标不是标号: " + text);
+    }
+    if (!op.isBranch() && (a != null && a.kind == Operand.Kind.LABEL || b != null && b.kind == Operand.Kind.LABEL)) {
+      throw EmulatorException.at(line.number(), "未定义的符号: " + text);
+    }
+    return new Instruction(op, a, b, line.number(), text);
+  }
+
+  private Operand operand(int number, String text) throws EmulatorException {
+    String s = text.trim();
+    int width = 0;
+    if (s.startsWith("word ptr ")) {
+      width = 2;
+      s = s.substring(9).trim();
+    } else if (s.startsWith("byte ptr ")) {
+      width = 1;
+      s = s.substring(9).trim();
+    }
+    for (String prefix : new String[]{"short ", "near ptr ", "far ptr "}) {
+      if (s.startsWith(prefix)) {
+        return Operand.label(s.substring(prefix.length()).trim());
+      }
+    }
+    if (s.startsWith("offset ")) {
+      Symbol symbol = symbols.get(s.substring(7).trim());
+      if (symbol == null) {
+        throw EmulatorException.at(number, "未定义的变量 " + s.substring(7).trim());
+      }
+      return Operand.immediate(symbol.offset());
+    }
+    int register = indexOf(Operand.REG16, s);
+    if (register >= 0) {
+      return Operand.reg16(register);
+    }
+    register = indexOf(Operand.REG8, s);
+    if (register >= 0) {
+      return Operand.reg8(register);
+    }
+    register = indexOf(Operand.SEGMENTS, s);
+    if (register >= 0) {
+      return Operand.segment(register);
+    }
+    if (s.indexOf('[') >= 0) {
+      return memory(number, s, width);
+    }
+    Integer value = number(s);
+    if (value != null) {
+      return Operand.immediate(value);
+    }
+    Integer segment = segments.get(s);
+    if (segment != null) {
+      return Operand.immediate(segment);
+    }
+    Symbol symbol = symbols.get(s);
+    if (symbol != null) {
+      return Operand.memory(Operand.DS, false, -1, -1, symbol.offset(), width != 0 ? width : symbol.width());
+    }
+    if (IDENTIFIER.matcher(s).matches()) {
+      return Operand.label(s);
+    }
+    throw EmulatorException.at(number, "无法识别的操作数 " + text);
+  }
+
+  // [基址 + 变址 + 位移]，可带段前缀或变量名
+  private Operand memory(int number, String s, int width) throws EmulatorException {
+    int open = s.indexOf('[');
+    int close = s.lastIndexOf(']');
+    if (close < open) {
+      throw EmulatorException.at(number, "缺少 ] : " + s);
+    }
+    String prefix = s.substring(0, open).trim();
+    int segment = -1;
+    int displacement = 0;
+    if (prefix.endsWith(":")) {
+      segment = indexOf(Operand.SEGMENTS, prefix.substring(0, prefix.length() - 1).trim());
+      if (segment < 0) {
+        throw EmulatorException.at(number, "无法识别的段前缀 " + prefix);
+      }
+    } else if (!prefix.isEmpty()) {
+      Symbol symbol = symbols.get(prefix);
+      if (symbol == null) {
+        throw EmulatorException.at(number, "未定义的变量 " + prefix);
+      }
+      displacement = symbol.offset();
+      width = width != 0 ? width : symbol.width();
+    }
+    int base = -1;
+    int index = -1;
+    String expression = s.substring(open + 1, close).replace(" ", "");
+    Matcher term = Pattern.compile("([+-]?)([^+-]+)").matcher(expression);
+    while (term.find()) {
+      boolean negative = term.group(1).equals("-");
+      String t = term.group(2);
+      int register = indexOf(Operand.REG16, t);
+      if (register == Operand.BX || register == Operand.BP) {
+        base = register;
+      } else if (register == Operand.SI || register == Operand.DI) {
+        index = register;
+      } else if (register >= 0) {
+        throw EmulatorException.at(number, "不能用于寻址的寄存器 " + t);
+      } else {
+        Integer value = number(t);
+        Symbol symbol = symbols.get(t);
+        if (value == null && symbol == null) {
+          throw EmulatorException.at(number, "无法识别的地址 " + t);
+        }
+        if (symbol != null) {
+          value = symbol.offset();
+          width = width != 0 ? width : symbol.width();
+        }
+        displacement += negative ? -value : value;
+      }
+    }
+    boolean override = segment >= 0;
+    if (!override) {
+      segment = base == Operand.BP ? Operand.SS : Operand.DS;
+    }
+    return Operand.memory(segment, override, base, index, displacement & 0xFFFF, width);
+  }
+
+  /**
+   * 解析数值：十进制、以 h 结尾的十六进制、0x 开头的十六进制与单个字符
+   *
+   * @return 数值，不是数值时返回 null
+   */
+  static Integer number(String s) {
+    if (s.length() == 3 && s.charAt(0) == '\'' && s.charAt(2) == '\'') {
+      return (int) s.charAt(1);
+    }
+    boolean negative = s.startsWith("-");
+    String digits = negative ? s.substring(1) : s;
+    if (digits.isEmpty() || !Character.isDigit(digits.charAt(0))) {
+      return null;
+    }
+    try {
+      int value;
+      if (digits.endsWith("h")) {
+        value = Integer.parseInt(digits.substring(0, digits.length() - 1), 16);
+      } else if (digits.startsWith("0x")) {
+        value = Integer.parseInt(digits.substring(2), 16);
+      } else {
+        value = Integer.parseInt(digits);
+      }
+      return negative ? -value : value;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static int indexOf(String[] names, String s) {
+    for (int k = 0; k < names.length; k++) {
+      if (names[k].equals(s)) {
+        return k;
+      }
+    }
+    return -1;
+  }
+
+  // 按引号外的逗号分隔操作数
+  private static List<String> splitOperands(String s) {
+    ArrayList<String> result = new ArrayList<>();
+    boolean quoted = false;
+    int start = 0;
+    for (int k = 0; k < s.length(); k++) {
+      char c = s.charAt(k);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (c == ',' && !quoted) {
+        result.add(s.substring(start, k).trim());
+        start = k + 1;
+      }
+    }
+    String last = s.substring(start).trim();
+    if (!last.isEmpty() || !result.isEmpty()) {
+      result.add(last);
+    }
+    return result;
+  }
+
+  // 去掉注释，引号外的字符转为小写
+  private static String normalize(String line) {
+    StringBuilder sb = new StringBuilder(line.length());
+    boolean quoted = false;
+    for (int k = 0; k < line.length(); k++) {
+      char c = line.charAt(k);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (c == ';' && !quoted) {
+        break;
+      }
+      sb.append(quoted ? c : Character.toLowerCase(c));
+    }
+    return sb.toString().replace('\t', ' ').trim();
+  }
+}
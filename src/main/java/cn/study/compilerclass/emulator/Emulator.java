@@ -0,0 +1,504 @@
+package cn.study.compilerclass.emulator;
+
+import cn.study.compilerclass.emulator.Instruction.Op;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 8086 与 DOS 的模拟器
+ * <p>
+ * 执行{@link Assembler 汇编}得到的程序，逐条指令按{@link Timing 8086 时序}累计时钟周期，统计存储器读写次数与各标号区域的热点。
+ * DOS 只模拟 int 21h 的 01h（带回显读字符）、02h（显示字符）、09h（显示以 $ 结尾的字符串）与 4Ch（退出）功能，
+ * 除法溢出与 DOS 一样输出 "Divide overflow" 后结束程序。<br/>
+ * 输入按字符依次读取，换行视为回车键，读完后一直返回回车；输出中回车被丢弃，回车的回显按换行输出。
+ */
+public class Emulator {
+
+  public static final long DEFAULT_MAX_INSTRUCTIONS = 100_000_000L;
+
+  // 程序段前缀的段地址，程序开始时各段寄存器都指向它
+  private static final int PSP_SEGMENT = 0x0100;
+
+  private static final int AX = 0;
+  private static final int CX = 1;
+  private static final int DX = 2;
+  private static final int SP = 4;
+
+  private final Program program;
+  private long maxInstructions = DEFAULT_MAX_INSTRUCTIONS;
+
+  // 运行状态
+  private byte[] memory;
+  private final int[] regs = new int[8];
+  private final int[] segs = new int[4];
+  private boolean cf;
+  private boolean zf;
+  private boolean sf;
+  private boolean of;
+  private String input;
+  private int inputPos;
+  private StringBuilder output;
+  private long reads;
+  private long writes;
+  private boolean halted;
+  private int exitCode;
+  private String stopReason;
+
+  public Emulator(Program program) {
+    this.program = program;
+  }
+
+  /**
+   * 设置执行的指令数上限，超过时停止运行，避免死循环
+   */
+  public void setMaxInstructions(long maxInstructions) {
+    this.maxInstructions = maxInstructions;
+  }
+
+  /**
+   * 从入口开始运行程序
+   *
+   * @param input  键盘输入
+   * @param output 屏幕输出
+   * @return 运行统计
+   * @throws EmulatorException 执行了不支持的指令或 DOS 功能、返回地址无效等
+   */
+  public Profile run(String input, StringBuilder output) throws EmulatorException {
+    this.memory = program.memory.clone();
+    this.input = input;
+    this.inputPos = 0;
+    this.output = output;
+    Arrays.fill(regs, 0);
+    Arrays.fill(segs, PSP_SEGMENT);
+    segs[1] = program.codeSegment;
+    regs[SP] = 0xFFFE;
+    cf = zf = sf = of = false;
+    reads = writes = 0;
+    halted = false;
+    exitCode = -1;
+    stopReason = null;
+
+    int n = program.code.size();
+    long[] counts = new long[n];
+    long[] cycles = new long[n];
+    long executed = 0;
+    int ip = program.entry;
+    while (!halted) {
+      if (ip < 0 || ip >= n) {
+        stopReason = "执行越过了代码末尾";
+        break;
+      }
+      if (executed++ >= maxInstructions) {
+        stopReason = "超过指令数上限 " + maxInstructions;
+        break;
+      }
+      counts[ip]++;
+      ip = execute(program.code.get(ip), ip, cycles);
+    }
+    return new Profile(program, counts, cycles, reads, writes, exitCode, stopReason);
+  }
+
+  // 执行一条指令并累计时钟周期，返回下一条指令的序号
+  private int execute(Instruction ins, int ip, long[] cycles) throws EmulatorException {
+    Operand a = ins.a;
+    Operand b = ins.b;
+    int width = width(a, b);
+    int next = ip + 1;
+    int count = 0;
+    boolean taken = false;
+    switch (ins.op) {
+      case MOV -> write(a, width, read(b, width));
+      case ADD -> write(a, width, add(read(a, width), read(b, width), 0, width));
+      case ADC -> write(a, width, add(read(a, width), read(b, width), cf ? 1 : 0, width));
+      case SUB -> write(a, width, sub(read(a, width), read(b, width), 0, width));
+      case SBB -> write(a, width, sub(read(a, width), read(b, width), cf ? 1 : 0, width));
+      case CMP -> sub(read(a, width), read(b, width), 0, width);
+      case AND -> write(a, width, logic(read(a, width) & read(b, width), width));
+      case OR -> write(a, width, logic(read(a, width) | read(b, width), width));
+      case XOR -> write(a, width, logic(read(a, width) ^ read(b, width), width));
+      case TEST -> logic(read(a, width) & read(b, width), width);
+      case INC -> {
+        boolean carry = cf;
+        write(a, width, add(read(a, width), 1, 0, width));
+        cf = carry;
+      }
+      case DEC -> {
+        boolean carry = cf;
+        write(a, width, sub(read(a, width), 1, 0, width));
+        cf = carry;
+      }
+      case NEG -> write(a, width, sub(0, read(a, width), 0, width));
+      case NOT -> write(a, width, ~read(a, width) & mask(width));
+      case SHL, SHR, SAR -> {
+        count = b == null ? 1 : read(b, 1);
+        write(a, width, shift(ins.op, read(a, width), count, width));
+      }
+      case MUL, IMUL, DIV, IDIV -> {
+        if (!multiplyOrDivide(ins.op, read(a, width), width)) {
+          output.append("Divide overflow\n");
+          stopReason = "除法溢出（第 " + ins.line + " 行）";
+          halted = true;
+        }
+      }
+      case CWD -> regs[DX] = (regs[AX] & 0x8000) != 0 ? 0xFFFF : 0;
+      case CBW -> regs[AX] = (byte) regs[AX] & 0xFFFF;
+      case LEA -> {
+        if (b == null || !b.isMemory()) {
+          throw EmulatorException.at(ins.line, "lea 的源操作数必须是存储器: " + ins.text);
+        }
+        write(a, 2, offset(b));
+      }
+      case XCHG -> {
+        int x = read(a, width);
+        write(a, width, read(b, width));
+        write(b, width, x);
+      }
+      case PUSH -> push(read(a, 2));
+      case POP -> write(a, 2, pop());
+      case JMP -> next = ins.target;
+      case LOOP -> {
+        regs[CX] = regs[CX] - 1 & 0xFFFF;
+        taken = regs[CX] != 0;
+      }
+      case CALL -> {
+        push(ip + 1);
+        next = ins.target;
+      }
+      case RET -> {
+        next = pop();
+        if (a != null) {
+          regs[SP] = regs[SP] + read(a, 2) & 0xFFFF;
+        }
+      }
+      case INT -> {
+        int vector = read(a, 1);
+        if (vector != 0x21) {
+          throw EmulatorException.at(ins.line, String.format("不支持的中断 %02Xh", vector));
+        }
+        dos(ins);
+      }
+      case NOP -> {
+      }
+      default -> taken = condition(ins.op);
+    }
+    if (ins.op.isConditionalJump() || ins.op == Op.LOOP) {
+      if (taken) {
+        next = ins.target;
+      }
+    }
+    cycles[ip] += Timing.cycles(ins, width, count, taken);
+    return next;
+  }
+
+  private boolean condition(Op op) {
+    return switch (op) {
+      case JE -> zf;
+      case JNE -> !zf;
+      case JL -> sf != of;
+      case JGE -> sf == of;
+      case JLE -> zf || sf != of;
+      case JG -> !zf && sf == of;
+      case JB -> cf;
+      case JAE -> !cf;
+      case JBE -> cf || zf;
+      case JA -> !cf && !zf;
+      case JS -> sf;
+      case JNS -> !sf;
+      case JCXZ -> regs[CX] == 0;
+      default -> false;
+    };
+  }
+
+  // int 21h
+  private void dos(Instruction ins) throws EmulatorException {
+    int function = regs[AX] >> 8;
+    switch (function) {
+      case 0x01 -> {
+        int c = inputPos < input.length() ? input.charAt(inputPos++) : '\r';
+        if (c == '\r' && inputPos < input.length() && input.charAt(inputPos) == '\n') {
+          inputPos++;
+        }
+        if (c == '\n') {
+          c = '\r';
+        }
+        regs[AX] = regs[AX] & 0xFF00 | c & 0xFF;
+        output.append(c == '\r' ? '\n' : (char) (c & 0xFF));
+      }
+      case 0x02 -> {
+        int c = regs[DX] & 0xFF;
+        display(c);
+        regs[AX] = regs[AX] & 0xFF00 | c;
+      }
+      case 0x09 -> {
+        int offset = regs[DX];
+        for (int k = 0; k < 0x10000; k++) {
+          int c = memory[physical(segs[Operand.DS], offset + k)] & 0xFF;
+          if (c == '$') {
+            break;
+          }
+          display(c);
+        }
+        regs[AX] = regs[AX] & 0xFF00 | '$';
+      }
+      case 0x4C -> {
+        exitCode = regs[AX] & 0xFF;
+        halted = true;
+      }
+      default -> throw EmulatorException.at(ins.line, String.format("不支持的 DOS 功能 %02Xh", function));
+    }
+  }
+
+  private void display(int c) {
+    if (c != '\r') {
+      output.append((char) c);
+    }
+  }
+
+  private int add(int x, int y, int carry, int width) {
+    int m = mask(width);
+    int r = x + y + carry;
+    cf = r > m;
+    r &= m;
+    of = ((x ^ r) & (y ^ r) & sign(width)) != 0;
+    flags(r, width);
+    return r;
+  }
+
+  private int sub(int x, int y, int borrow, int width) {
+    int r = x - y - borrow;
+    cf = r < 0;
+    r &= mask(width);
+    of = ((x ^ y) & (x ^ r) & sign(width)) != 0;
+    flags(r, width);
+    return r;
+  }
+
+  private int logic(int r, int width) {
+    cf = false;
+    of = false;
+    flags(r, width);
+    return r;
+  }
+
+  private int shift(Op op, int value, int count, int width) {
+    int m = mask(width);
+    int s = sign(width);
+    int v = value;
+    for (int k = 0; k < count; k++) {
+      switch (op) {
+        case SHL -> {
+          cf = (v & s) != 0;
+          v = v << 1 & m;
+        }
+        case SHR -> {
+          cf = (v & 1) != 0;
+          v >>>= 1;
+        }
+        default -> {
+          cf = (v & 1) != 0;
+          v = v >> 1 | v & s;
+        }
+      }
+    }
+    if (count > 0) {
+      of = switch (op) {
+        case SHL -> ((v & s) != 0) != cf;
+        case SHR -> (value & s) != 0;
+        default -> false;
+      };
+      flags(v, width);
+    }
+    return v;
+  }
+
+  // 乘除法，除数为 0 或商溢出时返回 false
+  private boolean multiplyOrDivide(Op op, int source, int width) {
+    if (width == 1) {
+      int al = regs[AX] & 0xFF;
+      int ax = regs[AX];
+      switch (op) {
+        case MUL -> {
+          regs[AX] = al * source;
+          cf = of = regs[AX] > 0xFF;
+        }
+        case IMUL -> {
+          int r = (byte) al * (byte) source;
+          regs[AX] = r & 0xFFFF;
+          cf = of = r != (byte) r;
+        }
+        case DIV -> {
+          if (source == 0 || ax / source > 0xFF) {
+            return false;
+          }
+          regs[AX] = (ax % source) << 8 | ax / source;
+        }
+        default -> {
+          int dividend = (short) ax;
+          int divisor = (byte) source;
+          if (divisor == 0 || dividend / divisor != (byte) (dividend / divisor)) {
+            return false;
+          }
+          regs[AX] = ((dividend % divisor) & 0xFF) << 8 | (dividend / divisor) & 0xFF;
+        }
+      }
+      return true;
+    }
+    switch (op) {
+      case MUL -> {
+        long r = (long) regs[AX] * source;
+        regs[AX] = (int) (r & 0xFFFF);
+        regs[DX] = (int) (r >>> 16 & 0xFFFF);
+        cf = of = regs[DX] != 0;
+      }
+      case IMUL -> {
+        int r = (short) regs[AX] * (short) source;
+        regs[AX] = r & 0xFFFF;
+        regs[DX] = r >>> 16;
+        cf = of = r != (short) r;
+      }
+      case DIV -> {
+        long dividend = ((long) regs[DX] << 16 | regs[AX]) & 0xFFFFFFFFL;
+        if (source == 0 || dividend / source > 0xFFFF) {
+          return false;
+        }
+        regs[AX] = (int) (dividend / source);
+        regs[DX] = (int) (dividend % source);
+      }
+      default -> {
+        long dividend = regs[DX] << 16 | regs[AX];
+        long divisor = (short) source;
+        if (divisor == 0 || dividend / divisor != (short) (dividend / divisor)) {
+          return false;
+        }
+        regs[AX] = (int) (dividend / divisor) & 0xFFFF;
+        regs[DX] = (int) (dividend % divisor) & 0xFFFF;
+      }
+    }
+    return true;
+  }
+
+  private void flags(int r, int width) {
+    zf = (r & mask(width)) == 0;
+    sf = (r & sign(width)) != 0;
+  }
+
+  private int read(Operand o, int width) throws EmulatorException {
+    return switch (o.kind) {
+      case REG16 -> regs[o.register];
+      case REG8 -> o.register < 4 ? regs[o.register] & 0xFF : regs[o.register - 4] >> 8;
+      case SEGMENT -> segs[o.register];
+      case IMMEDIATE -> o.value & mask(width);
+      case MEMORY -> {
+        reads++;
+        yield load(segs[o.register], offset(o), width);
+      }
+      case LABEL -> throw new EmulatorException("标号 " + o.label + " 不能作为数据使用");
+    };
+  }
+
+  private void write(Operand o, int width, int value) throws EmulatorException {
+    switch (o.kind) {
+      case REG16 -> regs[o.register] = value & 0xFFFF;
+      case REG8 -> {
+        if (o.register < 4) {
+          regs[o.register] = regs[o.register] & 0xFF00 | value & 0xFF;
+        } else {
+          regs[o.register - 4] = regs[o.register - 4] & 0x00FF | (value & 0xFF) << 8;
+        }
+      }
+      case SEGMENT -> segs[o.register] = value & 0xFFFF;
+      case MEMORY -> {
+        writes++;
+        storeValue(segs[o.register], offset(o), width, value);
+      }
+      default -> throw new EmulatorException("不能写入的操作数");
+    }
+  }
+
+  private void push(int value) {
+    regs[SP] = regs[SP] - 2 & 0xFFFF;
+    writes++;
+    storeValue(segs[Operand.SS], regs[SP], 2, value);
+  }
+
+  private int pop() {
+    reads++;
+    int value = load(segs[Operand.SS], regs[SP], 2);
+    regs[SP] = regs[SP] + 2 & 0xFFFF;
+    return value;
+  }
+
+  private int load(int segment, int offset, int width) {
+    int value = memory[physical(segment, offset)] & 0xFF;
+    if (width == 2) {
+      value |= (memory[physical(segment, offset + 1)] & 0xFF) << 8;
+    }
+    return value;
+  }
+
+  private void storeValue(int segment, int offset, int width, int value) {
+    memory[physical(segment, offset)] = (byte) value;
+    if (width == 2) {
+      memory[physical(segment, offset + 1)] = (byte) (value >> 8);
+    }
+  }
+
+  // 存储器操作数的段内偏移
+  private int offset(Operand o) {
+    int offset = o.value;
+    if (o.base >= 0) {
+      offset += regs[o.base];
+    }
+    if (o.index >= 0) {
+      offset += regs[o.index];
+    }
+    return offset & 0xFFFF;
+  }
+
+  private static int physical(int segment, int offset) {
+    return ((segment << 4) + (offset & 0xFFFF)) & (Program.MEMORY_SIZE - 1);
+  }
+
+  // 操作宽度：取有宽度的操作数，都没有时按字处理
+  private static int width(Operand a, Operand b) {
+    if (a != null && a.width != 0) {
+      return a.width;
+    }
+    if (b != null && b.width != 0) {
+      return b.width;
+    }
+    return 2;
+  }
+
+  private static int mask(int width) {
+    return width == 1 ? 0xFF : 0xFFFF;
+  }
+
+  private static int sign(int width) {
+    return width == 1 ? 0x80 : 0x8000;
+  }
+
+  /**
+   * 在命令行中运行汇编文件，输出程序的屏幕输出与统计报告
+   *
+   * @param args 汇编文件路径，其后的参数依次作为输入的各行
+   */
+  public static void main(String[] args) throws IOException, EmulatorException {
+    if (args.length == 0) {
+      System.err.println("用法: Emulator <file.asm> [输入...]");
+      return;
+    }
+    Program program = Assembler.assemble(Files.readString(Path.of(args[0]), StandardCharsets.UTF_8));
+    StringBuilder input = new StringBuilder();
+    for (int k = 1; k < args.length; k++) {
+      input.append(args[k]).append('\n');
+    }
+    StringBuilder output = new StringBuilder();
+    Profile profile = new Emulator(program).run(input.toString(), output);
+    System.out.println(output);
+    System.out.println(profile.report(10));
+  }
+}
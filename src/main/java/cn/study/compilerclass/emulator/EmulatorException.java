@@ -0,0 +1,20 @@
+package cn.study.compilerclass.emulator;
+
+import java.io.Serial;
+
+/**
+ * 汇编或模拟执行出错
+ */
+public class EmulatorException extends Exception {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  public EmulatorException(String message) {
+    super(message);
+  }
+
+  static EmulatorException at(int line, String message) {
+    return new EmulatorException(String.format("第 %d 行: %s", line, message));
+  }
+}
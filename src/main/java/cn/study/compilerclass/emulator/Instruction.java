@@ -0,0 +1,80 @@
+package cn.study.compilerclass.emulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 汇编后的一条指令
+ */
+final class Instruction {
+
+  enum Op {
+    MOV, ADD, ADC, SUB, SBB, CMP, AND, OR, XOR, TEST,
+    INC, DEC, NEG, NOT,
+    SHL, SHR, SAR,
+    MUL, IMUL, DIV, IDIV, CWD, CBW,
+    LEA, XCHG, PUSH, POP,
+    JMP,
+    // 条件跳转
+    JE, JNE, JL, JGE, JLE, JG, JB, JAE, JBE, JA, JS, JNS, JCXZ,
+    LOOP, CALL, RET, INT, NOP;
+
+    boolean isConditionalJump() {
+      return compareTo(JE) >= 0 && compareTo(JCXZ) <= 0;
+    }
+
+    // 操作数为标号的指令
+    boolean isBranch() {
+      return this == JMP || this == LOOP || this == CALL || isConditionalJump();
+    }
+  }
+
+  // 助记符 -> 操作，含条件跳转的别名
+  private static final Map<String, Op> MNEMONICS = new HashMap<>();
+
+  static {
+    for (Op op : Op.values()) {
+      MNEMONICS.put(op.name().toLowerCase(), op);
+    }
+    MNEMONICS.put("sal", Op.SHL);
+    MNEMONICS.put("jz", Op.JE);
+    MNEMONICS.put("jnz", Op.JNE);
+    MNEMONICS.put("jnge", Op.JL);
+    MNEMONICS.put("jnl", Op.JGE);
+    MNEMONICS.put("jng", Op.JLE);
+    MNEMONICS.put("jnle", Op.JG);
+    MNEMONICS.put("jc", Op.JB);
+    MNEMONICS.put("jnae", Op.JB);
+    MNEMONICS.put("jnc", Op.JAE);
+    MNEMONICS.put("jnb", Op.JAE);
+    MNEMONICS.put("jna", Op.JBE);
+    MNEMONICS.put("jnbe", Op.JA);
+  }
+
+  final Op op;
+  final Operand a;
+  final Operand b;
+  // 源码行号与文本，用于报错
+  final int line;
+  final String text;
+  // 跳转、调用的目标指令序号
+  int target = -1;
+  // 指令所在区域的标号（之前最近的标号），用于统计热点
+  String region;
+
+  Instruction(Op op, Operand a, Operand b, int line, String text) {
+    this.op = op;
+    this.a = a;
+    this.b = b;
+    this.line = line;
+    this.text = text;
+  }
+
+  /**
+   * @param mnemonic 小写的助记符
+   * @return 对应的操作，不支持时返回 null
+   */
+  static Op opOf(String mnemonic) {
+    return MNEMONICS.get(mnemonic);
+  }
+}
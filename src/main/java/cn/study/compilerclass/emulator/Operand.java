@@ -0,0 +1,108 @@
+package cn.study.compilerclass.emulator;
+
+/**
+ * 汇编后的操作数
+ * <p>
+ * 寄存器按 8086 的编码编号：16 位寄存器 AX、CX、DX、BX、SP、BP、SI、DI 为 0~7，8 位寄存器 AL、CL、DL、BL、AH、CH、DH、BH 为 0~7，
+ * 段寄存器 ES、CS、SS、DS 为 0~3。存储器操作数只支持 [基址 + 变址 + 位移] 形式的寻址。
+ */
+final class Operand {
+
+  enum Kind {
+    REG16, REG8, SEGMENT, MEMORY, IMMEDIATE, LABEL
+  }
+
+  static final String[] REG16 = {"ax", "cx", "dx", "bx", "sp", "bp", "si", "di"};
+  static final String[] REG8 = {"al", "cl", "dl", "bl", "ah", "ch", "dh", "bh"};
+  static final String[] SEGMENTS = {"es", "cs", "ss", "ds"};
+
+  static final int BX = 3;
+  static final int BP = 5;
+  static final int SI = 6;
+  static final int DI = 7;
+  static final int SS = 2;
+  static final int DS = 3;
+
+  final Kind kind;
+  // 寄存器编号；存储器操作数的段寄存器编号
+  final int register;
+  // 存储器操作数的基址、变址寄存器，没有时为 -1
+  final int base;
+  final int index;
+  // 立即数的值；存储器操作数的位移
+  final int value;
+  // 存储器操作数的宽度（字节），未指明时为 0
+  final int width;
+  // 存储器操作数是否写明了段前缀
+  final boolean override;
+  // 标号操作数的标号名
+  final String label;
+
+  private Operand(Kind kind, int register, int base, int index, int value, int width, boolean override, String label) {
+    this.kind = kind;
+    this.register = register;
+    this.base = base;
+    this.index = index;
+    this.value = value;
+    this.width = width;
+    this.override = override;
+    this.label = label;
+  }
+
+  static Operand reg16(int register) {
+    return new Operand(Kind.REG16, register, -1, -1, 0, 2, false, null);
+  }
+
+  static Operand reg8(int register) {
+    return new Operand(Kind.REG8, register, -1, -1, 0, 1, false, null);
+  }
+
+  static Operand segment(int register) {
+    return new Operand(Kind.SEGMENT, register, -1, -1, 0, 2, false, null);
+  }
+
+  static Operand immediate(int value) {
+    return new Operand(Kind.IMMEDIATE, -1, -1, -1, value, 0, false, null);
+  }
+
+  static Operand label(String name) {
+    return new Operand(Kind.LABEL, -1, -1, -1, 0, 0, false, name);
+  }
+
+  /**
+   * @param segment      段寄存器编号
+   * @param override     是否写明了段前缀
+   * @param base         基址寄存器（BX 或 BP），没有时为 -1
+   * @param index        变址寄存器（SI 或 DI），没有时为 -1
+   * @param displacement 位移
+   * @param width        宽度，未指明时为 0
+   */
+  static Operand memory(int segment, boolean override, int base, int index, int displacement, int width) {
+    return new Operand(Kind.MEMORY, segment, base, index, displacement, width, override, null);
+  }
+
+  boolean isMemory() {
+    return kind == Kind.MEMORY;
+  }
+
+  boolean isRegister() {
+    return kind == Kind.REG16 || kind == Kind.REG8 || kind == Kind.SEGMENT;
+  }
+
+  /**
+   * 有效地址计算的时钟周期（8086 用户手册）：直接寻址 6，只有基址或变址 5，基址或变址加位移 9，
+   * 基址加变址 7（BP+DI、BX+SI）或 8（BP+SI、BX+DI），再加位移各多 4，段超越前缀另加 2
+   */
+  int eaCycles() {
+    int ea;
+    if (base < 0 && index < 0) {
+      ea = 6;
+    } else if (base < 0 || index < 0) {
+      ea = value == 0 ? 5 : 9;
+    } else {
+      ea = (base == BP) == (index == DI) ? 7 : 8;
+      ea += value == 0 ? 0 : 4;
+    }
+    return ea + (override ? 2 : 0);
+  }
+}
@@ -0,0 +1,114 @@
+package cn.study.compilerclass.emulator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 一次模拟运行的统计
+ * <p>
+ * 热点按标号区域汇总：每条指令计入它之前最近的标号（四元式标号 {@code _N}、子程序名或子程序内的标号）。
+ */
+public final class Profile {
+
+  // 8086 的典型主频（MHz），用于把时钟周期折算为时间
+  private static final double CLOCK_MHZ = 4.77;
+
+  /**
+   * 一个标号区域的统计
+   *
+   * @param label        标号
+   * @param instructions 执行的指令条数
+   * @param cycles       时钟周期数
+   */
+  public record Hotspot(String label, long instructions, long cycles) {
+  }
+
+  private final long instructions;
+  private final long cycles;
+  private final long memoryReads;
+  private final long memoryWrites;
+  private final int exitCode;
+  private final String stopReason;
+  private final List<Hotspot> hotspots;
+
+  Profile(Program program, long[] counts, long[] cyclesOf, long memoryReads, long memoryWrites, int exitCode, String stopReason) {
+    long totalInstructions = 0;
+    long totalCycles = 0;
+    LinkedHashMap<String, long[]> byLabel = new LinkedHashMap<>();
+    for (int k = 0; k < counts.length; k++) {
+      if (counts[k] == 0) {
+        continue;
+      }
+      totalInstructions += counts[k];
+      totalCycles += cyclesOf[k];
+      long[] sum = byLabel.computeIfAbsent(program.code.get(k).region, label -> new long[2]);
+      sum[0] += counts[k];
+      sum[1] += cyclesOf[k];
+    }
+    ArrayList<Hotspot> list = new ArrayList<>();
+    byLabel.forEach((label, sum) -> list.add(new Hotspot(label.isEmpty() ? "(开头)" : label, sum[0], sum[1])));
+    list.sort((x, y) -> Long.compare(y.cycles(), x.cycles()));
+    this.instructions = totalInstructions;
+    this.cycles = totalCycles;
+    this.memoryReads = memoryReads;
+    this.memoryWrites = memoryWrites;
+    this.exitCode = exitCode;
+    this.stopReason = stopReason;
+    this.hotspots = list;
+  }
+
+  public long getInstructions() {
+    return instructions;
+  }
+
+  public long getCycles() {
+    return cycles;
+  }
+
+  public long getMemoryReads() {
+    return memoryReads;
+  }
+
+  public long getMemoryWrites() {
+    return memoryWrites;
+  }
+
+  // 程序通过 int 21h 的 4Ch 功能返回的退出码，异常停止时为 -1
+  public int getExitCode() {
+    return exitCode;
+  }
+
+  /**
+   * @return 异常停止的原因（除法溢出、超过指令数上限等），正常退出时返回 null
+   */
+  public String getStopReason() {
+    return stopReason;
+  }
+
+  // 按时钟周期从多到少排列的标号区域
+  public List<Hotspot> getHotspots() {
+    return hotspots;
+  }
+
+  public String summary() {
+    return String.format("执行 %d 条指令，%d 个时钟周期（%.2f MHz 下约 %.3f ms），存储器读 %d 次、写 %d 次，%s", instructions, cycles, CLOCK_MHZ,
+        cycles / (CLOCK_MHZ * 1000), memoryReads, memoryWrites, stopReason == null ? "退出码 " + exitCode : stopReason);
+  }
+
+  /**
+   * 统计报告
+   *
+   * @param top 列出的热点区域个数
+   * @return 摘要与热点列表，每个热点一行
+   */
+  public String report(int top) {
+    StringBuilder sb = new StringBuilder(summary()).append(System.lineSeparator()).append("热点标号（按时钟周期）:");
+    for (int k = 0; k < hotspots.size() && k < top; k++) {
+      Hotspot h = hotspots.get(k);
+      sb.append(System.lineSeparator())
+          .append(String.format("  %-16s %10d 条 %12d 周期 %6.2f%%", h.label(), h.instructions(), h.cycles(), cycles == 0 ? 0.0 : h.cycles() * 100.0 / cycles));
+    }
+    return sb.toString();
+  }
+}
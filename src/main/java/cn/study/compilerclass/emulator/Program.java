@@ -0,0 +1,33 @@
+package cn.study.compilerclass.emulator;
+
+import java.util.List;
+
+/**
+ * 汇编得到的程序：1MB 内存映像（各段的初始数据）与代码段的指令序列
+ * <p>
+ * 指令不编码到内存中，指令指针即指令序号，调用时压栈的返回地址也是指令序号。
+ */
+public final class Program {
+
+  // 段按出现顺序从这个段地址开始依次存放
+  static final int LOAD_SEGMENT = 0x2000;
+  static final int MEMORY_SIZE = 1 << 20;
+
+  final byte[] memory;
+  final List<Instruction> code;
+  final int entry;
+  // 代码段的段地址
+  final int codeSegment;
+
+  Program(byte[] memory, List<Instruction> code, int entry, int codeSegment) {
+    this.memory = memory;
+    this.code = code;
+    this.entry = entry;
+    this.codeSegment = codeSegment;
+  }
+
+  // 指令条数
+  public int size() {
+    return code.size();
+  }
+}
@@ -0,0 +1,61 @@
+package cn.study.compilerclass.emulator;
+
+import cn.study.compilerclass.emulator.Instruction.Op;
+
+/**
+ * 8086 指令的时钟周期
+ * <p>
+ * 取自 8086 用户手册的指令时序表，存储器操作数另加{@link Operand#eaCycles() 有效地址计算}的时间；乘除法取手册给出范围的中值，
+ * 条件跳转与 loop 区分是否发生跳转。不计取指令队列与奇地址字访问的额外开销。
+ */
+final class Timing {
+
+  private Timing() {
+  }
+
+  /**
+   * @param instruction 指令
+   * @param width       操作数宽度（字节）
+   * @param count       移位次数
+   * @param taken       条件跳转是否发生
+   * @return 时钟周期数
+   */
+  static int cycles(Instruction instruction, int width, int count, boolean taken) {
+    Operand a = instruction.a;
+    Operand b = instruction.b;
+    boolean memA = a != null && a.isMemory();
+    boolean memB = b != null && b.isMemory();
+    boolean regB = b != null && b.isRegister();
+    return switch (instruction.op) {
+      case MOV -> memA ? (regB ? 9 : 10) + a.eaCycles() : memB ? 8 + b.eaCycles() : regB ? 2 : 4;
+      case ADD, ADC, SUB, SBB, AND, OR, XOR -> memA ? (regB ? 16 : 17) + a.eaCycles() : memB ? 9 + b.eaCycles() : regB ? 3 : 4;
+      case CMP -> memA ? (regB ? 9 : 10) + a.eaCycles() : memB ? 9 + b.eaCycles() : regB ? 3 : 4;
+      case TEST -> memA ? (regB ? 9 : 11) + a.eaCycles() : memB ? 9 + b.eaCycles() : regB ? 3 : 5;
+      case INC, DEC -> memA ? 15 + a.eaCycles() : width == 2 ? 2 : 3;
+      case NEG, NOT -> memA ? 16 + a.eaCycles() : 3;
+      case SHL, SHR, SAR -> {
+        boolean byCl = b != null && b.kind == Operand.Kind.REG8;
+        int base = memA ? (byCl ? 20 : 15) + a.eaCycles() : byCl ? 8 : 2;
+        yield byCl ? base + 4 * count : base * Math.max(count, 1);
+      }
+      case MUL -> (width == 2 ? 126 : 74) + (memA ? 6 + a.eaCycles() : 0);
+      case IMUL -> (width == 2 ? 141 : 89) + (memA ? 6 + a.eaCycles() : 0);
+      case DIV -> (width == 2 ? 153 : 85) + (memA ? 6 + a.eaCycles() : 0);
+      case IDIV -> (width == 2 ? 175 : 107) + (memA ? 6 + a.eaCycles() : 0);
+      case CWD -> 5;
+      case CBW -> 2;
+      case LEA -> 2 + b.eaCycles();
+      case XCHG -> memA ? 17 + a.eaCycles() : memB ? 17 + b.eaCycles() : 4;
+      case PUSH -> memA ? 16 + a.eaCycles() : a.kind == Operand.Kind.SEGMENT ? 10 : 11;
+      case POP -> memA ? 17 + a.eaCycles() : 8;
+      case JMP -> 15;
+      case JCXZ -> taken ? 18 : 6;
+      case LOOP -> taken ? 17 : 5;
+      case CALL -> 19;
+      case RET -> a == null ? 8 : 12;
+      case INT -> 51;
+      case NOP -> 3;
+      default -> taken ? 16 : 4; // 条件跳转
+    };
+  }
+}
@@ -0,0 +1,157 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 可用表达式分析
+ * <p>
+ * 前向、交运算。表达式为无副作用运算四元式的 (操作码, arg1, arg2)，可交换运算的两个操作数按编号排序后视为同一表达式。 任一操作数被重新定值时，使用它的全部表达式被注销；
+ * 以各存储单元为操作数的表达式与 {@link ReachingDefinitions} 的定值一样按单元分段存放（CSR），注销只遍历被写入单元的表达式段。
+ */
+public class AvailableExpressions {
+
+  private final OperandIndex index;
+  private final int[] exprOfQuad;      // 四元式 -> 表达式编号，不计算表达式为 -1
+  private final int[] slotStart;  // 存储单元 -> 其表达式段在 slotExprs 中的起点，末尾多一个元素
+  private final int[] slotExprs;  // 按存储单元分段的、以该单元为操作数的表达式编号
+  private final long[][] availIn;
+  private final long[][] availOut;
+  private final int exprCount;
+
+  public AvailableExpressions(ControlFlowGraph cfg, OperandIndex index) {
+    this.index = index;
+    QuadTable quads = cfg.getQuads();
+    int quadCount = quads.size();
+    this.exprOfQuad = new int[quadCount];
+    Arrays.fill(exprOfQuad, -1);
+    HashMap<Long, Integer> keys = new HashMap<>();
+    int[] firstQuad = new int[quadCount];
+    for (int i = 0; i < quadCount; i++) {
+      long key = key(quads, i);
+      if (key >= 0) {
+        Integer e = keys.get(key);
+        if (e == null) {
+          e = keys.size();
+          keys.put(key, e);
+          firstQuad[e] = i;
+        }
+        exprOfQuad[i] = e;
+      }
+    }
+    this.exprCount = keys.size();
+    // 计数排序：按存储单元分段存放以其为操作数的表达式，两个操作数为同一单元时只记一次
+    int slots = index.size();
+    this.slotStart = new int[slots + 1];
+    for (int e = 0; e < exprCount; e++) {
+      int u1 = index.use1Of(firstQuad[e]);
+      int u2 = index.use2Of(firstQuad[e]);
+      if (u1 >= 0) {
+        slotStart[u1 + 1]++;
+      }
+      if (u2 >= 0 && u2 != u1) {
+        slotStart[u2 + 1]++;
+      }
+    }
+    for (int s = 0; s < slots; s++) {
+      slotStart[s + 1] += slotStart[s];
+    }
+    this.slotExprs = new int[slotStart[slots]];
+    int[] fill = Arrays.copyOf(slotStart, slots);
+    for (int e = 0; e < exprCount; e++) {
+      int u1 = index.use1Of(firstQuad[e]);
+      int u2 = index.use2Of(firstQuad[e]);
+      if (u1 >= 0) {
+        slotExprs[fill[u1]++] = e;
+      }
+      if (u2 >= 0 && u2 != u1) {
+        slotExprs[fill[u2]++] = e;
+      }
+    }
+
+    int n = cfg.getBlockCount();
+    long[][] gen = new long[n][];
+    long[][] kill = new long[n][];
+    for (int b = 0; b < n; b++) {
+      gen[b] = Bits.create(exprCount);
+      kill[b] = Bits.create(exprCount);
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        if (exprOfQuad[i] >= 0) {
+          Bits.set(gen[b], exprOfQuad[i]);
+        }
+        int d = index.defOf(i);
+        if (d >= 0) {
+          for (int j = slotStart[d]; j < slotStart[d + 1]; j++) {
+            Bits.clear(gen[b], slotExprs[j]);
+            Bits.set(kill[b], slotExprs[j]);
+          }
+        }
+      }
+    }
+    Dataflow.Result result = Dataflow.solve(cfg, exprCount, Dataflow.Direction.FORWARD, Dataflow.Meet.INTERSECTION, gen, kill, Bits.create(exprCount));
+    this.availIn = result.getIn();
+    this.availOut = result.getOut();
+  }
+
+  // 表达式的键：操作码与两个操作数编号各占 21 位，不构成表达式时返回 -1
+  private static long key(QuadTable quads, int i) {
+    OpCode op = quads.getOp(i);
+    if (!op.isPure() || op == OpCode.ASSIGN) {
+      return -1;
+    }
+    long a = quads.getArg1(i);
+    long b = quads.getArg2(i);
+    if (op.isCommutative() && a > b) {
+      long t = a;
+      a = b;
+      b = t;
+    }
+    return ((long) op.ordinal() << 42) | (a << 21) | b;
+  }
+
+  public OperandIndex getIndex() {
+    return index;
+  }
+
+  public int exprCount() {
+    return exprCount;
+  }
+
+  // 四元式计算的表达式编号，不计算表达式时返回 -1
+  public int exprOfQuad(int quad) {
+    return exprOfQuad[quad];
+  }
+
+  public long[] availIn(int block) {
+    return availIn[block];
+  }
+
+  public long[] availOut(int block) {
+    return availOut[block];
+  }
+
+  /**
+   * 基本块入口处可用表达式集合的副本，配合 {@link #stepForward} 在块内逐条向后推导
+   */
+  public long[] availInCopy(int block) {
+    return availIn[block].clone();
+  }
+
+  /**
+   * 把第 quad 条四元式之前的可用表达式集合更新为其之后的集合
+   *
+   * @param quad  四元式序号
+   * @param avail 可用表达式集合，原地修改
+   */
+  public void stepForward(int quad, long[] avail) {
+    if (exprOfQuad[quad] >= 0) {
+      Bits.set(avail, exprOfQuad[quad]);
+    }
+    int d = index.defOf(quad);
+    if (d >= 0) {
+      for (int j = slotStart[d]; j < slotStart[d + 1]; j++) {
+        Bits.clear(avail, slotExprs[j]);
+      }
+    }
+  }
+}
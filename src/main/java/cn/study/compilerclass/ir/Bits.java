@@ -0,0 +1,118 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+
+/**
+ * 以 {@code long[]} 压缩存储的位集合工具
+ * <p>
+ * 数据流分析的集合运算都按 64 位字并行完成，不为每个元素分配对象。
+ */
+public final class Bits {
+
+  private Bits() {
+  }
+
+  // 容纳 n 个位所需的字数
+  public static int words(int n) {
+    return (n + 63) >>> 6;
+  }
+
+  public static long[] create(int n) {
+    return new long[words(n)];
+  }
+
+  // 创建前 n 位全为 1 的集合
+  public static long[] full(int n) {
+    long[] set = new long[words(n)];
+    Arrays.fill(set, -1L);
+    if ((n & 63) != 0) {
+      set[set.length - 1] = (1L << (n & 63)) - 1;
+    }
+    return set;
+  }
+
+  public static boolean get(long[] set, int i) {
+    return (set[i >>> 6] & (1L << i)) != 0;
+  }
+
+  public static void set(long[] set, int i) {
+    set[i >>> 6] |= 1L << i;
+  }
+
+  public static void clear(long[] set, int i) {
+    set[i >>> 6] &= ~(1L << i);
+  }
+
+  // dst |= src
+  public static void or(long[] dst, long[] src) {
+    for (int w = 0; w < dst.length; w++) {
+      dst[w] |= src[w];
+    }
+  }
+
+  // dst &= src
+  public static void and(long[] dst, long[] src) {
+    for (int w = 0; w < dst.length; w++) {
+      dst[w] &= src[w];
+    }
+  }
+
+  // dst &= ~src
+  public static void andNot(long[] dst, long[] src) {
+    for (int w = 0; w < dst.length; w++) {
+      dst[w] &= ~src[w];
+    }
+  }
+
+  /**
+   * 传递函数 dst = gen ∪ (input - kill)
+   *
+   * @return dst 是否发生变化
+   */
+  public static boolean transfer(long[] dst, long[] gen, long[] input, long[] kill) {
+    boolean changed = false;
+    for (int w = 0; w < dst.length; w++) {
+      long v = gen[w] | (input[w] & ~kill[w]);
+      if (v != dst[w]) {
+        dst[w] = v;
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  public static boolean isEmpty(long[] set) {
+    for (long word : set) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static int cardinality(long[] set) {
+    int count = 0;
+    for (long word : set) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  // 从 from 开始的下一个为 1 的位，不存在时返回 -1
+  public static int nextSetBit(long[] set, int from) {
+    int w = from >>> 6;
+    if (w >= set.length) {
+      return -1;
+    }
+    long word = set[w] & (-1L << from);
+    while (true) {
+      if (word != 0) {
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+      }
+      if (++w == set.length) {
+        return -1;
+      }
+      word = set[w];
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package cn.study.compilerclass.ir;
+
+/**
+ * 跳转优化
+ * <p>
+ * 每轮执行：<br/>1. 分支融合：{@code (<, a, b, t)(jnz, t, , L)} 且 t 此后不再活跃时改写为 {@code (j<, a, b, L)}，jz 则融合为相反的比较跳转；
+ * {@code (!, a, , t)} 后的 jz/jnz 同理改写为对 a 的 jnz/jz<br/>2. 条件取反：{@code (jcc, .., i+2)(j, , , M)} 改写为 {@code (!jcc, .., M)}，删除被越过的 j<br/>3.
+ * 跳转穿透：目标为无条件跳转时直接跳到最终目标；条件跳转的目标是条件相同（相反）的跳转时，直接跳到其目标（之后一条）<br/> 改写后重新编号，直到不再变化。
+ */
+class BranchOptimization {
+
+  private static final int MAX_ROUNDS = 16;
+
+  private final Optimizer optimizer;
+
+  BranchOptimization(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable quads) {
+    for (int round = 0; round < MAX_ROUNDS; round++) {
+      int n = quads.size();
+      boolean[] removed = new boolean[n];
+      boolean changed = fuse(quads, removed);
+      boolean[] targeted = new boolean[n + 1];
+      for (int i = 0; i < n; i++) {
+        if (quads.getOp(i).isJump()) {
+          targeted[quads.getTarget(i)] = true;
+        }
+      }
+      for (int i = 0; i < n; i++) {
+        OpCode op = quads.getOp(i);
+        if (removed[i] || !op.isJump()) {
+          continue;
+        }
+        // 条件取反
+        if (op != OpCode.J && quads.getTarget(i) == i + 2 && quads.getOp(i + 1) == OpCode.J && !removed[i + 1] && !targeted[i + 1]) {
+          quads.setOp(i, op.negate());
+          quads.setTarget(i, quads.getTarget(i + 1));
+          removed[i + 1] = true;
+          changed = true;
+        }
+        // 跳转穿透
+        int target = thread(quads, i);
+        if (target != quads.getTarget(i)) {
+          quads.setTarget(i, target);
+          changed = true;
+        }
+      }
+      if (!changed) {
+        break;
+      }
+      quads = quads.compact(removed);
+    }
+    return quads;
+  }
+
+  // 分支融合，被融合的 jz/jnz 标记为删除
+  private boolean fuse(QuadTable quads, boolean[] removed) {
+    ControlFlowGraph cfg = new ControlFlowGraph(quads);
+    Liveness liveness = new Liveness(cfg, optimizer.index(quads));
+    OperandIndex index = liveness.getIndex();
+    boolean changed = false;
+    for (int b = 0; b < cfg.getBlockCount(); b++) {
+      long[] live = liveness.liveOutCopy(b);
+      boolean condDead = false; // 下一条为 jz/jnz 且其条件在跳转之后不再活跃
+      // 逆序扫描，处理第 i 条前 live 为其之后的活跃集合
+      for (int i = cfg.blockEnd(b); i >= cfg.getBlockStart()[b]; i--) {
+        OpCode op = quads.getOp(i);
+        int t = index.defOf(i);
+        if (condDead && t >= 0 && quads.getArg1(i + 1) == quads.getResult(i) && (op.toCompareJump() != null || op == OpCode.NOT)) {
+          OpCode jump = quads.getOp(i + 1);
+          OpCode fused;
+          if (op == OpCode.NOT) {
+            fused = jump.negate();
+          } else {
+            fused = jump == OpCode.JNZ ? op.toCompareJump() : op.toCompareJump().negate();
+          }
+          quads.setOp(i, fused);
+          quads.setTarget(i, quads.getTarget(i + 1));
+          removed[i + 1] = true;
+          changed = true;
+        }
+        condDead = false;
+        if (op == OpCode.JZ || op == OpCode.JNZ) {
+          int c = index.use1Of(i);
+          condDead = c >= 0 && !Bits.get(live, c);
+        }
+        liveness.stepBackward(i, live);
+      }
+    }
+    return changed;
+  }
+
+  // 沿无条件跳转链与同条件跳转求最终目标
+  private static int thread(QuadTable quads, int i) {
+    OpCode op = quads.getOp(i);
+    int target = quads.getTarget(i);
+    for (int hops = 0; hops < quads.size() && target < quads.size(); hops++) {
+      OpCode next = quads.getOp(target);
+      if (next == OpCode.J) {
+        if (quads.getTarget(target) == target) {
+          break; // 死循环
+        }
+        target = quads.getTarget(target);
+      } else if (op != OpCode.J && sameCondition(quads, i, target)) {
+        if (next == op) {
+          if (quads.getTarget(target) == target) {
+            break;
+          }
+          target = quads.getTarget(target);
+        } else {
+          target = target + 1; // 条件相反，必不跳转
+        }
+      } else {
+        break;
+      }
+    }
+    return target;
+  }
+
+  private static boolean sameCondition(QuadTable quads, int i, int j) {
+    OpCode a = quads.getOp(i);
+    OpCode b = quads.getOp(j);
+    return (b == a || b == a.negate()) && quads.getArg1(i) == quads.getArg1(j) && quads.getArg2(i) == quads.getArg2(j);
+  }
+}
@@ -0,0 +1,182 @@
+package cn.study.compilerclass.ir;
+
+/**
+ * 常量折叠与常量传播
+ * <p>
+ * 以到达定值为依据：某处使用的存储单元，若到达的全部定值（含程序入口处的初值）都赋予同一个字面量，则把该使用替换为字面量；常量名直接替换为其值。
+ * 操作数全部已知的运算改写为对结果的赋值，条件已知的条件跳转改写为无条件跳转或删除。 每轮改写后重建控制流图与到达定值，直到不再变化。
+ */
+class ConstantFolding {
+
+  private static final int MAX_ROUNDS = 16;
+
+  private final Optimizer optimizer;
+
+  private QuadTable quads;
+  private OperandIndex index;
+  private ReachingDefinitions rd;
+  private String[] defLiteral; // 定值编号 -> 赋予的字面量，非常量为 null
+
+  ConstantFolding(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable table) {
+    this.quads = table;
+    for (int round = 0; round < MAX_ROUNDS; round++) {
+      ControlFlowGraph cfg = new ControlFlowGraph(quads);
+      index = optimizer.index(quads);
+      rd = new ReachingDefinitions(cfg, index);
+      collectDefLiterals();
+
+      boolean changed = false;
+      boolean[] removed = new boolean[quads.size()];
+      boolean anyRemoved = false;
+      for (int b : cfg.getRpo()) {
+        long[] reach = rd.reachInCopy(b);
+        for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+          OpCode op = quads.getOp(i);
+          if (op.readsArg1()) {
+            changed |= propagate(i, quads.getArg1(i), reach, true);
+          }
+          if (op.readsArg2()) {
+            changed |= propagate(i, quads.getArg2(i), reach, false);
+          }
+          if (op.isJump() && op != OpCode.J) {
+            Boolean taken = condition(i, op);
+            if (taken != null) {
+              if (taken) {
+                quads.setOp(i, OpCode.J);
+                quads.setArg1(i, QuadTable.NONE);
+                quads.setArg2(i, QuadTable.NONE);
+              } else {
+                removed[i] = true;
+                anyRemoved = true;
+              }
+              changed = true;
+            }
+          } else if (op.isPure() && op != OpCode.ASSIGN) {
+            changed |= fold(i, op);
+          }
+          rd.stepForward(i, reach);
+        }
+      }
+      if (anyRemoved) {
+        quads = quads.compact(removed);
+      }
+      if (!changed) {
+        break;
+      }
+    }
+    return quads;
+  }
+
+  // 记录每个定值是否为对字面量的赋值
+  private void collectDefLiterals() {
+    int slots = index.size();
+    defLiteral = new String[rd.defCount()];
+    for (int s = 0; s < slots; s++) {
+      defLiteral[s] = index.isTempSlot(s) ? null : literal(optimizer.initialOf(index.nameOf(s)));
+    }
+    for (int d = slots; d < defLiteral.length; d++) {
+      int q = rd.quadOfDef(d);
+      if (quads.getOp(q) == OpCode.ASSIGN) {
+        defLiteral[d] = literal(quads.operandName(quads.getArg1(q)));
+      }
+    }
+  }
+
+  private String literal(String text) {
+    return text == null ? null : optimizer.literalOf(text);
+  }
+
+  /**
+   * 把第 quad 条四元式的一个操作数替换为已知的字面量
+   *
+   * @return 是否发生替换
+   */
+  private boolean propagate(int quad, int operand, long[] reach, boolean first) {
+    String name = quads.operandName(operand);
+    String value;
+    int slot = index.slotOf(operand);
+    if (slot >= 0) {
+      value = reachingLiteral(reach, slot);
+    } else {
+      value = optimizer.literalOf(name);
+    }
+    if (value == null || value.equals(name)) {
+      return false;
+    }
+    int id = quads.operandId(value);
+    if (first) {
+      quads.setArg1(quad, id);
+    } else {
+      quads.setArg2(quad, id);
+    }
+    return true;
+  }
+
+  // 到达的全部定值都赋予同一个值时返回该字面量
+  private String reachingLiteral(long[] reach, int slot) {
+    String found = null;
+    int foundValue = 0;
+    for (int j = rd.slotDefsFrom(slot); j < rd.slotDefsTo(slot); j++) {
+      int d = rd.slotDef(j);
+      if (!Bits.get(reach, d)) {
+        continue;
+      }
+      String lit = defLiteral[d];
+      if (lit == null) {
+        return null;
+      }
+      int value = Literals.parse(lit);
+      if (found == null) {
+        found = lit;
+        foundValue = value;
+      } else if (value != foundValue) {
+        return null;
+      }
+    }
+    return found;
+  }
+
+  // 条件跳转的操作数全部为字面量时返回是否跳转，否则返回 null
+  private Boolean condition(int quad, OpCode op) {
+    Integer a = Literals.parse(quads.operandName(quads.getArg1(quad)));
+    if (a == null) {
+      return null;
+    }
+    if (op == OpCode.JZ || op == OpCode.JNZ) {
+      return (a == 0) == (op == OpCode.JZ);
+    }
+    Integer b = Literals.parse(quads.operandName(quads.getArg2(quad)));
+    if (b == null) {
+      return null;
+    }
+    return Literals.TRUE.equals(Literals.evaluate(op.toRelation(), a, b));
+  }
+
+  // 操作数全部为字面量时把运算改写为赋值
+  private boolean fold(int quad, OpCode op) {
+    Integer a = Literals.parse(quads.operandName(quads.getArg1(quad)));
+    if (a == null) {
+      return false;
+    }
+    int b = 0;
+    if (op.isBinary()) {
+      Integer value = Literals.parse(quads.operandName(quads.getArg2(quad)));
+      if (value == null) {
+        return false;
+      }
+      b = value;
+    }
+    String result = Literals.evaluate(op, a, b);
+    if (result == null) {
+      return false;
+    }
+    quads.setOp(quad, OpCode.ASSIGN);
+    quads.setArg1(quad, quads.operandId(result));
+    quads.setArg2(quad, QuadTable.NONE);
+    return true;
+  }
+}
@@ -0,0 +1,375 @@
+package cn.study.compilerclass.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * 基于四元式表的控制流图
+ * <p>
+ * 构建步骤：<br/>1. 以 0 号四元式、跳转目标、跳转与 quit 之后的四元式为首指令划分基本块<br/>2. 以压缩数组（CSR）形式保存前驱与后继<br/>3. 迭代法（Cooper-Harvey-Kennedy）计算直接支配者<br/>4.
+ * 由回边求自然循环及其嵌套关系
+ * <p>
+ * 所有步骤都只使用 {@code int} 数组，时间与四元式数量近似线性。基本块 0 为入口块，不可达基本块的直接支配者为 -1。
+ */
+@Getter
+public final class ControlFlowGraph {
+
+  private final QuadTable quads;
+  private final int blockCount;
+  private final int[] blockStart;  // 基本块首指令序号，blockStart[blockCount] == quads.size()
+  private final int[] blockOf;     // 四元式所属基本块
+  private final int[] succStart;   // 后继区间，块 b 的后继为 succ[succStart[b] .. succStart[b+1])
+  private final int[] succ;
+  private final int[] predStart;   // 前驱区间，块 b 的前驱为 pred[predStart[b] .. predStart[b+1])
+  private final int[] pred;
+  private final int[] rpo;         // 可达基本块的逆后序
+  private final int[] rpoIndex;    // 基本块在逆后序中的位置，不可达为 -1
+  private final int[] idom;        // 直接支配者
+  private final int[] loopOf;      // 基本块所属最内层循环在 loops 中的下标，不在循环中为 -1
+  private final int[] loopDepth;   // 基本块的循环嵌套深度
+  private final List<Loop> loops;  // 自然循环，外层循环排在内层循环之前
+
+  // 支配树先序/后序区间，用于 O(1) 判断支配关系
+  private final int[] domPre;
+  private final int[] domPost;
+  // 支配树的孩子表（CSR），块 b 的孩子为 domChildren[domChildStart[b] .. domChildStart[b+1])
+  private final int[] domChildStart;
+  private final int[] domChildren;
+
+  public ControlFlowGraph(QuadTable quads) {
+    this.quads = quads;
+    int n = quads.size();
+
+    // 1. 划分基本块
+    boolean[] leader = new boolean[n + 1];
+    if (n > 0) {
+      leader[0] = true;
+    }
+    for (int i = 0; i < n; i++) {
+      OpCode op = quads.getOp(i);
+      if (op.isJump()) {
+        int target = quads.getTarget(i);
+        if (target >= 0 && target < n) {
+          leader[target] = true;
+        }
+        leader[i + 1] = true;
+      } else if (op == OpCode.QUIT) {
+        leader[i + 1] = true;
+      }
+    }
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      if (leader[i]) {
+        count++;
+      }
+    }
+    this.blockCount = count;
+    this.blockStart = new int[count + 1];
+    this.blockOf = new int[n];
+    int b = -1;
+    for (int i = 0; i < n; i++) {
+      if (leader[i]) {
+        blockStart[++b] = i;
+      }
+      blockOf[i] = b;
+    }
+    blockStart[count] = n;
+
+    // 2. 后继与前驱
+    this.succStart = new int[count + 1];
+    int[] succBuf = new int[count * 2];
+    int edges = 0;
+    for (b = 0; b < count; b++) {
+      succStart[b] = edges;
+      int last = blockStart[b + 1] - 1;
+      OpCode op = quads.getOp(last);
+      if (op.isJump()) {
+        int target = quads.getTarget(last);
+        if (target >= 0 && target < n) {
+          succBuf[edges++] = blockOf[target];
+        }
+        if (op != OpCode.J && b + 1 < count && (edges == succStart[b] || succBuf[edges - 1] != b + 1)) {
+          succBuf[edges++] = b + 1;
+        }
+      } else if (op != OpCode.QUIT && b + 1 < count) {
+        succBuf[edges++] = b + 1;
+      }
+    }
+    succStart[count] = edges;
+    this.succ = Arrays.copyOf(succBuf, edges);
+
+    this.predStart = new int[count + 1];
+    for (int e = 0; e < edges; e++) {
+      predStart[succ[e] + 1]++;
+    }
+    for (b = 0; b < count; b++) {
+      predStart[b + 1] += predStart[b];
+    }
+    this.pred = new int[edges];
+    int[] fill = Arrays.copyOf(predStart, count);
+    for (b = 0; b < count; b++) {
+      for (int e = succStart[b]; e < succStart[b + 1]; e++) {
+        pred[fill[succ[e]]++] = b;
+      }
+    }
+
+    // 3. 逆后序与支配者
+    this.rpoIndex = new int[count];
+    this.rpo = reversePostOrder();
+    this.idom = new int[count];
+    computeDominators();
+    this.domPre = new int[count];
+    this.domPost = new int[count];
+    this.domChildStart = new int[count + 1];
+    this.domChildren = dominatorChildren();
+    numberDominatorTree();
+
+    // 4. 自然循环
+    this.loopOf = new int[count];
+    this.loopDepth = new int[count];
+    this.loops = new ArrayList<>();
+    findLoops();
+  }
+
+  // 迭代深度优先遍历，返回可达基本块的逆后序
+  private int[] reversePostOrder() {
+    Arrays.fill(rpoIndex, -1);
+    if (blockCount == 0) {
+      return new int[0];
+    }
+    int[] post = new int[blockCount];
+    int postCount = 0;
+    boolean[] visited = new boolean[blockCount];
+    int[] stack = new int[blockCount];
+    int[] edge = new int[blockCount];
+    int top = 0;
+    stack[0] = 0;
+    edge[0] = succStart[0];
+    visited[0] = true;
+    while (top >= 0) {
+      int b = stack[top];
+      if (edge[top] < succStart[b + 1]) {
+        int s = succ[edge[top]++];
+        if (!visited[s]) {
+          visited[s] = true;
+          stack[++top] = s;
+          edge[top] = succStart[s];
+        }
+      } else {
+        post[postCount++] = b;
+        top--;
+      }
+    }
+    int[] order = new int[postCount];
+    for (int i = 0; i < postCount; i++) {
+      order[i] = post[postCount - 1 - i];
+      rpoIndex[order[i]] = i;
+    }
+    return order;
+  }
+
+  // Cooper-Harvey-Kennedy 迭代支配者算法
+  private void computeDominators() {
+    Arrays.fill(idom, -1);
+    if (rpo.length == 0) {
+      return;
+    }
+    idom[0] = 0;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int i = 1; i < rpo.length; i++) {
+        int b = rpo[i];
+        int newIdom = -1;
+        for (int e = predStart[b]; e < predStart[b + 1]; e++) {
+          int p = pred[e];
+          if (idom[p] < 0) {
+            continue;
+          }
+          newIdom = newIdom < 0 ? p : intersect(p, newIdom);
+        }
+        if (idom[b] != newIdom) {
+          idom[b] = newIdom;
+          changed = true;
+        }
+      }
+    }
+  }
+
+  private int intersect(int a, int b) {
+    while (a != b) {
+      while (rpoIndex[a] > rpoIndex[b]) {
+        a = idom[a];
+      }
+      while (rpoIndex[b] > rpoIndex[a]) {
+        b = idom[b];
+      }
+    }
+    return a;
+  }
+
+  // 支配树的孩子表，同时填写 domChildStart
+  private int[] dominatorChildren() {
+    for (int b : rpo) {
+      if (b != 0) {
+        domChildStart[idom[b] + 1]++;
+      }
+    }
+    for (int b = 0; b < blockCount; b++) {
+      domChildStart[b + 1] += domChildStart[b];
+    }
+    int[] children = new int[Math.max(rpo.length - 1, 0)];
+    int[] fill = Arrays.copyOf(domChildStart, blockCount);
+    for (int b : rpo) {
+      if (b != 0) {
+        children[fill[idom[b]]++] = b;
+      }
+    }
+    return children;
+  }
+
+  // 为支配树编号先序/后序区间
+  private void numberDominatorTree() {
+    Arrays.fill(domPre, -1);
+    Arrays.fill(domPost, -1);
+    if (rpo.length == 0) {
+      return;
+    }
+    int[] childStart = domChildStart;
+    int[] children = domChildren;
+    int[] stack = new int[blockCount];
+    int[] edge = new int[blockCount];
+    int top = 0;
+    int clock = 0;
+    stack[0] = 0;
+    edge[0] = childStart[0];
+    domPre[0] = clock++;
+    while (top >= 0) {
+      int b = stack[top];
+      if (edge[top] < childStart[b + 1]) {
+        int c = children[edge[top]++];
+        stack[++top] = c;
+        edge[top] = childStart[c];
+        domPre[c] = clock++;
+      } else {
+        domPost[b] = clock++;
+        top--;
+      }
+    }
+  }
+
+  // 由回边（尾结点被首结点支配）求自然循环，同一首结点的回边合并为一个循环
+  private void findLoops() {
+    Arrays.fill(loopOf, -1);
+    int[] work = new int[blockCount];
+    int[] mark = new int[blockCount];
+    Arrays.fill(mark, -1);
+    // 按逆后序处理首结点，外层循环的首结点先于内层循环被处理
+    for (int header : rpo) {
+      int latchCount = 0;
+      for (int e = predStart[header]; e < predStart[header + 1]; e++) {
+        if (dominates(header, pred[e])) {
+          latchCount++;
+        }
+      }
+      if (latchCount == 0) {
+        continue;
+      }
+      int[] latches = new int[latchCount];
+      int top = 0;
+      int index = loops.size();
+      mark[header] = index;
+      int size = 1;
+      latchCount = 0;
+      for (int e = predStart[header]; e < predStart[header + 1]; e++) {
+        int p = pred[e];
+        if (dominates(header, p)) {
+          latches[latchCount++] = p;
+          if (mark[p] != index) {
+            mark[p] = index;
+            work[top++] = p;
+            size++;
+          }
+        }
+      }
+      while (top > 0) {
+        int b = work[--top];
+        for (int e = predStart[b]; e < predStart[b + 1]; e++) {
+          int p = pred[e];
+          if (rpoIndex[p] >= 0 && mark[p] != index) {
+            mark[p] = index;
+            work[top++] = p;
+            size++;
+          }
+        }
+      }
+      int[] body = new int[size];
+      int k = 0;
+      for (int b : rpo) {
+        if (mark[b] == index) {
+          body[k++] = b;
+        }
+      }
+      int parent = loopOf[header];
+      int depth = parent < 0 ? 1 : loops.get(parent).getDepth() + 1;
+      loops.add(new Loop(header, parent, depth, body, latches));
+      for (int b : body) {
+        loopOf[b] = index;
+        loopDepth[b] = depth;
+      }
+    }
+  }
+
+  /**
+   * a 是否支配 b（不可达基本块不被任何块支配）
+   */
+  public boolean dominates(int a, int b) {
+    if (domPre[a] < 0 || domPre[b] < 0) {
+      return false;
+    }
+    return domPre[a] <= domPre[b] && domPost[b] <= domPost[a];
+  }
+
+  public boolean isReachable(int block) {
+    return rpoIndex[block] >= 0;
+  }
+
+  // 基本块最后一条四元式的序号
+  public int blockEnd(int block) {
+    return blockStart[block + 1] - 1;
+  }
+
+  /**
+   * 自然循环
+   */
+  @Getter
+  public static class Loop {
+
+    private final int header;   // 首结点
+    private final int parent;   // 外层循环在 loops 中的下标，最外层为 -1
+    private final int depth;    // 嵌套深度，最外层为 1
+    private final int[] blocks; // 循环体内的基本块（逆后序）
+    private final int[] latches; // 回边的尾结点
+
+    public Loop(int header, int parent, int depth, int[] blocks, int[] latches) {
+      this.header = header;
+      this.parent = parent;
+      this.depth = depth;
+      this.blocks = blocks;
+      this.latches = latches;
+    }
+
+    public boolean contains(ControlFlowGraph cfg, int block) {
+      int loop = cfg.loopOf[block];
+      while (loop >= 0) {
+        if (cfg.loops.get(loop) == this) {
+          return true;
+        }
+        loop = cfg.loops.get(loop).parent;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 全局复制传播与临时变量合并
+ * <p>
+ * 复制传播：复制 {@code (=, y, , x)} 按 (x, y) 编号，作前向、交运算的可用复制分析，x 或 y 被重新定值时注销。某处读取 x 时若 (x, y) 可用，则改为读取 y。
+ * 仅靠到达定值无法保证 y 在复制之后未被循环中的其他定值改写，因此在同一位集合框架上单独求解可用复制。<br/> 临时变量合并：{@code (op, .., t)(=, t, , v)} 且 t 此后不再活跃时，直接把运算结果写入 v
+ * 并删除复制。
+ */
+class CopyPropagation {
+
+  private static final int MAX_ROUNDS = 8;
+
+  private final Optimizer optimizer;
+
+  CopyPropagation(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable quads) {
+    for (int round = 0; round < MAX_ROUNDS; round++) {
+      if (!propagate(quads)) {
+        break;
+      }
+    }
+    return coalesce(quads);
+  }
+
+  private boolean propagate(QuadTable quads) {
+    ControlFlowGraph cfg = new ControlFlowGraph(quads);
+    OperandIndex index = optimizer.index(quads);
+    int n = quads.size();
+    int slots = index.size();
+
+    // 为 (目标, 源) 编号
+    HashMap<Long, Integer> keys = new HashMap<>();
+    int[] copyOfQuad = new int[n];
+    Arrays.fill(copyOfQuad, -1);
+    int[] src = new int[n];
+    for (int i = 0; i < n; i++) {
+      if (quads.getOp(i) != OpCode.ASSIGN) {
+        continue;
+      }
+      int x = index.defOf(i);
+      int y = index.use1Of(i);
+      if (x >= 0 && y >= 0 && x != y) {
+        long key = ((long) x << 32) | y;
+        Integer c = keys.get(key);
+        if (c == null) {
+          c = keys.size();
+          keys.put(key, c);
+          src[c] = quads.getArg1(i);
+        }
+        copyOfQuad[i] = c;
+      }
+    }
+    int copies = keys.size();
+    if (copies == 0) {
+      return false;
+    }
+    long[][] withDest = new long[slots][];
+    long[][] using = new long[slots][];
+    for (int s = 0; s < slots; s++) {
+      withDest[s] = Bits.create(copies);
+      using[s] = Bits.create(copies);
+    }
+    for (var entry : keys.entrySet()) {
+      int x = (int) (entry.getKey() >>> 32);
+      int y = (int) (long) entry.getKey();
+      Bits.set(withDest[x], entry.getValue());
+      Bits.set(using[x], entry.getValue());
+      Bits.set(using[y], entry.getValue());
+    }
+
+    int blocks = cfg.getBlockCount();
+    long[][] gen = new long[blocks][];
+    long[][] kill = new long[blocks][];
+    for (int b = 0; b < blocks; b++) {
+      gen[b] = Bits.create(copies);
+      kill[b] = Bits.create(copies);
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        int d = index.defOf(i);
+        if (d >= 0) {
+          Bits.andNot(gen[b], using[d]);
+          Bits.or(kill[b], using[d]);
+        }
+        if (copyOfQuad[i] >= 0) {
+          Bits.set(gen[b], copyOfQuad[i]);
+        }
+      }
+    }
+    Dataflow.Result avail = Dataflow.solve(cfg, copies, Dataflow.Direction.FORWARD, Dataflow.Meet.INTERSECTION, gen, kill, Bits.create(copies));
+
+    boolean changed = false;
+    for (int b : cfg.getRpo()) {
+      long[] set = avail.getIn()[b].clone();
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        int u1 = index.use1Of(i);
+        if (u1 >= 0) {
+          int c = firstCommon(set, withDest[u1]);
+          if (c >= 0) {
+            quads.setArg1(i, src[c]);
+            changed = true;
+          }
+        }
+        int u2 = index.use2Of(i);
+        if (u2 >= 0) {
+          int c = firstCommon(set, withDest[u2]);
+          if (c >= 0) {
+            quads.setArg2(i, src[c]);
+            changed = true;
+          }
+        }
+        int d = index.defOf(i);
+        if (d >= 0) {
+          Bits.andNot(set, using[d]);
+        }
+        // 复制自身可能因传播变为 (=, x, , x)，此时不再生成
+        if (copyOfQuad[i] >= 0 && quads.getArg1(i) != quads.getResult(i)) {
+          Bits.set(set, copyOfQuad[i]);
+        }
+      }
+    }
+    return changed;
+  }
+
+  private static int firstCommon(long[] a, long[] b) {
+    for (int w = 0; w < a.length; w++) {
+      long word = a[w] & b[w];
+      if (word != 0) {
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+      }
+    }
+    return -1;
+  }
+
+  // 临时变量合并，删除被合并的复制
+  private QuadTable coalesce(QuadTable quads) {
+    ControlFlowGraph cfg = new ControlFlowGraph(quads);
+    Liveness liveness = new Liveness(cfg, optimizer.index(quads));
+    OperandIndex index = liveness.getIndex();
+    boolean[] removed = new boolean[quads.size()];
+    boolean changed = false;
+    for (int b = 0; b < cfg.getBlockCount(); b++) {
+      long[] live = liveness.liveOutCopy(b);
+      boolean copyFree = false; // 下一条为 (=, t, , v) 且 t 在其后不再活跃
+      for (int i = cfg.blockEnd(b); i >= cfg.getBlockStart()[b]; i--) {
+        int t = index.defOf(i);
+        if (copyFree && t >= 0 && index.isTempSlot(t) && quads.getArg1(i + 1) == quads.getResult(i)) {
+          quads.setResult(i, quads.getResult(i + 1));
+          removed[i + 1] = true;
+          changed = true;
+        }
+        copyFree = false;
+        if (quads.getOp(i) == OpCode.ASSIGN && index.defOf(i) >= 0) {
+          int c = index.use1Of(i);
+          copyFree = c >= 0 && index.isTempSlot(c) && !Bits.get(live, c);
+        }
+        liveness.stepBackward(i, live);
+      }
+    }
+    return changed ? quads.compact(removed) : quads;
+  }
+}
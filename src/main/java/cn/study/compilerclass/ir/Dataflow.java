@@ -0,0 +1,133 @@
+package cn.study.compilerclass.ir;
+
+import lombok.Getter;
+
+/**
+ * 基于位集合的通用数据流求解器
+ * <p>
+ * 每个基本块的传递函数形如 {@code f(x) = gen ∪ (x - kill)}，交汇运算为并或交。求解采用工作表算法：前向问题按逆后序、后向问题按后序初始化工作表，
+ * 某块结果变化时只把受影响的相邻块重新加入工作表。集合运算按 64 位字并行完成。
+ */
+public final class Dataflow {
+
+  private Dataflow() {
+  }
+
+  /**
+   * 求解数据流方程
+   *
+   * @param cfg       控制流图
+   * @param width     集合元素个数
+   * @param direction 分析方向
+   * @param meet      交汇运算
+   * @param gen       每个基本块的 gen 集合
+   * @param kill      每个基本块的 kill 集合
+   * @param boundary  边界值：前向问题为入口块的输入，后向问题为出口块的输入
+   * @return 每个基本块入口与出口处的集合
+   */
+  public static Result solve(ControlFlowGraph cfg, int width, Direction direction, Meet meet, long[][] gen, long[][] kill, long[] boundary) {
+    int n = cfg.getBlockCount();
+    int words = Bits.words(width);
+    long[][] in = new long[n][];
+    long[][] out = new long[n][];
+    long[] top = meet == Meet.INTERSECTION ? Bits.full(width) : new long[words];
+    boolean forward = direction == Direction.FORWARD;
+    for (int b = 0; b < n; b++) {
+      in[b] = new long[words];
+      out[b] = new long[words];
+      // 传递函数的结果一侧以交汇运算的单位元作为初值
+      System.arraycopy(top, 0, forward ? out[b] : in[b], 0, words);
+    }
+
+    // 工作表：循环队列，可达块按（逆）后序排在前面，不可达块随后
+    int[] queue = new int[n];
+    boolean[] queued = new boolean[n];
+    int[] rpo = cfg.getRpo();
+    int tail = 0;
+    for (int i = 0; i < rpo.length; i++) {
+      int b = forward ? rpo[i] : rpo[rpo.length - 1 - i];
+      queue[tail++] = b;
+      queued[b] = true;
+    }
+    for (int b = 0; b < n; b++) {
+      if (!queued[b]) {
+        queue[tail++] = b;
+        queued[b] = true;
+      }
+    }
+    int head = 0;
+    int pending = tail;
+    tail %= Math.max(n, 1);
+
+    int[] predStart = cfg.getPredStart();
+    int[] pred = cfg.getPred();
+    int[] succStart = cfg.getSuccStart();
+    int[] succ = cfg.getSucc();
+    int[] inStart = forward ? predStart : succStart;
+    int[] inEdges = forward ? pred : succ;
+    int[] outStart = forward ? succStart : predStart;
+    int[] outEdges = forward ? succ : pred;
+    long[] input = new long[words];
+
+    while (pending > 0) {
+      int b = queue[head];
+      head = (head + 1) % n;
+      pending--;
+      queued[b] = false;
+
+      // 交汇：入口块（前向）及没有前驱/后继的块以边界值参与交汇
+      if ((forward && b == 0) || inStart[b] == inStart[b + 1]) {
+        System.arraycopy(boundary, 0, input, 0, words);
+      } else {
+        System.arraycopy(top, 0, input, 0, words);
+      }
+      for (int e = inStart[b]; e < inStart[b + 1]; e++) {
+        long[] other = forward ? out[inEdges[e]] : in[inEdges[e]];
+        if (meet == Meet.UNION) {
+          Bits.or(input, other);
+        } else {
+          Bits.and(input, other);
+        }
+      }
+
+      long[] before = forward ? in[b] : out[b];
+      System.arraycopy(input, 0, before, 0, words);
+      long[] after = forward ? out[b] : in[b];
+      if (Bits.transfer(after, gen[b], input, kill[b])) {
+        for (int e = outStart[b]; e < outStart[b + 1]; e++) {
+          int s = outEdges[e];
+          if (!queued[s]) {
+            queued[s] = true;
+            queue[tail] = s;
+            tail = (tail + 1) % n;
+            pending++;
+          }
+        }
+      }
+    }
+    return new Result(in, out);
+  }
+
+  public enum Direction {
+    FORWARD, BACKWARD
+  }
+
+  public enum Meet {
+    UNION, INTERSECTION
+  }
+
+  /**
+   * 求解结果，{@code in[b]} 为基本块 b 入口处的集合，{@code out[b]} 为出口处的集合
+   */
+  @Getter
+  public static class Result {
+
+    private final long[][] in;
+    private final long[][] out;
+
+    public Result(long[][] in, long[][] out) {
+      this.in = in;
+      this.out = out;
+    }
+  }
+}
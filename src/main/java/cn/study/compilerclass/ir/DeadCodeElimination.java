@@ -0,0 +1,64 @@
+package cn.study.compilerclass.ir;
+
+/**
+ * 死代码与不可达基本块删除
+ * <p>
+ * 每轮删除：<br/>1. 不可达基本块中的全部四元式<br/>2. 结果不再活跃的无副作用运算（含对变量的无用赋值），可能触发除法溢出的除法与取模除外<br/>3. 跳转到下一条四元式的跳转<br/>4. if/while 翻译产生的
+ * {@code (jnz, c, , k)(jz, c, , m)} 等条件相反的一对跳转中，目标恰为第二条之后一条的前一条跳转（其条件成立时第二条本就不会跳转）<br/>
+ * 删除后重新编号并改写跳转目标，直到不再变化。main 与 quit 始终保留。
+ */
+class DeadCodeElimination {
+
+  private static final int MAX_ROUNDS = 32;
+
+  private final Optimizer optimizer;
+
+  DeadCodeElimination(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable quads) {
+    for (int round = 0; round < MAX_ROUNDS; round++) {
+      int n = quads.size();
+      ControlFlowGraph cfg = new ControlFlowGraph(quads);
+      Liveness liveness = new Liveness(cfg, optimizer.index(quads));
+      boolean[] resultLive = liveness.resultLive();
+      boolean[] removed = new boolean[n];
+      boolean changed = false;
+      for (int b = 0; b < cfg.getBlockCount(); b++) {
+        boolean reachable = cfg.isReachable(b);
+        for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+          OpCode op = quads.getOp(i);
+          if (op == OpCode.MAIN || op == OpCode.QUIT) {
+            continue;
+          }
+          if (!reachable || (op.isPure() && !resultLive[i] && !optimizer.canTrap(quads, i)) || isRedundantJump(quads, i)) {
+            removed[i] = true;
+            changed = true;
+          }
+        }
+      }
+      if (!changed) {
+        break;
+      }
+      quads = quads.compact(removed);
+    }
+    return quads;
+  }
+
+  private static boolean isRedundantJump(QuadTable quads, int i) {
+    OpCode op = quads.getOp(i);
+    if (!op.isJump()) {
+      return false;
+    }
+    int target = quads.getTarget(i);
+    if (target == i + 1) {
+      return true;
+    }
+    // (jnz, c, , i+2)(jz, c, , m) 等条件相反的一对跳转
+    if (op != OpCode.J && target == i + 2 && i + 1 < quads.size()) {
+      return quads.getOp(i + 1) == op.negate() && quads.getArg1(i + 1) == quads.getArg1(i) && quads.getArg2(i + 1) == quads.getArg2(i);
+    }
+    return false;
+  }
+}
@@ -0,0 +1,135 @@
+package cn.study.compilerclass.ir;
+
+import java.util.HashMap;
+
+/**
+ * 基于 SSA 与支配树的全局值编号（跨基本块的公共子表达式删除）
+ * <p>
+ * 在 SSA 形式上沿支配树先序遍历，作用域哈希表只保存支配当前块的表达式：运算按 (操作码, 值编号1, 值编号2) 查表（可交换运算的操作数排序），复制的结果与源值同号。
+ * 若表达式已由支配当前四元式的某个值计算过，则把本次结果的全部使用改为那个值；所有参数都相同的 φ 同样被替换。有替换时销毁 SSA 形式，
+ * 失去使用的运算由死代码删除消去。
+ */
+class GlobalValueNumbering {
+
+  private static final long LITERAL = 1L << 27; // 非存储单元操作数的编号标志
+
+  private final Optimizer optimizer;
+
+  GlobalValueNumbering(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable quads) {
+    SsaForm ssa = new SsaForm(quads, optimizer);
+    ControlFlowGraph cfg = ssa.getCfg();
+    if (cfg.getRpo().length == 0) {
+      return quads;
+    }
+    int values = ssa.getValueCount();
+    int[] replacement = new int[values]; // 值 -> 替换它的值
+    int[] vn = new int[values];          // 值 -> 值编号
+    for (int v = 0; v < values; v++) {
+      replacement[v] = v;
+      vn[v] = v;
+    }
+    HashMap<Long, Integer> table = new HashMap<>();
+    long[] undo = new long[quads.size()];
+    int undoTop = 0;
+    boolean changed = false;
+
+    int blocks = cfg.getBlockCount();
+    int[] childStart = cfg.getDomChildStart();
+    int[] children = cfg.getDomChildren();
+    int[] stack = new int[blocks];
+    int[] edge = new int[blocks];
+    int[] mark = new int[blocks];
+    int top = 0;
+    stack[0] = 0;
+    edge[0] = -1;
+    while (top >= 0) {
+      int b = stack[top];
+      if (edge[top] < 0) {
+        mark[top] = undoTop;
+        edge[top] = childStart[b];
+        for (int p = ssa.getPhiStart()[b]; p < ssa.getPhiStart()[b + 1]; p++) {
+          int same = sameArgument(ssa, p, replacement);
+          if (same >= 0) {
+            replacement[ssa.phiValue(p)] = same;
+            vn[ssa.phiValue(p)] = vn[same];
+            changed = true;
+          }
+        }
+        for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+          int w = ssa.getDef()[i];
+          OpCode op = quads.getOp(i);
+          if (w < 0 || !op.isPure()) {
+            continue;
+          }
+          long a = key(ssa.getUse1()[i], quads.getArg1(i), vn, replacement);
+          if (op == OpCode.ASSIGN) {
+            if (a < LITERAL) {
+              vn[w] = (int) a;
+            }
+            continue;
+          }
+          long c = op.readsArg2() ? key(ssa.getUse2()[i], quads.getArg2(i), vn, replacement) : 0;
+          if (op.isCommutative() && a > c) {
+            long t = a;
+            a = c;
+            c = t;
+          }
+          long key = ((long) op.ordinal() << 56) | (a << 28) | c;
+          Integer known = table.get(key);
+          if (known != null) {
+            replacement[w] = known;
+            vn[w] = vn[known];
+            changed = true;
+          } else {
+            table.put(key, w);
+            undo[undoTop++] = key;
+          }
+        }
+      } else if (edge[top] < childStart[b + 1]) {
+        int child = children[edge[top]++];
+        stack[++top] = child;
+        edge[top] = -1;
+      } else {
+        // 离开基本块，撤销本块登记的表达式
+        while (undoTop > mark[top]) {
+          table.remove(undo[--undoTop]);
+        }
+        top--;
+      }
+    }
+    if (!changed) {
+      return quads;
+    }
+    ssa.replaceUses(replacement);
+    return ssa.destruct();
+  }
+
+  // 操作数的编号：存储单元的值取值编号，字面量等取操作数编号并加标志
+  private static long key(int value, int operand, int[] vn, int[] replacement) {
+    return value >= 0 ? vn[replacement[value]] : LITERAL | operand;
+  }
+
+  // φ 的参数（忽略自身与不可达前驱）是否都是同一个值，是则返回该值
+  private static int sameArgument(SsaForm ssa, int p, int[] replacement) {
+    int same = -1;
+    for (int k = ssa.getPhiArgStart()[p]; k < ssa.getPhiArgStart()[p + 1]; k++) {
+      int arg = ssa.getPhiArgs()[k];
+      if (arg < 0) {
+        continue;
+      }
+      arg = replacement[arg];
+      if (arg == ssa.phiValue(p)) {
+        continue;
+      }
+      if (same >= 0 && same != arg) {
+        return -1;
+      }
+      same = arg;
+    }
+    return same;
+  }
+}
@@ -0,0 +1,336 @@
+package cn.study.compilerclass.ir;
+
+import cn.study.compilerclass.model.ConstTableEntry;
+import cn.study.compilerclass.model.VariableTableEntry;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * 四元式解释器
+ * <p>
+ * 不经过汇编直接执行四元式表，语义与 8086 后端一致：值按 16 位有符号字回绕，除数为零或 idiv 溢出时停止运行。执行前把四元式预译码为稠密的
+ * {@code int[]} 指令数组，每条指令占 {@link #WIDTH} 个元素（操作码、两个源操作数、结果或跳转目标）；操作数编号直接作为帧 {@code int[]}
+ * 的下标，字面量与常量在帧中预先装入值，执行时不再查表或解析文本。
+ */
+public final class Interpreter {
+
+  // 每条指令在指令数组中占用的元素个数
+  private static final int WIDTH = 4;
+  // 单个程序允许的四元式执行条数上限
+  public static final long DEFAULT_MAX_STEPS = 100_000_000L;
+
+  // 译码后的操作码，按 switch 的稠密 case 编号
+  private static final int NOP = 0;
+  private static final int HALT = 1;
+  private static final int MOVE = 2;
+  private static final int ADD = 3;
+  private static final int SUB = 4;
+  private static final int MUL = 5;
+  private static final int DIV = 6;
+  private static final int MOD = 7;
+  private static final int LT = 8;
+  private static final int GT = 9;
+  private static final int LE = 10;
+  private static final int GE = 11;
+  private static final int EQ = 12;
+  private static final int NE = 13;
+  private static final int AND = 14;
+  private static final int OR = 15;
+  private static final int NOT = 16;
+  private static final int SHL = 17;
+  private static final int PARA = 18;
+  private static final int INPUT = 19;
+  private static final int PUT = 20;
+  private static final int PUTC = 21;
+  private static final int PUTB = 22;
+  private static final int JUMP = 23;
+  private static final int JZ = 24;
+  private static final int JNZ = 25;
+  private static final int JLT = 26;
+  private static final int JGT = 27;
+  private static final int JLE = 28;
+  private static final int JGE = 29;
+  private static final int JEQ = 30;
+  private static final int JNE = 31;
+
+  /**
+   * 一次运行的结果
+   *
+   * @param steps      执行的四元式条数
+   * @param nanos      执行用时（纳秒），不含译码
+   * @param stopReason 异常停止的原因，正常结束时为 null
+   */
+  public record Result(long steps, long nanos, String stopReason) {
+
+    public String summary() {
+      double millis = nanos / 1e6;
+      double rate = nanos == 0 ? 0 : steps * 1e3 / nanos;
+      return String.format("执行 %d 条四元式，用时 %.3f ms（约 %.1f 百万条/秒），%s", steps, millis, rate, stopReason == null ? "正常结束" : stopReason);
+    }
+  }
+
+  private final int[] code;
+  private final int[] initialFrame;
+  private long maxSteps = DEFAULT_MAX_STEPS;
+
+  /**
+   * 译码四元式表
+   *
+   * @param quads         四元式表
+   * @param variableTable 变量表，提供变量的初值
+   * @param constTable    常量表
+   * @throws IllegalArgumentException 调用了不支持的函数
+   */
+  public Interpreter(QuadTable quads, List<VariableTableEntry> variableTable, List<ConstTableEntry> constTable) {
+    this.initialFrame = initialFrame(quads, variableTable, constTable);
+    int size = quads.size();
+    // 末尾追加一条停机指令，跳转到表尾与顺序执行到表尾都落在这里
+    this.code = new int[(size + 1) * WIDTH];
+    for (int i = 0; i < size; i++) {
+      decode(quads, i);
+    }
+    code[size * WIDTH] = HALT;
+  }
+
+  // 帧的初值：字面量与常量装入其值，变量装入初值（未知时为 0），临时变量为 0
+  private static int[] initialFrame(QuadTable quads, List<VariableTableEntry> variableTable, List<ConstTableEntry> constTable) {
+    Optimizer symbols = new Optimizer(variableTable, constTable);
+    int[] frame = new int[quads.operandCount()];
+    for (int id = 1; id < frame.length; id++) {
+      String name = quads.operandName(id);
+      Integer value = Literals.parse(symbols.isVariable(name) ? symbols.initialOf(name) : symbols.literalOf(name));
+      frame[id] = value == null ? 0 : value;
+    }
+    return frame;
+  }
+
+  private void decode(QuadTable quads, int index) {
+    OpCode op = quads.getOp(index);
+    int at = index * WIDTH;
+    code[at + 1] = quads.getArg1(index);
+    code[at + 2] = quads.getArg2(index);
+    code[at + 3] = op.isJump() ? quads.getTarget(index) * WIDTH : quads.getResult(index);
+    code[at] = switch (op) {
+      case MAIN -> NOP;
+      case QUIT -> HALT;
+      case ASSIGN -> MOVE;
+      case ADD -> ADD;
+      case SUB -> SUB;
+      case MUL -> MUL;
+      case DIV -> DIV;
+      case MOD -> MOD;
+      case LT -> LT;
+      case GT -> GT;
+      case LE -> LE;
+      case GE -> GE;
+      case EQ -> EQ;
+      case NE -> NE;
+      case AND -> AND;
+      case OR -> OR;
+      case NOT -> NOT;
+      case SHL -> SHL;
+      case PARA -> PARA;
+      case CALL -> switch (quads.operandName(quads.getArg1(index))) {
+        case "input" -> INPUT;
+        case "put" -> PUT;
+        case "putc" -> PUTC;
+        case "putb" -> PUTB;
+        default -> throw new IllegalArgumentException(String.format("第 %d 条四元式调用了不支持的函数: %s", index, quads.operandName(quads.getArg1(index))));
+      };
+      case J -> JUMP;
+      case JZ -> JZ;
+      case JNZ -> JNZ;
+      case JLT -> JLT;
+      case JGT -> JGT;
+      case JLE -> JLE;
+      case JGE -> JGE;
+      case JEQ -> JEQ;
+      case JNE -> JNE;
+    };
+  }
+
+  // 设置四元式执行条数上限，防止死循环
+  public void setMaxSteps(long maxSteps) {
+    this.maxSteps = maxSteps;
+  }
+
+  /**
+   * 从头运行程序，每次运行使用一个新的帧
+   *
+   * @param input  input() 读取的数据
+   * @param output put/putc/putb 的输出位置
+   * @return 执行统计
+   * @throws IOException 写入 output 时出错
+   */
+  public Result run(IntSupplier input, Appendable output) throws IOException {
+    final int[] code = this.code;
+    final int[] frame = Arrays.copyOf(initialFrame, initialFrame.length);
+    // para 压入的实参，调用时取最后压入的一个（与汇编中 [bp+4] 一致）
+    int[] params = new int[16];
+    int paramCount = 0;
+    long steps = 0;
+    String stopReason = null;
+    int pc = 0;
+    long start = System.nanoTime();
+    loop:
+    while (true) {
+      if (++steps > maxSteps) {
+        stopReason = String.format("超过四元式执行条数上限 %d", maxSteps);
+        steps--;
+        break;
+      }
+      int a = code[pc + 1];
+      int b = code[pc + 2];
+      int r = code[pc + 3];
+      switch (code[pc]) {
+        case NOP -> pc += WIDTH;
+        case HALT -> {
+          steps--; // 追加的停机指令不计数
+          break loop;
+        }
+        case MOVE -> {
+          frame[r] = frame[a];
+          pc += WIDTH;
+        }
+        case ADD -> {
+          frame[r] = (short) (frame[a] + frame[b]);
+          pc += WIDTH;
+        }
+        case SUB -> {
+          frame[r] = (short) (frame[a] - frame[b]);
+          pc += WIDTH;
+        }
+        case MUL -> {
+          frame[r] = (short) (frame[a] * frame[b]);
+          pc += WIDTH;
+        }
+        case DIV, MOD -> {
+          int x = frame[a];
+          int y = frame[b];
+          if (y == 0 || (x == Short.MIN_VALUE && y == -1)) {
+            stopReason = String.format("除法溢出（第 %d 条四元式）", pc / WIDTH);
+            break loop;
+          }
+          frame[r] = (short) (code[pc] == DIV ? x / y : x % y);
+          pc += WIDTH;
+        }
+        case LT -> {
+          frame[r] = frame[a] < frame[b] ? 1 : 0;
+          pc += WIDTH;
+        }
+        case GT -> {
+          frame[r] = frame[a] > frame[b] ? 1 : 0;
+          pc += WIDTH;
+        }
+        case LE -> {
+          frame[r] = frame[a] <= frame[b] ? 1 : 0;
+          pc += WIDTH;
+        }
+        case GE -> {
+          frame[r] = frame[a] >= frame[b] ? 1 : 0;
+          pc += WIDTH;
+        }
+        case EQ -> {
+          frame[r] = frame[a] == frame[b] ? 1 : 0;
+          pc += WIDTH;
+        }
+        case NE -> {
+          frame[r] = frame[a] != frame[b] ? 1 : 0;
+          pc += WIDTH;
+        }
+        case AND -> {
+          frame[r] = frame[a] != 0 && frame[b] != 0 ? 1 : 0;
+          pc += WIDTH;
+        }
+        case OR -> {
+          frame[r] = frame[a] != 0 || frame[b] != 0 ? 1 : 0;
+          pc += WIDTH;
+        }
+        case NOT -> {
+          frame[r] = frame[a] == 0 ? 1 : 0;
+          pc += WIDTH;
+        }
+        case SHL -> {
+          frame[r] = (short) (frame[a] << (frame[b] & 15));
+          pc += WIDTH;
+        }
+        case PARA -> {
+          if (paramCount == params.length) {
+            params = Arrays.copyOf(params, paramCount * 2);
+          }
+          params[paramCount++] = frame[a];
+          pc += WIDTH;
+        }
+        case INPUT -> {
+          frame[r] = (short) input.getAsInt();
+          pc += WIDTH;
+        }
+        case PUT -> {
+          output.append(Integer.toString(paramCount == 0 ? 0 : params[--paramCount]));
+          frame[r] = 0;
+          pc += WIDTH;
+        }
+        case PUTC -> {
+          output.append((char) ((paramCount == 0 ? 0 : params[--paramCount]) & 0xFF));
+          frame[r] = 0;
+          pc += WIDTH;
+        }
+        case PUTB -> {
+          output.append((paramCount == 0 ? 0 : params[--paramCount]) != 0 ? Literals.TRUE : Literals.FALSE);
+          frame[r] = 0;
+          pc += WIDTH;
+        }
+        case JUMP -> pc = r;
+        case JZ -> pc = frame[a] == 0 ? r : pc + WIDTH;
+        case JNZ -> pc = frame[a] != 0 ? r : pc + WIDTH;
+        case JLT -> pc = frame[a] < frame[b] ? r : pc + WIDTH;
+        case JGT -> pc = frame[a] > frame[b] ? r : pc + WIDTH;
+        case JLE -> pc = frame[a] <= frame[b] ? r : pc + WIDTH;
+        case JGE -> pc = frame[a] >= frame[b] ? r : pc + WIDTH;
+        case JEQ -> pc = frame[a] == frame[b] ? r : pc + WIDTH;
+        case JNE -> pc = frame[a] != frame[b] ? r : pc + WIDTH;
+        default -> throw new IllegalStateException("未知的指令: " + code[pc]);
+      }
+    }
+    return new Result(steps, System.nanoTime() - start, stopReason);
+  }
+
+  /**
+   * 从字符流中依次读取以空白分隔的整数，供 input() 使用
+   * <p>
+   * 不是整数的内容被跳过（汇编程序中会提示重新输入），读到流末尾后返回 0。
+   *
+   * @param reader 字符流，如包装了 {@code System.in} 的 Reader
+   */
+  public static IntSupplier integers(Reader reader) {
+    return () -> {
+      try {
+        while (true) {
+          StringBuilder token = new StringBuilder();
+          int c = reader.read();
+          while (c != -1 && Character.isWhitespace(c)) {
+            c = reader.read();
+          }
+          while (c != -1 && !Character.isWhitespace(c)) {
+            token.append((char) c);
+            c = reader.read();
+          }
+          if (token.isEmpty()) {
+            return 0;
+          }
+          try {
+            return (short) Integer.parseInt(token.toString());
+          } catch (NumberFormatException e) {
+            // 跳过非法输入，继续读取下一个
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+}
@@ -0,0 +1,125 @@
+package cn.study.compilerclass.ir;
+
+/**
+ * 四元式中字面量的解析与生成
+ * <p>
+ * 所有值按 8086 目标的 16 位有符号字处理：整数、字符与布尔字面量统一解析为 {@code short} 范围内的值，运算结果同样按 16 位回绕。
+ */
+public final class Literals {
+
+  public static final String TRUE = "True";
+  public static final String FALSE = "False";
+
+  private Literals() {
+  }
+
+  /**
+   * 解析字面量
+   *
+   * @param text 操作数文本，如 "12"、"0x1F"、"0b101"、"017"、"'a'"、"True"
+   * @return 16 位有符号值；不是整数、字符或布尔字面量时返回 null
+   */
+  public static Integer parse(String text) {
+    if (text == null || text.isEmpty()) {
+      return null;
+    }
+    if (text.equals(TRUE)) {
+      return 1;
+    }
+    if (text.equals(FALSE)) {
+      return 0;
+    }
+    if (text.length() >= 3 && text.charAt(0) == '\'' && text.charAt(text.length() - 1) == '\'') {
+      return parseChar(text.substring(1, text.length() - 1));
+    }
+    boolean negative = text.charAt(0) == '-';
+    String digits = negative ? text.substring(1) : text;
+    if (digits.isEmpty() || !Character.isDigit(digits.charAt(0))) {
+      return null;
+    }
+    int radix = 10;
+    if (digits.length() > 2 && (digits.startsWith("0x") || digits.startsWith("0X"))) {
+      radix = 16;
+      digits = digits.substring(2);
+    } else if (digits.length() > 2 && (digits.startsWith("0b") || digits.startsWith("0B"))) {
+      radix = 2;
+      digits = digits.substring(2);
+    } else if (digits.length() > 1 && digits.charAt(0) == '0') {
+      radix = 8;
+      digits = digits.substring(1);
+    }
+    try {
+      long value = Long.parseLong(digits, radix);
+      return wrap((int) (negative ? -value : value));
+    } catch (NumberFormatException e) {
+      return null; // 浮点数等不参与折叠
+    }
+  }
+
+  // 字符字面量的值，转义规则与汇编生成一致
+  private static Integer parseChar(String body) {
+    return switch (body) {
+      case "\\n" -> 0x0A;
+      case "\\t" -> 0x09;
+      case "\\r" -> 0x0D;
+      case "\\0" -> 0x00;
+      case "\\'" -> 0x27;
+      case "\\\\" -> 0x5C;
+      default -> body.length() == 1 ? (int) body.charAt(0) : null;
+    };
+  }
+
+  // 按 16 位有符号数回绕
+  public static int wrap(int value) {
+    return (short) value;
+  }
+
+  public static String ofInt(int value) {
+    return Integer.toString(wrap(value));
+  }
+
+  public static String ofBool(boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  /**
+   * 正的 2 的幂的指数，乘除法改写为移位时使用
+   *
+   * @return value 为 2 的 k 次幂（1 ≤ k ≤ 14）时返回 k，否则返回 -1
+   */
+  public static int log2(int value) {
+    if (value < 2 || Integer.bitCount(value) != 1 || value > (1 << 14)) {
+      return -1;
+    }
+    return Integer.numberOfTrailingZeros(value);
+  }
+
+  /**
+   * 按 8086 后端的语义计算运算结果
+   *
+   * @param op 无副作用的运算操作码（不含赋值）
+   * @param a  arg1 的值
+   * @param b  arg2 的值，一元运算忽略
+   * @return 结果文本；除零或 idiv 溢出等无法在编译期确定结果时返回 null
+   */
+  public static String evaluate(OpCode op, int a, int b) {
+    return switch (op) {
+      case ADD -> ofInt(a + b);
+      case SUB -> ofInt(a - b);
+      case MUL -> ofInt(a * b);
+      case DIV -> b == 0 || (a == Short.MIN_VALUE && b == -1) ? null : ofInt(a / b);
+      case MOD -> b == 0 || (a == Short.MIN_VALUE && b == -1) ? null : ofInt(a % b);
+      case LT -> ofBool(a < b);
+      case GT -> ofBool(a > b);
+      case LE -> ofBool(a <= b);
+      case GE -> ofBool(a >= b);
+      case EQ -> ofBool(a == b);
+      case NE -> ofBool(a != b);
+      case AND -> ofBool(a != 0 && b != 0);
+      case OR -> ofBool(a != 0 || b != 0);
+      case NOT -> ofBool(a == 0);
+      case SHL -> ofInt(a << (b & 15));
+      default -> null;
+    };
+  }
+}
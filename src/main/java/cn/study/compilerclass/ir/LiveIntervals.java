@@ -0,0 +1,71 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+
+/**
+ * 线性顺序上的活跃区间
+ * <p>
+ * 按四元式表的顺序给位置编号：第 i 条读操作数的位置为 2i、写结果的位置为 2i+1；基本块入口活跃记为块首的读位置，出口活跃记为块尾的写位置。
+ * 每个存储单元的区间取这些位置的最小值到最大值，跨越循环时覆盖整个循环，结果是保守的。区间不相交的两个存储单元可以共用同一份存储。
+ */
+public class LiveIntervals {
+
+  private final int[] start;
+  private final int[] end;
+
+  public LiveIntervals(ControlFlowGraph cfg, Liveness liveness) {
+    OperandIndex index = liveness.getIndex();
+    int n = index.size();
+    this.start = new int[n];
+    this.end = new int[n];
+    Arrays.fill(start, Integer.MAX_VALUE);
+    Arrays.fill(end, -1);
+    for (int b = 0; b < cfg.getBlockCount(); b++) {
+      cover(liveness.liveIn(b), 2 * cfg.getBlockStart()[b]);
+      cover(liveness.liveOut(b), 2 * cfg.blockEnd(b) + 1);
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        touch(index.use1Of(i), 2 * i);
+        touch(index.use2Of(i), 2 * i);
+        touch(index.defOf(i), 2 * i + 1);
+      }
+    }
+  }
+
+  // 区间起点，存储单元不被读写时为 Integer.MAX_VALUE
+  public int start(int slot) {
+    return start[slot];
+  }
+
+  // 区间终点（含），存储单元不被读写时为 -1
+  public int end(int slot) {
+    return end[slot];
+  }
+
+  // 存储单元是否被任何四元式读写
+  public boolean isEmpty(int slot) {
+    return end[slot] < 0;
+  }
+
+  /**
+   * 存储单元的值是否需要保持到第 index 条四元式执行之后
+   *
+   * @return 区间在该四元式读操作数之前开始、写结果之后结束时为 true
+   */
+  public boolean crosses(int slot, int index) {
+    return start[slot] < 2 * index && end[slot] > 2 * index + 1;
+  }
+
+  private void cover(long[] live, int pos) {
+    for (int s = Bits.nextSetBit(live, 0); s >= 0; s = Bits.nextSetBit(live, s + 1)) {
+      touch(s, pos);
+    }
+  }
+
+  private void touch(int slot, int pos) {
+    if (slot < 0) {
+      return;
+    }
+    start[slot] = Math.min(start[slot], pos);
+    end[slot] = Math.max(end[slot], pos);
+  }
+}
@@ -0,0 +1,105 @@
+package cn.study.compilerclass.ir;
+
+/**
+ * 活跃变量分析
+ * <p>
+ * 后向、并运算。集合元素为 {@link OperandIndex} 中的存储单元，程序出口处没有活跃的存储单元。
+ */
+public class Liveness {
+
+  private final ControlFlowGraph cfg;
+  private final OperandIndex index;
+  private final long[][] liveIn;
+  private final long[][] liveOut;
+
+  public Liveness(ControlFlowGraph cfg, OperandIndex index) {
+    this.cfg = cfg;
+    this.index = index;
+    int n = cfg.getBlockCount();
+    int width = index.size();
+    long[][] use = new long[n][];
+    long[][] def = new long[n][];
+    for (int b = 0; b < n; b++) {
+      use[b] = Bits.create(width);
+      def[b] = Bits.create(width);
+      // 逆序扫描：先写后读的单元不属于 use
+      for (int i = cfg.blockEnd(b); i >= cfg.getBlockStart()[b]; i--) {
+        int d = index.defOf(i);
+        if (d >= 0) {
+          Bits.set(def[b], d);
+          Bits.clear(use[b], d);
+        }
+        int u1 = index.use1Of(i);
+        if (u1 >= 0) {
+          Bits.set(use[b], u1);
+        }
+        int u2 = index.use2Of(i);
+        if (u2 >= 0) {
+          Bits.set(use[b], u2);
+        }
+      }
+    }
+    Dataflow.Result result = Dataflow.solve(cfg, width, Dataflow.Direction.BACKWARD, Dataflow.Meet.UNION, use, def, Bits.create(width));
+    this.liveIn = result.getIn();
+    this.liveOut = result.getOut();
+  }
+
+  public OperandIndex getIndex() {
+    return index;
+  }
+
+  public long[] liveIn(int block) {
+    return liveIn[block];
+  }
+
+  public long[] liveOut(int block) {
+    return liveOut[block];
+  }
+
+  /**
+   * 基本块出口处活跃集合的副本，配合 {@link #stepBackward} 在块内逐条向前推导
+   */
+  public long[] liveOutCopy(int block) {
+    return liveOut[block].clone();
+  }
+
+  /**
+   * 把第 quad 条四元式之后的活跃集合更新为其之前的活跃集合
+   *
+   * @param quad 四元式序号
+   * @param live 活跃集合，原地修改
+   */
+  public void stepBackward(int quad, long[] live) {
+    int d = index.defOf(quad);
+    if (d >= 0) {
+      Bits.clear(live, d);
+    }
+    int u1 = index.use1Of(quad);
+    if (u1 >= 0) {
+      Bits.set(live, u1);
+    }
+    int u2 = index.use2Of(quad);
+    if (u2 >= 0) {
+      Bits.set(live, u2);
+    }
+  }
+
+  /**
+   * 计算每条四元式之后是否仍需要其结果
+   *
+   * @return 下标为四元式序号，结果不写入存储单元或写入后仍活跃时为 true
+   */
+  public boolean[] resultLive() {
+    int n = cfg.getQuads().size();
+    boolean[] live = new boolean[n];
+    for (int b = 0; b < cfg.getBlockCount(); b++) {
+      long[] set = liveOutCopy(b);
+      for (int i = cfg.blockEnd(b); i >= cfg.getBlockStart()[b]; i--) {
+        int d = index.defOf(i);
+        live[i] = d < 0 || Bits.get(set, d);
+        stepBackward(i, set);
+      }
+    }
+    return live;
+  }
+}
@@ -0,0 +1,292 @@
+package cn.study.compilerclass.ir;
+
+import cn.study.compilerclass.ir.ControlFlowGraph.Loop;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 循环不变代码外提与归纳变量强度削弱
+ * <p>
+ * 循环由控制流图中的回边求得（while、do-while 与 for 的翻译都会形成回边）。每一轮基于同一次分析由内层向外层处理全部循环，
+ * 被改写的循环的外层循环推迟到下一轮重新分析，互不嵌套的循环在同一轮中一起改写：<br/>1.
+ * 在循环首结点之前插入前置块，循环外跳向首结点的跳转改为跳向前置块，循环内的回边仍指向首结点<br/>2. 不变运算：操作数为字面量、到达定值全在循环外，或唯一到达定值本身是已外提的不变运算；
+ * 其结果在循环内只有这一个定值、在首结点处不活跃，且在结果仍活跃的每个出口处该运算都已执行过，按标记顺序移入前置块。除法与取模只在除数为不会溢出的非零字面量时外提<br/>3.
+ * 基本归纳变量 i 在循环内只有一个定值 {@code (+/-, i, c, i)}，循环内的 {@code (*, i, k, t)} 改写为 {@code (=, s, , t)}：前置块中计算 {@code s = i * k}，
+ * 紧跟 i 的定值之后插入 {@code s = s +/- c * k}，16 位回绕下两者恒等
+ */
+class LoopOptimization {
+
+  private static final int MAX_ROUNDS = 64;
+
+  private final Optimizer optimizer;
+
+  LoopOptimization(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable quads) {
+    for (int round = 0; round < MAX_ROUNDS; round++) {
+      QuadTable next = optimizeLoops(quads);
+      if (next == null) {
+        return quads;
+      }
+      quads = next;
+    }
+    optimizer.note(String.format("循环优化达到 %d 轮上限，部分循环可能未充分优化", MAX_ROUNDS));
+    return quads;
+  }
+
+  // 一轮：内层优先改写全部可以改进的循环，一个循环被改写后它的各层外层循环留到下一轮；没有循环被改写时返回 null
+  private QuadTable optimizeLoops(QuadTable quads) {
+    ControlFlowGraph cfg = new ControlFlowGraph(quads);
+    OperandIndex index = optimizer.index(quads);
+    ReachingDefinitions reaching = new ReachingDefinitions(cfg, index);
+    Liveness liveness = new Liveness(cfg, index);
+    List<Loop> loops = cfg.getLoops();
+    boolean[] deferred = new boolean[loops.size()];
+    int[] changedHeader = new int[quads.size()]; // 首结点起始四元式 -> 被改写的循环下标 + 1，否则为 0
+    QuadEditor editor = new QuadEditor(quads);
+    boolean changed = false;
+    // 外层循环排在内层循环之前，倒序遍历即内层优先
+    for (int l = loops.size() - 1; l >= 0; l--) {
+      if (deferred[l]) {
+        continue;
+      }
+      Loop loop = loops.get(l);
+      if (new LoopContext(quads, cfg, reaching, liveness, loop).transform(editor)) {
+        changed = true;
+        changedHeader[cfg.getBlockStart()[loop.getHeader()]] = l + 1;
+        for (int p = loop.getParent(); p >= 0; p = loops.get(p).getParent()) {
+          deferred[p] = true;
+        }
+      }
+    }
+    if (!changed) {
+      return null;
+    }
+    // 被改写的循环内跳向其首结点的跳转（回边）越过前置块
+    int[] blockOf = cfg.getBlockOf();
+    return editor.build((source, target) -> target < changedHeader.length && changedHeader[target] > 0
+        && loops.get(changedHeader[target] - 1).contains(cfg, blockOf[source]));
+  }
+
+  /**
+   * 单个循环的分析与改写
+   */
+  private class LoopContext {
+
+    private static final int ALWAYS = -1;  // 操作数在循环内不变
+    private static final int NEVER = -2;   // 操作数在循环内可能变化
+
+    private final QuadTable quads;
+    private final ControlFlowGraph cfg;
+    private final ReachingDefinitions reaching;
+    private final Liveness liveness;
+    private final OperandIndex index;
+    private final Loop loop;
+    private final boolean[] inLoop;     // 基本块是否属于循环
+    private final int[] defsInLoop;     // 存储单元在循环内的定值个数
+    private final int[] defQuadInLoop;  // 存储单元在循环内的（最后一个）定值
+
+    LoopContext(QuadTable quads, ControlFlowGraph cfg, ReachingDefinitions reaching, Liveness liveness, Loop loop) {
+      this.quads = quads;
+      this.cfg = cfg;
+      this.reaching = reaching;
+      this.liveness = liveness;
+      this.index = reaching.getIndex();
+      this.loop = loop;
+      this.inLoop = new boolean[cfg.getBlockCount()];
+      this.defsInLoop = new int[index.size()];
+      this.defQuadInLoop = new int[index.size()];
+      for (int b : loop.getBlocks()) {
+        inLoop[b] = true;
+        for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+          int d = index.defOf(i);
+          if (d >= 0) {
+            defsInLoop[d]++;
+            defQuadInLoop[d] = i;
+          }
+        }
+      }
+    }
+
+    // 把改写登记到 editor 中，返回是否有改写
+    boolean transform(QuadEditor editor) {
+      int headerStart = cfg.getBlockStart()[loop.getHeader()];
+      if (headerStart == 0) {
+        return false;
+      }
+      // 前置块插入在首结点之前，循环内的块不能顺序落入首结点
+      int above = cfg.getBlockOf()[headerStart - 1];
+      if (inLoop[above] && quads.getOp(headerStart - 1) != OpCode.J) {
+        return false;
+      }
+
+      boolean changed = false;
+      for (int i : invariants()) {
+        editor.insertBefore(headerStart, quads.getOp(i), quads.getArg1(i), quads.getArg2(i), quads.getResult(i));
+        editor.remove(i);
+        changed = true;
+      }
+      changed |= reduceInductions(editor, headerStart);
+      return changed;
+    }
+
+    // 可外提的不变运算，按外提后的执行顺序排列
+    private List<Integer> invariants() {
+      int n = quads.size();
+      int[] dep1 = new int[n];
+      int[] dep2 = new int[n];
+      boolean[] candidate = new boolean[n];
+      for (int b : loop.getBlocks()) {
+        long[] reach = reaching.reachInCopy(b);
+        for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+          if (isHoistable(i)) {
+            dep1[i] = dependency(reach, index.use1Of(i));
+            dep2[i] = dependency(reach, index.use2Of(i));
+            candidate[i] = dep1[i] != NEVER && dep2[i] != NEVER;
+          }
+          reaching.stepForward(i, reach);
+        }
+      }
+      ArrayList<Integer> order = new ArrayList<>();
+      boolean[] marked = new boolean[n];
+      boolean changed = true;
+      while (changed) {
+        changed = false;
+        for (int b : loop.getBlocks()) {
+          for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+            if (candidate[i] && !marked[i] && ready(dep1[i], marked) && ready(dep2[i], marked)) {
+              marked[i] = true;
+              order.add(i);
+              changed = true;
+            }
+          }
+        }
+      }
+      return order;
+    }
+
+    private static boolean ready(int dep, boolean[] marked) {
+      return dep == ALWAYS || marked[dep];
+    }
+
+    // 操作数 slot 在 reach 下是否不变：ALWAYS、NEVER，或者唯一的循环内定值所在的四元式
+    private int dependency(long[] reach, int slot) {
+      if (slot < 0) {
+        return ALWAYS;
+      }
+      int inside = -1;
+      boolean outside = false;
+      for (int j = reaching.slotDefsFrom(slot); j < reaching.slotDefsTo(slot); j++) {
+        int d = reaching.slotDef(j);
+        if (!Bits.get(reach, d)) {
+          continue;
+        }
+        int q = reaching.quadOfDef(d);
+        if (q >= 0 && inLoop[cfg.getBlockOf()[q]]) {
+          if (inside >= 0) {
+            return NEVER;
+          }
+          inside = q;
+        } else {
+          outside = true;
+        }
+      }
+      if (inside < 0) {
+        return ALWAYS;
+      }
+      return outside ? NEVER : inside;
+    }
+
+    // 不考虑操作数时，第 i 条能否移入前置块
+    private boolean isHoistable(int i) {
+      OpCode op = quads.getOp(i);
+      if (!op.isPure() || optimizer.canTrap(quads, i)) {
+        return false;
+      }
+      int r = index.defOf(i);
+      if (r < 0 || defsInLoop[r] != 1 || Bits.get(liveness.liveIn(loop.getHeader()), r)) {
+        return false;
+      }
+      // 结果在出口处仍活跃时，离开循环前必须已执行过该运算
+      int block = cfg.getBlockOf()[i];
+      for (int b : loop.getBlocks()) {
+        for (int e = cfg.getSuccStart()[b]; e < cfg.getSuccStart()[b + 1]; e++) {
+          int t = cfg.getSucc()[e];
+          if (!inLoop[t] && Bits.get(liveness.liveIn(t), r) && !cfg.dominates(block, b)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    // 归纳变量乘法的强度削弱
+    private boolean reduceInductions(QuadEditor editor, int headerStart) {
+      HashMap<Long, Integer> reduced = new HashMap<>(); // (归纳变量, 乘数) -> 保存乘积的临时变量
+      boolean changed = false;
+      for (int b : loop.getBlocks()) {
+        for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+          if (quads.getOp(i) != OpCode.MUL) {
+            continue;
+          }
+          int iv = index.use1Of(i);
+          int factorOperand = quads.getArg2(i);
+          if (step(iv) == null) {
+            iv = index.use2Of(i);
+            factorOperand = quads.getArg1(i);
+          }
+          Integer step = step(iv);
+          Integer factor = literal(factorOperand);
+          if (step == null || factor == null || factor == 0 || factor == 1) {
+            continue;
+          }
+          int def = defQuadInLoop[iv];
+          long key = ((long) iv << 32) | (factor & 0xFFFFL);
+          Integer s = reduced.get(key);
+          if (s == null) {
+            s = optimizer.newTemp(quads);
+            reduced.put(key, s);
+            int ivOperand = index.operandOf(iv);
+            int increment = quads.operandId(Literals.evaluate(OpCode.MUL, step, factor));
+            editor.insertBefore(headerStart, OpCode.MUL, ivOperand, factorOperand, s);
+            editor.insertAfter(def, quads.getOp(def), s, increment, s);
+          }
+          quads.setOp(i, OpCode.ASSIGN);
+          quads.setArg1(i, s);
+          quads.setArg2(i, QuadTable.NONE);
+          changed = true;
+        }
+      }
+      return changed;
+    }
+
+    /**
+     * 基本归纳变量的步长
+     *
+     * @return slot 在循环内唯一的定值为 {@code (+, i, c, i)}、{@code (+, c, i, i)} 或 {@code (-, i, c, i)} 时返回 c（减法时仍为 c，方向由操作码决定），否则返回 null
+     */
+    private Integer step(int slot) {
+      if (slot < 0 || defsInLoop[slot] != 1) {
+        return null;
+      }
+      int def = defQuadInLoop[slot];
+      OpCode op = quads.getOp(def);
+      int self = quads.getResult(def);
+      if (op == OpCode.ADD && quads.getArg2(def) == self) {
+        return literal(quads.getArg1(def));
+      }
+      if ((op == OpCode.ADD || op == OpCode.SUB) && quads.getArg1(def) == self) {
+        return literal(quads.getArg2(def));
+      }
+      return null;
+    }
+
+    private Integer literal(int operand) {
+      String value = optimizer.literalOf(quads.operandName(operand));
+      return value == null ? null : Literals.parse(value);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package cn.study.compilerclass.ir;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * 四元式操作码
+ */
+@Getter
+public enum OpCode {
+  // 赋值
+  ASSIGN("="),
+
+  // 算术运算
+  ADD("+"), SUB("-"), MUL("*"), DIV("/"), MOD("%"),
+
+  // 关系运算
+  LT("<"), GT(">"), LE("<="), GE(">="), EQ("=="), NE("!="),
+
+  // 逻辑运算
+  AND("&&"), OR("||"), NOT("!"),
+
+  // 左移，仅由乘以 2 的幂的强度削弱产生
+  SHL("<<"),
+
+  // 函数调用
+  PARA("para"), CALL("call"),
+
+  // 跳转
+  J("j"), JZ("jz"), JNZ("jnz"),
+
+  // 比较后条件跳转，(j<, a, b, L) 表示 a < b 时跳转到 L
+  JLT("j<"), JGT("j>"), JLE("j<="), JGE("j>="), JEQ("j=="), JNE("j!="),
+
+  // 程序入口与出口
+  MAIN("main"), QUIT("quit");
+
+  private static final Map<String, OpCode> SYMBOLS = new HashMap<>();
+
+  static {
+    for (OpCode op : values()) {
+      SYMBOLS.put(op.symbol, op);
+    }
+  }
+
+  private final String symbol;
+
+  OpCode(String symbol) {
+    this.symbol = symbol;
+  }
+
+  /**
+   * 从四元式中的操作符文本转换为操作码
+   *
+   * @param symbol 操作符文本，如 "+"、"jnz"
+   * @return 对应的操作码，如果没有匹配的则返回null
+   */
+  public static OpCode fromSymbol(String symbol) {
+    return SYMBOLS.get(symbol);
+  }
+
+  // 结果字段是否为跳转目标（四元式序号）
+  public boolean isJump() {
+    return this == J || this == JZ || this == JNZ || isCompareJump();
+  }
+
+  // 是否为比较后条件跳转
+  public boolean isCompareJump() {
+    return switch (this) {
+      case JLT, JGT, JLE, JGE, JEQ, JNE -> true;
+      default -> false;
+    };
+  }
+
+  // 关系运算对应的条件跳转，如 < 对应 j<；不是关系运算时返回 null
+  public OpCode toCompareJump() {
+    return switch (this) {
+      case LT -> JLT;
+      case GT -> JGT;
+      case LE -> JLE;
+      case GE -> JGE;
+      case EQ -> JEQ;
+      case NE -> JNE;
+      default -> null;
+    };
+  }
+
+  // 条件跳转对应的关系运算，如 j< 对应 <；不是比较后条件跳转时返回 null
+  public OpCode toRelation() {
+    return switch (this) {
+      case JLT -> LT;
+      case JGT -> GT;
+      case JLE -> LE;
+      case JGE -> GE;
+      case JEQ -> EQ;
+      case JNE -> NE;
+      default -> null;
+    };
+  }
+
+  // 条件取反后的跳转，如 jz 对应 jnz、j< 对应 j>=；不是条件跳转时返回 null
+  public OpCode negate() {
+    return switch (this) {
+      case JZ -> JNZ;
+      case JNZ -> JZ;
+      case JLT -> JGE;
+      case JGE -> JLT;
+      case JGT -> JLE;
+      case JLE -> JGT;
+      case JEQ -> JNE;
+      case JNE -> JEQ;
+      default -> null;
+    };
+  }
+
+  // arg2 是否为被读取的操作数
+  public boolean readsArg2() {
+    return isBinary() || isCompareJump();
+  }
+
+  // 是否为二元运算（arg1、arg2 均被读取）
+  public boolean isBinary() {
+    return switch (this) {
+      case ADD, SUB, MUL, DIV, MOD, LT, GT, LE, GE, EQ, NE, AND, OR, SHL -> true;
+      default -> false;
+    };
+  }
+
+  // arg1 是否为被读取的操作数（call 的 arg1 是函数名）
+  public boolean readsArg1() {
+    return switch (this) {
+      case J, CALL, MAIN, QUIT -> false;
+      default -> true;
+    };
+  }
+
+  // 是否写入结果操作数
+  public boolean definesResult() {
+    return !isJump() && this != PARA && this != MAIN && this != QUIT;
+  }
+
+  // 是否为无副作用的运算，结果不再使用时可以删除
+  public boolean isPure() {
+    return definesResult() && this != CALL;
+  }
+
+  // 交换两个操作数后结果是否不变
+  public boolean isCommutative() {
+    return switch (this) {
+      case ADD, MUL, EQ, NE, AND, OR -> true;
+      default -> false;
+    };
+  }
+
+  @Override
+  public String toString() {
+    return symbol;
+  }
+}
@@ -0,0 +1,97 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * 存储单元的稠密编号
+ * <p>
+ * 把四元式表中出现的变量与临时变量（{@code $_t*}）编号为 {@code 0 .. size()-1}，变量在前、临时变量在后，字面量、常量名和函数名不编号。 数据流分析以该编号作为位集合的下标。
+ */
+public class OperandIndex {
+
+  public static final String TEMP_PREFIX = "$_t";
+
+  private final QuadTable quads;
+  private final int[] slotOf;    // 操作数编号 -> 存储单元编号，非存储单元为 -1
+  private final int[] operandOf; // 存储单元编号 -> 操作数编号
+  private final int variableCount;
+
+  /**
+   * @param quads     四元式表
+   * @param variables 变量名集合，如变量表中的全部名称
+   */
+  public OperandIndex(QuadTable quads, Collection<String> variables) {
+    this.quads = quads;
+    int count = quads.operandCount();
+    this.slotOf = new int[count];
+    Arrays.fill(slotOf, -1);
+    HashSet<String> names = new HashSet<>(variables);
+    int[] order = new int[count];
+    int size = 0;
+    for (int id = 1; id < count; id++) {
+      if (names.contains(quads.operandName(id))) {
+        slotOf[id] = size;
+        order[size++] = id;
+      }
+    }
+    this.variableCount = size;
+    for (int id = 1; id < count; id++) {
+      if (isTemp(quads.operandName(id))) {
+        slotOf[id] = size;
+        order[size++] = id;
+      }
+    }
+    this.operandOf = Arrays.copyOf(order, size);
+  }
+
+  public static boolean isTemp(String name) {
+    return name.startsWith(TEMP_PREFIX);
+  }
+
+  // 存储单元总数
+  public int size() {
+    return operandOf.length;
+  }
+
+  public int variableCount() {
+    return variableCount;
+  }
+
+  // 操作数编号对应的存储单元，非存储单元（或编号晚于建立索引时）返回 -1
+  public int slotOf(int operand) {
+    return operand < slotOf.length ? slotOf[operand] : -1;
+  }
+
+  public int operandOf(int slot) {
+    return operandOf[slot];
+  }
+
+  public boolean isTempSlot(int slot) {
+    return slot >= variableCount;
+  }
+
+  public String nameOf(int slot) {
+    return quads.operandName(operandOf[slot]);
+  }
+
+  /**
+   * 第 index 条四元式写入的存储单元
+   *
+   * @return 存储单元编号，不写入时返回 -1
+   */
+  public int defOf(int index) {
+    return quads.getOp(index).definesResult() ? slotOf(quads.getResult(index)) : -1;
+  }
+
+  // 第 index 条四元式 arg1 读取的存储单元，不读取时返回 -1
+  public int use1Of(int index) {
+    return quads.getOp(index).readsArg1() ? slotOf(quads.getArg1(index)) : -1;
+  }
+
+  // 第 index 条四元式 arg2 读取的存储单元，不读取时返回 -1
+  public int use2Of(int index) {
+    return quads.getOp(index).readsArg2() ? slotOf(quads.getArg2(index)) : -1;
+  }
+}
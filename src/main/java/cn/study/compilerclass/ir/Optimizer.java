@@ -0,0 +1,162 @@
+package cn.study.compilerclass.ir;
+
+import cn.study.compilerclass.model.ConstTableEntry;
+import cn.study.compilerclass.model.VariableTableEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 四元式优化器
+ * <p>
+ * 依次执行各个优化遍，每个遍接收一张四元式表并返回优化后的表（可能是同一张表）。优化只依赖符号表中的名称与初值，不修改符号表。
+ */
+public class Optimizer {
+
+  private final Set<String> variables;           // 变量名
+  private final HashMap<String, String> initials; // 变量名 -> 数据段中的初值字面量
+  private final HashMap<String, String> consts;   // 常量名 -> 值字面量
+  private final List<String> notes = new ArrayList<>(); // 优化过程中需要告知用户的提示
+
+  public Optimizer(List<VariableTableEntry> variableTable, List<ConstTableEntry> constTable) {
+    this.variables = new HashSet<>();
+    this.initials = new HashMap<>();
+    this.consts = new HashMap<>();
+    HashSet<String> duplicated = new HashSet<>();
+    for (VariableTableEntry entry : variableTable) {
+      if (!variables.add(entry.getName())) {
+        duplicated.add(entry.getName());
+      }
+      initials.put(entry.getName(), initialLiteral(entry));
+    }
+    // 不同作用域中的同名变量共用一个存储单元，初值不确定
+    for (String name : duplicated) {
+      initials.remove(name);
+    }
+    for (ConstTableEntry entry : constTable) {
+      consts.put(entry.getName(), entry.getValue());
+    }
+  }
+
+  // 与汇编生成中的默认值一致：int 与 bool 为 0，char 为空格
+  private static String initialLiteral(ConstTableEntry entry) {
+    if (!"null".equals(entry.getValue())) {
+      return entry.getValue();
+    }
+    return switch (entry.getDataType()) {
+      case CHAR -> "' '";
+      case BOOL -> Literals.FALSE;
+      default -> "0";
+    };
+  }
+
+  /**
+   * 执行全部优化遍
+   *
+   * @param quads 语义分析生成的四元式表
+   * @return 优化后的四元式表
+   */
+  public QuadTable optimize(QuadTable quads) {
+    notes.clear();
+    quads = new ConstantFolding(this).run(quads);
+    quads = new ValueNumbering().run(quads);
+    quads = new CopyPropagation(this).run(quads);
+    quads = new GlobalValueNumbering(this).run(quads);
+    quads = new RedundancyElimination(this).run(quads);
+    quads = new DeadCodeElimination(this).run(quads);
+    quads = new BranchOptimization(this).run(quads);
+    quads = new DeadCodeElimination(this).run(quads);
+    quads = new LoopOptimization(this).run(quads);
+    quads = new PowerOfTwoReduction(this).run(quads);
+    quads = new ConstantFolding(this).run(quads);
+    quads = new CopyPropagation(this).run(quads);
+    quads = new DeadCodeElimination(this).run(quads);
+    quads = new TempAllocation(this).run(quads);
+    return quads;
+  }
+
+  // 记录一条提示，由调用方在优化结束后输出
+  void note(String message) {
+    notes.add(message);
+  }
+
+  // 最近一次优化过程中记录的提示，只读
+  public List<String> getNotes() {
+    return List.copyOf(notes);
+  }
+
+  // 为四元式表建立存储单元编号
+  OperandIndex index(QuadTable quads) {
+    return new OperandIndex(quads, variables);
+  }
+
+  /**
+   * 登记一个未被使用过的临时变量
+   *
+   * @return 新临时变量的操作数编号，编号接在操作数池中已有临时变量之后
+   */
+  int newTemp(QuadTable quads) {
+    return quads.operandId(OperandIndex.TEMP_PREFIX + nextTempNumber(quads));
+  }
+
+  // 操作数池中尚未使用的最小临时变量序号（大于全部已有序号）
+  int nextTempNumber(QuadTable quads) {
+    int max = -1;
+    for (int id = 1; id < quads.operandCount(); id++) {
+      String name = quads.operandName(id);
+      if (OperandIndex.isTemp(name)) {
+        max = Math.max(max, Integer.parseInt(name.substring(OperandIndex.TEMP_PREFIX.length())));
+      }
+    }
+    return max + 1;
+  }
+
+  /**
+   * 第 i 条四元式在运行时是否可能出错
+   * <p>
+   * 除数不是已知的非零字面量，或除数为 -1 而被除数可能为 -32768 的除法与取模会触发除法溢出，即使结果不再使用也不能删除、移动或重复执行。
+   */
+  boolean canTrap(QuadTable quads, int i) {
+    OpCode op = quads.getOp(i);
+    if (op != OpCode.DIV && op != OpCode.MOD) {
+      return false;
+    }
+    Integer divisor = Literals.parse(literalOf(quads.operandName(quads.getArg2(i))));
+    if (divisor == null || divisor == 0) {
+      return true;
+    }
+    Integer dividend = Literals.parse(literalOf(quads.operandName(quads.getArg1(i))));
+    return divisor == -1 && (dividend == null || dividend == Short.MIN_VALUE);
+  }
+
+  public boolean isVariable(String name) {
+    return variables.contains(name);
+  }
+
+  /**
+   * 变量在程序入口处的初值字面量
+   *
+   * @return 初值字面量，未知时返回 null
+   */
+  public String initialOf(String name) {
+    return initials.get(name);
+  }
+
+  /**
+   * 操作数在编译期已知的值
+   *
+   * @param name 操作数文本（字面量或常量名）
+   * @return 值的字面量文本（整数统一为十进制），不是编译期常量时返回 null
+   */
+  public String literalOf(String name) {
+    String value = consts.getOrDefault(name, name);
+    Integer parsed = Literals.parse(value);
+    if (parsed == null) {
+      return null;
+    }
+    boolean keepText = value.startsWith("'") || value.equals(Literals.TRUE) || value.equals(Literals.FALSE);
+    return keepText ? value : Literals.ofInt(parsed);
+  }
+}
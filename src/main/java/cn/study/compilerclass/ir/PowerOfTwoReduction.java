@@ -0,0 +1,68 @@
+package cn.study.compilerclass.ir;
+
+/**
+ * 乘除常数的强度削弱
+ * <p>
+ * 乘以 1 或 0、除以 1 与对 1 取模改写为赋值，乘以 2 的 k 次幂（1 ≤ k ≤ 14）改写为左移 {@code (<<, x, k, t)}。除数为 2 的幂的除法与取模保留原操作码，
+ * 由汇编生成按带符号的舍入修正改用移位与掩码实现。
+ */
+class PowerOfTwoReduction {
+
+  private final Optimizer optimizer;
+
+  PowerOfTwoReduction(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable quads) {
+    for (int i = 0; i < quads.size(); i++) {
+      switch (quads.getOp(i)) {
+        case MUL -> {
+          int x = quads.getArg1(i);
+          Integer factor = literal(quads, quads.getArg2(i));
+          if (factor == null) {
+            // 字面量在左侧
+            x = quads.getArg2(i);
+            factor = literal(quads, quads.getArg1(i));
+            if (factor == null) {
+              continue;
+            }
+          }
+          if (factor == 1) {
+            toAssign(quads, i, x);
+          } else if (factor == 0) {
+            toAssign(quads, i, quads.operandId("0"));
+          } else if (Literals.log2(factor) > 0) {
+            quads.setOp(i, OpCode.SHL);
+            quads.setArg1(i, x);
+            quads.setArg2(i, quads.operandId(Integer.toString(Literals.log2(factor))));
+          }
+        }
+        case DIV -> {
+          if (Integer.valueOf(1).equals(literal(quads, quads.getArg2(i)))) {
+            toAssign(quads, i, quads.getArg1(i));
+          }
+        }
+        case MOD -> {
+          if (Integer.valueOf(1).equals(literal(quads, quads.getArg2(i)))) {
+            toAssign(quads, i, quads.operandId("0"));
+          }
+        }
+        default -> {
+        }
+      }
+    }
+    return quads;
+  }
+
+  private static void toAssign(QuadTable quads, int i, int source) {
+    quads.setOp(i, OpCode.ASSIGN);
+    quads.setArg1(i, source);
+    quads.setArg2(i, QuadTable.NONE);
+  }
+
+  private Integer literal(QuadTable quads, int operand) {
+    String value = optimizer.literalOf(quads.operandName(operand));
+    return value == null ? null : Literals.parse(value);
+  }
+}
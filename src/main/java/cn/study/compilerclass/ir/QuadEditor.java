@@ -0,0 +1,139 @@
+package cn.study.compilerclass.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 四元式表的插入与删除
+ * <p>
+ * 在原表的基础上登记插入与删除，最后一次性生成重新编号的新表。第 i 条四元式处的布局为：只在顺序落入时执行的插入、之前的插入、原四元式、之后的插入。
+ * 从第 i-1 条跳到第 i 条的跳转视同顺序落入，其余跳到第 i 条的跳转默认落在之前的插入上，可以通过 {@link JumpRule} 让部分跳转（如循环内的回边）
+ * 越过插入直接到达原四元式。插入的跳转以原表序号为目标，同样落在之前的插入上；之后的插入视为第 i 条的一部分。
+ */
+class QuadEditor {
+
+  private final QuadTable quads;
+  // 原表每条四元式处的插入，没有插入时为 null；每条插入为 {操作码序号, arg1, arg2, result}
+  private final List<List<int[]>> fallThrough;
+  private final List<List<int[]>> before;
+  private final List<List<int[]>> after;
+  private final boolean[] removed;
+
+  QuadEditor(QuadTable quads) {
+    this.quads = quads;
+    int n = quads.size();
+    this.fallThrough = new ArrayList<>(Collections.nCopies(n, null));
+    this.before = new ArrayList<>(Collections.nCopies(n, null));
+    this.after = new ArrayList<>(Collections.nCopies(n, null));
+    this.removed = new boolean[n];
+  }
+
+  // 在第 index 条之前插入只在从第 index-1 条顺序落入时执行的四元式，多次插入按调用顺序排列
+  void insertOnFallThrough(int index, OpCode op, int arg1, int arg2, int result) {
+    add(fallThrough, index, op, arg1, arg2, result);
+  }
+
+  // 在第 index 条之前插入四元式，多次插入按调用顺序排列
+  void insertBefore(int index, OpCode op, int arg1, int arg2, int result) {
+    add(before, index, op, arg1, arg2, result);
+  }
+
+  // 在第 index 条之后插入四元式，多次插入按调用顺序排列
+  void insertAfter(int index, OpCode op, int arg1, int arg2, int result) {
+    add(after, index, op, arg1, arg2, result);
+  }
+
+  private static void add(List<List<int[]>> lists, int index, OpCode op, int arg1, int arg2, int result) {
+    List<int[]> inserted = lists.get(index);
+    if (inserted == null) {
+      inserted = new ArrayList<>();
+      lists.set(index, inserted);
+    }
+    inserted.add(new int[]{op.ordinal(), arg1, arg2, result});
+  }
+
+  void remove(int index) {
+    removed[index] = true;
+  }
+
+  QuadTable build() {
+    return build((source, target) -> false);
+  }
+
+  /**
+   * 生成新表
+   *
+   * @param rule 对原表中的每条跳转决定是否越过目标之前的插入
+   * @return 重新编号后的四元式表，与原表共享操作数编号
+   */
+  QuadTable build(JumpRule rule) {
+    int n = quads.size();
+    int[] fall = new int[n + 1];  // 原第 i 条连同全部前插入的起始位置
+    int[] start = new int[n + 1]; // 之前的插入的起始位置
+    int[] orig = new int[n + 1];  // 原第 i 条自身（被删除时为其后第一条）的位置
+    int pos = 0;
+    for (int i = 0; i < n; i++) {
+      fall[i] = pos;
+      pos += sizeOf(fallThrough.get(i));
+      start[i] = pos;
+      pos += sizeOf(before.get(i));
+      orig[i] = pos;
+      pos += removed[i] ? 0 : 1;
+      pos += sizeOf(after.get(i));
+    }
+    fall[n] = pos;
+    start[n] = pos;
+    orig[n] = pos;
+
+    boolean[] all = new boolean[n];
+    Arrays.fill(all, true);
+    QuadTable table = quads.compact(all); // 只复制操作数池
+    for (int i = 0; i < n; i++) {
+      emitInserted(table, fallThrough.get(i), start);
+      emitInserted(table, before.get(i), start);
+      if (!removed[i]) {
+        OpCode op = quads.getOp(i);
+        int result = quads.getResult(i);
+        if (op.isJump()) {
+          if (rule.keepOriginal(i, result)) {
+            result = orig[result];
+          } else {
+            result = result == i + 1 ? fall[result] : start[result];
+          }
+        }
+        table.emit(op, quads.getArg1(i), quads.getArg2(i), result);
+      }
+      emitInserted(table, after.get(i), start);
+    }
+    return table;
+  }
+
+  private static int sizeOf(List<int[]> inserted) {
+    return inserted == null ? 0 : inserted.size();
+  }
+
+  private static void emitInserted(QuadTable table, List<int[]> inserted, int[] start) {
+    if (inserted == null) {
+      return;
+    }
+    for (int[] q : inserted) {
+      OpCode op = OpCode.values()[q[0]];
+      table.emit(op, q[1], q[2], op.isJump() ? start[q[3]] : q[3]);
+    }
+  }
+
+  /**
+   * 跳转落点规则
+   */
+  interface JumpRule {
+
+    /**
+     * @param source 原表中跳转四元式的序号
+     * @param target 原表中的跳转目标
+     * @return true 表示越过插入到目标之前的四元式
+     */
+    boolean keepOriginal(int source, int target);
+  }
+}
@@ -0,0 +1,232 @@
+package cn.study.compilerclass.ir;
+
+import cn.study.compilerclass.model.MiddleTableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 紧凑的四元式表
+ * <p>
+ * 四元式按列存储：操作码一列，两个操作数和结果各一列 {@code int}。操作数以编号表示，编号到名称的映射保存在操作数池中，编号 {@link #NONE} 表示空操作数。
+ * 跳转类四元式（{@link OpCode#isJump()}）的结果列直接保存目标四元式的序号，回填只是一次数组写入。<br/>
+ * {@link MiddleTableEntry} 仅在需要展示时通过 {@link #toEntries()} 生成。
+ */
+public final class QuadTable {
+
+  public static final int NONE = 0; // 空操作数编号
+
+  private OpCode[] ops;
+  private int[] arg1;
+  private int[] arg2;
+  private int[] result;
+  private int size;
+
+  private final ArrayList<String> operands;          // 操作数池：编号 -> 名称
+  private final HashMap<String, Integer> operandIds; // 操作数池：名称 -> 编号
+
+  public QuadTable() {
+    this.ops = new OpCode[64];
+    this.arg1 = new int[64];
+    this.arg2 = new int[64];
+    this.result = new int[64];
+    this.size = 0;
+    this.operands = new ArrayList<>();
+    this.operandIds = new HashMap<>();
+    clear();
+  }
+
+  /**
+   * 追加一条普通四元式
+   *
+   * @return 新四元式的序号
+   */
+  public int emit(OpCode op, String arg1, String arg2, String result) {
+    return emit(op, operandId(arg1), operandId(arg2), operandId(result));
+  }
+
+  /**
+   * 追加一条跳转四元式
+   *
+   * @param op        跳转操作码
+   * @param condition 条件操作数，无条件跳转时为空串
+   * @param target    跳转目标序号（未回填时为拉链中的下一项，0 表示链尾）
+   * @return 新四元式的序号
+   */
+  public int emitJump(OpCode op, String condition, int target) {
+    return emit(op, operandId(condition), NONE, target);
+  }
+
+  /**
+   * 以操作数编号追加一条四元式，跳转类四元式的 result 为目标序号
+   *
+   * @return 新四元式的序号
+   */
+  public int emit(OpCode op, int arg1, int arg2, int result) {
+    if (size == ops.length) {
+      int capacity = size * 2;
+      this.ops = Arrays.copyOf(this.ops, capacity);
+      this.arg1 = Arrays.copyOf(this.arg1, capacity);
+      this.arg2 = Arrays.copyOf(this.arg2, capacity);
+      this.result = Arrays.copyOf(this.result, capacity);
+    }
+    this.ops[size] = op;
+    this.arg1[size] = arg1;
+    this.arg2[size] = arg2;
+    this.result[size] = result;
+    return size++;
+  }
+
+  /**
+   * 由四元式展示对象重建紧凑四元式表，序号按列表顺序重新编排
+   *
+   * @param entries 四元式列表，如 {@code SemanticAnalyzer.middleTableList}
+   * @return 四元式表
+   */
+  public static QuadTable fromEntries(List<MiddleTableEntry> entries) {
+    QuadTable table = new QuadTable();
+    for (MiddleTableEntry entry : entries) {
+      OpCode op = OpCode.fromSymbol(entry.getOp());
+      if (op == null) {
+        throw new IllegalArgumentException("无效的操作符: " + entry.getOp());
+      }
+      if (op.isJump()) {
+        table.emit(op, table.operandId(entry.getArg1()), table.operandId(entry.getArg2()), Integer.parseInt(entry.getResult()));
+      } else {
+        table.emit(op, entry.getArg1(), entry.getArg2(), entry.getResult());
+      }
+    }
+    return table;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public OpCode getOp(int index) {
+    return ops[index];
+  }
+
+  public int getArg1(int index) {
+    return arg1[index];
+  }
+
+  public int getArg2(int index) {
+    return arg2[index];
+  }
+
+  public int getResult(int index) {
+    return result[index];
+  }
+
+  // 跳转目标，仅对跳转类四元式有意义
+  public int getTarget(int index) {
+    return result[index];
+  }
+
+  public void setTarget(int index, int target) {
+    result[index] = target;
+  }
+
+  public void setOp(int index, OpCode op) {
+    ops[index] = op;
+  }
+
+  public void setArg1(int index, int operand) {
+    arg1[index] = operand;
+  }
+
+  public void setArg2(int index, int operand) {
+    arg2[index] = operand;
+  }
+
+  public void setResult(int index, int operand) {
+    result[index] = operand;
+  }
+
+  /**
+   * 删除被标记的四元式并重新编号
+   * <p>
+   * 跳转目标改写为原目标处或其后第一条保留的四元式，操作数池原样共享编号。
+   *
+   * @param removed 下标为四元式序号，为 true 的四元式被删除
+   * @return 删除后的新四元式表
+   */
+  public QuadTable compact(boolean[] removed) {
+    int[] newIndex = new int[size + 1];
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      newIndex[i] = kept;
+      if (!removed[i]) {
+        kept++;
+      }
+    }
+    newIndex[size] = kept;
+    QuadTable table = new QuadTable();
+    table.operands.addAll(operands.subList(1, operands.size()));
+    table.operandIds.putAll(operandIds);
+    for (int i = 0; i < size; i++) {
+      if (!removed[i]) {
+        int res = ops[i].isJump() ? newIndex[result[i]] : result[i];
+        table.emit(ops[i], arg1[i], arg2[i], res);
+      }
+    }
+    return table;
+  }
+
+  /**
+   * 获取操作数编号，名称首次出现时登记到操作数池
+   *
+   * @param name 操作数名称，空串或null表示空操作数
+   * @return 操作数编号
+   */
+  public int operandId(String name) {
+    if (name == null || name.isEmpty()) {
+      return NONE;
+    }
+    Integer id = operandIds.get(name);
+    if (id == null) {
+      id = operands.size();
+      operands.add(name);
+      operandIds.put(name, id);
+    }
+    return id;
+  }
+
+  public String operandName(int id) {
+    return operands.get(id);
+  }
+
+  // 操作数池大小（含空操作数）
+  public int operandCount() {
+    return operands.size();
+  }
+
+  /**
+   * 生成第 index 条四元式的展示对象
+   */
+  public MiddleTableEntry toEntry(int index) {
+    OpCode op = ops[index];
+    String res = op.isJump() ? String.valueOf(result[index]) : operands.get(result[index]);
+    return new MiddleTableEntry(index, op.getSymbol(), operands.get(arg1[index]), operands.get(arg2[index]), res);
+  }
+
+  /**
+   * 生成全部四元式的展示对象
+   */
+  public ArrayList<MiddleTableEntry> toEntries() {
+    ArrayList<MiddleTableEntry> entries = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      entries.add(toEntry(i));
+    }
+    return entries;
+  }
+
+  public void clear() {
+    size = 0;
+    operands.clear();
+    operandIds.clear();
+    operands.add("");
+  }
+}
@@ -0,0 +1,176 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+
+/**
+ * 到达定值分析
+ * <p>
+ * 前向、并运算。每条写入存储单元的四元式是一个定值，按四元式顺序稠密编号；各存储单元的定值按单元分段连续存放在一个共享数组中（CSR），
+ * 单元 s 的定值为 {@code slotDefs[slotStart[s] .. slotStart[s+1]-1]}，gen/kill 与块内推导只遍历相关单元的定值段。<br/>
+ * 编号 {@code 0 .. index.size()-1} 为程序入口处的伪定值（变量在数据段中的初值），它们对应的四元式序号为 -1。
+ */
+public class ReachingDefinitions {
+
+  private final OperandIndex index;
+  private final int[] defOfQuad;   // 四元式 -> 定值编号，不是定值为 -1
+  private final int[] quadOfDef;   // 定值编号 -> 四元式，入口伪定值为 -1
+  private final int[] slotStart;    // 存储单元 -> 其定值段在 slotDefs 中的起点，末尾多一个元素
+  private final int[] slotDefs;     // 按存储单元分段的定值编号，段内递增
+  private final long[][] reachIn;
+  private final long[][] reachOut;
+
+  public ReachingDefinitions(ControlFlowGraph cfg, OperandIndex index) {
+    this.index = index;
+    int quadCount = cfg.getQuads().size();
+    this.defOfQuad = new int[quadCount];
+    Arrays.fill(defOfQuad, -1);
+    int slots = index.size();
+    int[] quads = new int[slots + quadCount];
+    Arrays.fill(quads, 0, slots, -1);
+    int defCount = slots;
+    for (int i = 0; i < quadCount; i++) {
+      if (index.defOf(i) >= 0) {
+        defOfQuad[i] = defCount;
+        quads[defCount++] = i;
+      }
+    }
+    this.quadOfDef = Arrays.copyOf(quads, defCount);
+    // 计数排序：每个单元一个入口伪定值，再加上各自的四元式定值
+    this.slotStart = new int[slots + 1];
+    for (int s = 0; s < slots; s++) {
+      slotStart[s + 1] = 1;
+    }
+    for (int d = slots; d < defCount; d++) {
+      slotStart[index.defOf(quadOfDef[d]) + 1]++;
+    }
+    for (int s = 0; s < slots; s++) {
+      slotStart[s + 1] += slotStart[s];
+    }
+    this.slotDefs = new int[defCount];
+    int[] fill = Arrays.copyOf(slotStart, slots);
+    for (int s = 0; s < slots; s++) {
+      slotDefs[fill[s]++] = s;
+    }
+    for (int d = slots; d < defCount; d++) {
+      slotDefs[fill[index.defOf(quadOfDef[d])]++] = d;
+    }
+
+    // 块内每个被写入的单元：kill 为其全部定值，gen 为其在块内的最后一个定值
+    int n = cfg.getBlockCount();
+    long[][] gen = new long[n][];
+    long[][] kill = new long[n][];
+    int[] lastDef = new int[slots];
+    int[] written = new int[slots];
+    for (int b = 0; b < n; b++) {
+      gen[b] = Bits.create(defCount);
+      kill[b] = Bits.create(defCount);
+      int writtenCount = 0;
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        int d = defOfQuad[i];
+        if (d >= 0) {
+          int slot = index.defOf(i);
+          if (lastDef[slot] == 0) {
+            written[writtenCount++] = slot;
+          }
+          lastDef[slot] = d; // 四元式定值编号不小于 slots，非 0 即表示已写入
+        }
+      }
+      for (int k = 0; k < writtenCount; k++) {
+        int slot = written[k];
+        for (int j = slotStart[slot]; j < slotStart[slot + 1]; j++) {
+          Bits.set(kill[b], slotDefs[j]);
+        }
+        Bits.set(gen[b], lastDef[slot]);
+        lastDef[slot] = 0;
+      }
+    }
+    long[] entry = Bits.create(defCount);
+    for (int s = 0; s < slots; s++) {
+      Bits.set(entry, s);
+    }
+    Dataflow.Result result = Dataflow.solve(cfg, defCount, Dataflow.Direction.FORWARD, Dataflow.Meet.UNION, gen, kill, entry);
+    this.reachIn = result.getIn();
+    this.reachOut = result.getOut();
+  }
+
+  public OperandIndex getIndex() {
+    return index;
+  }
+
+  public int defCount() {
+    return quadOfDef.length;
+  }
+
+  // 四元式对应的定值编号，不是定值时返回 -1
+  public int defOfQuad(int quad) {
+    return defOfQuad[quad];
+  }
+
+  public int quadOfDef(int def) {
+    return quadOfDef[def];
+  }
+
+  // 存储单元 slot 的定值为 slotDef(slotDefsFrom(slot)) .. slotDef(slotDefsTo(slot) - 1)
+  public int slotDefsFrom(int slot) {
+    return slotStart[slot];
+  }
+
+  public int slotDefsTo(int slot) {
+    return slotStart[slot + 1];
+  }
+
+  public int slotDef(int position) {
+    return slotDefs[position];
+  }
+
+  public long[] reachIn(int block) {
+    return reachIn[block];
+  }
+
+  public long[] reachOut(int block) {
+    return reachOut[block];
+  }
+
+  /**
+   * 基本块入口处到达定值集合的副本，配合 {@link #stepForward} 在块内逐条向后推导
+   */
+  public long[] reachInCopy(int block) {
+    return reachIn[block].clone();
+  }
+
+  /**
+   * 把第 quad 条四元式之前的到达定值集合更新为其之后的集合
+   *
+   * @param quad  四元式序号
+   * @param reach 到达定值集合，原地修改
+   */
+  public void stepForward(int quad, long[] reach) {
+    int d = defOfQuad[quad];
+    if (d >= 0) {
+      int slot = index.defOf(quad);
+      for (int j = slotStart[slot]; j < slotStart[slot + 1]; j++) {
+        Bits.clear(reach, slotDefs[j]);
+      }
+      Bits.set(reach, d);
+    }
+  }
+
+  /**
+   * 在到达定值集合 reach 中查找存储单元 slot 的唯一定值
+   *
+   * @return 定值所在的四元式序号；没有定值、有多个定值或入口处的初值可能到达时返回 -1
+   */
+  public int uniqueDef(long[] reach, int slot) {
+    int found = -1;
+    for (int j = slotStart[slot]; j < slotStart[slot + 1]; j++) {
+      int d = slotDefs[j];
+      if (Bits.get(reach, d)) {
+        if (found >= 0) {
+          return -1;
+        }
+        found = d;
+      }
+    }
+    return found < 0 ? -1 : quadOfDef[found];
+  }
+}
@@ -0,0 +1,67 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+
+/**
+ * 基于可用表达式的冗余运算删除
+ * <p>
+ * 全局值编号只能复用支配当前四元式的计算；若表达式在到达某条四元式的每条路径上都已计算且操作数之后未被重新定值（如 if/else 两个分支都计算了
+ * {@code a * b}，汇合后再次计算），则该四元式是冗余的。为每个有冗余计算的表达式分配一个保存值的临时变量，在其每个非冗余计算之后复制结果，
+ * 冗余计算改写为从该临时变量赋值，多余的复制由复制传播与死代码删除消去。
+ */
+class RedundancyElimination {
+
+  private final Optimizer optimizer;
+
+  RedundancyElimination(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable quads) {
+    ControlFlowGraph cfg = new ControlFlowGraph(quads);
+    AvailableExpressions available = new AvailableExpressions(cfg, optimizer.index(quads));
+    int n = quads.size();
+    boolean[] redundant = new boolean[n];
+    int[] holder = new int[available.exprCount()]; // 表达式 -> 保存其值的临时变量，没有冗余计算时为 -1
+    Arrays.fill(holder, -1);
+    int nextTemp = -1;
+    for (int b = 0; b < cfg.getBlockCount(); b++) {
+      if (!cfg.isReachable(b)) {
+        continue;
+      }
+      long[] avail = available.availInCopy(b);
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        int e = available.exprOfQuad(i);
+        if (e >= 0 && Bits.get(avail, e)) {
+          redundant[i] = true;
+          if (holder[e] < 0) {
+            if (nextTemp < 0) {
+              nextTemp = optimizer.nextTempNumber(quads);
+            }
+            holder[e] = quads.operandId(OperandIndex.TEMP_PREFIX + nextTemp++);
+          }
+        }
+        available.stepForward(i, avail);
+      }
+    }
+    if (nextTemp < 0) {
+      return quads;
+    }
+
+    QuadEditor editor = new QuadEditor(quads);
+    for (int i = 0; i < n; i++) {
+      int e = available.exprOfQuad(i);
+      if (e < 0 || holder[e] < 0) {
+        continue;
+      }
+      if (redundant[i]) {
+        quads.setOp(i, OpCode.ASSIGN);
+        quads.setArg1(i, holder[e]);
+        quads.setArg2(i, QuadTable.NONE);
+      } else {
+        editor.insertAfter(i, OpCode.ASSIGN, quads.getResult(i), QuadTable.NONE, holder[e]);
+      }
+    }
+    return editor.build();
+  }
+}
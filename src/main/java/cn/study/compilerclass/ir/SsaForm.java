@@ -0,0 +1,637 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * 四元式表的静态单赋值（SSA）形式
+ * <p>
+ * 表示：每个值是一个 int 编号，0 .. slots-1 为各存储单元在程序入口处的值（数据段中的初值），slots .. slots+φ数-1 为 φ 定义的值，其后为四元式定义的值。
+ * 四元式的读写以与四元式表等长的数组记录（不读写存储单元时为 {@link #NONE}），φ 的参数以 CSR 数组保存，第 k 个参数对应控制流图中该块的第 k 个前驱。
+ * 整个形式不为单次使用创建对象，四元式表本身在销毁前保持不变。
+ * <p>
+ * 构造：<br/>1. 由直接支配者求支配边界<br/>2. 按存储单元从定值块出发求迭代支配边界，只在该单元入口活跃的块放置 φ（剪枝 SSA）<br/>3. 沿支配树先序遍历重命名，
+ * 用撤销日志代替每个存储单元一个栈
+ * <p>
+ * 销毁：<br/>1. 按值求活跃区间（只在定义块内使用的值不参与跨块的活跃分析，块间活跃集合只为其余的值编号），同一存储单元的两个值在某处同时活跃时（复制传播、公共子表达式删除等会延长活跃区间），把其中一个改名为新的临时变量，
+ * 入口值始终保留原名<br/>2. 其余值沿用原存储单元的名字，φ 改为前驱边上的并行复制，按依赖顺序串行化，循环依赖借助一个临时变量打断<br/>3. 复制放在顺序落入的边的目标块之前（只在顺序落入时执行）、
+ * 无条件跳转之前，条件跳转的边则把条件取反并在跳转之后插入复制与一条跳向原目标的跳转（拆分关键边）
+ */
+@Getter
+class SsaForm {
+
+  static final int NONE = -1;
+
+  private final QuadTable quads;
+  private final Optimizer optimizer;
+  private final ControlFlowGraph cfg;
+  private final OperandIndex index;
+  private final int slots;
+
+  // 四元式 -> 读取的值、定义的值
+  private final int[] use1;
+  private final int[] use2;
+  private final int[] def;
+
+  // φ：块 b 的 φ 为 phiStart[b] .. phiStart[b+1]，φ p 定义值 slots + p，参数为 phiArgs[phiArgStart[p] .. phiArgStart[p+1])
+  private int[] phiStart;
+  private int[] phiSlot;
+  private int[] phiArgStart;
+  private int[] phiArgs;
+
+  // 值 -> 存储单元、定义所在的块
+  private int valueCount;
+  private int[] slotOfValue;
+  private int[] blockOfValue;
+
+  SsaForm(QuadTable quads, Optimizer optimizer) {
+    this.quads = quads;
+    this.optimizer = optimizer;
+    this.cfg = new ControlFlowGraph(quads);
+    this.index = optimizer.index(quads);
+    this.slots = index.size();
+    int n = quads.size();
+    this.use1 = new int[n];
+    this.use2 = new int[n];
+    this.def = new int[n];
+    Arrays.fill(use1, NONE);
+    Arrays.fill(use2, NONE);
+    Arrays.fill(def, NONE);
+    placePhis(dominanceFrontiers());
+    rename();
+  }
+
+  int phiCount() {
+    return phiSlot.length;
+  }
+
+  // φ p 定义的值
+  int phiValue(int p) {
+    return slots + p;
+  }
+
+  // 支配边界（CSR），块 b 的支配边界为 result[1][result[0][b] .. result[0][b+1])
+  private int[][] dominanceFrontiers() {
+    int blocks = cfg.getBlockCount();
+    int[] idom = cfg.getIdom();
+    int[] predStart = cfg.getPredStart();
+    int[] pred = cfg.getPred();
+    int[] from = new int[Math.max(blocks, 1)];
+    int[] to = new int[from.length];
+    int count = 0;
+    int[] stamp = new int[blocks];
+    Arrays.fill(stamp, -1);
+    for (int b = 0; b < blocks; b++) {
+      if (!cfg.isReachable(b) || predStart[b + 1] - predStart[b] < 2) {
+        continue;
+      }
+      for (int e = predStart[b]; e < predStart[b + 1]; e++) {
+        int runner = pred[e];
+        if (!cfg.isReachable(runner)) {
+          continue;
+        }
+        while (runner != idom[b] && stamp[runner] != b) {
+          stamp[runner] = b;
+          if (count == from.length) {
+            from = Arrays.copyOf(from, count * 2);
+            to = Arrays.copyOf(to, count * 2);
+          }
+          from[count] = runner;
+          to[count++] = b;
+          runner = idom[runner];
+        }
+      }
+    }
+    return csr(blocks, from, to, count);
+  }
+
+  // 把 (key, value) 对按 key 排成 CSR：{start, values}
+  private static int[][] csr(int keys, int[] key, int[] value, int count) {
+    int[] start = new int[keys + 1];
+    for (int i = 0; i < count; i++) {
+      start[key[i] + 1]++;
+    }
+    for (int k = 0; k < keys; k++) {
+      start[k + 1] += start[k];
+    }
+    int[] values = new int[count];
+    int[] fill = Arrays.copyOf(start, keys);
+    for (int i = 0; i < count; i++) {
+      values[fill[key[i]]++] = value[i];
+    }
+    return new int[][]{start, values};
+  }
+
+  // 在迭代支配边界上放置 φ
+  private void placePhis(int[][] frontiers) {
+    int blocks = cfg.getBlockCount();
+    Liveness liveness = new Liveness(cfg, index);
+
+    // 每个存储单元的定值块
+    int[] defSlot = new int[Math.max(blocks, 1)];
+    int[] defBlock = new int[defSlot.length];
+    int defCount = 0;
+    int[] lastBlock = new int[slots];
+    Arrays.fill(lastBlock, -1);
+    for (int b : cfg.getRpo()) {
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        int d = index.defOf(i);
+        if (d >= 0 && lastBlock[d] != b) {
+          lastBlock[d] = b;
+          if (defCount == defSlot.length) {
+            defSlot = Arrays.copyOf(defSlot, defCount * 2);
+            defBlock = Arrays.copyOf(defBlock, defCount * 2);
+          }
+          defSlot[defCount] = d;
+          defBlock[defCount++] = b;
+        }
+      }
+    }
+    int[][] defsOf = csr(slots, defSlot, defBlock, defCount);
+
+    int[] phiBlock = new int[Math.max(blocks, 1)];
+    int[] phiSlots = new int[phiBlock.length];
+    int count = 0;
+    int[] hasPhi = new int[blocks];
+    int[] queued = new int[blocks];
+    Arrays.fill(hasPhi, -1);
+    Arrays.fill(queued, -1);
+    int[] work = new int[blocks];
+    for (int s = 0; s < slots; s++) {
+      int top = 0;
+      for (int k = defsOf[0][s]; k < defsOf[0][s + 1]; k++) {
+        int b = defsOf[1][k];
+        queued[b] = s;
+        work[top++] = b;
+      }
+      while (top > 0) {
+        int b = work[--top];
+        for (int k = frontiers[0][b]; k < frontiers[0][b + 1]; k++) {
+          int y = frontiers[1][k];
+          if (hasPhi[y] == s || !Bits.get(liveness.liveIn(y), s)) {
+            continue;
+          }
+          hasPhi[y] = s;
+          if (count == phiBlock.length) {
+            phiBlock = Arrays.copyOf(phiBlock, count * 2);
+            phiSlots = Arrays.copyOf(phiSlots, count * 2);
+          }
+          phiBlock[count] = y;
+          phiSlots[count++] = s;
+          if (queued[y] != s) {
+            queued[y] = s;
+            work[top++] = y;
+          }
+        }
+      }
+    }
+    int[][] phis = csr(blocks, phiBlock, phiSlots, count);
+    this.phiStart = phis[0];
+    this.phiSlot = phis[1];
+    this.phiArgStart = new int[count + 1];
+    for (int b = 0; b < blocks; b++) {
+      int preds = cfg.getPredStart()[b + 1] - cfg.getPredStart()[b];
+      for (int p = phiStart[b]; p < phiStart[b + 1]; p++) {
+        phiArgStart[p + 1] = phiArgStart[p] + preds;
+      }
+    }
+    this.phiArgs = new int[phiArgStart[count]];
+    Arrays.fill(phiArgs, NONE);
+  }
+
+  // 沿支配树先序遍历重命名
+  private void rename() {
+    int n = quads.size();
+    int blocks = cfg.getBlockCount();
+    int phis = phiCount();
+    int capacity = slots + phis + n;
+    this.slotOfValue = new int[capacity];
+    this.blockOfValue = new int[capacity];
+    for (int s = 0; s < slots; s++) {
+      slotOfValue[s] = s;
+    }
+    for (int b = 0; b < blocks; b++) {
+      for (int p = phiStart[b]; p < phiStart[b + 1]; p++) {
+        slotOfValue[phiValue(p)] = phiSlot[p];
+        blockOfValue[phiValue(p)] = b;
+      }
+    }
+    this.valueCount = slots + phis;
+    if (cfg.getRpo().length == 0) {
+      return;
+    }
+
+    int[] current = new int[slots];
+    for (int s = 0; s < slots; s++) {
+      current[s] = s;
+    }
+    int[] logSlot = new int[capacity];   // 撤销日志：被覆盖的存储单元及其原值
+    int[] logValue = new int[capacity];
+    int logTop = 0;
+    int[] childStart = cfg.getDomChildStart();
+    int[] children = cfg.getDomChildren();
+    int[] stack = new int[blocks];
+    int[] edge = new int[blocks];
+    int[] mark = new int[blocks];
+    int top = 0;
+    stack[0] = 0;
+    edge[0] = -1;
+    while (top >= 0) {
+      int b = stack[top];
+      if (edge[top] < 0) {
+        // 进入基本块
+        mark[top] = logTop;
+        edge[top] = childStart[b];
+        for (int p = phiStart[b]; p < phiStart[b + 1]; p++) {
+          logSlot[logTop] = phiSlot[p];
+          logValue[logTop++] = current[phiSlot[p]];
+          current[phiSlot[p]] = phiValue(p);
+        }
+        for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+          int u = index.use1Of(i);
+          if (u >= 0) {
+            use1[i] = current[u];
+          }
+          u = index.use2Of(i);
+          if (u >= 0) {
+            use2[i] = current[u];
+          }
+          int d = index.defOf(i);
+          if (d >= 0) {
+            int v = valueCount++;
+            slotOfValue[v] = d;
+            blockOfValue[v] = b;
+            def[i] = v;
+            logSlot[logTop] = d;
+            logValue[logTop++] = current[d];
+            current[d] = v;
+          }
+        }
+        for (int e = cfg.getSuccStart()[b]; e < cfg.getSuccStart()[b + 1]; e++) {
+          int s = cfg.getSucc()[e];
+          int k = predPosition(s, b);
+          for (int p = phiStart[s]; p < phiStart[s + 1]; p++) {
+            phiArgs[phiArgStart[p] + k] = current[phiSlot[p]];
+          }
+        }
+      } else if (edge[top] < childStart[b + 1]) {
+        int child = children[edge[top]++];
+        stack[++top] = child;
+        edge[top] = -1;
+      } else {
+        // 离开基本块，撤销本块的重命名
+        while (logTop > mark[top]) {
+          logTop--;
+          current[logSlot[logTop]] = logValue[logTop];
+        }
+        top--;
+      }
+    }
+  }
+
+  // 块 pred 在块 block 前驱表中的位置
+  private int predPosition(int block, int pred) {
+    int[] predStart = cfg.getPredStart();
+    for (int e = predStart[block]; e < predStart[block + 1]; e++) {
+      if (cfg.getPred()[e] == pred) {
+        return e - predStart[block];
+      }
+    }
+    throw new IllegalStateException("基本块 " + pred + " 不是 " + block + " 的前驱");
+  }
+
+  /**
+   * 把四元式与 φ 中的每次使用改写为代表值
+   *
+   * @param replacement 值 -> 代表值，代表值的定义必须支配原值的全部使用
+   */
+  void replaceUses(int[] replacement) {
+    for (int i = 0; i < use1.length; i++) {
+      if (use1[i] >= 0) {
+        use1[i] = replacement[use1[i]];
+      }
+      if (use2[i] >= 0) {
+        use2[i] = replacement[use2[i]];
+      }
+    }
+    for (int k = 0; k < phiArgs.length; k++) {
+      if (phiArgs[k] >= 0) {
+        phiArgs[k] = replacement[phiArgs[k]];
+      }
+    }
+  }
+
+  /**
+   * 销毁 SSA 形式，生成普通四元式表
+   *
+   * @return 新的四元式表，原表中的操作数被原地改写
+   */
+  QuadTable destruct() {
+    int[] crossing = new int[valueCount];
+    int crossingCount = numberCrossingValues(crossing);
+    long[][] liveIn = new long[cfg.getBlockCount()][];
+    long[][] liveOut = new long[cfg.getBlockCount()][];
+    computeLiveness(crossing, crossingCount, liveIn, liveOut);
+    int[] name = assignNames(crossing, liveIn, liveOut);
+
+    for (int i = 0; i < quads.size(); i++) {
+      if (use1[i] >= 0) {
+        quads.setArg1(i, name[use1[i]]);
+      }
+      if (use2[i] >= 0) {
+        quads.setArg2(i, name[use2[i]]);
+      }
+      if (def[i] >= 0) {
+        quads.setResult(i, name[def[i]]);
+      }
+    }
+    return insertCopies(name);
+  }
+
+  /**
+   * 为可能跨块活跃的值编号：入口值、φ 的参数以及在定义块之外被使用的值，其余值只在定义块内活跃
+   *
+   * @param crossing 填入值 -> 编号，只在定义块内活跃的值为 {@link #NONE}
+   * @return 编号个数
+   */
+  private int numberCrossingValues(int[] crossing) {
+    boolean[] crosses = new boolean[valueCount];
+    Arrays.fill(crosses, 0, slots, true);
+    for (int i = 0; i < quads.size(); i++) {
+      int b = cfg.getBlockOf()[i];
+      if (use1[i] >= 0 && blockOfValue[use1[i]] != b) {
+        crosses[use1[i]] = true;
+      }
+      if (use2[i] >= 0 && blockOfValue[use2[i]] != b) {
+        crosses[use2[i]] = true;
+      }
+    }
+    for (int v : phiArgs) {
+      if (v >= 0) {
+        crosses[v] = true;
+      }
+    }
+    int count = 0;
+    for (int v = 0; v < valueCount; v++) {
+      crossing[v] = crosses[v] ? count++ : NONE;
+    }
+    return count;
+  }
+
+  // 按值的活跃分析：从每次使用沿前驱向上标记，直到值的定义块；集合按 crossing 编号
+  private void computeLiveness(int[] crossing, int crossingCount, long[][] liveIn, long[][] liveOut) {
+    int blocks = cfg.getBlockCount();
+    for (int b = 0; b < blocks; b++) {
+      liveIn[b] = Bits.create(crossingCount);
+      liveOut[b] = Bits.create(crossingCount);
+    }
+    int[] stack = new int[blocks];
+    for (int b : cfg.getRpo()) {
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        if (use1[i] >= 0 && blockOfValue[use1[i]] != b) {
+          markLiveIn(liveIn, liveOut, stack, b, use1[i], crossing[use1[i]]);
+        }
+        if (use2[i] >= 0 && blockOfValue[use2[i]] != b) {
+          markLiveIn(liveIn, liveOut, stack, b, use2[i], crossing[use2[i]]);
+        }
+      }
+      // φ 的参数在对应前驱的出口处活跃
+      for (int p = phiStart[b]; p < phiStart[b + 1]; p++) {
+        for (int k = phiArgStart[p]; k < phiArgStart[p + 1]; k++) {
+          int v = phiArgs[k];
+          int pred = cfg.getPred()[cfg.getPredStart()[b] + k - phiArgStart[p]];
+          if (v < 0 || !cfg.isReachable(pred) || Bits.get(liveOut[pred], crossing[v])) {
+            continue;
+          }
+          Bits.set(liveOut[pred], crossing[v]);
+          if (blockOfValue[v] != pred) {
+            markLiveIn(liveIn, liveOut, stack, pred, v, crossing[v]);
+          }
+        }
+      }
+    }
+  }
+
+  // 值 v（编号 c）在 block 入口活跃，沿前驱向上传播
+  private void markLiveIn(long[][] liveIn, long[][] liveOut, int[] stack, int block, int v, int c) {
+    if (Bits.get(liveIn[block], c)) {
+      return;
+    }
+    Bits.set(liveIn[block], c);
+    int top = 0;
+    stack[top++] = block;
+    while (top > 0) {
+      int b = stack[--top];
+      for (int e = cfg.getPredStart()[b]; e < cfg.getPredStart()[b + 1]; e++) {
+        int p = cfg.getPred()[e];
+        if (!cfg.isReachable(p) || Bits.get(liveOut[p], c)) {
+          continue;
+        }
+        Bits.set(liveOut[p], c);
+        if (blockOfValue[v] != p && !Bits.get(liveIn[p], c)) {
+          Bits.set(liveIn[p], c);
+          stack[top++] = p;
+        }
+      }
+    }
+  }
+
+  // 为每个值确定销毁后的操作数：同名值互不干扰时沿用原名，否则改名为新的临时变量
+  private int[] assignNames(int[] crossing, long[][] liveIn, long[][] liveOut) {
+    int[] slotStart = new int[slots + 1];
+    for (int v = 0; v < valueCount; v++) {
+      slotStart[slotOfValue[v] + 1]++;
+    }
+    for (int s = 0; s < slots; s++) {
+      slotStart[s + 1] += slotStart[s];
+    }
+    int[] valuesOfSlot = new int[valueCount];
+    int[] fill = Arrays.copyOf(slotStart, slots);
+    for (int v = 0; v < valueCount; v++) {
+      valuesOfSlot[fill[slotOfValue[v]]++] = v;
+    }
+
+    boolean[] renamed = new boolean[valueCount];
+    // 块内倒序扫描时的活跃集合：跨块的值按编号存放在 live 中，块内的值存放在 localLive 中，扫描完一块后 localLive 恢复为全 false
+    boolean[] localLive = new boolean[valueCount];
+    for (int b : cfg.getRpo()) {
+      long[] live = liveOut[b].clone();
+      for (int i = cfg.blockEnd(b); i >= cfg.getBlockStart()[b]; i--) {
+        if (def[i] >= 0) {
+          setLive(crossing, live, localLive, def[i], false);
+          resolveInterference(def[i], crossing, live, localLive, slotStart, valuesOfSlot, renamed);
+        }
+        if (use1[i] >= 0) {
+          setLive(crossing, live, localLive, use1[i], true);
+        }
+        if (use2[i] >= 0) {
+          setLive(crossing, live, localLive, use2[i], true);
+        }
+      }
+      // 本块 φ 定义的值没有对应的四元式定值，扫描后仍留在 localLive 中
+      for (int p = phiStart[b]; p < phiStart[b + 1]; p++) {
+        localLive[phiValue(p)] = false;
+      }
+      // φ 在每条入边的末尾写入，此时块入口活跃的同名值会被覆盖
+      for (int p = phiStart[b]; p < phiStart[b + 1]; p++) {
+        resolveInterference(phiValue(p), crossing, liveIn[b], localLive, slotStart, valuesOfSlot, renamed);
+      }
+    }
+
+    int[] name = new int[valueCount];
+    int nextTemp = -1;
+    for (int v = 0; v < valueCount; v++) {
+      if (renamed[v]) {
+        if (nextTemp < 0) {
+          nextTemp = optimizer.nextTempNumber(quads);
+        }
+        name[v] = quads.operandId(OperandIndex.TEMP_PREFIX + nextTemp++);
+      } else {
+        name[v] = index.operandOf(slotOfValue[v]);
+      }
+    }
+    return name;
+  }
+
+  private static void setLive(int[] crossing, long[] live, boolean[] localLive, int v, boolean value) {
+    if (crossing[v] == NONE) {
+      localLive[v] = value;
+    } else if (value) {
+      Bits.set(live, crossing[v]);
+    } else {
+      Bits.clear(live, crossing[v]);
+    }
+  }
+
+  // 值 w 被写入时活跃的同名值与其冲突：改名活跃的一方，入口值除外
+  private void resolveInterference(int w, int[] crossing, long[] live, boolean[] localLive, int[] slotStart, int[] valuesOfSlot, boolean[] renamed) {
+    if (renamed[w]) {
+      return;
+    }
+    int s = slotOfValue[w];
+    for (int k = slotStart[s]; k < slotStart[s + 1]; k++) {
+      int v = valuesOfSlot[k];
+      boolean isLive = crossing[v] == NONE ? localLive[v] : Bits.get(live, crossing[v]);
+      if (v == w || renamed[v] || !isLive) {
+        continue;
+      }
+      if (v < slots) {
+        renamed[w] = true;
+        return;
+      }
+      renamed[v] = true;
+    }
+  }
+
+  // 把 φ 改为前驱边上的复制
+  private QuadTable insertCopies(int[] name) {
+    QuadEditor editor = new QuadEditor(quads);
+    int scratch = -1;
+    for (int b : cfg.getRpo()) {
+      if (phiStart[b] == phiStart[b + 1]) {
+        continue;
+      }
+      int first = cfg.getBlockStart()[b];
+      for (int e = cfg.getPredStart()[b]; e < cfg.getPredStart()[b + 1]; e++) {
+        int pred = cfg.getPred()[e];
+        if (!cfg.isReachable(pred)) {
+          continue;
+        }
+        int k = e - cfg.getPredStart()[b];
+        int m = 0;
+        int[] dst = new int[phiStart[b + 1] - phiStart[b]];
+        int[] src = new int[dst.length];
+        for (int p = phiStart[b]; p < phiStart[b + 1]; p++) {
+          int arg = phiArgs[phiArgStart[p] + k];
+          if (arg >= 0 && name[arg] != name[phiValue(p)]) {
+            dst[m] = name[phiValue(p)];
+            src[m++] = name[arg];
+          }
+        }
+        if (m == 0) {
+          continue;
+        }
+        if (scratch < 0) {
+          scratch = optimizer.newTemp(quads);
+        }
+        int[] copies = sequentialize(dst, src, m, scratch);
+
+        int last = cfg.blockEnd(pred);
+        OpCode op = quads.getOp(last);
+        if (pred == b - 1 && op != OpCode.J) {
+          // 顺序落入 b 的边。控制流图不记录重复的边，pred 末尾的条件跳转若也以 b 为目标，与顺序落入合为这一条边：
+          // 跳向下一条四元式的跳转在 QuadEditor 中视同顺序落入，同样经过这些复制
+          for (int c = 0; c < copies.length; c += 2) {
+            editor.insertOnFallThrough(first, OpCode.ASSIGN, copies[c + 1], QuadTable.NONE, copies[c]);
+          }
+        } else if (op == OpCode.J) {
+          for (int c = 0; c < copies.length; c += 2) {
+            editor.insertBefore(last, OpCode.ASSIGN, copies[c + 1], QuadTable.NONE, copies[c]);
+          }
+        } else {
+          // 条件跳转到 b 的关键边：条件取反跳过复制，复制之后再跳到 b
+          quads.setOp(last, op.negate());
+          quads.setTarget(last, last + 1);
+          for (int c = 0; c < copies.length; c += 2) {
+            editor.insertAfter(last, OpCode.ASSIGN, copies[c + 1], QuadTable.NONE, copies[c]);
+          }
+          editor.insertAfter(last, OpCode.J, QuadTable.NONE, QuadTable.NONE, first);
+        }
+      }
+    }
+    return editor.build();
+  }
+
+  /**
+   * 并行复制的串行化
+   *
+   * @param dst     目标操作数，互不相同
+   * @param src     源操作数
+   * @param m       复制条数
+   * @param scratch 打断循环依赖用的临时变量
+   * @return 依次执行的复制 {目标, 源, 目标, 源, ...}
+   */
+  static int[] sequentialize(int[] dst, int[] src, int m, int scratch) {
+    int[] out = new int[4 * m];
+    int count = 0;
+    boolean[] done = new boolean[m];
+    int remaining = m;
+    while (remaining > 0) {
+      boolean progress = false;
+      for (int c = 0; c < m; c++) {
+        if (done[c] || isRead(dst[c], src, done, m)) {
+          continue;
+        }
+        out[count++] = dst[c];
+        out[count++] = src[c];
+        done[c] = true;
+        remaining--;
+        progress = true;
+      }
+      if (!progress) {
+        // 剩余的复制都在环上：先保存一个目标的旧值
+        int c = 0;
+        while (done[c]) {
+          c++;
+        }
+        out[count++] = scratch;
+        out[count++] = dst[c];
+        for (int r = 0; r < m; r++) {
+          if (!done[r] && src[r] == dst[c]) {
+            src[r] = scratch;
+          }
+        }
+      }
+    }
+    return Arrays.copyOf(out, count);
+  }
+
+  private static boolean isRead(int operand, int[] src, boolean[] done, int m) {
+    for (int c = 0; c < m; c++) {
+      if (!done[c] && src[c] == operand) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,73 @@
+package cn.study.compilerclass.ir;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * 临时变量的存储单元复用
+ * <p>
+ * 汇编生成把 {@code $_tN} 映射到附加段的 {@code es:[N*2]}，附加段默认 1024 字节，按最大的临时变量序号扩大，超过一个段（64KB）时无法生成
+ * （见 {@code AssemblyGenerator.extendedSize}）；编号越小，附加段越小、越不容易越界。本遍按{@link LiveIntervals 活跃区间}给临时变量重新编号，
+ * 区间不相交的临时变量共用一个编号。区间图按左端点排序贪心着色即为最优，每次取最小的空闲编号。<br/>
+ * 本遍之后临时变量不再只定值一次，必须作为最后一个优化遍执行。
+ */
+class TempAllocation {
+
+  private final Optimizer optimizer;
+
+  TempAllocation(Optimizer optimizer) {
+    this.optimizer = optimizer;
+  }
+
+  QuadTable run(QuadTable quads) {
+    ControlFlowGraph cfg = new ControlFlowGraph(quads);
+    Liveness liveness = new Liveness(cfg, optimizer.index(quads));
+    OperandIndex index = liveness.getIndex();
+    LiveIntervals intervals = new LiveIntervals(cfg, liveness);
+    int first = index.variableCount();
+    int temps = index.size() - first;
+    if (temps == 0) {
+      return quads;
+    }
+
+    // 1. 按左端点贪心着色
+    Integer[] order = new Integer[temps];
+    for (int t = 0; t < temps; t++) {
+      order[t] = first + t;
+    }
+    Arrays.sort(order, (a, b) -> Integer.compare(intervals.start(a), intervals.start(b)));
+    int[] color = new int[index.size()];
+    int colors = 0;
+    PriorityQueue<Integer> free = new PriorityQueue<>();
+    PriorityQueue<Integer> active = new PriorityQueue<>((a, b) -> Integer.compare(intervals.end(a), intervals.end(b)));
+    for (int slot : order) {
+      if (intervals.isEmpty(slot)) {
+        continue; // 只留在操作数池中、已不被任何四元式读写
+      }
+      while (!active.isEmpty() && intervals.end(active.peek()) < intervals.start(slot)) {
+        free.add(color[active.poll()]);
+      }
+      color[slot] = free.isEmpty() ? colors++ : free.poll();
+      active.add(slot);
+    }
+
+    // 2. 改写操作数
+    int[] renamed = new int[quads.operandCount()];
+    for (int id = 0; id < renamed.length; id++) {
+      renamed[id] = id;
+    }
+    for (int slot = first; slot < index.size(); slot++) {
+      if (!intervals.isEmpty(slot)) {
+        renamed[index.operandOf(slot)] = quads.operandId(OperandIndex.TEMP_PREFIX + color[slot]);
+      }
+    }
+    for (int i = 0; i < quads.size(); i++) {
+      quads.setArg1(i, renamed[quads.getArg1(i)]);
+      quads.setArg2(i, renamed[quads.getArg2(i)]);
+      if (!quads.getOp(i).isJump()) {
+        quads.setResult(i, renamed[quads.getResult(i)]);
+      }
+    }
+    return quads;
+  }
+}
@@ -0,0 +1,87 @@
+package cn.study.compilerclass.ir;
+
+import java.util.HashMap;
+
+/**
+ * 基本块内的局部值编号（公共子表达式删除）
+ * <p>
+ * 块内为每个操作数维护值编号，字面量按值编号，运算按 (操作码, 值编号1, 值编号2) 查表（可交换运算的操作数排序）。若同一表达式已由某个存储单元保存且其值未被改写，
+ * 则把本次计算改写为对该单元的复制，由后续的复制传播与死代码删除消去。
+ */
+class ValueNumbering {
+
+  private final HashMap<Integer, Integer> operandVn = new HashMap<>(); // 操作数编号 -> 值编号
+  private final HashMap<Integer, Integer> literalVn = new HashMap<>(); // 字面量值 -> 值编号
+  private final HashMap<Long, int[]> exprs = new HashMap<>();          // 表达式键 -> {值编号, 保存该值的操作数}
+  private int nextVn;
+
+  QuadTable run(QuadTable quads) {
+    ControlFlowGraph cfg = new ControlFlowGraph(quads);
+    for (int b = 0; b < cfg.getBlockCount(); b++) {
+      operandVn.clear();
+      literalVn.clear();
+      exprs.clear();
+      nextVn = 1;
+      for (int i = cfg.getBlockStart()[b]; i <= cfg.blockEnd(b); i++) {
+        number(quads, i);
+      }
+    }
+    return quads;
+  }
+
+  private void number(QuadTable quads, int i) {
+    OpCode op = quads.getOp(i);
+    if (!op.definesResult()) {
+      return;
+    }
+    int result = quads.getResult(i);
+    if (op == OpCode.ASSIGN) {
+      operandVn.put(result, vnOf(quads, quads.getArg1(i)));
+      return;
+    }
+    if (op == OpCode.CALL) {
+      operandVn.put(result, nextVn++);
+      return;
+    }
+    long a = vnOf(quads, quads.getArg1(i));
+    long b = op.isBinary() ? vnOf(quads, quads.getArg2(i)) : 0;
+    if (op.isCommutative() && a > b) {
+      long t = a;
+      a = b;
+      b = t;
+    }
+    long key = ((long) op.ordinal() << 50) | (a << 25) | b;
+    int[] known = exprs.get(key);
+    if (known != null && operandVn.getOrDefault(known[1], -1) == known[0] && known[1] != result) {
+      // 值仍保存在 known[1] 中，改写为复制
+      quads.setOp(i, OpCode.ASSIGN);
+      quads.setArg1(i, known[1]);
+      quads.setArg2(i, QuadTable.NONE);
+      operandVn.put(result, known[0]);
+      return;
+    }
+    int vn = known != null ? known[0] : nextVn++;
+    exprs.put(key, new int[]{vn, result});
+    operandVn.put(result, vn);
+  }
+
+  private int vnOf(QuadTable quads, int operand) {
+    Integer vn = operandVn.get(operand);
+    if (vn != null) {
+      return vn;
+    }
+    Integer value = Literals.parse(quads.operandName(operand));
+    if (value != null) {
+      vn = literalVn.get(value);
+      if (vn == null) {
+        vn = nextVn++;
+        literalVn.put(value, vn);
+      }
+      // 不登记到 operandVn：字面量操作数不会被改写
+      return vn;
+    }
+    vn = nextVn++;
+    operandVn.put(operand, vn);
+    return vn;
+  }
+}
@@ -0,0 +1,156 @@
+package cn.study.compilerclass.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+
+/**
+ * 只含一个静态方法的类文件
+ * <p>
+ * 类文件版本取 49（Java 5）：该版本不要求 StackMapTable，由虚拟机按类型推导校验分支，免去计算栈帧。常量池按内容去重。
+ */
+final class ClassWriter {
+
+  private static final int VERSION = 49;
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_STATIC = 0x0008;
+  private static final int ACC_SUPER = 0x0020;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+  private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+  private final DataOutputStream poolOut = new DataOutputStream(pool);
+  private final HashMap<String, Integer> entries = new HashMap<>(); // 常量的内容 -> 常量池序号
+  private int poolCount = 1;
+
+  private final String name;
+
+  /**
+   * @param name 类的内部名称，如 {@code QuadProgram}
+   */
+  ClassWriter(String name) {
+    this.name = name;
+  }
+
+  int utf8(String text) {
+    return constant("U" + text, out -> {
+      out.writeByte(CONSTANT_UTF8);
+      out.writeUTF(text);
+    });
+  }
+
+  int classRef(String internalName) {
+    int nameIndex = utf8(internalName);
+    return constant("C" + internalName, out -> {
+      out.writeByte(CONSTANT_CLASS);
+      out.writeShort(nameIndex);
+    });
+  }
+
+  int string(String text) {
+    int textIndex = utf8(text);
+    return constant("S" + text, out -> {
+      out.writeByte(CONSTANT_STRING);
+      out.writeShort(textIndex);
+    });
+  }
+
+  int methodRef(String owner, String method, String descriptor) {
+    return memberRef(CONSTANT_METHODREF, owner, method, descriptor);
+  }
+
+  int interfaceMethodRef(String owner, String method, String descriptor) {
+    return memberRef(CONSTANT_INTERFACE_METHODREF, owner, method, descriptor);
+  }
+
+  private int memberRef(int tag, String owner, String member, String descriptor) {
+    int ownerIndex = classRef(owner);
+    int memberName = utf8(member);
+    int memberType = utf8(descriptor);
+    int nameAndType = constant("N" + member + ":" + descriptor, out -> {
+      out.writeByte(CONSTANT_NAME_AND_TYPE);
+      out.writeShort(memberName);
+      out.writeShort(memberType);
+    });
+    return constant(tag + owner + "." + member + ":" + descriptor, out -> {
+      out.writeByte(tag);
+      out.writeShort(ownerIndex);
+      out.writeShort(nameAndType);
+    });
+  }
+
+  private interface Entry {
+
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private int constant(String key, Entry entry) {
+    Integer index = entries.get(key);
+    if (index != null) {
+      return index;
+    }
+    try {
+      entry.write(poolOut);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // ByteArrayOutputStream 不会抛出
+    }
+    entries.put(key, poolCount);
+    return poolCount++;
+  }
+
+  /**
+   * 生成类文件
+   *
+   * @param method     方法名
+   * @param descriptor 方法描述符
+   * @param code       方法体
+   * @param maxStack   操作数栈深度上限
+   * @param maxLocals  局部变量个数（long 占两个）
+   * @return 类文件的字节
+   */
+  byte[] toByteArray(String method, String descriptor, byte[] code, int maxStack, int maxLocals) {
+    int thisClass = classRef(name);
+    int superClass = classRef("java/lang/Object");
+    int methodName = utf8(method);
+    int methodType = utf8(descriptor);
+    int codeName = utf8("Code");
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(code.length + pool.size() + 64);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(VERSION);
+      out.writeShort(poolCount);
+      pool.writeTo(out);
+      out.writeShort(ACC_PUBLIC | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(0); // 接口
+      out.writeShort(0); // 字段
+      out.writeShort(1); // 方法
+      out.writeShort(ACC_PUBLIC | ACC_STATIC);
+      out.writeShort(methodName);
+      out.writeShort(methodType);
+      out.writeShort(1); // 方法属性：Code
+      out.writeShort(codeName);
+      out.writeInt(12 + code.length);
+      out.writeShort(maxStack);
+      out.writeShort(maxLocals);
+      out.writeInt(code.length);
+      out.write(code);
+      out.writeShort(0); // 异常表
+      out.writeShort(0); // Code 的属性
+      out.writeShort(0); // 类属性
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // ByteArrayOutputStream 不会抛出
+    }
+  }
+}
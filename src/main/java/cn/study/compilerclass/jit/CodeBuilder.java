@@ -0,0 +1,225 @@
+package cn.study.compilerclass.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+/**
+ * 方法体字节码的拼装
+ * <p>
+ * 分支指令先写入占位的 16 位偏移，标号绑定位置后在 {@link #toByteArray()} 中统一回填。16 位偏移只能表示 ±32767 字节，超出范围的
+ * {@code goto} 改为 {@code goto_w}，条件分支改为相反条件跳过一条 {@code goto_w}；改写会使其后的代码后移，因此反复检查直到没有新的远分支。
+ */
+final class CodeBuilder {
+
+  // 用到的 JVM 指令
+  static final int ICONST_0 = 0x03;
+  static final int LCONST_0 = 0x09;
+  static final int LCONST_1 = 0x0A;
+  static final int BIPUSH = 0x10;
+  static final int SIPUSH = 0x11;
+  static final int LDC_W = 0x13;
+  static final int ILOAD = 0x15;
+  static final int LLOAD = 0x16;
+  static final int ALOAD = 0x19;
+  static final int ISTORE = 0x36;
+  static final int LSTORE = 0x37;
+  static final int POP = 0x57;
+  static final int DUP2 = 0x5C;
+  static final int IADD = 0x60;
+  static final int LADD = 0x61;
+  static final int ISUB = 0x64;
+  static final int IMUL = 0x68;
+  static final int IDIV = 0x6C;
+  static final int IREM = 0x70;
+  static final int ISHL = 0x78;
+  static final int IAND = 0x7E;
+  static final int I2C = 0x92;
+  static final int I2S = 0x93;
+  static final int LCMP = 0x94;
+  static final int IFEQ = 0x99;
+  static final int IFNE = 0x9A;
+  static final int IFGT = 0x9D;
+  static final int IF_ICMPEQ = 0x9F;
+  static final int IF_ICMPNE = 0xA0;
+  static final int IF_ICMPLT = 0xA1;
+  static final int IF_ICMPGE = 0xA2;
+  static final int IF_ICMPGT = 0xA3;
+  static final int IF_ICMPLE = 0xA4;
+  static final int GOTO = 0xA7;
+  static final int GOTO_W = 0xC8;
+  static final int IRETURN = 0xAC;
+  static final int INVOKESTATIC = 0xB8;
+  static final int INVOKEINTERFACE = 0xB9;
+
+  // 方法体长度上限
+  static final int MAX_CODE_LENGTH = 65535;
+
+  /**
+   * 跳转目标
+   */
+  static final class Label {
+
+    private int position = -1;
+  }
+
+  // 待回填的分支：目标、操作码、分支指令在短分支布局中的位置
+  private record Fixup(Label label, int opcode, int instruction) {
+  }
+
+  // 短分支指令的长度；改为远分支后 goto 变为 goto_w（5 字节），条件分支变为反条件分支加 goto_w（8 字节）
+  private static final int SHORT_BRANCH = 3;
+  private static final int GOTO_W_LENGTH = 5;
+
+  private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+  private final ArrayList<Fixup> fixups = new ArrayList<>();
+
+  int length() {
+    return code.size();
+  }
+
+  void op(int opcode) {
+    code.write(opcode);
+  }
+
+  void u1(int value) {
+    code.write(value);
+  }
+
+  void u2(int value) {
+    code.write(value >>> 8);
+    code.write(value);
+  }
+
+  // 压入 16 位范围内的整数常量
+  void push(int value) {
+    if (value >= -1 && value <= 5) {
+      op(ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      op(BIPUSH);
+      u1(value);
+    } else {
+      op(SIPUSH);
+      u2(value);
+    }
+  }
+
+  // 局部变量编号超过 255 时使用 wide 前缀
+  void local(int opcode, int slot) {
+    if (slot > 255) {
+      op(0xC4); // wide
+      op(opcode);
+      u2(slot);
+    } else {
+      op(opcode);
+      u1(slot);
+    }
+  }
+
+  void branch(int opcode, Label label) {
+    fixups.add(new Fixup(label, opcode, code.size()));
+    op(opcode);
+    u2(0);
+  }
+
+  void bind(Label label) {
+    label.position = code.size();
+  }
+
+  /**
+   * @return 回填分支偏移后的字节码
+   * @throws IllegalStateException 方法体超过 64KB 或存在未绑定的标号
+   */
+  byte[] toByteArray() {
+    for (Fixup fixup : fixups) {
+      if (fixup.label.position < 0) {
+        throw new IllegalStateException("存在未绑定的标号");
+      }
+    }
+    byte[] original = code.toByteArray();
+    int count = fixups.size();
+    // growth[k]：第 k 个分支之前（不含）的全部远分支使代码后移的字节数，growth[count] 为总增量
+    boolean[] far = new boolean[count];
+    int[] growth = new int[count + 1];
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int k = 0; k < count; k++) {
+        growth[k + 1] = growth[k] + (far[k] ? farLength(fixups.get(k)) - SHORT_BRANCH : 0);
+      }
+      for (int k = 0; k < count; k++) {
+        if (!far[k]) {
+          Fixup fixup = fixups.get(k);
+          int offset = moved(fixup.label.position, growth) - (fixup.instruction + growth[k]);
+          if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+            far[k] = true;
+            changed = true;
+          }
+        }
+      }
+    }
+    int length = original.length + growth[count];
+    if (length > MAX_CODE_LENGTH) {
+      throw new IllegalStateException(String.format("字节码长度 %d 超过单个方法的上限 %d", length, MAX_CODE_LENGTH));
+    }
+
+    byte[] bytes = new byte[length];
+    int from = 0;
+    for (int k = 0; k < count; k++) {
+      Fixup fixup = fixups.get(k);
+      int at = fixup.instruction + growth[k];
+      System.arraycopy(original, from, bytes, from + growth[k], fixup.instruction - from);
+      from = fixup.instruction + SHORT_BRANCH;
+      int target = moved(fixup.label.position, growth);
+      int opcode = fixup.opcode;
+      if (!far[k]) {
+        bytes[at] = (byte) opcode;
+        put2(bytes, at + 1, target - at);
+      } else if (opcode == GOTO) {
+        bytes[at] = (byte) GOTO_W;
+        put4(bytes, at + 1, target - at);
+      } else {
+        // 相反条件跳过其后的 goto_w
+        bytes[at] = (byte) negate(opcode);
+        put2(bytes, at + 1, SHORT_BRANCH + GOTO_W_LENGTH);
+        bytes[at + SHORT_BRANCH] = (byte) GOTO_W;
+        put4(bytes, at + SHORT_BRANCH + 1, target - (at + SHORT_BRANCH));
+      }
+    }
+    System.arraycopy(original, from, bytes, from + growth[count], original.length - from);
+    return bytes;
+  }
+
+  private static int farLength(Fixup fixup) {
+    return fixup.opcode == GOTO ? GOTO_W_LENGTH : SHORT_BRANCH + GOTO_W_LENGTH;
+  }
+
+  // 短分支布局中的位置在改写后的位置：加上其前全部分支的增量（位于 position 处的分支本身不计）
+  private int moved(int position, int[] growth) {
+    int low = 0;
+    int high = fixups.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (fixups.get(mid).instruction < position) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return position + growth[low];
+  }
+
+  // 条件取反的 if 指令：if 系列指令按 相等/不等、小于/大于等于、大于/小于等于 两两相邻
+  static int negate(int branch) {
+    return ((branch - IFEQ) ^ 1) + IFEQ;
+  }
+
+  private static void put2(byte[] bytes, int at, int value) {
+    bytes[at] = (byte) (value >>> 8);
+    bytes[at + 1] = (byte) value;
+  }
+
+  private static void put4(byte[] bytes, int at, int value) {
+    put2(bytes, at, value >>> 16);
+    put2(bytes, at + 2, value);
+  }
+}
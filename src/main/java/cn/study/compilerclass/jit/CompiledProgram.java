@@ -0,0 +1,71 @@
+package cn.study.compilerclass.jit;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.util.function.IntSupplier;
+
+/**
+ * 由 {@link JitCompiler} 生成并加载的程序
+ */
+public final class CompiledProgram {
+
+  // 默认允许的向回跳转次数（循环迭代次数之和），防止死循环
+  public static final long DEFAULT_MAX_JUMPS = 1_000_000_000L;
+
+  /**
+   * 一次运行的结果
+   *
+   * @param nanos      运行用时（纳秒），不含编译
+   * @param stopReason 异常停止的原因，正常结束时为 null
+   */
+  public record Result(long nanos, String stopReason) {
+
+    public String summary() {
+      return String.format("运行用时 %.3f ms，%s", nanos / 1e6, stopReason == null ? "正常结束" : stopReason);
+    }
+  }
+
+  private final MethodHandle handle;
+  private final int classSize;
+  private long maxJumps = DEFAULT_MAX_JUMPS;
+
+  CompiledProgram(MethodHandle handle, int classSize) {
+    this.handle = handle;
+    this.classSize = classSize;
+  }
+
+  // 生成的类文件字节数
+  public int getClassSize() {
+    return classSize;
+  }
+
+  public void setMaxJumps(long maxJumps) {
+    this.maxJumps = maxJumps;
+  }
+
+  /**
+   * 从头运行程序，变量每次都从初值开始
+   *
+   * @param input  input() 读取的数据
+   * @param output put/putc/putb 的输出位置
+   * @return 运行结果
+   * @throws IOException 写入 output 时出错
+   */
+  public Result run(IntSupplier input, Appendable output) throws IOException {
+    long start = System.nanoTime();
+    int status;
+    try {
+      status = (int) handle.invokeExact(input, output, maxJumps);
+    } catch (IOException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("运行生成的程序失败", e); // 生成的方法不会抛出其他受检异常
+    }
+    long nanos = System.nanoTime() - start;
+    return new Result(nanos, switch (status) {
+      case JitCompiler.EXIT_NORMAL -> null;
+      case JitCompiler.EXIT_JUMP_LIMIT -> String.format("超过向回跳转次数上限 %d", maxJumps);
+      default -> String.format("除法溢出（第 %d 条四元式）", status);
+    });
+  }
+}
@@ -0,0 +1,393 @@
+package cn.study.compilerclass.jit;
+
+import cn.study.compilerclass.ir.Literals;
+import cn.study.compilerclass.ir.OpCode;
+import cn.study.compilerclass.ir.OperandIndex;
+import cn.study.compilerclass.ir.Optimizer;
+import cn.study.compilerclass.ir.QuadTable;
+import cn.study.compilerclass.jit.CodeBuilder.Label;
+import cn.study.compilerclass.model.ConstTableEntry;
+import cn.study.compilerclass.model.VariableTableEntry;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * 把四元式表编译为 JVM 类
+ * <p>
+ * 整个程序生成一个静态方法 {@code int run(IntSupplier input, Appendable output, long maxJumps)}：变量与临时变量成为 int 局部变量，
+ * 字面量与常量直接压栈，{@code j}、{@code jz}、比较后条件跳转等成为 JVM 分支，input/put/putc/putb 直接调用接口方法。语义与
+ * {@link cn.study.compilerclass.ir.Interpreter 解释器}一致：结果按 16 位回绕，除法溢出时停止。生成的类由一次性的类加载器加载，之后交给
+ * HotSpot 即时编译为本机代码。
+ * <p>
+ * 方法的返回值：{@link #EXIT_NORMAL} 表示正常结束，{@link #EXIT_JUMP_LIMIT} 表示向回跳转的次数超过上限，非负数为发生除法溢出的四元式序号。
+ */
+public final class JitCompiler {
+
+  static final int EXIT_NORMAL = -1;
+  static final int EXIT_JUMP_LIMIT = -2;
+
+  private static final String CLASS_NAME = "QuadProgram";
+  private static final String METHOD_NAME = "run";
+  private static final String DESCRIPTOR = "(Ljava/util/function/IntSupplier;Ljava/lang/Appendable;J)I";
+  static final MethodType METHOD_TYPE = MethodType.methodType(int.class, IntSupplier.class, Appendable.class, long.class);
+
+  // 局部变量分配：参数在前，随后是计数器、实参与各存储单元
+  private static final int INPUT_SLOT = 0;
+  private static final int OUTPUT_SLOT = 1;
+  private static final int MAX_JUMPS_SLOT = 2; // long
+  private static final int JUMPS_SLOT = 4;     // long
+  private static final int PARAM_SLOT = 6;
+  private static final int FIRST_STORAGE_SLOT = 7;
+  private static final int MAX_STACK = 6;
+
+  private final QuadTable quads;
+  private final int[] slotOf;  // 操作数编号 -> 局部变量编号，字面量与常量为 -1
+  private final int[] valueOf; // 操作数编号 -> 字面量与常量的值、存储单元的初值
+  private final CodeBuilder code = new CodeBuilder();
+  private final ClassWriter writer = new ClassWriter(CLASS_NAME);
+  private final Label[] labels;
+  private final Label jumpLimit = new Label();
+  private int locals = FIRST_STORAGE_SLOT;
+
+  private JitCompiler(QuadTable quads, List<VariableTableEntry> variableTable, List<ConstTableEntry> constTable) {
+    this.quads = quads;
+    Optimizer symbols = new Optimizer(variableTable, constTable);
+    int count = quads.operandCount();
+    this.slotOf = new int[count];
+    this.valueOf = new int[count];
+    Arrays.fill(slotOf, -1);
+    for (int id = 1; id < count; id++) {
+      String name = quads.operandName(id);
+      boolean storage = symbols.isVariable(name) || OperandIndex.isTemp(name);
+      Integer value = Literals.parse(symbols.isVariable(name) ? symbols.initialOf(name) : symbols.literalOf(name));
+      valueOf[id] = value == null ? 0 : value;
+      if (storage) {
+        slotOf[id] = locals++;
+      }
+    }
+    this.labels = new Label[quads.size() + 1];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = new Label();
+    }
+  }
+
+  /**
+   * 编译四元式表并加载生成的类
+   *
+   * @param quads         四元式表
+   * @param variableTable 变量表，提供变量的初值
+   * @param constTable    常量表
+   * @return 可重复运行的程序
+   * @throws IllegalArgumentException 调用了不支持的函数，或程序过大超出单个 JVM 方法的限制
+   * @throws IllegalStateException    生成的类无法加载
+   */
+  public static CompiledProgram compile(QuadTable quads, List<VariableTableEntry> variableTable, List<ConstTableEntry> constTable) {
+    if (quads.size() > Short.MAX_VALUE) {
+      throw new IllegalArgumentException(String.format("四元式有 %d 条，超出单个 JVM 方法的限制", quads.size()));
+    }
+    byte[] bytes = new JitCompiler(quads, variableTable, constTable).generate();
+    Class<?> type = new Loader(JitCompiler.class.getClassLoader()).define(bytes);
+    try {
+      MethodHandle handle = MethodHandles.publicLookup().findStatic(type, METHOD_NAME, METHOD_TYPE);
+      return new CompiledProgram(handle, bytes.length);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      throw new IllegalStateException("加载生成的类失败", e); // 校验失败（VerifyError）说明生成的字节码有误
+    }
+  }
+
+  private byte[] generate() {
+    // 存储单元装入初值，同时满足校验器对局部变量先赋值后使用的要求
+    code.op(CodeBuilder.LCONST_0);
+    code.local(CodeBuilder.LSTORE, JUMPS_SLOT);
+    code.op(CodeBuilder.ICONST_0);
+    code.local(CodeBuilder.ISTORE, PARAM_SLOT);
+    for (int id = 1; id < slotOf.length; id++) {
+      if (slotOf[id] >= 0) {
+        code.push(valueOf[id]);
+        code.local(CodeBuilder.ISTORE, slotOf[id]);
+      }
+    }
+    for (int i = 0; i < quads.size(); i++) {
+      code.bind(labels[i]);
+      quad(i);
+    }
+    code.bind(labels[quads.size()]);
+    exit(EXIT_NORMAL);
+    code.bind(jumpLimit);
+    exit(EXIT_JUMP_LIMIT);
+    byte[] body;
+    try {
+      body = code.toByteArray();
+    } catch (IllegalStateException e) {
+      throw new IllegalArgumentException("程序过大，无法编译为单个 JVM 方法: " + e.getMessage(), e);
+    }
+    return writer.toByteArray(METHOD_NAME, DESCRIPTOR, body, MAX_STACK, locals);
+  }
+
+  private void quad(int index) {
+    OpCode op = quads.getOp(index);
+    int a = quads.getArg1(index);
+    int b = quads.getArg2(index);
+    switch (op) {
+      case MAIN -> {
+      }
+      case QUIT -> exit(EXIT_NORMAL);
+      case ASSIGN -> {
+        load(a);
+        store(quads.getResult(index));
+      }
+      case ADD -> arithmetic(CodeBuilder.IADD, a, b, index);
+      case SUB -> arithmetic(CodeBuilder.ISUB, a, b, index);
+      case MUL -> arithmetic(CodeBuilder.IMUL, a, b, index);
+      case DIV, MOD -> division(op == OpCode.DIV, a, b, index);
+      case SHL -> {
+        load(a);
+        load(b);
+        code.push(15);
+        code.op(CodeBuilder.IAND);
+        code.op(CodeBuilder.ISHL);
+        code.op(CodeBuilder.I2S);
+        store(quads.getResult(index));
+      }
+      case LT, GT, LE, GE, EQ, NE -> {
+        load(a);
+        load(b);
+        Label isTrue = new Label();
+        code.branch(compareBranch(op.toCompareJump()), isTrue);
+        bool(isTrue, index);
+      }
+      case AND -> {
+        Label isFalse = new Label();
+        Label done = new Label();
+        load(a);
+        code.branch(CodeBuilder.IFEQ, isFalse);
+        load(b);
+        code.branch(CodeBuilder.IFEQ, isFalse);
+        code.push(1);
+        code.branch(CodeBuilder.GOTO, done);
+        code.bind(isFalse);
+        code.push(0);
+        code.bind(done);
+        store(quads.getResult(index));
+      }
+      case OR -> {
+        Label isTrue = new Label();
+        load(a);
+        code.branch(CodeBuilder.IFNE, isTrue);
+        load(b);
+        code.branch(CodeBuilder.IFNE, isTrue);
+        bool(isTrue, index);
+      }
+      case NOT -> {
+        Label isTrue = new Label();
+        load(a);
+        code.branch(CodeBuilder.IFEQ, isTrue);
+        bool(isTrue, index);
+      }
+      // 内置函数只有一个参数，实参保存在一个局部变量中即可
+      case PARA -> {
+        load(a);
+        code.local(CodeBuilder.ISTORE, PARAM_SLOT);
+      }
+      case CALL -> call(index);
+      case J -> jump(-1, index);
+      case JZ -> {
+        load(a);
+        jump(CodeBuilder.IFEQ, index);
+      }
+      case JNZ -> {
+        load(a);
+        jump(CodeBuilder.IFNE, index);
+      }
+      case JLT, JGT, JLE, JGE, JEQ, JNE -> {
+        load(a);
+        load(b);
+        jump(compareBranch(op), index);
+      }
+    }
+  }
+
+  // 比较后条件跳转对应的 if_icmp 指令
+  private static int compareBranch(OpCode op) {
+    return switch (op) {
+      case JLT -> CodeBuilder.IF_ICMPLT;
+      case JGT -> CodeBuilder.IF_ICMPGT;
+      case JLE -> CodeBuilder.IF_ICMPLE;
+      case JGE -> CodeBuilder.IF_ICMPGE;
+      case JEQ -> CodeBuilder.IF_ICMPEQ;
+      case JNE -> CodeBuilder.IF_ICMPNE;
+      default -> throw new IllegalArgumentException("不是比较后条件跳转: " + op);
+    };
+  }
+
+  /**
+   * 跳转到第 index 条四元式的目标；向回跳转（循环）时先累计次数，超过上限则停止
+   *
+   * @param branch 条件分支指令，条件操作数已压栈；无条件跳转传 -1
+   */
+  private void jump(int branch, int index) {
+    int target = quads.getTarget(index);
+    if (target > index) {
+      code.branch(branch < 0 ? CodeBuilder.GOTO : branch, labels[target]);
+      return;
+    }
+    Label skip = new Label();
+    if (branch >= 0) {
+      code.branch(CodeBuilder.negate(branch), skip);
+    }
+    code.local(CodeBuilder.LLOAD, JUMPS_SLOT);
+    code.op(CodeBuilder.LCONST_1);
+    code.op(CodeBuilder.LADD);
+    code.op(CodeBuilder.DUP2);
+    code.local(CodeBuilder.LSTORE, JUMPS_SLOT);
+    code.local(CodeBuilder.LLOAD, MAX_JUMPS_SLOT);
+    code.op(CodeBuilder.LCMP);
+    code.branch(CodeBuilder.IFGT, jumpLimit);
+    code.branch(CodeBuilder.GOTO, labels[target]);
+    code.bind(skip);
+  }
+
+  private void arithmetic(int instruction, int a, int b, int index) {
+    load(a);
+    load(b);
+    code.op(instruction);
+    code.op(CodeBuilder.I2S);
+    store(quads.getResult(index));
+  }
+
+  // 除数为零或 -32768 / -1 时停止，除数为其他常量时省去检查
+  private void division(boolean quotient, int a, int b, int index) {
+    boolean constant = slotOf[b] < 0;
+    if (!constant || valueOf[b] == 0) {
+      Label nonZero = new Label();
+      load(b);
+      code.branch(CodeBuilder.IFNE, nonZero);
+      exit(index);
+      code.bind(nonZero);
+    }
+    if (!constant || valueOf[b] == -1) {
+      Label safe = new Label();
+      load(a);
+      code.push(Short.MIN_VALUE);
+      code.branch(CodeBuilder.IF_ICMPNE, safe);
+      load(b);
+      code.push(-1);
+      code.branch(CodeBuilder.IF_ICMPNE, safe);
+      exit(index);
+      code.bind(safe);
+    }
+    load(a);
+    load(b);
+    code.op(quotient ? CodeBuilder.IDIV : CodeBuilder.IREM);
+    code.op(CodeBuilder.I2S);
+    store(quads.getResult(index));
+  }
+
+  // 栈顶为真时已跳转到 isTrue：这里补齐两个分支，把 0 或 1 写入结果
+  private void bool(Label isTrue, int index) {
+    Label done = new Label();
+    code.push(0);
+    code.branch(CodeBuilder.GOTO, done);
+    code.bind(isTrue);
+    code.push(1);
+    code.bind(done);
+    store(quads.getResult(index));
+  }
+
+  private void call(int index) {
+    String function = quads.operandName(quads.getArg1(index));
+    switch (function) {
+      case "input" -> {
+        code.local(CodeBuilder.ALOAD, INPUT_SLOT);
+        invokeInterface("java/util/function/IntSupplier", "getAsInt", "()I", 1);
+        code.op(CodeBuilder.I2S);
+        store(quads.getResult(index));
+        return;
+      }
+      case "put" -> {
+        code.local(CodeBuilder.ALOAD, OUTPUT_SLOT);
+        code.local(CodeBuilder.ILOAD, PARAM_SLOT);
+        code.op(CodeBuilder.INVOKESTATIC);
+        code.u2(writer.methodRef("java/lang/Integer", "toString", "(I)Ljava/lang/String;"));
+        invokeInterface("java/lang/Appendable", "append", "(Ljava/lang/CharSequence;)Ljava/lang/Appendable;", 2);
+      }
+      case "putc" -> {
+        code.local(CodeBuilder.ALOAD, OUTPUT_SLOT);
+        code.local(CodeBuilder.ILOAD, PARAM_SLOT);
+        code.push(0xFF);
+        code.op(CodeBuilder.IAND);
+        code.op(CodeBuilder.I2C);
+        invokeInterface("java/lang/Appendable", "append", "(C)Ljava/lang/Appendable;", 2);
+      }
+      case "putb" -> {
+        Label isFalse = new Label();
+        Label done = new Label();
+        code.local(CodeBuilder.ALOAD, OUTPUT_SLOT);
+        code.local(CodeBuilder.ILOAD, PARAM_SLOT);
+        code.branch(CodeBuilder.IFEQ, isFalse);
+        ldc(Literals.TRUE);
+        code.branch(CodeBuilder.GOTO, done);
+        code.bind(isFalse);
+        ldc(Literals.FALSE);
+        code.bind(done);
+        invokeInterface("java/lang/Appendable", "append", "(Ljava/lang/CharSequence;)Ljava/lang/Appendable;", 2);
+      }
+      default -> throw new IllegalArgumentException(String.format("第 %d 条四元式调用了不支持的函数: %s", index, function));
+    }
+    // 输出函数没有返回值，丢弃 append 返回的 Appendable，结果记为 0
+    code.op(CodeBuilder.POP);
+    code.push(0);
+    store(quads.getResult(index));
+  }
+
+  private void invokeInterface(String owner, String method, String descriptor, int argumentSlots) {
+    code.op(CodeBuilder.INVOKEINTERFACE);
+    code.u2(writer.interfaceMethodRef(owner, method, descriptor));
+    code.u1(argumentSlots);
+    code.u1(0);
+  }
+
+  private void ldc(String text) {
+    code.op(CodeBuilder.LDC_W);
+    code.u2(writer.string(text));
+  }
+
+  private void exit(int status) {
+    code.push(status);
+    code.op(CodeBuilder.IRETURN);
+  }
+
+  private void load(int operand) {
+    if (slotOf[operand] >= 0) {
+      code.local(CodeBuilder.ILOAD, slotOf[operand]);
+    } else {
+      code.push(valueOf[operand]);
+    }
+  }
+
+  private void store(int operand) {
+    if (slotOf[operand] >= 0) {
+      code.local(CodeBuilder.ISTORE, slotOf[operand]);
+    } else {
+      code.op(CodeBuilder.POP); // 结果不是存储单元（不应出现），丢弃
+    }
+  }
+
+  /**
+   * 一次性的类加载器：每个编译结果单独加载，程序不再使用后随加载器一起被回收
+   */
+  private static final class Loader extends ClassLoader {
+
+    Loader(ClassLoader parent) {
+      super(parent);
+    }
+
+    Class<?> define(byte[] bytes) {
+      return defineClass(CLASS_NAME, bytes, 0, bytes.length);
+    }
+  }
+}
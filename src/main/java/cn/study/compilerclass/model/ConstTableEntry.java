@@ -9,13 +9,16 @@ public class ConstTableEntry {
   private final SimpleStringProperty type;
   private final SimpleStringProperty value;
   @Getter
+  private final DataType dataType;
+  @Getter
   private final int initCol;
   @Getter
   private final int initRow;
 
-  public ConstTableEntry(String name, String type, String value, int initCol, int initRow) {
+  public ConstTableEntry(String name, DataType type, String value, int initCol, int initRow) {
     this.name = new SimpleStringProperty(name);
-    this.type = new SimpleStringProperty(type);
+    this.type = new SimpleStringProperty(type.getName());
+    this.dataType = type;
     this.value = new SimpleStringProperty(value);
     this.initCol = initCol;
     this.initRow = initRow;
@@ -0,0 +1,96 @@
+package cn.study.compilerclass.model;
+
+import lombok.Getter;
+
+/**
+ * 数据类型枚举
+ * <p>
+ * 语义分析中类型以枚举常量的身份比较，二元运算的类型规则预先计算为以 {@link #ordinal()} 为下标的二维表，检查时只需一次数组访问。
+ */
+@Getter
+public enum DataType {
+  INT("int"), FLOAT("float"), CHAR("char"), BOOL("bool"), VOID("void"), ERROR("error");
+
+  private static final DataType[] VALUES = values();
+  // 算术运算（+ - * / %）结果类型表，ERROR 表示不允许运算
+  private static final DataType[][] ARITHMETIC = new DataType[VALUES.length][VALUES.length];
+  // 大小关系运算（< <= > >=）可比较表
+  private static final boolean[][] ORDERED = new boolean[VALUES.length][VALUES.length];
+  // 判等运算（== !=）可比较表
+  private static final boolean[][] EQUALITY = new boolean[VALUES.length][VALUES.length];
+  // 赋值兼容表，ASSIGNABLE[目标类型][源类型]
+  private static final boolean[][] ASSIGNABLE = new boolean[VALUES.length][VALUES.length];
+
+  static {
+    for (DataType left : VALUES) {
+      for (DataType right : VALUES) {
+        int l = left.ordinal();
+        int r = right.ordinal();
+        ARITHMETIC[l][r] = left == right && left.isNumeric() ? left : ERROR;
+        ORDERED[l][r] = left.isNumeric() && right.isNumeric();
+        EQUALITY[l][r] = left == right && left.isValue();
+        ASSIGNABLE[l][r] = left == right && left.isValue();
+      }
+    }
+  }
+
+  private final String name;
+
+  DataType(String name) {
+    this.name = name;
+  }
+
+  /**
+   * 从类型名转换为枚举值
+   *
+   * @param name 类型名，如 "int"
+   * @return 对应的枚举值，如果没有匹配的则返回 {@link #ERROR}
+   */
+  public static DataType fromName(String name) {
+    for (DataType type : VALUES) {
+      if (type.name.equals(name)) {
+        return type;
+      }
+    }
+    return ERROR;
+  }
+
+  // 是否为数值类型
+  public boolean isNumeric() {
+    return this == INT || this == FLOAT;
+  }
+
+  // 是否为可存储值的类型
+  public boolean isValue() {
+    return this != VOID && this != ERROR;
+  }
+
+  /**
+   * 查询算术运算的结果类型
+   *
+   * @return 结果类型，不允许运算时返回 {@link #ERROR}
+   */
+  public static DataType arithmetic(DataType left, DataType right) {
+    return ARITHMETIC[left.ordinal()][right.ordinal()];
+  }
+
+  // 两侧是否可以进行大小比较
+  public static boolean ordered(DataType left, DataType right) {
+    return ORDERED[left.ordinal()][right.ordinal()];
+  }
+
+  // 两侧是否可以进行判等比较
+  public static boolean equality(DataType left, DataType right) {
+    return EQUALITY[left.ordinal()][right.ordinal()];
+  }
+
+  // source 类型的值能否赋给 this 类型
+  public boolean isAssignableFrom(DataType source) {
+    return ASSIGNABLE[ordinal()][source.ordinal()];
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
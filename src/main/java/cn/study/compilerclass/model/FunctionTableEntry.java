@@ -1,6 +1,7 @@
 package cn.study.compilerclass.model;
 
 import java.util.ArrayList;
+import java.util.stream.Collectors;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import lombok.Getter;
@@ -10,15 +11,18 @@ public class FunctionTableEntry {
   private final SimpleStringProperty name;
   private final SimpleStringProperty returnType;
   @Getter
-  private final ArrayList<String> paramTypes; // 参数类型列表
+  private final DataType returnDataType; // 返回值类型
+  @Getter
+  private final ArrayList<DataType> paramTypes; // 参数类型列表
   private final SimpleStringProperty listString; // 参数类型列表
   private final SimpleIntegerProperty paramCount; // 参数个数
 
-  public FunctionTableEntry(String name, String returnType, ArrayList<String> paramTypes) {
+  public FunctionTableEntry(String name, DataType returnType, ArrayList<DataType> paramTypes) {
     this.name = new SimpleStringProperty(name);
-    this.returnType = new SimpleStringProperty(returnType);
+    this.returnType = new SimpleStringProperty(returnType.getName());
+    this.returnDataType = returnType;
     this.paramTypes = paramTypes;
-    this.listString = new SimpleStringProperty(String.join(", ", paramTypes));
+    this.listString = new SimpleStringProperty(paramTypes.stream().map(DataType::getName).collect(Collectors.joining(", ")));
     this.paramCount = new SimpleIntegerProperty(paramTypes.size());
   }
 
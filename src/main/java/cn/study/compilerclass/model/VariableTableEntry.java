@@ -1,21 +1,30 @@
 package cn.study.compilerclass.model;
 
 import javafx.beans.property.SimpleStringProperty;
+import lombok.Getter;
 
 public class VariableTableEntry extends ConstTableEntry {
 
-  private final SimpleStringProperty scope;
+  @Getter
+  private final int scopeId; // 所属作用域ID，用于语义分析中的作用域查找
+  private final String scopePath; // 作用域路径，仅用于展示
+  private SimpleStringProperty scope;
 
-  public VariableTableEntry(String name, String type, String scope, String value, int initCol, int initRow) {
+  public VariableTableEntry(String name, DataType type, int scopeId, String scopePath, String value, int initCol, int initRow) {
     super(name, type, value, initCol, initRow);
-    this.scope = new SimpleStringProperty(scope);
+    this.scopeId = scopeId;
+    this.scopePath = scopePath;
   }
 
   public String getScope() {
-    return scope.get();
+    return scopePath;
   }
 
+  // 表格展示时才创建属性对象
   public SimpleStringProperty scopeProperty() {
+    if (scope == null) {
+      scope = new SimpleStringProperty(scopePath);
+    }
     return scope;
   }
-}
\ No newline at end of file
+}
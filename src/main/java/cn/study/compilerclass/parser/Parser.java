@@ -385,6 +385,8 @@ private TokenTreeView statement() {
         tmp = doWhileStatement();
       } else if (isReturnStatement()) {
         tmp = returnStatement();
+      } else if (isLoopJumpStatement()) {
+        tmp = loopJumpStatement();
       } else if (isAssignment()) {
         tmp = assignmentStatement();
       } else {
@@ -442,6 +444,33 @@ private TokenTreeView returnStatement() {
     return node;
   }
 
+  // 判断是否为break/continue语句
+  private boolean isLoopJumpStatement() {
+    String value = currentToken().getValue();
+    return value.equals("break") || value.equals("continue");
+  }
+
+  // 解析break/continue语句
+  private TokenTreeView loopJumpStatement() {
+    String keyword = currentToken().getValue();
+    boolean isBreak = keyword.equals("break");
+    TokenTreeView node = new TokenTreeView(isBreak ? "跳出语句" : "继续语句", isBreak ? NodeType.BREAK_STMT : NodeType.CONTINUE_STMT, currentToken().getLine(), currentToken().getColumn());
+
+    // 关键字
+    TokenTreeView keywordNode = new TokenTreeView(node, keyword, NodeType.KEYWORD, keyword + "关键字", currentToken().getLine(), currentToken().getColumn());
+    node.addChild(keywordNode);
+    consume();
+
+    // 分号
+    if (currentToken().getType() != tokenManager.getType(";")) {
+      error(String.format("[r: %d, c: %d]-%s语句后缺少';'", currentToken().getLine(), currentToken().getColumn(), keyword));
+    } else {
+      consume();
+    }
+
+    return node;
+  }
+
   // 控制结构节点的通用方法
   private TokenTreeView createControlStructureNode(String displayText, NodeType nodeType, String nodeInfo, String keyword, boolean requiresCondition, boolean requiresBlock) {
     TokenTreeView node = new TokenTreeView(displayText, nodeType, nodeInfo, currentToken().getLine(), currentToken().getColumn());
@@ -521,7 +550,7 @@ private TokenTreeView doWhileStatement() {
       loopBody = statement();
     }
     loopBody.setParent(node);
-    loopBody.setNodeInfo(NodeType.DO_WHILE_STMT, "循环体");
+    loopBody.setDescription("循环体");
     node.addChild(loopBody);
 
     // while部分可以使用公共方法的部分逻辑
@@ -541,7 +570,7 @@ private TokenTreeView doWhileStatement() {
     // 条件表达式
     TokenTreeView condition = expression();
     condition.setParent(node);
-    condition.setNodeInfo(NodeType.EXPRESSION, "循环条件");
+    condition.setDescription("循环条件");
     node.addChild(condition);
 
     // 右括号
@@ -580,7 +609,7 @@ private TokenTreeView ifStatement() {
         elifNode.setParent(node);
         node.addChild(elifNode);
       } else if (currentToken().getValue().equals("else")) {
-        TokenTreeView elseNode = createControlStructureNode("条件分支", NodeType.STATEMENT, "else", "else", false, true);
+        TokenTreeView elseNode = createControlStructureNode("条件分支", NodeType.ELSE_BRANCH, "else", "else", false, true);
         elseNode.setParent(node);
         node.addChild(elseNode);
         break; // else是最后一个分支
@@ -1074,7 +1103,7 @@ private TokenTreeView factor() {
       // 处理前缀自增/自减
       if (currentToken().getType() == tokenManager.getType("++") || currentToken().getType() == tokenManager.getType("--")) {
         String operator = currentToken().getValue();
-        root = new TokenTreeView("前缀表达式", NodeType.UNARY_EXPR, operator.equals("++") ? "前缀自增" : "前缀自减", currentToken().getLine(), currentToken().getColumn());
+        root = new TokenTreeView("前缀表达式", NodeType.PREFIX_EXPR, operator.equals("++") ? "前缀自增" : "前缀自减", currentToken().getLine(), currentToken().getColumn());
 
         TokenTreeView opNode = new TokenTreeView(root, operator, NodeType.OPERATOR, operator.equals("++") ? "自增操作符" : "自减操作符", currentToken().getLine(), currentToken().getColumn());
         root.addChild(opNode);
@@ -1194,7 +1223,7 @@ private TokenTreeView factor() {
           // 检查是否有后缀自增/自减
           if (!isEOF() && (currentToken().getType() == tokenManager.getType("++") || currentToken().getType() == tokenManager.getType("--"))) {
             String operator = currentToken().getValue();
-            TokenTreeView suffixNode = new TokenTreeView("后缀表达式", NodeType.UNARY_EXPR, operator.equals("++") ? "后缀自增" : "后缀自减", currentToken().getLine(), currentToken().getColumn());
+            TokenTreeView suffixNode = new TokenTreeView("后缀表达式", NodeType.SUFFIX_EXPR, operator.equals("++") ? "后缀自增" : "后缀自减", currentToken().getLine(), currentToken().getColumn());
 
             // 将标识符节点作为子节点
             root.setParent(suffixNode);
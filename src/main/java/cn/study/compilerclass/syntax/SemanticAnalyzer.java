@@ -1,19 +1,24 @@
 package cn.study.compilerclass.syntax;
 
+import cn.study.compilerclass.ir.OpCode;
+import cn.study.compilerclass.ir.Optimizer;
+import cn.study.compilerclass.ir.QuadTable;
 import cn.study.compilerclass.model.ConstTableEntry;
+import cn.study.compilerclass.model.DataType;
 import cn.study.compilerclass.model.FunctionTableEntry;
 import cn.study.compilerclass.model.MiddleTableEntry;
 import cn.study.compilerclass.model.NodeType;
 import cn.study.compilerclass.model.VariableTableEntry;
 import cn.study.compilerclass.parser.TokenTreeView;
 import cn.study.compilerclass.utils.OutInfo;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
-import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -30,31 +35,35 @@ public class SemanticAnalyzer {
   private final OutInfo outInfos;
   private final String src = "语义分析";
   private final List<String> errors;
-  private final List<String> warnings;
+  private int warningCount;                   // 警告条数，警告文本只在输出时生成
   private boolean hasError;
 
   public final ArrayList<VariableTableEntry> variableTable; // 变量表
   public final ArrayList<ConstTableEntry> constTable;     // 常量表
   public final ArrayList<FunctionTableEntry> functionTable; // 函数表
-  public final ArrayList<MiddleTableEntry> middleTableList; // 四元式表
-
-  private final Stack<Integer> scopeStack;            // 作用域栈
-  // 用于跟踪变量使用情况
-  private final Set<VariableTableEntry> usedVariables;
-  // 用于跟踪常量使用情况
-  private final Set<ConstTableEntry> usedConstants;
+  public final ArrayList<MiddleTableEntry> middleTableList; // 四元式表（展示用，分析结束后由 quads 生成）
+  private final QuadTable quads;                            // 紧凑四元式表，分析过程中的生成与回填都在其上进行
+
+  private int[] scopeParents;                         // 作用域父指针数组，scopeParents[id] 为其父作用域ID，全局作用域为 -1
+  private int currentScope;                           // 当前作用域ID
+  // 用于跟踪变量使用情况，下标为变量在变量表中的序号
+  private final BitSet usedVariables;
+  // 用于跟踪常量使用情况，下标为常量在常量表中的序号
+  private final BitSet usedConstants;
   private final Set<String> declaredVariablesInScope; // 用于在当前作用域内快速检查重复声明
   private int nextScopeId;                            // 下一个作用域的ID
   private boolean mainFunctionFound;                  // 是否找到主函数
+  @Setter
+  private boolean optimize;                            // 是否对四元式进行优化，默认输出语义分析直接生成的四元式
 
-  private final Result errorResult = new Result("", "error");
+  private final Result errorResult = new Result("", DataType.ERROR);
 
-  // 用于记录中间代码序号
-  private int midId = 0;
   // 用于记录临时变量序号
   private int tempId = 0;
   // 延迟执行的任务列表
-  private final List<MiddleTableEntry> delayedTasks;
+  private final List<DelayedQuad> delayedTasks;
+  // 循环栈，记录每层循环中 break/continue 待回填的跳转链
+  private final ArrayDeque<LoopContext> loopStack;
 
   /**
    * 构造函数
@@ -64,15 +73,17 @@ public class SemanticAnalyzer {
   public SemanticAnalyzer(OutInfo outInfos) {
     this.outInfos = outInfos;
     this.errors = new ArrayList<>();
-    this.warnings = new ArrayList<>();
     this.variableTable = new ArrayList<>();
     this.constTable = new ArrayList<>();
     this.functionTable = new ArrayList<>();
     this.middleTableList = new ArrayList<>();
+    this.quads = new QuadTable();
     this.delayedTasks = new ArrayList<>();
-    this.scopeStack = new Stack<>();
-    this.usedVariables = new HashSet<>();
-    this.usedConstants = new HashSet<>();
+    this.loopStack = new ArrayDeque<>();
+    this.scopeParents = new int[16];
+    this.currentScope = -1;
+    this.usedVariables = new BitSet();
+    this.usedConstants = new BitSet();
     this.declaredVariablesInScope = new HashSet<>(); // 初始化
     this.nextScopeId = 0; // 初始化，全局作用域为0
     this.mainFunctionFound = false;
@@ -97,17 +108,22 @@ public void analyze(TokenTreeView root) {
     info("开始语义分析...");
     // 初始化状态
     errors.clear();
-    warnings.clear();
+    warningCount = 0;
     variableTable.clear();
     constTable.clear();
     functionTable.clear();
-    scopeStack.clear();
+    middleTableList.clear();
+    quads.clear();
+    loopStack.clear();
+    tempId = 0;
     usedVariables.clear();
+    usedConstants.clear();
     nextScopeId = 1; // 全局作用域为0，子作用域从1开始
     mainFunctionFound = false;
     addBuiltInFunctions(); // 添加内置函数
 
-    scopeStack.push(0); // 进入全局作用域
+    scopeParents[0] = -1;
+    currentScope = 0; // 进入全局作用域
 
     try {
       // 从语法树根节点开始分析
@@ -121,7 +137,7 @@ public void analyze(TokenTreeView root) {
       checkUnusedVariables();
 
       // 输出分析结果
-      if (errors.isEmpty() && warnings.isEmpty()) {
+      if (errors.isEmpty() && warningCount == 0) {
         hasError = false;
         info("语义分析完成，未发现问题");
       } else {
@@ -129,45 +145,58 @@ public void analyze(TokenTreeView root) {
           hasError = true;
           info("语义分析完成，发现 " + errors.size() + " 个错误");
         }
-        if (!warnings.isEmpty()) {
+        if (warningCount > 0) {
           hasError = false;
-          info("语义分析完成，发现 " + warnings.size() + " 个警告");
+          info("语义分析完成，发现 " + warningCount + " 个警告");
         }
       }
 
       // 如果有错误，不展示四元式
       if (hasError) {
-        middleTableList.clear();
+        quads.clear();
         error("由于语义分析存在错误，四元式表不展示");
+      } else if (optimize) {
+        Optimizer optimizer = new Optimizer(variableTable, constTable);
+        QuadTable optimized = optimizer.optimize(quads);
+        optimizer.getNotes().forEach(this::info);
+        info(String.format("四元式优化完成：%d 条 -> %d 条", quads.size(), optimized.size()));
+        middleTableList.addAll(optimized.toEntries());
+      } else {
+        middleTableList.addAll(quads.toEntries());
       }
     } catch (Exception e) {
       error("语义分析过程中出现异常", e);
     } finally {
-      scopeStack.pop(); // 退出全局作用域
+      currentScope = -1; // 退出全局作用域
     }
   }
 
   // 添加内置函数
   private void addBuiltInFunctions() {
     // 添加内置函数定义
-    functionTable.add(new FunctionTableEntry("input", "int", new ArrayList<>()));
-    functionTable.add(new FunctionTableEntry("put", "void", new ArrayList<>(Collections.singleton("int"))));
-    functionTable.add(new FunctionTableEntry("putc", "void", new ArrayList<>(Collections.singleton("char"))));
-    functionTable.add(new FunctionTableEntry("putb", "void", new ArrayList<>(Collections.singleton("bool"))));
+    functionTable.add(new FunctionTableEntry("input", DataType.INT, new ArrayList<>()));
+    functionTable.add(new FunctionTableEntry("put", DataType.VOID, new ArrayList<>(Collections.singleton(DataType.INT))));
+    functionTable.add(new FunctionTableEntry("putc", DataType.VOID, new ArrayList<>(Collections.singleton(DataType.CHAR))));
+    functionTable.add(new FunctionTableEntry("putb", DataType.VOID, new ArrayList<>(Collections.singleton(DataType.BOOL))));
   }
 
-  // 检查是否存在未使用的变量/常量
+  // 检查是否存在未使用的变量/常量，只遍历位图中未置位的序号，只为未使用的符号生成警告文本，统一批量输出
   public void checkUnusedVariables() {
-    for (VariableTableEntry var : variableTable) {
-      if (!usedVariables.contains(var)) {
-        warn(String.format("[r: %d, c: %d]-变量 '%s' 从未被使用", var.getInitRow(), var.getInitCol(), var.getName()));
-      }
+    List<String> unused = new ArrayList<>();
+    for (int i = usedVariables.nextClearBit(0); i < variableTable.size(); i = usedVariables.nextClearBit(i + 1)) {
+      unused.add(unusedMessage(variableTable.get(i), "变量"));
     }
-    for (ConstTableEntry constEntry : constTable) {
-      if (!usedConstants.contains(constEntry)) {
-        warn(String.format("[r: %d, c: %d]-常量 '%s' 从未被使用", constEntry.getInitRow(), constEntry.getInitCol(), constEntry.getName()));
-      }
+    for (int i = usedConstants.nextClearBit(0); i < constTable.size(); i = usedConstants.nextClearBit(i + 1)) {
+      unused.add(unusedMessage(constTable.get(i), "常量"));
     }
+    if (!unused.isEmpty()) {
+      warningCount += unused.size();
+      outInfos.warn(src, unused);
+    }
+  }
+
+  private static String unusedMessage(ConstTableEntry entry, String kind) {
+    return String.format("[r: %d, c: %d]-%s '%s' 从未被使用", entry.getInitRow(), entry.getInitCol(), kind, entry.getName());
   }
 
   // 分析整体程序结构
@@ -200,7 +229,7 @@ private void analyzeDefinition(TokenTreeView definitionNode) {
     int typeNodeIndex = isConst ? 1 : 0; // 常量定义从索引1开始，变量定义从索引0开始
 
     TokenTreeView typeNode = children.get(typeNodeIndex);
-    String commonType = typeNode.getValue(); // 类型节点
+    DataType commonType = DataType.fromName(typeNode.getValue()); // 类型节点
 
     // 从类型节点之后开始遍历每个定义
     for (int i = typeNodeIndex + 1; i < children.size(); i++) {
@@ -208,7 +237,7 @@ private void analyzeDefinition(TokenTreeView definitionNode) {
       ArrayList<TokenTreeView> nodes = varNode.getChildren();
       String name = nodes.getFirst().getValue(); // 变量名
       // 检查是否重复定义
-      SymbolType type = checkSymbolType(name, getCurrentScopePath());
+      SymbolType type = checkSymbolType(name, currentScope);
       SymbolType expectedType = isConst ? SymbolType.CONST : SymbolType.VAR;
       if (type != SymbolType.NONE) {
         if (type != expectedType) {
@@ -224,6 +253,10 @@ private void analyzeDefinition(TokenTreeView definitionNode) {
         if (isValueNode(valueNode)) {
           // 如果是值节点，直接取值
           value = valueNode.getValue();
+          // 语句中的定义每次执行到都要重新初始化（如循环体内），不能只依赖变量表中的初值
+          if (!isConst && currentScope > 0) {
+            emit(OpCode.ASSIGN, value, "", name);
+          }
         } else if (isExpressionNode(valueNode)) {
           // 如果是常量，报错
           if (isConst) {
@@ -232,11 +265,11 @@ private void analyzeDefinition(TokenTreeView definitionNode) {
           }
           // 分析表达式并获取类型
           Result result = analyzeExpression(valueNode);
-          if (!result.getType().equals(commonType)) {
+          if (!commonType.isAssignableFrom(result.getType())) {
             error(String.format("[r: %d, c: %d]-变量初始化表达式类型不匹配：期望 '%s'，实际为 '%s'", valueNode.getRow(), valueNode.getCol(), commonType, result.getType()));
           } else {
             // 生成中间代码
-            emit("=", result.getValue(), "", name);
+            emit(OpCode.ASSIGN, result.getValue(), "", name);
           }
         }
       }
@@ -244,14 +277,14 @@ private void analyzeDefinition(TokenTreeView definitionNode) {
       if (isConst) {
         constTable.add(new ConstTableEntry(name, commonType, value, varNode.getCol(), varNode.getRow()));
       } else {
-        variableTable.add(new VariableTableEntry(name, commonType, getCurrentScopePath(), value, varNode.getCol(), varNode.getRow()));
+        variableTable.add(new VariableTableEntry(name, commonType, currentScope, renderScopePath(currentScope), value, varNode.getCol(), varNode.getRow()));
       }
     }
   }
 
   // 分析主函数
   private void analyzeMainFunction(TokenTreeView functionNode) {
-    emit("main", "", "", "");
+    emit(OpCode.MAIN, "", "", "");
     enterScope();
     // 遍历主函数体内的语句
     if (functionNode.getChildren() != null) {
@@ -260,7 +293,7 @@ private void analyzeMainFunction(TokenTreeView functionNode) {
       }
     }
     exitScope();
-    emit("quit", "", "", "");
+    emit(OpCode.QUIT, "", "", "");
   }
 
   // 通用语句分析方法，可以被函数体、代码块等调用
@@ -269,18 +302,13 @@ private void analyzeStatement(TokenTreeView statementNode) {
       case DEFINITION -> analyzeDefinition(statementNode);
       case ASSIGNMENT_STMT -> analyzeAssignmentStatement(statementNode);
       case FUNCTION_CALL -> analyzeFunctionCall(statementNode);
-      case UNARY_EXPR -> {
-        String value = statementNode.getValue();
-        if (value.contains("后缀")) {
-          analyzeSuffixStatement(statementNode);
-        } else if (value.contains("前缀")) {
-          analyzePrefixStatement(statementNode);
-        } else {
-          error(String.format("[r: %d, c: %d]-不是语句", statementNode.getRow(), statementNode.getCol()));
-        }
-      }
+      case SUFFIX_EXPR -> analyzeSuffixStatement(statementNode);
+      case PREFIX_EXPR -> analyzePrefixStatement(statementNode);
+      case UNARY_EXPR -> error(String.format("[r: %d, c: %d]-不是语句", statementNode.getRow(), statementNode.getCol()));
       case IF_STMT -> analyzeIfStatement(statementNode);
-      // case WHILE_STMT -> analyzeWhileStatement(statementNode);
+      case WHILE_STMT -> analyzeWhileStatement(statementNode);
+      case DO_WHILE_STMT -> analyzeDoWhileStatement(statementNode);
+      case BREAK_STMT, CONTINUE_STMT -> analyzeLoopJumpStatement(statementNode);
       default ->
           error(String.format("[r: %d, c: %d]-未识别的类型 {%s}, 可能不是语句", statementNode.getRow(), statementNode.getCol(), statementNode.getNodeType()));
     }
@@ -294,7 +322,7 @@ private void analyzeIfStatement(TokenTreeView node) {
     for (int i = 0; i < children.size(); i++) {
       TokenTreeView child = children.get(i);
       ArrayList<TokenTreeView> condition = child.getChildren();
-      if (condition.getFirst().getValue().equals("else")) {
+      if (child.getNodeType() == NodeType.ELSE_BRANCH) {
         TokenTreeView conditionBody = condition.getLast();
         if (conditionBody.getNodeType() == NodeType.BLOCK) {
           ArrayList<TokenTreeView> bodys = conditionBody.getChildren();
@@ -307,38 +335,113 @@ private void analyzeIfStatement(TokenTreeView node) {
       } else {
         // 分析条件表达式
         Result conditionResult = analyzeExpression(condition.get(1));
-        if (conditionResult.getType().equals("error")) {
+        if (conditionResult.getType() == DataType.ERROR) {
           return;
         }
         // 出口
-        int trueOut = emit("jnz", conditionResult.getValue(), "", "0");
-        int falseOut = emit("jz", conditionResult.getValue(), "", "0");
+        int trueOut = quads.emitJump(OpCode.JNZ, conditionResult.getValue(), 0);
+        int falseOut = quads.emitJump(OpCode.JZ, conditionResult.getValue(), 0);
         // 语句体
         TokenTreeView conditionBody = condition.getLast();
         if (conditionBody.getNodeType() == NodeType.BLOCK) {
           ArrayList<TokenTreeView> body = conditionBody.getChildren();
           // 该分支的真出口为该语句体下的第一个语句
-          backSet(trueOut, midId);
+          backSet(trueOut, quads.size());
           analyzeStatement(body.getFirst());
           for (int j = 1; j < body.size(); j++) {
             analyzeStatement(body.get(j));
           }
         } else {
-          backSet(trueOut, midId);
+          backSet(trueOut, quads.size());
           analyzeStatement(conditionBody);
         }
         if (i != children.size() - 1) {
-          finalOut = emit("j", "", "", String.valueOf(finalOut));
+          finalOut = quads.emitJump(OpCode.J, "", finalOut);
         }
         // 假出口为该分支结束后的下一个语句
-        backSet(falseOut, midId);
+        backSet(falseOut, quads.size());
       }
     }
     // 回填全部的最终出口
-    backPatch(finalOut, midId);
+    backPatch(finalOut, quads.size());
+    processDelayedTasks();
+  }
+
+  // 分析 while 循环<br/>
+  // 入口处求值条件，真出口进入循环体，假出口与 break 链一起回填到循环之后，循环体末尾无条件跳回入口
+  private void analyzeWhileStatement(TokenTreeView node) {
+    ArrayList<TokenTreeView> children = node.getChildren();
+    int start = quads.size();
+    Result conditionResult = analyzeExpression(children.get(1));
+    if (conditionResult.getType() == DataType.ERROR) {
+      return;
+    }
+    int trueOut = quads.emitJump(OpCode.JNZ, conditionResult.getValue(), 0);
+    int falseOut = quads.emitJump(OpCode.JZ, conditionResult.getValue(), 0);
+    backSet(trueOut, quads.size());
+
+    LoopContext loop = new LoopContext();
+    loopStack.push(loop);
+    analyzeBody(children.getLast());
+    loopStack.pop();
+
+    // continue 回到条件判断处
+    backPatch(loop.continueChain, start);
+    quads.emitJump(OpCode.J, "", start);
+    // 假出口与 break 均为循环后的下一条语句
+    backSet(falseOut, quads.size());
+    backPatch(loop.breakChain, quads.size());
+    processDelayedTasks();
+  }
+
+  // 分析 do-while 循环<br/>
+  // 先执行循环体，再求值条件，条件为真跳回循环体开头，break 链回填到循环之后
+  private void analyzeDoWhileStatement(TokenTreeView node) {
+    ArrayList<TokenTreeView> children = node.getChildren();
+    int start = quads.size();
+
+    LoopContext loop = new LoopContext();
+    loopStack.push(loop);
+    analyzeBody(children.get(1));
+    loopStack.pop();
+
+    // continue 跳到条件判断处
+    backPatch(loop.continueChain, quads.size());
+    Result conditionResult = analyzeExpression(children.getLast());
+    if (conditionResult.getType() == DataType.ERROR) {
+      return;
+    }
+    quads.emitJump(OpCode.JNZ, conditionResult.getValue(), start);
+    backPatch(loop.breakChain, quads.size());
     processDelayedTasks();
   }
 
+  // 分析 break/continue 语句，生成的跳转挂到当前循环的对应链上，待循环结束时回填
+  private void analyzeLoopJumpStatement(TokenTreeView node) {
+    LoopContext loop = loopStack.peek();
+    boolean isBreak = node.getNodeType() == NodeType.BREAK_STMT;
+    if (loop == null) {
+      error(String.format("[r: %d, c: %d]-%s 语句只能出现在循环中", node.getRow(), node.getCol(), isBreak ? "break" : "continue"));
+      return;
+    }
+    if (isBreak) {
+      loop.breakChain = quads.emitJump(OpCode.J, "", loop.breakChain);
+    } else {
+      loop.continueChain = quads.emitJump(OpCode.J, "", loop.continueChain);
+    }
+  }
+
+  // 分析语句体：代码块逐条分析，否则作为单条语句分析
+  private void analyzeBody(TokenTreeView body) {
+    if (body.getNodeType() == NodeType.BLOCK) {
+      for (TokenTreeView statement : body.getChildren()) {
+        analyzeStatement(statement);
+      }
+    } else {
+      analyzeStatement(body);
+    }
+  }
+
   // 分析函数调用
   private Result analyzeFunctionCall(TokenTreeView functionCallNode) {
     ArrayList<TokenTreeView> children = functionCallNode.getChildren();
@@ -358,18 +461,18 @@ private Result analyzeFunctionCall(TokenTreeView functionCallNode) {
     for (int i = 0; i < paramNodes.size(); i++) {
       TokenTreeView paramNode = paramNodes.get(i).getChildren().getFirst();
       Result param = analyzeExpression(paramNode);
-      String expectedType = functionEntry.getParamTypes().get(i);
-      if (!param.getType().equals(expectedType)) {
-        error(String.format("[r: %d, c: %d]-函数 '%s' 参数类型不匹配，第 %d 个参数应为 '%s'，实际为 '%s'", functionCallNode.getRow(), functionCallNode.getCol(), functionName, i + 1, expectedType, param));
+      DataType expectedType = functionEntry.getParamTypes().get(i);
+      if (!expectedType.isAssignableFrom(param.getType())) {
+        error(String.format("[r: %d, c: %d]-函数 '%s' 参数类型不匹配，第 %d 个参数应为 '%s'，实际为 '%s'", functionCallNode.getRow(), functionCallNode.getCol(), functionName, i + 1, expectedType, param.getType()));
       }
       // 生成中间代码
-      emit("para", param.getValue(), "", "");
+      emit(OpCode.PARA, param.getValue(), "", "");
     }
     // 生成中间代码
     String midVar = newTmp();
-    emit("call", functionName, "", midVar);
+    emit(OpCode.CALL, functionName, "", midVar);
     processDelayedTasks();
-    return new Result(midVar, functionEntry.getReturnType());
+    return new Result(midVar, functionEntry.getReturnDataType());
   }
 
   // 分析赋值语句
@@ -388,29 +491,27 @@ private void analyzeAssignmentStatement(TokenTreeView assignmentNode) {
       return;
     }
 
-    String currentScopePath = getCurrentScopePath(); // 获取当前作用域用于查找
-
     // 检查左侧是否为常量
-    ConstTableEntry constEntry = findConst(variableName);
-    if (constEntry != null) {
+    if (findConstId(variableName) >= 0) {
       error(String.format("[r: %d, c: %d]-不能给常量 '%s' 赋值", rightOperandNode.getRow(), rightOperandNode.getCol(), variableName));
       return; // 常量不能被赋值
     }
 
     // 检查变量是否已声明 (先声明后使用)
-    VariableTableEntry varEntry = findVariable(variableName, currentScopePath);
-    if (varEntry == null) {
+    int varId = findVariableId(variableName, currentScope);
+    if (varId < 0) {
       error(String.format("[r: %d, c: %d]-变量 '%s' 在赋值前未声明", rightOperandNode.getRow(), rightOperandNode.getCol(), variableName));
       return;
     }
+    VariableTableEntry varEntry = variableTable.get(varId);
 
     // 标记变量/常量为已使用
-    usedVariables.add(varEntry);
+    usedVariables.set(varId);
 
     // 分析右侧表达式并进行类型检查
     Result result = analyzeExpression(rightOperandNode);
-    if (!varEntry.getType().equals(result.getType())) {
-      error(String.format("[r: %d, c: %d]-类型不匹配：无法将类型 '%s' 赋值给类型为 '%s' 的变量 '%s'", rightOperandNode.getRow(), rightOperandNode.getCol(), result, varEntry.getType(), variableName));
+    if (!varEntry.getDataType().isAssignableFrom(result.getType())) {
+      error(String.format("[r: %d, c: %d]-类型不匹配：无法将类型 '%s' 赋值给类型为 '%s' 的变量 '%s'", rightOperandNode.getRow(), rightOperandNode.getCol(), result.getType(), varEntry.getDataType(), variableName));
     }
 
     // 生成四元式
@@ -419,19 +520,19 @@ private void analyzeAssignmentStatement(TokenTreeView assignmentNode) {
     String midVar = newTmp();
     switch (operator) {
       case "+=" -> {
-        emit("+", varEntry.getName(), result.getValue(), midVar);
+        emit(OpCode.ADD, varEntry.getName(), result.getValue(), midVar);
       }
       case "-=" -> {
-        emit("-", varEntry.getName(), result.getValue(), midVar);
+        emit(OpCode.SUB, varEntry.getName(), result.getValue(), midVar);
       }
       case "*=" -> {
-        emit("*", varEntry.getName(), result.getValue(), midVar);
+        emit(OpCode.MUL, varEntry.getName(), result.getValue(), midVar);
       }
       case "/=" -> {
-        emit("/", varEntry.getName(), result.getValue(), midVar);
+        emit(OpCode.DIV, varEntry.getName(), result.getValue(), midVar);
       }
       case "%=" -> {
-        emit("%", varEntry.getName(), result.getValue(), midVar);
+        emit(OpCode.MOD, varEntry.getName(), result.getValue(), midVar);
       }
       default -> {
         if (!operator.equals("=")) {
@@ -441,7 +542,7 @@ private void analyzeAssignmentStatement(TokenTreeView assignmentNode) {
         midVar = result.getValue();
       }
     }
-    emit("=", midVar, "", varEntry.getName());
+    emit(OpCode.ASSIGN, midVar, "", varEntry.getName());
     processDelayedTasks();
   }
 
@@ -453,17 +554,19 @@ private Result analyzeExpression(TokenTreeView expressionNode) {
       case ADDITION_EXPR -> analyzeAdditionExpression(expressionNode);
       case MULTIPLICATION_EXPR -> analyzeMultiplicationExpression(expressionNode);
       case UNARY_EXPR -> analyzeUnaryExpression(expressionNode);
+      case PREFIX_EXPR -> analyzePrefixStatement(expressionNode);
+      case SUFFIX_EXPR -> analyzeSuffixStatement(expressionNode);
       case PAREN_EXPR -> analyzeParenthesesExpression(expressionNode);
       case FUNCTION_CALL -> analyzeFunctionCall(expressionNode);
-      case LITERAL_INT -> new Result(expressionNode.getValue(), "int");
-      case LITERAL_FLOAT -> new Result(expressionNode.getValue(), "float");
-      case LITERAL_CHAR -> new Result(expressionNode.getValue(), "char");
-      case LITERAL_BOOL -> new Result(expressionNode.getValue(), "bool");
+      case LITERAL_INT -> new Result(expressionNode.getValue(), DataType.INT);
+      case LITERAL_FLOAT -> new Result(expressionNode.getValue(), DataType.FLOAT);
+      case LITERAL_CHAR -> new Result(expressionNode.getValue(), DataType.CHAR);
+      case LITERAL_BOOL -> new Result(expressionNode.getValue(), DataType.BOOL);
       case IDENTIFIER, PARAM -> {
         String identifierName = expressionNode.getValue();
         int col = expressionNode.getCol();
         int row = expressionNode.getRow();
-        SymbolType symbolType = checkSymbolType(identifierName, getCurrentScopePath());
+        SymbolType symbolType = checkSymbolType(identifierName, currentScope);
         if (symbolType == SymbolType.NONE) {
           error(String.format("[r: %d, c: %d]-变量 '%s' 未声明", row, col, identifierName));
           yield errorResult;
@@ -471,17 +574,19 @@ private Result analyzeExpression(TokenTreeView expressionNode) {
           error(String.format("[r: %d, c: %d]-非法调用函数 '%s'", row, col, identifierName));
           yield errorResult;
         } else if (symbolType == SymbolType.CONST) {
-          ConstTableEntry constEntry = findConst(identifierName);
-          if (constEntry != null) {
-            usedConstants.add(constEntry);
-            yield new Result(constEntry.getName(), constEntry.getType());
+          int constId = findConstId(identifierName);
+          if (constId >= 0) {
+            usedConstants.set(constId);
+            ConstTableEntry constEntry = constTable.get(constId);
+            yield new Result(constEntry.getName(), constEntry.getDataType());
           }
           yield errorResult;
         } else {
-          VariableTableEntry varEntry = findVariable(identifierName, getCurrentScopePath());
-          if (varEntry != null) {
-            usedVariables.add(varEntry);
-            yield new Result(varEntry.getName(), varEntry.getType());
+          int varId = findVariableId(identifierName, currentScope);
+          if (varId >= 0) {
+            usedVariables.set(varId);
+            VariableTableEntry varEntry = variableTable.get(varId);
+            yield new Result(varEntry.getName(), varEntry.getDataType());
           }
           yield errorResult;
         }
@@ -497,14 +602,14 @@ private Result analyzeExpression(TokenTreeView expressionNode) {
   private Result analyzeSuffixStatement(TokenTreeView suffixNode) {
     TokenTreeView operandNode = suffixNode.getChildren().getFirst();
     Result operandType = analyzeExpression(operandNode);
-    if (!operandType.getType().equals("int")) {
+    if (operandType.getType() != DataType.INT) {
       error(String.format("[r: %d, c: %d]-后缀表达式类型不正确，期望为 int，实际为 %s", suffixNode.getRow(), suffixNode.getCol(), operandType.getType()));
       return errorResult;
     }
     // 生成中间代码
     String midVar = newTmp();
     emitDelayed(opTrans(suffixNode.getChildren().getLast().getValue()), operandType.getValue(), "1", midVar);
-    emitDelayed("=", midVar, "", operandType.getValue());
+    emitDelayed(OpCode.ASSIGN, midVar, "", operandType.getValue());
     return new Result(operandType.getValue(), operandType.getType());
   }
 
@@ -512,23 +617,23 @@ private Result analyzeSuffixStatement(TokenTreeView suffixNode) {
   private Result analyzePrefixStatement(TokenTreeView prefixNode) {
     TokenTreeView operandNode = prefixNode.getChildren().getLast();
     Result operandType = analyzeExpression(operandNode);
-    if (!operandType.getType().equals("int")) {
+    if (operandType.getType() != DataType.INT) {
       error(String.format("[r: %d, c: %d]-前缀表达式类型不正确，期望为 int，实际为 %s", prefixNode.getRow(), prefixNode.getCol(), operandType.getType()));
       return errorResult;
     }
     // 生成中间代码
     String midVar = newTmp();
     emit(opTrans(prefixNode.getChildren().getFirst().getValue()), operandType.getValue(), "1", midVar);
-    emit("=", midVar, "", operandType.getValue());
+    emit(OpCode.ASSIGN, midVar, "", operandType.getValue());
     return new Result(operandType.getValue(), operandType.getType());
   }
 
   // 自增自减转换操作符
-  private String opTrans(String op) {
+  private OpCode opTrans(String op) {
     return switch (op) {
-      case "++" -> "+";
-      case "--" -> "-";
-      default -> op;
+      case "++" -> OpCode.ADD;
+      case "--" -> OpCode.SUB;
+      default -> OpCode.fromSymbol(op);
     };
   }
 
@@ -537,94 +642,72 @@ private Result analyzeLogicExpression(TokenTreeView logicNode) {
     Result result;
     if (logicNode.getValue().equals("!")) { // 逻辑取反 - !E
       Result tmpRes = analyzeExpression(logicNode.getChildren().getLast());
-      if (!tmpRes.getType().equals("bool")) {
+      if (tmpRes.getType() != DataType.BOOL) {
         error(String.format("[r: %d, c: %d]-逻辑表达式类型不正确，期望为 bool，实际为 %s", logicNode.getRow(), logicNode.getCol(), tmpRes.getType()));
         return errorResult;
       }
-      result = new Result(newTmp(), "bool");
-      emit("!", tmpRes.getValue(), "", result.getValue());
+      result = new Result(newTmp(), DataType.BOOL);
+      emit(OpCode.NOT, tmpRes.getValue(), "", result.getValue());
     } else { // 逻辑运算 && || - E1 && E2
       Result leftRes, rightRes;
       leftRes = analyzeExpression(logicNode.getChildren().getFirst());
       rightRes = analyzeExpression(logicNode.getChildren().getLast());
-      if (!checkTypeMatch(leftRes, rightRes, logicNode, "bool")) {
+      if (!checkTypeMatch(leftRes, rightRes, logicNode, DataType.BOOL)) {
         return errorResult;
       }
-      result = new Result(newTmp(), "bool");
-      emit(logicNode.getChildren().get(1).getValue(), leftRes.getValue(), rightRes.getValue(), result.getValue());
+      result = new Result(newTmp(), DataType.BOOL);
+      emit(OpCode.fromSymbol(logicNode.getChildren().get(1).getValue()), leftRes.getValue(), rightRes.getValue(), result.getValue());
     }
     processDelayedTasks();
     return result;
   }
 
-  // 通用检测两侧类型匹配，并且是否为指定类型 - 严格匹配
-  private boolean checkTypeMatch(Result leftRes, Result rightRes, TokenTreeView node, String... types) {
-    if (!(leftRes.getType().equals(rightRes.getType()))) {
+  // 检测两侧类型相同且为指定类型 - 严格匹配
+  private boolean checkTypeMatch(Result leftRes, Result rightRes, TokenTreeView node, DataType expected) {
+    if (leftRes.getType() != rightRes.getType()) {
       error(String.format("[r: %d, c: %d]-表达式类型不匹配，左侧为 %s，右侧为 %s", node.getRow(), node.getCol(), leftRes.getType(), rightRes.getType()));
       return false;
     }
-    boolean match = false;
-    for (String type : types) {
-      if (leftRes.getType().equals(type)) {
-        match = true;
-        break;
-      }
-    }
-    // 期望类型转列表
-    List<String> expectedTypes = List.of(types);
-    if (!match) {
-      error(String.format("[r: %d, c: %d]-表达式类型不匹配，期望为 %s，实际为 %s", node.getRow(), node.getCol(), expectedTypes, leftRes.getType()));
+    if (leftRes.getType() != expected) {
+      error(String.format("[r: %d, c: %d]-表达式类型不匹配，期望为 [%s]，实际为 %s", node.getRow(), node.getCol(), expected, leftRes.getType()));
       return false;
     }
     return true;
   }
 
-  // 通用检测两侧类型匹配，并且是否为指定类型
-  private boolean checkTypeMatchEase(Result leftRes, Result rightRes, TokenTreeView node, String... types) {
-    boolean leftMatch = false;
-    boolean rightMatch = false;
-    boolean resultMatch = true;
-    for (String type : types) {
-      if (!leftMatch && leftRes.getType().equals(type)) {
-        leftMatch = true;
-      }
-      if (!rightMatch && rightRes.getType().equals(type)) {
-        rightMatch = true;
-      }
-    }
-    // 期望类型转列表
-    List<String> expectedTypes = List.of(types);
-    if (!leftMatch) {
-      error(String.format("[r: %d, c: %d]-左表达式类型不匹配，期望为 %s，实际为 %s", node.getRow(), node.getCol(), expectedTypes, leftRes.getType()));
-      resultMatch = false;
-    }
-    if (!rightMatch) {
-      error(String.format("[r: %d, c: %d]-右表达式类型不匹配，期望为 %s，实际为 %s", node.getRow(), node.getCol(), expectedTypes, rightRes.getType()));
-      resultMatch = false;
-    }
-    return resultMatch;
-  }
-
   // 分析关系表达式
   private Result analyzeRelationalExpression(TokenTreeView relationalNode) {
     // 只能是整数或浮点数与整数或浮点数的关系表达式
     Result leftRes = analyzeExpression(relationalNode.getChildren().getFirst());
     Result rightRes = analyzeExpression(relationalNode.getChildren().getLast());
     // 检查类型是否匹配
+    DataType leftType = leftRes.getType();
+    DataType rightType = rightRes.getType();
     String op = relationalNode.getChildren().get(1).getValue();
     if (op.equals("==") || op.equals("!=")) {
-      // 等于和不等于关系运算可以是整数、浮点数、字符或布尔类型
-      if (!checkTypeMatch(leftRes, rightRes, relationalNode, "int", "float", "char", "bool")) {
+      // 等于和不等于关系运算可以是整数、浮点数、字符或布尔类型，且两侧类型一致
+      if (!DataType.equality(leftType, rightType)) {
+        if (leftType != rightType) {
+          error(String.format("[r: %d, c: %d]-表达式类型不匹配，左侧为 %s，右侧为 %s", relationalNode.getRow(), relationalNode.getCol(), leftType, rightType));
+        } else {
+          error(String.format("[r: %d, c: %d]-表达式类型不匹配，期望为 [int, float, char, bool]，实际为 %s", relationalNode.getRow(), relationalNode.getCol(), leftType));
+        }
         return errorResult;
       }
     } else {
       // 其他关系运算只能是整数或浮点数
-      if (!checkTypeMatchEase(leftRes, rightRes, relationalNode, "int", "float")) {
+      if (!DataType.ordered(leftType, rightType)) {
+        if (!leftType.isNumeric()) {
+          error(String.format("[r: %d, c: %d]-左表达式类型不匹配，期望为 [int, float]，实际为 %s", relationalNode.getRow(), relationalNode.getCol(), leftType));
+        }
+        if (!rightType.isNumeric()) {
+          error(String.format("[r: %d, c: %d]-右表达式类型不匹配，期望为 [int, float]，实际为 %s", relationalNode.getRow(), relationalNode.getCol(), rightType));
+        }
         return errorResult;
       }
     }
-    Result result = new Result(newTmp(), "bool");
-    emit(relationalNode.getChildren().get(1).getValue(), leftRes.getValue(), rightRes.getValue(), result.getValue());
+    Result result = new Result(newTmp(), DataType.BOOL);
+    emit(OpCode.fromSymbol(relationalNode.getChildren().get(1).getValue()), leftRes.getValue(), rightRes.getValue(), result.getValue());
     processDelayedTasks();
     return result;
   }
@@ -634,14 +717,14 @@ private Result analyzeAdditionExpression(TokenTreeView additionNode) {
     // 只能是整数或浮点数与整数或浮点数的加法表达式
     Result leftRes = analyzeExpression(additionNode.getChildren().getFirst());
     Result rightRes = analyzeExpression(additionNode.getChildren().getLast());
-    if (!(leftRes.getType().equals(rightRes.getType()) && (leftRes.getType().equals("int") || leftRes.getType()
-                                                                                                     .equals("float")))) {
-      error(String.format("[r: %d, c: %d]-加减表达式类型不匹配，左侧为 %s，右侧为 %s", additionNode.getRow(), additionNode.getCol(), leftRes, rightRes));
+    DataType resultType = DataType.arithmetic(leftRes.getType(), rightRes.getType());
+    if (resultType == DataType.ERROR) {
+      error(String.format("[r: %d, c: %d]-加减表达式类型不匹配，左侧为 %s，右侧为 %s", additionNode.getRow(), additionNode.getCol(), leftRes.getType(), rightRes.getType()));
       return errorResult;
     }
     // 生成四元式
-    Result result = new Result(newTmp(), leftRes.getType());
-    emit(additionNode.getChildren().get(1).getValue(), leftRes.getValue(), rightRes.getValue(), result.getValue());
+    Result result = new Result(newTmp(), resultType);
+    emit(OpCode.fromSymbol(additionNode.getChildren().get(1).getValue()), leftRes.getValue(), rightRes.getValue(), result.getValue());
     processDelayedTasks();
     return result;
   }
@@ -651,43 +734,33 @@ private Result analyzeMultiplicationExpression(TokenTreeView multiplicationNode)
     // 只能是整数或浮点数与整数或浮点数的乘法表达式
     Result leftRes = analyzeExpression(multiplicationNode.getChildren().getFirst());
     Result rightRes = analyzeExpression(multiplicationNode.getChildren().getLast());
-    if (!(leftRes.getType().equals(rightRes.getType()) && (leftRes.getType().equals("int") || leftRes.getType()
-                                                                                                     .equals("float")))) {
-      error(String.format("[r: %d, c: %d]-乘除表达式类型不匹配，左侧为 %s，右侧为 %s", multiplicationNode.getRow(), multiplicationNode.getCol(), leftRes, rightRes));
+    DataType resultType = DataType.arithmetic(leftRes.getType(), rightRes.getType());
+    if (resultType == DataType.ERROR) {
+      error(String.format("[r: %d, c: %d]-乘除表达式类型不匹配，左侧为 %s，右侧为 %s", multiplicationNode.getRow(), multiplicationNode.getCol(), leftRes.getType(), rightRes.getType()));
       return errorResult;
     }
     // 生成四元式
-    Result result = new Result(newTmp(), leftRes.getType());
-    emit(multiplicationNode.getChildren()
-                           .get(1)
-                           .getValue(), leftRes.getValue(), rightRes.getValue(), result.getValue());
+    Result result = new Result(newTmp(), resultType);
+    emit(OpCode.fromSymbol(multiplicationNode.getChildren().get(1).getValue()), leftRes.getValue(), rightRes.getValue(), result.getValue());
     processDelayedTasks();
     return result;
   }
 
-  // 分析一元表达式
+  // 分析一元表达式（正负号），自增自减由 PREFIX_EXPR/SUFFIX_EXPR 节点单独处理
   private Result analyzeUnaryExpression(TokenTreeView unaryNode) {
     // 只能是整数或浮点数的一元表达式
-    Result operandType;
-    if (unaryNode.getValue().contains("后缀")) {
-      operandType = analyzeSuffixStatement(unaryNode);
-    } else if (unaryNode.getValue().contains("前缀")) {
-      operandType = analyzePrefixStatement(unaryNode);
-    } else {
-      operandType = analyzeExpression(unaryNode.getChildren().getLast());
-      if (!(operandType.getType().equals("int") || operandType.getType().equals("float"))) {
-        error(String.format("[r: %d, c: %d]-一元表达式类型不匹配，操作数为 %s", unaryNode.getRow(), unaryNode.getCol(), operandType));
-        return errorResult;
-      } else {
-        // 生成中间代码
-        if (unaryNode.getChildren().getFirst().getValue().equals("-")) {
-          String tmp = newTmp();
-          emit("-", "0", operandType.getValue(), tmp);
-          operandType.setValue(tmp);
-        }
-      }
-      processDelayedTasks();
+    Result operandType = analyzeExpression(unaryNode.getChildren().getLast());
+    if (!operandType.getType().isNumeric()) {
+      error(String.format("[r: %d, c: %d]-一元表达式类型不匹配，操作数为 %s", unaryNode.getRow(), unaryNode.getCol(), operandType.getType()));
+      return errorResult;
     }
+    // 生成中间代码
+    if (unaryNode.getChildren().getFirst().getValue().equals("-")) {
+      String tmp = newTmp();
+      emit(OpCode.SUB, "0", operandType.getValue(), tmp);
+      operandType.setValue(tmp);
+    }
+    processDelayedTasks();
     return operandType;
   }
 
@@ -699,14 +772,8 @@ private Result analyzeParenthesesExpression(TokenTreeView parenthesesNode) {
   }
 
   // 提交一条中间代码，返回生成的中间代码的索引
-  private int emit(String op, String arg1, String arg2, String result) {
-    middleTableList.add(new MiddleTableEntry(midId, op, arg1, arg2, result));
-    return midId++;
-  }
-
-  private void emit(MiddleTableEntry entry) {
-    entry.setId(midId++);
-    middleTableList.add(entry);
+  private int emit(OpCode op, String arg1, String arg2, String result) {
+    return quads.emit(op, arg1, arg2, result);
   }
 
   // 合并两个四元式链
@@ -715,30 +782,30 @@ private int merge(int P1, int P2) {
       return P1;
     } else {
       int P = P2;
-      while (Integer.parseInt(middleTableList.get(P).getResult()) != 0) {
-        P = Integer.parseInt(middleTableList.get(P).getResult());
+      while (quads.getTarget(P) != 0) {
+        P = quads.getTarget(P);
       }
-      middleTableList.get(P).setResult(String.valueOf(P1));
+      quads.setTarget(P, P1);
       return P2;
     }
   }
 
   // 提交一条延迟的中间代码
-  private void emitDelayed(String op, String arg1, String arg2, String result) {
-    delayedTasks.add(new MiddleTableEntry(-1, op, arg1, arg2, result));
+  private void emitDelayed(OpCode op, String arg1, String arg2, String result) {
+    delayedTasks.add(new DelayedQuad(op, arg1, arg2, result));
   }
 
   // 处理延迟任务
   private void processDelayedTasks() {
-    for (MiddleTableEntry task : delayedTasks) {
-      emit(task);
+    for (DelayedQuad task : delayedTasks) {
+      emit(task.op(), task.arg1(), task.arg2(), task.result());
     }
     delayedTasks.clear();
   }
 
   // 递归回填
   private void backPatch(int pos, int resPos) {
-    int Q = middleTableList.get(pos).getId();
+    int Q = pos;
     while (Q != 0) {
       Q = backSet(Q, resPos);
     }
@@ -746,8 +813,8 @@ private void backPatch(int pos, int resPos) {
 
   // 回填
   private int backSet(int pos, int resPos) {
-    int m = Integer.parseInt(middleTableList.get(pos).getResult());
-    middleTableList.get(pos).setResult(String.valueOf(resPos));
+    int m = quads.getTarget(pos);
+    quads.setTarget(pos, resPos);
     return m;
   }
 
@@ -757,14 +824,14 @@ private String newTmp() {
   }
 
   // 检查标识符是否已经在对应符号表中声明
-  private SymbolType checkSymbolType(String name, String scopePath) {
-    if (findConst(name) != null) {
+  private SymbolType checkSymbolType(String name, int scopeId) {
+    if (findConstId(name) >= 0) {
       return SymbolType.CONST;
     }
     if (findFunction(name) != null) {
       return SymbolType.FUNCTION;
     }
-    if (findVariable(name, scopePath) != null) {
+    if (findVariableId(name, scopeId) >= 0) {
       return SymbolType.VAR;
     }
     return SymbolType.NONE;
@@ -772,18 +839,21 @@ private SymbolType checkSymbolType(String name, String scopePath) {
 
   // 作用域管理方法
   private void enterScope() {
-    scopeStack.push(nextScopeId);
+    int scopeId = nextScopeId++;
+    if (scopeId >= scopeParents.length) {
+      scopeParents = Arrays.copyOf(scopeParents, scopeParents.length * 2);
+    }
+    scopeParents[scopeId] = currentScope;
+    currentScope = scopeId;
     declaredVariablesInScope.clear(); // 进入新作用域时，清空当前作用域的声明记录
-    // info("进入作用域: " + getCurrentScopePath() + " (ID: " + nextScopeId + ")");
-    nextScopeId++;
   }
 
   private void exitScope() {
-    if (!scopeStack.isEmpty()) {
+    if (currentScope > 0) {
       declaredVariablesInScope.clear(); // 退出作用域时，清空，尽管通常在enter时处理
-      // info("退出作用域: " + getCurrentScopePath() + " (原ID: " + scopeStack.pop() + ")");
+      currentScope = scopeParents[currentScope];
     } else {
-      error("尝试退出作用域失败：作用域栈为空。");
+      error("尝试退出作用域失败：当前已是全局作用域。");
     }
   }
 
@@ -796,58 +866,40 @@ private boolean isValueNode(TokenTreeView node) {
   // 检查是否为表达式节点
   private boolean isExpressionNode(TokenTreeView node) {
     NodeType type = node.getNodeType();
-    return type == NodeType.EXPRESSION || type == NodeType.BINARY_EXPR || type == NodeType.UNARY_EXPR || type == NodeType.PAREN_EXPR || type == NodeType.RELATIONAL_EXPR || type == NodeType.LOGIC_EXPR || type == NodeType.ADDITION_EXPR || type == NodeType.MULTIPLICATION_EXPR || type == NodeType.FUNCTION_CALL;
+    return type == NodeType.EXPRESSION || type == NodeType.BINARY_EXPR || type == NodeType.UNARY_EXPR || type == NodeType.PREFIX_EXPR || type == NodeType.SUFFIX_EXPR || type == NodeType.PAREN_EXPR || type == NodeType.RELATIONAL_EXPR || type == NodeType.LOGIC_EXPR || type == NodeType.ADDITION_EXPR || type == NodeType.MULTIPLICATION_EXPR || type == NodeType.FUNCTION_CALL;
   }
 
-  // 辅助方法：获取当前作用域路径
-  private String getCurrentScopePath() {
-    if (scopeStack.isEmpty()) {
-      return "/"; // 或者抛出错误，表示不应在无作用域时调用
+  // 辅助方法：渲染作用域路径（如 "0/1/3/"），仅在登记变量时用于展示
+  private String renderScopePath(int scopeId) {
+    if (scopeId < 0) {
+      return "/";
     }
-    // 如果是为新声明获取路径，并且栈顶不是0（全局），则使用栈顶ID
-    // 否则，使用栈内所有ID连接的路径
-    // 对于查找，总是使用完整路径
-    // 对于声明，通常是在当前最内层作用域
-    return scopeStack.stream().map(String::valueOf).collect(Collectors.joining("/")) + "/";
+    String parentPath = scopeParents[scopeId] < 0 ? "" : renderScopePath(scopeParents[scopeId]);
+    return parentPath + scopeId + "/";
   }
 
-  // 辅助方法：查找变量 (考虑作用域)
-  private VariableTableEntry findVariable(String name, String currentScopePath) {
-    // 从当前作用域向上查找
-    while (currentScopePath != null) {
-      for (VariableTableEntry entry : variableTable) {
-        if (entry.getName().equals(name) && entry.getScope().equals(currentScopePath)) {
-          return entry;
+  // 辅助方法：查找变量 (考虑作用域)，返回变量在变量表中的序号，未找到返回 -1
+  private int findVariableId(String name, int scopeId) {
+    // 沿父指针从当前作用域向上查找
+    for (int scope = scopeId; scope >= 0; scope = scopeParents[scope]) {
+      for (int i = 0; i < variableTable.size(); i++) {
+        VariableTableEntry entry = variableTable.get(i);
+        if (entry.getScopeId() == scope && entry.getName().equals(name)) {
+          return i;
         }
       }
-      // 向上一级作用域查找
-      currentScopePath = getScopeParentPath(currentScopePath);
     }
-    return null; // 未找到
+    return -1; // 未找到
   }
 
-  // 辅助方法：查找常量
-  private ConstTableEntry findConst(String name) {
-    // 从当前作用域向上查找
-    for (ConstTableEntry entry : constTable) {
-      if (entry.getName().equals(name)) {
-        return entry;
+  // 辅助方法：查找常量，返回常量在常量表中的序号，未找到返回 -1
+  private int findConstId(String name) {
+    for (int i = 0; i < constTable.size(); i++) {
+      if (constTable.get(i).getName().equals(name)) {
+        return i;
       }
     }
-    return null; // 未找到
-  }
-
-  // 辅助方法：获取父级作用域路径
-  private String getScopeParentPath(String currentScopePath) {
-    // 移除末尾的斜杠并根据路径分割
-    String[] parts = currentScopePath.substring(0, currentScopePath.length() - 1).split("/");
-    if (parts.length > 1) {
-      // 移除最后一个部分（当前作用域ID）
-      parts = java.util.Arrays.copyOf(parts, parts.length - 1);
-      // 构建父级路径
-      return String.join("/", parts) + "/";
-    }
-    return null;
+    return -1; // 未找到
   }
 
   // 辅助方法：查找函数
@@ -896,7 +948,7 @@ private void error(String message, Exception e) {
    * @param message 警告信息
    */
   private void warn(String message) {
-    warnings.add(message);
+    warningCount++;
     outInfos.warn(src, message);
   }
 
@@ -929,13 +981,25 @@ private enum SymbolType {
 
   }
 
+  // 循环上下文，break/continue 跳转链与其他回填链一样以 0 结尾（链上的跳转都在 main 之后生成，序号总大于 0）
+  private static class LoopContext {
+
+    private int breakChain = 0;
+    private int continueChain = 0;
+  }
+
+  // 延迟提交的四元式（后缀自增自减）
+  private record DelayedQuad(OpCode op, String arg1, String arg2, String result) {
+
+  }
+
   @Getter
   @Setter
   @AllArgsConstructor
   private class Result {
 
     private String value;
-    private String type;
+    private DataType type;
   }
 }
 
@@ -21,8 +21,8 @@ public static String getStyleClass(NodeType nodeType) {
     return switch (nodeType) {
       case ERROR -> "error";
       case PROGRAM -> "root-node";
-      case FUNCTION, BLOCK, STATEMENT, ASSIGNMENT_STMT, IF_STMT, WHILE_STMT, DO_WHILE_STMT, RETURN_STMT, EXPRESSION,
-           BINARY_EXPR, UNARY_EXPR, PAREN_EXPR, RELATIONAL_EXPR, LOGIC_EXPR, ADDITION_EXPR,
+      case FUNCTION, BLOCK, STATEMENT, ASSIGNMENT_STMT, IF_STMT, ELSE_BRANCH, WHILE_STMT, DO_WHILE_STMT, BREAK_STMT,
+           CONTINUE_STMT, RETURN_STMT, EXPRESSION, BINARY_EXPR, UNARY_EXPR, PREFIX_EXPR, SUFFIX_EXPR, PAREN_EXPR, RELATIONAL_EXPR, LOGIC_EXPR, ADDITION_EXPR,
            MULTIPLICATION_EXPR -> "middle-node";
       case DEFINITION, DECLARATION -> "declaration-node";
       case KEYWORD -> "keyword-node";
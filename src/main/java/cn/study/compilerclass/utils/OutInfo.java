@@ -1,5 +1,6 @@
 package cn.study.compilerclass.utils;
 
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import static cn.study.compilerclass.controller.CompilerController.outs;
 
@@ -44,6 +45,15 @@ public void warn(String src, String msg) {
     log.warn("[{}]-[{}] {}", src, OutType.WARN, msg);
   }
 
+  // 批量输出警告，只刷新一次输出面板
+  public void warn(String src, List<String> msgs) {
+    for (String msg : msgs) {
+      outInfos.append('[').append(src).append("]-[").append(OutType.WARN).append("] ").append(msg).append(System.lineSeparator());
+      log.warn("[{}]-[{}] {}", src, OutType.WARN, msg);
+    }
+    outs.set(toString());
+  }
+
   public void info(String src, String msg) {
     add(src, OutType.INFO, msg);
     log.info("[{}]-[{}] {}", src, OutType.INFO, msg);
@@ -0,0 +1,89 @@
+package cn.study.compilerclass.utils;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 转发写入并保留开头一段文本的输出流
+ * <p>
+ * 写入的内容原样转发给下层输出流，同时只保留前 limit 个字符作为界面上的预览，统计总字符数与行数，内存占用与输出总量无关。
+ */
+public class PreviewWriter extends FilterWriter {
+
+  private final int limit;
+  private final StringBuilder preview = new StringBuilder();
+  private long length;
+  private long lines;
+
+  /**
+   * @param out   下层输出流
+   * @param limit 预览保留的最大字符数
+   */
+  public PreviewWriter(Writer out, int limit) {
+    super(out);
+    this.limit = limit;
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    out.write(c);
+    if (preview.length() < limit) {
+      preview.append((char) c);
+    }
+    length++;
+    if (c == '\n') {
+      lines++;
+    }
+  }
+
+  @Override
+  public void write(char[] buf, int off, int len) throws IOException {
+    out.write(buf, off, len);
+    int keep = Math.min(len, limit - preview.length());
+    if (keep > 0) {
+      preview.append(buf, off, keep);
+    }
+    length += len;
+    for (int k = off; k < off + len; k++) {
+      if (buf[k] == '\n') {
+        lines++;
+      }
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    out.write(str, off, len);
+    int keep = Math.min(len, limit - preview.length());
+    if (keep > 0) {
+      preview.append(str, off, off + keep);
+    }
+    length += len;
+    for (int k = off; k < off + len; k++) {
+      if (str.charAt(k) == '\n') {
+        lines++;
+      }
+    }
+  }
+
+  // 写入的内容是否超出了预览
+  public boolean isTruncated() {
+    return length > preview.length();
+  }
+
+  /**
+   * @return 写入内容的前 limit 个字符
+   */
+  public String preview() {
+    return preview.toString();
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  public long getLines() {
+    return lines;
+  }
+}
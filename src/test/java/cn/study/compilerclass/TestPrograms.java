@@ -0,0 +1,193 @@
+package cn.study.compilerclass;
+
+import cn.study.compilerclass.ir.Interpreter;
+import cn.study.compilerclass.ir.OpCode;
+import cn.study.compilerclass.ir.Optimizer;
+import cn.study.compilerclass.ir.QuadTable;
+import cn.study.compilerclass.lexer.Lexer;
+import cn.study.compilerclass.lexer.Token;
+import cn.study.compilerclass.parser.Parser;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import cn.study.compilerclass.utils.OutInfo;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 测试用的示例程序与编译流程
+ * <p>
+ * 与界面中的流程一致：词法分析结果写入 JSON 文件后交给语法分析，再做不优化的语义分析，得到原始的四元式表。
+ */
+public final class TestPrograms {
+
+  /**
+   * 示例程序
+   *
+   * @param name   名称，用于断言信息
+   * @param source 源程序
+   * @param inputs 每次运行的输入，数之间用空格分隔
+   */
+  public record Sample(String name, String source, List<String> inputs) {
+
+  }
+
+  public static final List<Sample> SAMPLES = List.of(new Sample("常量、全局变量与分支", """
+      const int K = 3;
+      int g = 5;
+      void main() {
+        int a = 2, b;
+        b = a * K + g;
+        a++;
+        --b;
+        if (a > b) {
+          put(a);
+        } elif (a == b) {
+          put(b);
+        } else {
+          putc('x');
+        }
+        bool f = a < 4 && b != 0;
+        putb(f == True);
+        b += -a;
+        put(b);
+      }
+      """, List.of("")), new Sample("break、continue 与 do-while", """
+      void main() {
+        int i = 0, s = 0;
+        while (i < 10) {
+          i++;
+          if (i == 3) {
+            continue;
+          }
+          if (i == 8) {
+            break;
+          }
+          s += i;
+        }
+        do {
+          s -= 1;
+          if (s < 20) break;
+        } while (s > 0);
+        put(s);
+      }
+      """, List.of("")), new Sample("公共子表达式与循环不变量", """
+      const int M = 8;
+      void main() {
+        int a = input(), b = input(), c, d, e;
+        c = a * b + a * b;
+        d = (a + b) * (a + b);
+        e = a / M + b % M;
+        if (a > b) { c = a; } else { c = b; }
+        put(c); put(d); put(e);
+        int x = 0, y = 0;
+        while (x < 10) {
+          y = y + a * 4;
+          x = x + 1;
+        }
+        put(y);
+        bool t = a == b;
+        putb(t);
+        putb(t != True);
+      }
+      """, List.of("0 0", "5 3", "12 -4", "-33 5")), new Sample("交换与提前结束的循环", """
+      void main() {
+        int a = input(), b = input(), i = 0, t, s = 0;
+        while (i < 6) {
+          t = a; a = b; b = t;
+          i = i + 1;
+          if (a > b) { a = a - 1; continue; }
+          s = s + a;
+        }
+        put(a); put(b); put(s);
+        int x = a, y = b;
+        do { t = x; x = y; y = t; if (x == 3) break; } while (y > 0 && i < 20);
+        put(x); put(y);
+      }
+      """, List.of("0 0", "5 3", "30 30", "-7 2")), new Sample("循环中的 16 位回绕运算", """
+      void main() {
+        int a = input(), b = input(), c, d, e, f, i = 0, s = 0;
+        while (i < 6) {
+          c = (a * i + b) * (a - i) + (b * 3 - i) * (a + b + i);
+          d = ((a + 1) * (b + 2) - (a - 3) * (b - 4)) / (i + 1) % 97 + input();
+          e = (a + b) * (a - b) * (i + 2) / 64 + (c % 8) * 33 - d * 64;
+          f = (c + d) * (d + e) * (e + c) - (a * b) / (i - 9);
+          s = s + c - d + e * 2 - f % 1000;
+          i = i + 1;
+        }
+        put(s); put(c); put(d); put(e); put(f);
+      }
+      """, List.of("5 3 4 2 8 9 1 1", "-7 2 3 0 0 0 0 0")), new Sample("循环体内带初值的定义", """
+      void main() {
+        int s = 0;
+        int i = 0;
+        while (i < 10) {
+          int j = 0;
+          while (j < i) {
+            s = s + i + j;
+            j = j + 1;
+          }
+          i = i + 1;
+        }
+        put(s);
+      }
+      """, List.of("")));
+
+  private TestPrograms() {
+  }
+
+  /**
+   * 词法、语法与语义分析，不做优化
+   *
+   * @throws IllegalArgumentException 源程序有错误
+   */
+  public static SemanticAnalyzer analyze(String source) throws IOException {
+    OutInfo outInfos = new OutInfo();
+    List<Token> tokens = new Lexer(source, outInfos).analyze();
+    Path json = Files.createTempFile("tokens", ".json");
+    try {
+      Files.writeString(json, new GsonBuilder().disableHtmlEscaping().create().toJson(tokens));
+      Parser parser = new Parser(json.toString(), outInfos);
+      parser.parse();
+      SemanticAnalyzer analyzer = new SemanticAnalyzer(outInfos);
+      analyzer.setOptimize(false);
+      analyzer.analyze(parser.treeRoot);
+      if (outInfos.hasError() || parser.hasError() || analyzer.hasError()) {
+        throw new IllegalArgumentException("源程序有错误:" + System.lineSeparator() + source);
+      }
+      return analyzer;
+    } finally {
+      Files.deleteIfExists(json);
+    }
+  }
+
+  // 优化原始四元式表的副本，原表保持不变
+  public static QuadTable optimized(SemanticAnalyzer analyzer) {
+    QuadTable copy = QuadTable.fromEntries(analyzer.getQuads().toEntries());
+    return new Optimizer(analyzer.variableTable, analyzer.constTable).optimize(copy);
+  }
+
+  /**
+   * 解释执行四元式表
+   *
+   * @return 程序输出；异常停止时在末尾附上原因
+   */
+  public static String interpret(SemanticAnalyzer analyzer, QuadTable quads, String input) throws IOException {
+    StringBuilder output = new StringBuilder();
+    Interpreter.Result result = new Interpreter(quads, analyzer.variableTable, analyzer.constTable).run(Interpreter.integers(new StringReader(input)), output);
+    return result.stopReason() == null ? output.toString() : output + "<" + result.stopReason() + ">";
+  }
+
+  // 四元式表中操作码为 op 的四元式条数
+  public static int count(QuadTable quads, OpCode op) {
+    int count = 0;
+    for (int i = 0; i < quads.size(); i++) {
+      if (quads.getOp(i) == op) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
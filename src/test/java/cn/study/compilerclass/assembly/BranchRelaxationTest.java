@@ -0,0 +1,90 @@
+package cn.study.compilerclass.assembly;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 分支松弛：位移在 -128~127 内的跳转为短跳转，超出时无条件跳转改为近跳转、条件跳转改为越过近跳转的取反短跳转，目标不在序列中时为远跳转
+ */
+class BranchRelaxationTest {
+
+  // 跳转，其后 count 条 1 字节的 inc ax，最后是带标号 L 的目标
+  private static List<Instr> jumpOver(Mnemonic jump, int count) {
+    List<Instr> code = new ArrayList<>();
+    code.add(new Instr(jump, Operand.label("L")));
+    for (int k = 0; k < count; k++) {
+      code.add(new Instr(Mnemonic.INC, Operand.AX));
+    }
+    Instr target = new Instr(Mnemonic.INT, Operand.immediate("21h"));
+    target.labels.add("L");
+    code.add(target);
+    return code;
+  }
+
+  private static String text(List<Instr> code) {
+    StringBuilder out = new StringBuilder();
+    for (Instr instr : code) {
+      instr.appendTo(out);
+    }
+    return out.toString();
+  }
+
+  @Test
+  void jumpWithinShortRangeStaysShort() {
+    List<Instr> code = new BranchRelaxation(jumpOver(Mnemonic.JMP, 127)).run();
+    assertEquals("jmp short L\n", text(code.subList(0, 1)));
+    code = new BranchRelaxation(jumpOver(Mnemonic.JL, 127)).run();
+    assertEquals("jl L\n", text(code.subList(0, 1)));
+  }
+
+  @Test
+  void jumpBeyondShortRangeBecomesNear() {
+    BranchRelaxation relaxation = new BranchRelaxation(jumpOver(Mnemonic.JMP, 128));
+    List<Instr> code = relaxation.run();
+    assertEquals("jmp near ptr L\n", text(code.subList(0, 1)));
+    assertEquals("短跳转 0 个，近跳转 1 个，远跳转 0 个，代码 133 字节", relaxation.summary());
+  }
+
+  @Test
+  void conditionalJumpBeyondShortRangeSkipsOverNearJump() {
+    List<Instr> code = new BranchRelaxation(jumpOver(Mnemonic.JL, 128)).run();
+    assertEquals("""
+        jge _rx_0
+        jmp near ptr L
+        _rx_0: inc ax
+        """, text(code.subList(0, 3)));
+  }
+
+  // jmp M，count 条 inc ax，jmp L，M: inc ax，200 条 inc ax，L: int 21h
+  private static List<Instr> jumpOverJump(int count) {
+    List<Instr> code = jumpOver(Mnemonic.JMP, 201);
+    code.get(1).labels.add("M");
+    for (int k = 0; k < count; k++) {
+      code.addFirst(new Instr(Mnemonic.INC, Operand.AX));
+    }
+    code.addFirst(new Instr(Mnemonic.JMP, Operand.label("M")));
+    return code;
+  }
+
+  @Test
+  void lengthenedJumpPushesEnclosingJumpOutOfRange() {
+    // 内层跳转改为近跳转后多出 1 字节，外层跳转的位移由 127 变为 128
+    BranchRelaxation relaxation = new BranchRelaxation(jumpOverJump(125));
+    List<Instr> code = relaxation.run();
+    assertEquals("jmp near ptr M\n", text(code.subList(0, 1)));
+    assertEquals("短跳转 0 个，近跳转 2 个，远跳转 0 个，代码 334 字节", relaxation.summary());
+    relaxation = new BranchRelaxation(jumpOverJump(124));
+    code = relaxation.run();
+    assertEquals("jmp short M\n", text(code.subList(0, 1)));
+    assertEquals("短跳转 1 个，近跳转 1 个，远跳转 0 个，代码 332 字节", relaxation.summary());
+  }
+
+  @Test
+  void jumpToLabelOutsideSequenceIsFar() {
+    List<Instr> code = new BranchRelaxation(List.of(new Instr(Mnemonic.JMP, Operand.label("exit")))).run();
+    assertEquals("jmp far ptr exit\n", text(code));
+  }
+}
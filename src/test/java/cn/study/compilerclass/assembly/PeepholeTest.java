@@ -0,0 +1,101 @@
+package cn.study.compilerclass.assembly;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 窥孔优化：跳转化简、多余传送、无用运算与乘 2 的幂的移位改写；序列末尾之后认为没有活跃的寄存器
+ */
+class PeepholeTest {
+
+  private static final Operand A = Operand.memory("ds", "_a");
+
+  private static Instr labeled(String label, Instr instr) {
+    instr.labels.add(label);
+    return instr;
+  }
+
+  private static String optimize(Instr... code) {
+    StringBuilder out = new StringBuilder();
+    for (Instr instr : new Peephole(new ArrayList<>(List.of(code))).run()) {
+      instr.appendTo(out);
+    }
+    return out.toString();
+  }
+
+  @Test
+  void jumpsOverJumpsAreInvertedAndJumpsToNextRemoved() {
+    String code = optimize(
+        new Instr(Mnemonic.CMP, Operand.AX, Operand.BX),
+        new Instr(Mnemonic.JL, Operand.label("L1")),
+        new Instr(Mnemonic.JMP, Operand.label("L2")),
+        labeled("L1", new Instr(Mnemonic.MOV, A, Operand.ONE)),
+        labeled("L2", new Instr(Mnemonic.JMP, Operand.label("L3"))),
+        labeled("L3", new Instr(Mnemonic.MOV, A, Operand.ZERO)));
+    assertEquals("""
+        cmp ax, bx
+        jge L2
+        L1: mov ds:[_a], 1
+        L2:
+        L3: mov ds:[_a], 0
+        """, code);
+  }
+
+  @Test
+  void movesBackAndForthAreRemoved() {
+    String code = optimize(
+        new Instr(Mnemonic.MOV, Operand.AX, A),
+        new Instr(Mnemonic.MOV, A, Operand.AX),
+        new Instr(Mnemonic.MOV, Operand.BX, Operand.BX),
+        new Instr(Mnemonic.MOV, Operand.register("di"), Operand.AX),
+        new Instr(Mnemonic.INT, Operand.immediate("21h")));
+    assertEquals("""
+        mov ax, ds:[_a]
+        mov di, ax
+        int 21h
+        """, code);
+  }
+
+  @Test
+  void deadStoresAreRemovedAndZeroingUsesXor() {
+    String code = optimize(
+        new Instr(Mnemonic.MOV, Operand.CX, Operand.immediate(5)),
+        new Instr(Mnemonic.MOV, Operand.CX, Operand.ZERO),
+        new Instr(Mnemonic.MOV, A, Operand.CX));
+    assertEquals("""
+        xor cx, cx
+        mov ds:[_a], cx
+        """, code);
+  }
+
+  @Test
+  void multiplicationByPowerOfTwoBecomesShift() {
+    Instr[] code = {
+        new Instr(Mnemonic.MOV, Operand.AX, A),
+        new Instr(Mnemonic.MOV, Operand.BX, Operand.immediate(8)),
+        new Instr(Mnemonic.IMUL, Operand.BX),
+        new Instr(Mnemonic.MOV, A, Operand.AX)};
+    assertEquals("""
+        mov ax, ds:[_a]
+        shl ax, 1
+        shl ax, 1
+        shl ax, 1
+        mov ds:[_a], ax
+        """, optimize(code));
+    // 乘积的高 16 位（DX）仍被使用时保留乘法
+    Instr[] keep = {
+        new Instr(Mnemonic.MOV, Operand.AX, A),
+        new Instr(Mnemonic.MOV, Operand.BX, Operand.immediate(8)),
+        new Instr(Mnemonic.IMUL, Operand.BX),
+        new Instr(Mnemonic.MOV, A, Operand.DX)};
+    assertEquals("""
+        mov ax, ds:[_a]
+        mov bx, 8
+        imul bx
+        mov ds:[_a], dx
+        """, optimize(keep));
+  }
+}
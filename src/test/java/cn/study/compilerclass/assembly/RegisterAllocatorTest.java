@@ -0,0 +1,123 @@
+package cn.study.compilerclass.assembly;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.emulator.Assembler;
+import cn.study.compilerclass.emulator.Emulator;
+import cn.study.compilerclass.emulator.EmulatorException;
+import cn.study.compilerclass.emulator.Profile;
+import cn.study.compilerclass.ir.OpCode;
+import cn.study.compilerclass.ir.QuadTable;
+import cn.study.compilerclass.model.VariableTableEntry;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import cn.study.compilerclass.utils.OutInfo;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 临时变量的寄存器分配：跨过除法、长移位仍活跃的临时变量避开被破坏的寄存器，寄存器不足时溢出，生成的程序运行结果不变
+ */
+class RegisterAllocatorTest {
+
+  private static RegisterAllocator allocate(SemanticAnalyzer analyzer, QuadTable quads) {
+    List<String> variables = new ArrayList<>();
+    for (VariableTableEntry entry : analyzer.variableTable) {
+      variables.add(entry.getName());
+    }
+    return new RegisterAllocator(quads.toEntries(), variables);
+  }
+
+  // 第一条操作码为 op 的四元式的结果
+  private static String resultOf(QuadTable quads, OpCode op) {
+    for (int i = 0; i < quads.size(); i++) {
+      if (quads.getOp(i) == op) {
+        return quads.operandName(quads.getResult(i));
+      }
+    }
+    throw new AssertionError("没有 " + op);
+  }
+
+  // 生成汇编并模拟运行，输出中去掉 input() 的提示与回显
+  private static String emulate(SemanticAnalyzer analyzer, QuadTable quads, String input) throws IOException, EmulatorException {
+    StringWriter asm = new StringWriter();
+    AssemblyGenerator generator = new AssemblyGenerator(analyzer.constTable, analyzer.variableTable, analyzer.functionTable, new ArrayList<>(quads.toEntries()), new OutInfo());
+    assertTrue(generator.generateAssembly(asm));
+    StringBuilder output = new StringBuilder();
+    Profile profile = new Emulator(Assembler.assemble(asm.toString())).run(String.join("\n", input.trim().split("\\s+")) + "\n", output);
+    assertNull(profile.getStopReason(), input);
+    return output.toString().replaceAll("> [^\n]*\n", "");
+  }
+
+  @Test
+  void tempLiveAcrossDivisionAvoidsBx() throws IOException, EmulatorException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input();
+          put(a * b + a / b);
+        }
+        """);
+    QuadTable quads = analyzer.getQuads();
+    String product = resultOf(quads, OpCode.MUL);
+    String register = allocate(analyzer, quads).registerOf(product);
+    assertNotNull(register, product);
+    assertNotEquals("bx", register);
+    for (String input : new String[]{"7 3", "-300 7"}) {
+      assertEquals(TestPrograms.interpret(analyzer, quads, input), emulate(analyzer, quads, input), input);
+    }
+  }
+
+  @Test
+  void tempLiveAcrossLongShiftAvoidsCx() throws IOException, EmulatorException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input();
+          put(a * b + a * 64);
+        }
+        """);
+    QuadTable quads = TestPrograms.optimized(analyzer);
+    assertEquals(1, TestPrograms.count(quads, OpCode.SHL));
+    String product = resultOf(quads, OpCode.MUL);
+    String register = allocate(analyzer, quads).registerOf(product);
+    assertNotNull(register, product);
+    assertNotEquals("cx", register);
+    for (String input : new String[]{"7 3", "-3 100"}) {
+      assertEquals(TestPrograms.interpret(analyzer, quads, input), emulate(analyzer, quads, input), input);
+    }
+  }
+
+  @Test
+  void tempsBeyondFourRegistersAreSpilled() throws IOException, EmulatorException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input();
+          put((a + 1) * ((a + 2) * ((a + 3) * ((a + 4) * ((a + 5) * ((a + 6) * (a % b)))))));
+        }
+        """);
+    QuadTable quads = analyzer.getQuads();
+    RegisterAllocator allocator = allocate(analyzer, quads);
+    int inRegisters = 0;
+    int spilled = 0;
+    for (int i = 0; i < quads.size(); i++) {
+      if (quads.getOp(i) == OpCode.ADD) {
+        if (allocator.registerOf(quads.operandName(quads.getResult(i))) != null) {
+          inRegisters++;
+        } else {
+          spilled++;
+        }
+      }
+    }
+    assertTrue(inRegisters > 0 && inRegisters <= RegisterAllocator.REGISTERS.length, "分配到寄存器的和 " + inRegisters);
+    assertTrue(spilled > 0, "溢出的和 " + spilled);
+    for (String input : new String[]{"7 3", "-3 5", "2 -7"}) {
+      assertEquals(TestPrograms.interpret(analyzer, quads, input), emulate(analyzer, quads, input), input);
+    }
+  }
+}
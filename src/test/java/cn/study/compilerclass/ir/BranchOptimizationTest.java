@@ -0,0 +1,81 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 跳转优化：比较与条件跳转融合、条件取反与跳转穿透，改写前后程序输出相同
+ */
+class BranchOptimizationTest {
+
+  // 与优化器中的顺序一致，先由死代码删除去掉 if/while 翻译产生的成对条件跳转，再执行跳转优化
+  private static QuadTable branchOptimized(SemanticAnalyzer analyzer) {
+    Optimizer optimizer = new Optimizer(analyzer.variableTable, analyzer.constTable);
+    QuadTable copy = QuadTable.fromEntries(analyzer.getQuads().toEntries());
+    return new BranchOptimization(optimizer).run(new DeadCodeElimination(optimizer).run(copy));
+  }
+
+  private static void assertSameOutput(SemanticAnalyzer analyzer, QuadTable optimized, String... inputs) throws IOException {
+    for (String input : inputs) {
+      assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), input), TestPrograms.interpret(analyzer, optimized, input), input);
+    }
+  }
+
+  @Test
+  void comparisonIsFusedIntoConditionalJump() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input();
+          if (a < b) { put(a); } else { put(b); }
+          while (a != b) { a = a + 1; }
+          put(a);
+        }
+        """);
+    QuadTable optimized = branchOptimized(analyzer);
+    assertEquals(0, TestPrograms.count(optimized, OpCode.LT));
+    assertEquals(0, TestPrograms.count(optimized, OpCode.NE));
+    assertEquals(0, TestPrograms.count(optimized, OpCode.JNZ) + TestPrograms.count(optimized, OpCode.JZ));
+    assertSameOutput(analyzer, optimized, "1 5", "5 1", "3 3");
+  }
+
+  @Test
+  void comparisonStillUsedIsNotFused() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input();
+          bool f = a < b;
+          if (f) { put(a); }
+          putb(f);
+        }
+        """);
+    QuadTable optimized = branchOptimized(analyzer);
+    assertEquals(1, TestPrograms.count(optimized, OpCode.LT));
+    assertSameOutput(analyzer, optimized, "1 5", "5 1");
+  }
+
+  @Test
+  void jumpChainsAreThreaded() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), i = 0;
+          while (i < 5) {
+            i = i + 1;
+            if (a == 1) { put(1); } elif (a == 2) { put(2); } elif (a == 3) { break; } else { put(0); }
+          }
+          put(i);
+        }
+        """);
+    QuadTable optimized = branchOptimized(analyzer);
+    assertSameOutput(analyzer, optimized, "1", "2", "3", "4");
+    for (int i = 0; i < optimized.size(); i++) {
+      if (optimized.getOp(i).isJump()) {
+        assertNotEquals(OpCode.J, optimized.getOp(optimized.getTarget(i)), "第 " + i + " 条跳转到无条件跳转");
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 常量折叠：按 16 位有符号数回绕，各种进制的字面量都参与折叠，除零等运行时才出错的运算保留
+ */
+class ConstantFoldingTest {
+
+  @Test
+  void foldedArithmeticWrapsAround() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = 32767, b;
+          b = a + 1;
+          put(b);
+          put(200 * 200);
+          put(-32768 - 1);
+        }
+        """);
+    QuadTable optimized = TestPrograms.optimized(analyzer);
+    assertEquals(0, TestPrograms.count(optimized, OpCode.ADD));
+    assertEquals(0, TestPrograms.count(optimized, OpCode.MUL));
+    assertEquals(0, TestPrograms.count(optimized, OpCode.SUB));
+    assertEquals("-32768-2553632767", TestPrograms.interpret(analyzer, analyzer.getQuads(), ""));
+    assertEquals("-32768-2553632767", TestPrograms.interpret(analyzer, optimized, ""));
+  }
+
+  @Test
+  void prefixedLiteralsAreFolded() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = 0b101, b = 0x10, c = 017;
+          put(a + b + c);
+        }
+        """);
+    QuadTable optimized = TestPrograms.optimized(analyzer);
+    assertEquals(0, TestPrograms.count(optimized, OpCode.ADD));
+    assertEquals("36", TestPrograms.interpret(analyzer, optimized, ""));
+  }
+
+  @Test
+  void divisionByZeroIsNotFolded() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = 7, b = 0;
+          put(a / b);
+        }
+        """);
+    QuadTable optimized = TestPrograms.optimized(analyzer);
+    assertEquals(1, TestPrograms.count(optimized, OpCode.DIV));
+    assertTrue(TestPrograms.interpret(analyzer, optimized, "").startsWith("<除法溢出"));
+  }
+}
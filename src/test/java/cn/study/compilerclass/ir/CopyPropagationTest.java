@@ -0,0 +1,67 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 复制传播：读取复制目标改为读取源，源在复制之后被改写时保留原读取
+ */
+class CopyPropagationTest {
+
+  private static QuadTable propagated(SemanticAnalyzer analyzer) {
+    QuadTable copy = QuadTable.fromEntries(analyzer.getQuads().toEntries());
+    return new CopyPropagation(new Optimizer(analyzer.variableTable, analyzer.constTable)).run(copy);
+  }
+
+  // 第一条操作码为 op 的四元式
+  private static int first(QuadTable quads, OpCode op) {
+    for (int i = 0; i < quads.size(); i++) {
+      if (quads.getOp(i) == op) {
+        return i;
+      }
+    }
+    throw new AssertionError("没有 " + op);
+  }
+
+  @Test
+  void copiesAreForwarded() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), x, y;
+          x = a;
+          y = x + 1;
+          put(y);
+        }
+        """);
+    QuadTable quads = propagated(analyzer);
+    int add = first(quads, OpCode.ADD);
+    assertNotEquals("x", quads.operandName(quads.getArg1(add)));
+    assertNotEquals("y", quads.operandName(quads.getArg1(first(quads, OpCode.PARA))));
+    assertEquals("6", TestPrograms.interpret(analyzer, quads, "5"));
+  }
+
+  @Test
+  void copyKilledInLoopIsNotForwarded() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), x = 0, i = 0;
+          while (i < 3) {
+            x = a;
+            a = a + 1;
+            put(x);
+            i = i + 1;
+          }
+        }
+        """);
+    QuadTable quads = propagated(analyzer);
+    assertEquals("x", quads.operandName(quads.getArg1(first(quads, OpCode.PARA))));
+    for (String input : new String[]{"5", "-1"}) {
+      assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), input), TestPrograms.interpret(analyzer, quads, input), input);
+    }
+  }
+}
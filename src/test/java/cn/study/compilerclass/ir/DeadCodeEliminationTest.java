@@ -0,0 +1,83 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.assembly.AssemblyGenerator;
+import cn.study.compilerclass.emulator.Assembler;
+import cn.study.compilerclass.emulator.Emulator;
+import cn.study.compilerclass.emulator.EmulatorException;
+import cn.study.compilerclass.emulator.Profile;
+import cn.study.compilerclass.jit.CompiledProgram;
+import cn.study.compilerclass.jit.JitCompiler;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import cn.study.compilerclass.utils.OutInfo;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 死代码删除：结果不再使用的运算被删除，可能触发除法溢出的除法与取模即使商被丢弃也保留
+ */
+class DeadCodeEliminationTest {
+
+  private static final String DISCARDED_QUOTIENT = """
+      void main() {
+        int a = input(), b = input(), t, r;
+        t = a / b;
+        r = a % b;
+        put(a);
+      }
+      """;
+
+  @Test
+  void unusedResultsAreRemoved() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), t, u;
+          t = a * 3 + 1;
+          u = a / 4;
+          put(a);
+        }
+        """);
+    QuadTable optimized = TestPrograms.optimized(analyzer);
+    assertEquals(0, TestPrograms.count(optimized, OpCode.MUL));
+    assertEquals(0, TestPrograms.count(optimized, OpCode.ADD));
+    assertEquals(0, TestPrograms.count(optimized, OpCode.DIV));
+    assertEquals("9", TestPrograms.interpret(analyzer, optimized, "9"));
+  }
+
+  @Test
+  void discardedDivisionStillTraps() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze(DISCARDED_QUOTIENT);
+    QuadTable optimized = TestPrograms.optimized(analyzer);
+    assertEquals(1, TestPrograms.count(optimized, OpCode.DIV));
+    assertEquals(1, TestPrograms.count(optimized, OpCode.MOD));
+    CompiledProgram program = JitCompiler.compile(optimized, analyzer.variableTable, analyzer.constTable);
+    assertEquals("7", TestPrograms.interpret(analyzer, optimized, "7 2"));
+    for (String input : new String[]{"7 0", "-32768 -1"}) {
+      assertTrue(TestPrograms.interpret(analyzer, analyzer.getQuads(), input).startsWith("<除法溢出"), input);
+      assertTrue(TestPrograms.interpret(analyzer, optimized, input).startsWith("<除法溢出"), input);
+      StringBuilder output = new StringBuilder();
+      CompiledProgram.Result result = program.run(Interpreter.integers(new StringReader(input)), output);
+      assertTrue(result.stopReason() != null && result.stopReason().startsWith("除法溢出"), input);
+    }
+  }
+
+  @Test
+  void discardedDivisionStillTrapsInAssembly() throws IOException, EmulatorException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze(DISCARDED_QUOTIENT);
+    QuadTable optimized = TestPrograms.optimized(analyzer);
+    StringWriter asm = new StringWriter();
+    AssemblyGenerator generator = new AssemblyGenerator(analyzer.constTable, analyzer.variableTable, analyzer.functionTable, new ArrayList<>(optimized.toEntries()), new OutInfo());
+    assertTrue(generator.generateAssembly(asm));
+    Emulator emulator = new Emulator(Assembler.assemble(asm.toString()));
+    Profile profile = emulator.run("7\n2\n", new StringBuilder());
+    assertEquals(null, profile.getStopReason());
+    profile = emulator.run("7\n0\n", new StringBuilder());
+    assertTrue(profile.getStopReason() != null && profile.getStopReason().startsWith("除法溢出"));
+  }
+}
@@ -0,0 +1,130 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.TestPrograms.Sample;
+import cn.study.compilerclass.assembly.AssemblyGenerator;
+import cn.study.compilerclass.emulator.Assembler;
+import cn.study.compilerclass.emulator.Emulator;
+import cn.study.compilerclass.emulator.EmulatorException;
+import cn.study.compilerclass.emulator.Profile;
+import cn.study.compilerclass.jit.CompiledProgram;
+import cn.study.compilerclass.jit.JitCompiler;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import cn.study.compilerclass.utils.OutInfo;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 四元式解释器与其他执行方式的一致性：优化前后的四元式、编译为 JVM 字节码的程序与模拟运行的 8086 汇编输出相同
+ */
+class InterpreterTest {
+
+  @Test
+  void optimizedQuadsBehaveLikeOriginal() throws IOException {
+    for (Sample sample : TestPrograms.SAMPLES) {
+      SemanticAnalyzer analyzer = TestPrograms.analyze(sample.source());
+      QuadTable optimized = TestPrograms.optimized(analyzer);
+      for (String input : sample.inputs()) {
+        assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), input), TestPrograms.interpret(analyzer, optimized, input), sample.name() + " [" + input + "]");
+      }
+    }
+  }
+
+  @Test
+  void compiledProgramMatchesInterpreter() throws IOException {
+    for (Sample sample : TestPrograms.SAMPLES) {
+      SemanticAnalyzer analyzer = TestPrograms.analyze(sample.source());
+      for (QuadTable quads : new QuadTable[]{analyzer.getQuads(), TestPrograms.optimized(analyzer)}) {
+        CompiledProgram program = JitCompiler.compile(quads, analyzer.variableTable, analyzer.constTable);
+        for (String input : sample.inputs()) {
+          StringBuilder output = new StringBuilder();
+          CompiledProgram.Result result = program.run(Interpreter.integers(new StringReader(input)), output);
+          String compiled = result.stopReason() == null ? output.toString() : output + "<" + result.stopReason() + ">";
+          assertEquals(TestPrograms.interpret(analyzer, quads, input), compiled, sample.name() + " [" + input + "]");
+        }
+      }
+    }
+  }
+
+  @Test
+  void emulatedAssemblyMatchesInterpreter() throws IOException, EmulatorException {
+    for (Sample sample : TestPrograms.SAMPLES) {
+      SemanticAnalyzer analyzer = TestPrograms.analyze(sample.source());
+      QuadTable optimized = TestPrograms.optimized(analyzer);
+      StringWriter asm = new StringWriter();
+      AssemblyGenerator generator = new AssemblyGenerator(analyzer.constTable, analyzer.variableTable, analyzer.functionTable, new ArrayList<>(optimized.toEntries()), new OutInfo());
+      assertTrue(generator.generateAssembly(asm), sample.name());
+      Emulator emulator = new Emulator(Assembler.assemble(asm.toString()));
+      for (String input : sample.inputs()) {
+        StringBuilder output = new StringBuilder();
+        Profile profile = emulator.run(String.join("\n", input.trim().split("\\s+")) + "\n", output);
+        assertNull(profile.getStopReason(), sample.name() + " [" + input + "]");
+        // 模拟运行的输出中含有 input() 的提示与回显的输入
+        String emulated = output.toString().replaceAll("> [^\n]*\n", "");
+        assertEquals(TestPrograms.interpret(analyzer, optimized, input), emulated, sample.name() + " [" + input + "]");
+      }
+    }
+  }
+
+  @Test
+  void declarationInLoopBodyIsInitializedOnEveryIteration() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int s = 0;
+          int i = 0;
+          while (i < 10) {
+            int j = 0;
+            while (j < i) {
+              s = s + i + j;
+              j = j + 1;
+            }
+            i = i + 1;
+          }
+          put(s);
+        }
+        """);
+    assertEquals("405", TestPrograms.interpret(analyzer, analyzer.getQuads(), ""));
+    assertEquals("405", TestPrograms.interpret(analyzer, TestPrograms.optimized(analyzer), ""));
+  }
+
+  @Test
+  void divisionOverflowStopsTheProgram() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input();
+          put(a / b);
+          put(a);
+        }
+        """);
+    for (QuadTable quads : new QuadTable[]{analyzer.getQuads(), TestPrograms.optimized(analyzer)}) {
+      assertEquals("-37", TestPrograms.interpret(analyzer, quads, "7 -2"));
+      assertTrue(TestPrograms.interpret(analyzer, quads, "7 0").startsWith("<除法溢出"));
+      assertTrue(TestPrograms.interpret(analyzer, quads, "-32768 -1").startsWith("<除法溢出"));
+    }
+  }
+
+  @Test
+  void endlessLoopStopsAtStepLimit() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int i = 0;
+          while (i >= 0) {
+            i = i - 1;
+            i = i + 1;
+          }
+        }
+        """);
+    Interpreter interpreter = new Interpreter(analyzer.getQuads(), analyzer.variableTable, analyzer.constTable);
+    interpreter.setMaxSteps(1000);
+    Interpreter.Result result = interpreter.run(Interpreter.integers(new StringReader("")), new StringBuilder());
+    assertEquals(1000, result.steps());
+    assertTrue(result.stopReason().startsWith("超过四元式执行条数上限"));
+  }
+}
@@ -0,0 +1,129 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 循环不变代码外提的条件（只外提不会出错、结果在循环入口不活跃且离开循环前必定执行的运算）与归纳变量乘法的强度削弱
+ */
+class LoopOptimizationTest {
+
+  // 与优化器中的顺序一致，先由复制传播把 (+, i, 1, t)(=, t, , i) 合并为 (+, i, 1, i)，死代码删除去掉成对的条件跳转
+  private static QuadTable loopOptimized(SemanticAnalyzer analyzer) {
+    Optimizer optimizer = new Optimizer(analyzer.variableTable, analyzer.constTable);
+    QuadTable quads = QuadTable.fromEntries(analyzer.getQuads().toEntries());
+    quads = new DeadCodeElimination(optimizer).run(new CopyPropagation(optimizer).run(quads));
+    return new LoopOptimization(optimizer).run(quads);
+  }
+
+  // 第一条操作码为 op 的四元式
+  private static int first(QuadTable quads, OpCode op) {
+    for (int i = 0; i < quads.size(); i++) {
+      if (quads.getOp(i) == op) {
+        return i;
+      }
+    }
+    throw new AssertionError("没有 " + op);
+  }
+
+  // 最后一条写入变量 name 的四元式
+  private static int lastDefOf(QuadTable quads, String name) {
+    for (int i = quads.size() - 1; i >= 0; i--) {
+      if (quads.getOp(i).definesResult() && quads.operandName(quads.getResult(i)).equals(name)) {
+        return i;
+      }
+    }
+    throw new AssertionError("没有写入 " + name + " 的四元式");
+  }
+
+  private static void assertSameOutput(SemanticAnalyzer analyzer, QuadTable optimized, String... inputs) throws IOException {
+    for (String input : inputs) {
+      assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), input), TestPrograms.interpret(analyzer, optimized, input), input);
+    }
+  }
+
+  @Test
+  void invariantOperationsAreHoisted() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), i = 0, y = 0;
+          while (i < 10) {
+            y = y + a * 3 + a / 7;
+            i = i + 1;
+          }
+          put(y);
+        }
+        """);
+    QuadTable quads = loopOptimized(analyzer);
+    int header = first(quads, OpCode.LT);
+    assertTrue(first(quads, OpCode.MUL) < header);
+    assertTrue(first(quads, OpCode.DIV) < header);
+    assertSameOutput(analyzer, quads, "5", "-300");
+  }
+
+  @Test
+  void divisionByVariableStaysInLoop() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input(), i = input(), y = 0;
+          while (i < 3) {
+            y = y + a / b + a % b;
+            i = i + 1;
+          }
+          put(y);
+        }
+        """);
+    QuadTable quads = loopOptimized(analyzer);
+    int header = first(quads, OpCode.LT);
+    assertTrue(first(quads, OpCode.DIV) > header);
+    assertTrue(first(quads, OpCode.MOD) > header);
+    // 循环体一次也不执行时不能出错
+    assertSameOutput(analyzer, quads, "7 0 5", "-32768 -1 5", "7 2 0");
+  }
+
+  @Test
+  void resultLiveAtHeaderOrExitIsNotHoisted() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), i = 0, t = 0, x = 0;
+          while (i < 3) {
+            put(t);
+            t = a * 2;
+            if (i == 5) { x = a + 4; }
+            i = i + 1;
+          }
+          put(x);
+        }
+        """);
+    QuadTable quads = loopOptimized(analyzer);
+    int header = first(quads, OpCode.LT);
+    assertTrue(lastDefOf(quads, "t") > header);
+    assertTrue(lastDefOf(quads, "x") > header);
+    assertSameOutput(analyzer, quads, "5", "-4");
+  }
+
+  @Test
+  void inductionVariableMultiplicationIsReduced() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int i = input(), s = 0;
+          while (i < 10) {
+            s = s + i * 5;
+            i = i + 1;
+          }
+          put(s);
+        }
+        """);
+    QuadTable quads = loopOptimized(analyzer);
+    int header = first(quads, OpCode.LT);
+    for (int i = header; i < quads.size(); i++) {
+      assertTrue(quads.getOp(i) != OpCode.MUL, "循环中仍有乘法：第 " + i + " 条");
+    }
+    assertSameOutput(analyzer, quads, "0", "-7", "12");
+  }
+}
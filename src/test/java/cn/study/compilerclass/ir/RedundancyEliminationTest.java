@@ -0,0 +1,49 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 基于可用表达式的冗余运算删除：每条路径上都已计算的表达式不再重复计算，操作数在某条路径上被重新定值时保留
+ */
+class RedundancyEliminationTest {
+
+  private static void assertSameOutput(SemanticAnalyzer analyzer, QuadTable optimized, String... inputs) throws IOException {
+    for (String input : inputs) {
+      assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), input), TestPrograms.interpret(analyzer, optimized, input), input);
+    }
+  }
+
+  @Test
+  void expressionComputedOnBothBranchesIsReused() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input(), c = input(), x;
+          if (c > 0) { x = a * b + 1; } else { x = a * b - 1; }
+          put(x + a * b);
+        }
+        """);
+    QuadTable optimized = TestPrograms.optimized(analyzer);
+    assertEquals(3, TestPrograms.count(analyzer.getQuads(), OpCode.MUL));
+    assertEquals(2, TestPrograms.count(optimized, OpCode.MUL));
+    assertSameOutput(analyzer, optimized, "5 3 1", "5 3 0", "-300 200 7");
+  }
+
+  @Test
+  void expressionKilledOnOnePathIsRecomputed() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input(), c = input(), x;
+          if (c > 0) { x = a * b; } else { x = a * b; a = input(); }
+          put(x); put(a * b);
+        }
+        """);
+    QuadTable optimized = TestPrograms.optimized(analyzer);
+    assertEquals(3, TestPrograms.count(optimized, OpCode.MUL));
+    assertSameOutput(analyzer, optimized, "5 3 1", "5 3 0 4");
+  }
+}
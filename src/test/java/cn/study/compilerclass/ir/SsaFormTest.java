@@ -0,0 +1,74 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.TestPrograms.Sample;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SSA 形式：每个值只定义一次，循环头放置 φ，构造后直接销毁不改变程序输出，并行复制的串行化正确处理循环依赖
+ */
+class SsaFormTest {
+
+  private static SsaForm ssa(SemanticAnalyzer analyzer) {
+    QuadTable copy = QuadTable.fromEntries(analyzer.getQuads().toEntries());
+    return new SsaForm(copy, new Optimizer(analyzer.variableTable, analyzer.constTable));
+  }
+
+  @Test
+  void everyValueIsDefinedOnce() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), i = 0, s = 0;
+          while (i < a) {
+            if (i % 2 == 0) { s = s + i; } else { s = s - 1; }
+            i = i + 1;
+          }
+          put(s);
+        }
+        """);
+    SsaForm ssa = ssa(analyzer);
+    boolean[] defined = new boolean[ssa.getValueCount()];
+    for (int v : ssa.getDef()) {
+      if (v >= 0) {
+        assertTrue(!defined[v], "值 " + v + " 被定义了多次");
+        defined[v] = true;
+      }
+    }
+    // 循环头的 i、s 与 if 汇合处的 s
+    assertTrue(ssa.phiCount() >= 3, "φ 个数 " + ssa.phiCount());
+  }
+
+  // 复制传播延长了活跃区间，同一变量的两个值可能同时活跃，销毁时需要改名
+  @Test
+  void roundTripPreservesOutput() throws IOException {
+    for (Sample sample : TestPrograms.SAMPLES) {
+      SemanticAnalyzer analyzer = TestPrograms.analyze(sample.source());
+      Optimizer optimizer = new Optimizer(analyzer.variableTable, analyzer.constTable);
+      QuadTable propagated = new CopyPropagation(optimizer).run(QuadTable.fromEntries(analyzer.getQuads().toEntries()));
+      for (QuadTable quads : new QuadTable[]{QuadTable.fromEntries(analyzer.getQuads().toEntries()), propagated}) {
+        QuadTable destructed = new SsaForm(quads, optimizer).destruct();
+        for (String input : sample.inputs()) {
+          assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), input), TestPrograms.interpret(analyzer, destructed, input), sample.name() + " [" + input + "]");
+        }
+      }
+    }
+  }
+
+  @Test
+  void cyclicParallelCopyUsesScratch() {
+    // (a, b, c) := (b, c, a)，操作数 1..3 为 a、b、c，4 为临时变量
+    int[] sequence = SsaForm.sequentialize(new int[]{1, 2, 3}, new int[]{2, 3, 1}, 3, 4);
+    int[] value = {0, 10, 20, 30, 0};
+    for (int k = 0; k < sequence.length; k += 2) {
+      value[sequence[k]] = value[sequence[k + 1]];
+    }
+    assertEquals("[20, 30, 10]", Arrays.toString(Arrays.copyOfRange(value, 1, 4)));
+    assertEquals(8, sequence.length);
+  }
+}
@@ -0,0 +1,77 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 临时变量的存储单元复用：活跃区间不相交的临时变量共用编号，同时活跃的临时变量编号不同
+ */
+class TempAllocationTest {
+
+  private static QuadTable allocated(SemanticAnalyzer analyzer) {
+    QuadTable copy = QuadTable.fromEntries(analyzer.getQuads().toEntries());
+    return new TempAllocation(new Optimizer(analyzer.variableTable, analyzer.constTable)).run(copy);
+  }
+
+  // 四元式表中出现的临时变量名
+  private static Set<String> temps(QuadTable quads) {
+    Set<String> names = new HashSet<>();
+    for (int i = 0; i < quads.size(); i++) {
+      // 跳转的结果字段是四元式序号
+      int result = quads.getOp(i).isJump() ? QuadTable.NONE : quads.getResult(i);
+      for (int operand : new int[]{quads.getArg1(i), quads.getArg2(i), result}) {
+        String name = quads.operandName(operand);
+        if (OperandIndex.isTemp(name)) {
+          names.add(name);
+        }
+      }
+    }
+    return names;
+  }
+
+  @Test
+  void disjointTempsShareSlots() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input();
+          put(a * 2); put(a * 3); put(a * 4); put(a * 5); put(a * 6); put(a * 7);
+        }
+        """);
+    QuadTable quads = allocated(analyzer);
+    assertTrue(temps(analyzer.getQuads()).size() >= 12);
+    assertTrue(temps(quads).size() <= 2, "临时变量 " + temps(quads));
+    assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), "9"), TestPrograms.interpret(analyzer, quads, "9"));
+  }
+
+  @Test
+  void simultaneouslyLiveTempsKeepDistinctSlots() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input(), i = 0, s = 0;
+          while (i < 4) {
+            s = s + (a * b + i) * ((a - b) * (a + b) - i);
+            i = i + 1;
+          }
+          put(s);
+        }
+        """);
+    QuadTable quads = allocated(analyzer);
+    for (int i = 0; i < quads.size(); i++) {
+      String a = quads.operandName(quads.getArg1(i));
+      if (quads.getOp(i).isBinary() && OperandIndex.isTemp(a)) {
+        assertNotEquals(a, quads.operandName(quads.getArg2(i)), "第 " + i + " 条");
+      }
+    }
+    for (String input : new String[]{"5 3", "-120 77"}) {
+      assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), input), TestPrograms.interpret(analyzer, quads, input), input);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package cn.study.compilerclass.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 局部值编号：块内重复计算的表达式改写为复制，操作数被改写后不再复用
+ */
+class ValueNumberingTest {
+
+  private static QuadTable numbered(SemanticAnalyzer analyzer) {
+    return new ValueNumbering().run(QuadTable.fromEntries(analyzer.getQuads().toEntries()));
+  }
+
+  private static void assertSameOutput(SemanticAnalyzer analyzer, QuadTable optimized, String... inputs) throws IOException {
+    for (String input : inputs) {
+      assertEquals(TestPrograms.interpret(analyzer, analyzer.getQuads(), input), TestPrograms.interpret(analyzer, optimized, input), input);
+    }
+  }
+
+  @Test
+  void repeatedExpressionIsComputedOnce() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input(), c, d;
+          c = a * b + a * b;
+          d = b * a - (a - b) + (b - a);
+          put(c); put(d);
+        }
+        """);
+    QuadTable numbered = numbered(analyzer);
+    assertEquals(3, TestPrograms.count(analyzer.getQuads(), OpCode.MUL));
+    assertEquals(1, TestPrograms.count(numbered, OpCode.MUL));
+    assertEquals(3, TestPrograms.count(numbered, OpCode.SUB));
+    assertSameOutput(analyzer, numbered, "5 3", "-200 300");
+  }
+
+  @Test
+  void redefinedOperandIsNotReused() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int a = input(), b = input(), c, d;
+          c = a * b;
+          a = a + 1;
+          d = a * b;
+          put(c); put(d);
+        }
+        """);
+    QuadTable numbered = numbered(analyzer);
+    assertEquals(2, TestPrograms.count(numbered, OpCode.MUL));
+    assertSameOutput(analyzer, numbered, "5 3", "-7 2");
+  }
+}
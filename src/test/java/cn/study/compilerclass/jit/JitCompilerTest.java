@@ -0,0 +1,68 @@
+package cn.study.compilerclass.jit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.study.compilerclass.TestPrograms;
+import cn.study.compilerclass.ir.Interpreter;
+import cn.study.compilerclass.ir.QuadTable;
+import cn.study.compilerclass.syntax.SemanticAnalyzer;
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 四元式编译为 JVM 字节码：远分支、方法长度上限与运行限制
+ */
+class JitCompilerTest {
+
+  // 循环体由 statements 条赋值组成的程序，每条赋值约生成 60 字节的字节码
+  private static String longLoop(int statements) {
+    StringBuilder source = new StringBuilder("void main() {\n  int a = input(), b = input(), c = 1, i = 0;\n  while (i < 2) {\n");
+    for (int k = 0; k < statements; k++) {
+      source.append("    a = (a + b * ").append(k % 7 + 2).append(" - c) % 1000;\n");
+    }
+    return source.append("    i = i + 1;\n  }\n  put(a);\n}\n").toString();
+  }
+
+  private static String run(CompiledProgram program, String input) throws IOException {
+    StringBuilder output = new StringBuilder();
+    CompiledProgram.Result result = program.run(Interpreter.integers(new StringReader(input)), output);
+    return result.stopReason() == null ? output.toString() : output + "<" + result.stopReason() + ">";
+  }
+
+  @Test
+  void branchesBeyondShortOffsetRangeAreRelaxed() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze(longLoop(700));
+    QuadTable quads = analyzer.getQuads();
+    CompiledProgram program = JitCompiler.compile(quads, analyzer.variableTable, analyzer.constTable);
+    assertTrue(program.getClassSize() > Short.MAX_VALUE, "循环的回边需要超出 16 位偏移");
+    for (String input : new String[]{"5 3", "-7 11"}) {
+      assertEquals(TestPrograms.interpret(analyzer, quads, input), run(program, input));
+    }
+  }
+
+  @Test
+  void methodLongerThan64KbIsRejected() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze(longLoop(1500));
+    assertThrows(IllegalArgumentException.class, () -> JitCompiler.compile(analyzer.getQuads(), analyzer.variableTable, analyzer.constTable));
+  }
+
+  @Test
+  void endlessLoopStopsAtJumpLimit() throws IOException {
+    SemanticAnalyzer analyzer = TestPrograms.analyze("""
+        void main() {
+          int i = 0;
+          while (i >= 0) {
+            i = i - 1;
+            i = i + 1;
+          }
+          put(i);
+        }
+        """);
+    CompiledProgram program = JitCompiler.compile(analyzer.getQuads(), analyzer.variableTable, analyzer.constTable);
+    program.setMaxJumps(1000);
+    assertTrue(run(program, "").startsWith("<超过向回跳转次数上限"));
+  }
+}